@@ -21,6 +21,7 @@ import de.fraunhofer.iosb.ilt.frostserver.settings.ConfigDefaults;
 import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
 import de.fraunhofer.iosb.ilt.frostserver.settings.annotation.DefaultValue;
 import de.fraunhofer.iosb.ilt.frostserver.settings.annotation.DefaultValueBoolean;
+import de.fraunhofer.iosb.ilt.frostserver.settings.annotation.DefaultValueInt;
 import de.fraunhofer.iosb.ilt.frostserver.util.AuthProvider;
 import de.fraunhofer.iosb.ilt.frostserver.util.LiquibaseUser;
 import de.fraunhofer.iosb.ilt.frostserver.util.exception.UpgradeFailedException;
@@ -41,6 +42,13 @@ public class BasicAuthProvider implements AuthProvider, LiquibaseUser, ConfigDef
     @DefaultValue("FROST-Server")
     public static final String TAG_AUTH_REALM_NAME = "realmName";
 
+    @DefaultValueInt(1000)
+    public static final String TAG_USER_CACHE_SIZE = "userCacheSize";
+    @DefaultValueInt(60)
+    public static final String TAG_USER_CACHE_TTL = "userCacheTtl";
+    @DefaultValueInt(10)
+    public static final String TAG_USER_CACHE_MISS_TTL = "userCacheMissTtl";
+
     @DefaultValue("read")
     public static final String TAG_ROLE_GET = "roleGet";
     @DefaultValue("update")
@@ -19,19 +19,34 @@ package de.fraunhofer.iosb.ilt.frostserver.auth.basic;
 
 import static de.fraunhofer.iosb.ilt.frostserver.auth.basic.BasicAuthProvider.LIQUIBASE_CHANGELOG_FILENAME;
 import static de.fraunhofer.iosb.ilt.frostserver.auth.basic.BasicAuthProvider.TAG_AUTO_UPDATE_DATABASE;
+import static de.fraunhofer.iosb.ilt.frostserver.auth.basic.BasicAuthProvider.TAG_USER_CACHE_MISS_TTL;
+import static de.fraunhofer.iosb.ilt.frostserver.auth.basic.BasicAuthProvider.TAG_USER_CACHE_SIZE;
+import static de.fraunhofer.iosb.ilt.frostserver.auth.basic.BasicAuthProvider.TAG_USER_CACHE_TTL;
 import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.utils.ConnectionUtils;
 import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.utils.ConnectionUtils.ConnectionWrapper;
 import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.utils.LiquibaseHelper;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.utils.LruTtlCache;
 import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
 import de.fraunhofer.iosb.ilt.frostserver.settings.Settings;
 import de.fraunhofer.iosb.ilt.frostserver.util.LiquibaseUtils;
+import de.fraunhofer.iosb.ilt.frostserver.util.StringHelper;
 import de.fraunhofer.iosb.ilt.frostserver.util.exception.UpgradeFailedException;
 import java.io.IOException;
 import java.io.Writer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import org.jooq.DSLContext;
-import org.jooq.Record1;
+import org.jooq.Record2;
+import org.jooq.Result;
 import org.jooq.SQLDialect;
 import org.jooq.impl.DSL;
 import org.slf4j.Logger;
@@ -52,9 +67,32 @@ public class DatabaseHandler {
 
     private static DatabaseHandler instance;
 
+    /**
+     * Compared against when a user does not exist, so that checking a
+     * non-existing user takes as long as checking a wrong password.
+     */
+    private static final byte[] NO_USER_HASH = hashPassword("");
+
     private final CoreSettings coreSettings;
     private final Settings authSettings;
-    private boolean maybeUpdateDatabase;
+    private volatile boolean maybeUpdateDatabase;
+
+    /**
+     * The users, by name, or null if caching is disabled.
+     */
+    private final LruTtlCache<String, UserData> userCache;
+    /**
+     * The user names that do not exist, or null if caching them is disabled.
+     * Kept apart from the users, so that requests with random user names can
+     * not push the real users out of the cache.
+     */
+    private final LruTtlCache<String, UserData> missCache;
+    /**
+     * Cached users older than this are reloaded in the background.
+     */
+    private final long refreshAfterMillis;
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+    private ExecutorService refresher;
 
     public static void init(CoreSettings coreSettings) {
         if (instance == null) {
@@ -76,28 +114,33 @@ public class DatabaseHandler {
         return instance;
     }
 
-    private DatabaseHandler(CoreSettings coreSettings) {
+    DatabaseHandler(CoreSettings coreSettings) {
         this.coreSettings = coreSettings;
         authSettings = coreSettings.getAuthSettings();
         maybeUpdateDatabase = authSettings.getBoolean(TAG_AUTO_UPDATE_DATABASE, BasicAuthProvider.class);
+        int cacheSize = authSettings.getInt(TAG_USER_CACHE_SIZE, BasicAuthProvider.class);
+        int cacheTtl = authSettings.getInt(TAG_USER_CACHE_TTL, BasicAuthProvider.class);
+        int missTtl = authSettings.getInt(TAG_USER_CACHE_MISS_TTL, BasicAuthProvider.class);
+        if (cacheSize > 0 && cacheTtl > 0) {
+            long ttlMillis = TimeUnit.SECONDS.toMillis(cacheTtl);
+            userCache = new LruTtlCache<>(cacheSize, ttlMillis);
+            refreshAfterMillis = ttlMillis / 2;
+            LOGGER.info("Caching up to {} users for {} seconds.", cacheSize, cacheTtl);
+        } else {
+            userCache = null;
+            refreshAfterMillis = 0;
+        }
+        if (cacheSize > 0 && missTtl > 0) {
+            missCache = new LruTtlCache<>(cacheSize, TimeUnit.SECONDS.toMillis(missTtl));
+            LOGGER.info("Caching up to {} unknown user names for {} seconds.", cacheSize, missTtl);
+        } else {
+            missCache = null;
+        }
     }
 
     public boolean isValidUser(String userName, String password) {
-        maybeUpdateDatabase();
-        try (final ConnectionWrapper connectionProvider = new ConnectionWrapper(authSettings, CONNECTION_NAME)) {
-            final DSLContext dslContext = DSL.using(connectionProvider.get(), SQLDialect.POSTGRES);
-            Record1<Integer> one = dslContext
-                    .selectOne()
-                    .from(TableUsers.USERS)
-                    .where(
-                            TableUsers.USERS.userName.eq(userName)
-                                    .and(TableUsers.USERS.userPass.eq(password))
-                    ).fetchOne();
-            return one != null;
-        } catch (SQLException | RuntimeException exc) {
-            LOGGER.error("Failed to check user credentials.", exc);
-            return false;
-        }
+        UserData user = getUserData(userName);
+        return user != null && user.passwordMatches(password);
     }
 
     /**
@@ -110,48 +153,148 @@ public class DatabaseHandler {
      * given role.
      */
     public boolean userHasRole(String userName, String userPass, String roleName) {
+        UserData user = getUserData(userName);
+        return user != null && user.passwordMatches(userPass) && user.hasRole(roleName);
+    }
+
+    public boolean userHasRole(String userName, String roleName) {
+        UserData user = getUserData(userName);
+        return user != null && user.hasRole(roleName);
+    }
+
+    /**
+     * Get the password and roles of the given user, from the cache if
+     * possible. Users that are about to expire from the cache are reloaded in
+     * the background, so that active users do not have to wait for the
+     * database. User names that do not exist are cached separately, for a
+     * shorter time, so that checking them does not hit the database either.
+     *
+     * @param userName The name of the user to get.
+     * @return The user data, or null if the database could not be queried.
+     */
+    private UserData getUserData(String userName) {
+        if (userName == null) {
+            return null;
+        }
         maybeUpdateDatabase();
+        if (userCache != null) {
+            UserData user = userCache.get(userName);
+            if (user != null) {
+                if (System.currentTimeMillis() - user.loaded > refreshAfterMillis) {
+                    refreshInBackground(userName);
+                }
+                return user;
+            }
+        }
+        if (missCache != null) {
+            UserData miss = missCache.get(userName);
+            if (miss != null) {
+                return miss;
+            }
+        }
+        UserData user = loadUserData(userName);
+        if (user != null) {
+            cache(userName, user);
+        }
+        return user;
+    }
+
+    private void cache(String userName, UserData user) {
+        if (user.exists()) {
+            if (userCache != null) {
+                userCache.put(userName, user);
+            }
+            if (missCache != null) {
+                missCache.remove(userName);
+            }
+        } else {
+            if (userCache != null) {
+                userCache.remove(userName);
+            }
+            if (missCache != null) {
+                missCache.put(userName, user);
+            }
+        }
+    }
+
+    private void refreshInBackground(String userName) {
+        if (!refreshing.add(userName)) {
+            return;
+        }
+        getRefresher().execute(() -> {
+            try {
+                UserData user = loadUserData(userName);
+                if (user != null) {
+                    cache(userName, user);
+                }
+            } finally {
+                refreshing.remove(userName);
+            }
+        });
+    }
+
+    private synchronized ExecutorService getRefresher() {
+        if (refresher == null) {
+            refresher = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "FROST-Auth-Refresh");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return refresher;
+    }
+
+    /**
+     * Load the password and roles of the given user from the database, in a
+     * single query.
+     *
+     * @param userName The name of the user to load.
+     * @return The user data, or null if the database could not be queried.
+     */
+    UserData loadUserData(String userName) {
         try (final ConnectionWrapper connectionProvider = new ConnectionWrapper(authSettings, CONNECTION_NAME)) {
             final DSLContext dslContext = DSL.using(connectionProvider.get(), SQLDialect.POSTGRES);
-            Record1<Integer> one = dslContext
-                    .selectOne()
+            Result<Record2<String, String>> result = dslContext
+                    .select(TableUsers.USERS.userPass, TableUsersRoles.USER_ROLES.roleName)
                     .from(TableUsers.USERS)
                     .leftJoin(TableUsersRoles.USER_ROLES)
                     .on(TableUsers.USERS.userName.eq(TableUsersRoles.USER_ROLES.userName))
-                    .where(
-                            TableUsers.USERS.userName.eq(userName)
-                                    .and(TableUsers.USERS.userPass.eq(userPass))
-                                    .and(TableUsersRoles.USER_ROLES.roleName.eq(roleName))
-                    ).fetchOne();
-            return one != null;
+                    .where(TableUsers.USERS.userName.eq(userName))
+                    .fetch();
+            if (result.isEmpty()) {
+                return new UserData(null, Collections.emptySet());
+            }
+            Set<String> roles = new HashSet<>();
+            for (Record2<String, String> userRecord : result) {
+                if (userRecord.value2() != null) {
+                    roles.add(userRecord.value2());
+                }
+            }
+            return new UserData(result.get(0).value1(), roles);
         } catch (SQLException | RuntimeException exc) {
-            LOGGER.error("Failed to check user rights.", exc);
-            return false;
+            LOGGER.error("Failed to load user data.", exc);
+            return null;
         }
     }
 
-    public boolean userHasRole(String userName, String roleName) {
-        try (final ConnectionWrapper connectionProvider = new ConnectionWrapper(authSettings, CONNECTION_NAME)) {
-            final DSLContext dslContext = DSL.using(connectionProvider.get(), SQLDialect.POSTGRES);
-            Record1<Integer> one = dslContext
-                    .selectOne()
-                    .from(TableUsersRoles.USER_ROLES)
-                    .where(
-                            TableUsersRoles.USER_ROLES.userName.eq(userName)
-                                    .and(TableUsersRoles.USER_ROLES.roleName.eq(roleName))
-                    ).fetchOne();
-            return one != null;
-        } catch (SQLException | RuntimeException exc) {
-            LOGGER.error("Failed to check user rights.", exc);
-            return false;
+    private static byte[] hashPassword(String password) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(password.getBytes(StringHelper.UTF8));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 not available.", ex);
         }
     }
 
     private void maybeUpdateDatabase() {
-        if (maybeUpdateDatabase) {
-            BasicAuthProvider basicAuthProvider = new BasicAuthProvider();
-            basicAuthProvider.init(coreSettings);
-            maybeUpdateDatabase = LiquibaseUtils.maybeUpdateDatabase(LOGGER, basicAuthProvider);
+        if (!maybeUpdateDatabase) {
+            return;
+        }
+        synchronized (this) {
+            if (maybeUpdateDatabase) {
+                BasicAuthProvider basicAuthProvider = new BasicAuthProvider();
+                basicAuthProvider.init(coreSettings);
+                maybeUpdateDatabase = LiquibaseUtils.maybeUpdateDatabase(LOGGER, basicAuthProvider);
+            }
         }
     }
 
@@ -179,4 +322,50 @@ public class DatabaseHandler {
             return false;
         }
     }
+
+    /**
+     * The password and roles of a user. Only a hash of the password is kept.
+     */
+    static class UserData {
+
+        private final byte[] passwordHash;
+        private final Set<String> roles;
+        private final long loaded = System.currentTimeMillis();
+
+        /**
+         * @param password The password of the user, or null if the user does
+         * not exist.
+         * @param roles The roles of the user.
+         */
+        UserData(String password, Set<String> roles) {
+            this.passwordHash = password == null ? null : hashPassword(password);
+            this.roles = roles;
+        }
+
+        /**
+         * Compares the given password with the password of the user, in a
+         * time that does not depend on the passwords, or on the user
+         * existing.
+         *
+         * @param password The password to check.
+         * @return true if the user exists and has the given password.
+         */
+        public boolean passwordMatches(String password) {
+            byte[] given = hashPassword(password == null ? "" : password);
+            byte[] expected = passwordHash == null ? NO_USER_HASH : passwordHash;
+            boolean equal = MessageDigest.isEqual(given, expected);
+            return equal && passwordHash != null && password != null;
+        }
+
+        /**
+         * @return true if the user exists in the database.
+         */
+        public boolean exists() {
+            return passwordHash != null;
+        }
+
+        public boolean hasRole(String roleName) {
+            return roles.contains(roleName);
+        }
+    }
 }
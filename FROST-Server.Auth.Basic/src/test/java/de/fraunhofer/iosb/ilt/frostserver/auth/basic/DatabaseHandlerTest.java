@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.auth.basic;
+
+import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author scf
+ */
+public class DatabaseHandlerTest {
+
+    @Test
+    public void testHitsAndMissesAreCached() {
+        TestDatabaseHandler handler = new TestDatabaseHandler(createSettings("10", "60", "10"));
+        handler.users.put("alice", "secret");
+
+        Assert.assertTrue(handler.userHasRole("alice", "secret", "read"));
+        Assert.assertFalse(handler.isValidUser("alice", "wrong"));
+        Assert.assertEquals(1, handler.loads.get());
+
+        Assert.assertFalse(handler.isValidUser("mallory", "secret"));
+        Assert.assertFalse(handler.isValidUser("mallory", "secret"));
+        Assert.assertFalse(handler.userHasRole("mallory", "read"));
+        Assert.assertEquals("A user name that does not exist must be loaded once.", 2, handler.loads.get());
+    }
+
+    @Test
+    public void testMissesDoNotEvictUsers() {
+        TestDatabaseHandler handler = new TestDatabaseHandler(createSettings("2", "60", "10"));
+        handler.users.put("alice", "secret");
+        Assert.assertTrue(handler.isValidUser("alice", "secret"));
+        for (int i = 0; i < 10; i++) {
+            Assert.assertFalse(handler.isValidUser("random" + i, "secret"));
+        }
+        int loads = handler.loads.get();
+        Assert.assertTrue(handler.isValidUser("alice", "secret"));
+        Assert.assertEquals("Unknown user names must not push users out of the cache.", loads, handler.loads.get());
+    }
+
+    @Test
+    public void testMissesExpire() throws InterruptedException {
+        TestDatabaseHandler handler = new TestDatabaseHandler(createSettings("10", "60", "1"));
+        Assert.assertFalse(handler.isValidUser("bob", "secret"));
+        handler.users.put("bob", "secret");
+        Assert.assertFalse("The miss should still be cached.", handler.isValidUser("bob", "secret"));
+        Thread.sleep(1100);
+        Assert.assertTrue("The miss should have expired.", handler.isValidUser("bob", "secret"));
+        Assert.assertEquals(2, handler.loads.get());
+    }
+
+    @Test
+    public void testCachingDisabled() {
+        TestDatabaseHandler handler = new TestDatabaseHandler(createSettings("0", "60", "10"));
+        handler.users.put("alice", "secret");
+        Assert.assertTrue(handler.isValidUser("alice", "secret"));
+        Assert.assertTrue(handler.isValidUser("alice", "secret"));
+        Assert.assertFalse(handler.isValidUser("mallory", "secret"));
+        Assert.assertFalse(handler.isValidUser("mallory", "secret"));
+        Assert.assertEquals(4, handler.loads.get());
+    }
+
+    private static CoreSettings createSettings(String cacheSize, String cacheTtl, String missTtl) {
+        Properties properties = new Properties();
+        properties.put(CoreSettings.TAG_SERVICE_ROOT_URL, "http://example.org/FROST-Server");
+        properties.put(CoreSettings.TAG_TEMP_PATH, "/tmp/");
+        properties.put(CoreSettings.PREFIX_AUTH + BasicAuthProvider.TAG_USER_CACHE_SIZE, cacheSize);
+        properties.put(CoreSettings.PREFIX_AUTH + BasicAuthProvider.TAG_USER_CACHE_TTL, cacheTtl);
+        properties.put(CoreSettings.PREFIX_AUTH + BasicAuthProvider.TAG_USER_CACHE_MISS_TTL, missTtl);
+        return new CoreSettings(properties);
+    }
+
+    /**
+     * Loads users from a map instead of the database, and counts the loads.
+     */
+    private static class TestDatabaseHandler extends DatabaseHandler {
+
+        private final Map<String, String> users = new HashMap<>();
+        private final AtomicInteger loads = new AtomicInteger();
+
+        public TestDatabaseHandler(CoreSettings coreSettings) {
+            super(coreSettings);
+        }
+
+        @Override
+        UserData loadUserData(String userName) {
+            loads.incrementAndGet();
+            String password = users.get(userName);
+            if (password == null) {
+                return new UserData(null, Collections.emptySet());
+            }
+            return new UserData(password, Collections.singleton("read"));
+        }
+
+    }
+}
@@ -43,6 +43,7 @@ public class KeycloakFilterHelper {
         String filterClass = KeycloakFilter.class.getName();
         String filterName = "AuthFilterSta";
         FilterRegistration.Dynamic authFilterSta = servletContext.addFilter(filterName, filterClass);
+        authFilterSta.setAsyncSupported(true);
         String[] urlPatterns = Arrays.copyOf(Constants.HTTP_URL_PATTERNS, Constants.HTTP_URL_PATTERNS.length + 2);
         urlPatterns[urlPatterns.length - 2] = "/DatabaseStatus";
         urlPatterns[urlPatterns.length - 1] = "/keycloak/*";
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.benchmarks;
+
+import java.io.Writer;
+
+/**
+ * A Writer that discards everything written to it, and only counts the
+ * characters. Used as target for formatters, so that the benchmarks do not
+ * measure the cost of growing buffers.
+ *
+ * @author scf
+ */
+public class CountingWriter extends Writer {
+
+    private long count;
+
+    @Override
+    public void write(char[] cbuf, int off, int len) {
+        count += len;
+    }
+
+    @Override
+    public void write(int c) {
+        count++;
+    }
+
+    @Override
+    public void write(String str, int off, int len) {
+        count += len;
+    }
+
+    @Override
+    public void flush() {
+        // Nothing to flush.
+    }
+
+    @Override
+    public void close() {
+        // Nothing to close.
+    }
+
+    /**
+     * @return The number of characters written.
+     */
+    public long getCount() {
+        return count;
+    }
+
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.benchmarks;
+
+import de.fraunhofer.iosb.ilt.frostserver.model.Datastream;
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityType;
+import de.fraunhofer.iosb.ilt.frostserver.model.Location;
+import de.fraunhofer.iosb.ilt.frostserver.model.Observation;
+import de.fraunhofer.iosb.ilt.frostserver.model.ObservedProperty;
+import de.fraunhofer.iosb.ilt.frostserver.model.Sensor;
+import de.fraunhofer.iosb.ilt.frostserver.model.Thing;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.EntitySet;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.EntitySetImpl;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.IdLong;
+import de.fraunhofer.iosb.ilt.frostserver.model.ext.TimeInstant;
+import de.fraunhofer.iosb.ilt.frostserver.model.ext.TimeInterval;
+import de.fraunhofer.iosb.ilt.frostserver.model.ext.UnitOfMeasurement;
+import de.fraunhofer.iosb.ilt.frostserver.parser.path.PathParser;
+import de.fraunhofer.iosb.ilt.frostserver.parser.query.QueryParser;
+import de.fraunhofer.iosb.ilt.frostserver.path.ResourcePath;
+import de.fraunhofer.iosb.ilt.frostserver.path.Version;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.IdManagerLong;
+import de.fraunhofer.iosb.ilt.frostserver.query.Query;
+import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import org.geojson.LngLatAlt;
+import org.geojson.Point;
+import org.geojson.Polygon;
+
+/**
+ * Realistic entities, paths and queries shared by the benchmarks.
+ *
+ * @author scf
+ */
+public class Fixtures {
+
+    public static final String SERVICE_ROOT = "http://localhost:8080/FROST-Server";
+    public static final Version VERSION = Version.V_1_1;
+
+    /**
+     * The start of the phenomenonTime of the first Observation, 2021-01-01.
+     */
+    private static final long START_TIME = 1609459200000L;
+    private static final long INTERVAL = 60_000L;
+
+    private Fixtures() {
+        // Utility class.
+    }
+
+    public static CoreSettings createCoreSettings() {
+        Properties properties = new Properties();
+        properties.put(CoreSettings.TAG_SERVICE_ROOT_URL, SERVICE_ROOT);
+        properties.put(CoreSettings.TAG_TEMP_PATH, System.getProperty("java.io.tmpdir"));
+        return new CoreSettings(properties);
+    }
+
+    public static ResourcePath parsePath(String path) {
+        return PathParser.parsePath(new IdManagerLong(), SERVICE_ROOT, VERSION, path);
+    }
+
+    public static Query parseQuery(CoreSettings settings, ResourcePath path, String query) {
+        return QueryParser.parseQuery(query, settings, path).validate();
+    }
+
+    /**
+     * Create a set of Observations, as it would be loaded for the given query.
+     *
+     * @param query The query the Observations are loaded for.
+     * @param count The number of Observations to create.
+     * @param jsonResults If true, the Observations have JSON object results,
+     * otherwise they have numeric results.
+     * @return The set of Observations.
+     */
+    public static EntitySet<Observation> createObservations(Query query, int count, boolean jsonResults) {
+        EntitySet<Observation> observations = new EntitySetImpl<>(EntityType.OBSERVATION);
+        for (int i = 0; i < count; i++) {
+            observations.add(createObservation(query, i, 1 + i % 3, jsonResults));
+        }
+        observations.setCount(count * 10L);
+        observations.setNextLink(SERVICE_ROOT + "/" + VERSION.urlPart + "/Observations?$skip=" + count);
+        return observations;
+    }
+
+    public static Observation createObservation(Query query, long id, long datastreamId, boolean jsonResult) {
+        Observation observation = new Observation()
+                .setPhenomenonTime(TimeInstant.create(START_TIME + id * INTERVAL))
+                .setResultTime(TimeInstant.create(START_TIME + id * INTERVAL + 1000))
+                .setResult(jsonResult ? createJsonResult(id) : new BigDecimal(BigDecimal.valueOf(20 + id % 100, 1).toString()))
+                .addParameter("quality", "good")
+                .setDatastream(new Datastream().setId(new IdLong(datastreamId)));
+        observation.setId(new IdLong(id));
+        observation.setQuery(query);
+        return observation;
+    }
+
+    private static Map<String, Object> createJsonResult(long nr) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("temperature", 20 + nr % 15);
+        result.put("humidity", 40 + nr % 50);
+        result.put("state", nr % 2 == 0 ? "running" : "idle");
+        result.put("spectrum", Arrays.asList(nr % 7, nr % 11, nr % 13, nr % 17, nr % 19));
+        return result;
+    }
+
+    /**
+     * Create a set of Datastreams, with their Thing, Sensor and
+     * ObservedProperty and the latest Observations expanded, as it would be
+     * loaded for the query
+     * {@code $expand=Thing,Sensor,ObservedProperty,Observations($top=n)}.
+     *
+     * @param query The query, with the expands in the order Thing, Sensor,
+     * ObservedProperty, Observations.
+     * @param count The number of Datastreams.
+     * @param obsCount The number of Observations per Datastream.
+     * @return The set of Datastreams.
+     */
+    public static EntitySet<Datastream> createDeepDatastreams(Query query, int count, int obsCount) {
+        Query thingQuery = query.getExpand().get(0).getSubQuery();
+        Query sensorQuery = query.getExpand().get(1).getSubQuery();
+        Query opQuery = query.getExpand().get(2).getSubQuery();
+        Query obsQuery = query.getExpand().get(3).getSubQuery();
+        EntitySet<Datastream> datastreams = new EntitySetImpl<>(EntityType.DATASTREAM);
+        for (int i = 1; i <= count; i++) {
+            Thing thing = new Thing()
+                    .setName("Thing " + i)
+                    .setDescription("A weather station")
+                    .addProperty("building", "B" + i % 5)
+                    .addProperty("floor", i % 3);
+            thing.setId(new IdLong(i));
+            thing.setQuery(thingQuery);
+            Sensor sensor = new Sensor()
+                    .setEncodingType("application/pdf")
+                    .setMetadata("http://example.org/sensors/" + i + ".pdf")
+                    .setName("Sensor " + i)
+                    .setDescription("A temperature sensor");
+            sensor.setId(new IdLong(i));
+            sensor.setQuery(sensorQuery);
+            ObservedProperty observedProperty = new ObservedProperty()
+                    .setDefinition("http://example.org/properties/temperature")
+                    .setName("Temperature")
+                    .setDescription("The air temperature");
+            observedProperty.setId(new IdLong(1));
+            observedProperty.setQuery(opQuery);
+            EntitySet<Observation> observations = new EntitySetImpl<>(EntityType.OBSERVATION);
+            for (int o = 0; o < obsCount; o++) {
+                observations.add(createObservation(obsQuery, (long) i * obsCount + o, i, false));
+            }
+            Datastream datastream = new Datastream()
+                    .setUnitOfMeasurement(new UnitOfMeasurement()
+                            .setName("degree Celsius")
+                            .setSymbol("°C")
+                            .setDefinition("http://unitsofmeasure.org/ucum.html#para-30"))
+                    .setObservedProperty(observedProperty)
+                    .setObservationType("http://www.opengis.net/def/observationType/OGC-OM/2.0/OM_Measurement")
+                    .setObservedArea(createPolygon(8.0 + i * 0.01, 49.0))
+                    .setPhenomenonTime(TimeInterval.create(START_TIME, START_TIME + obsCount * INTERVAL))
+                    .setSensor(sensor)
+                    .setThing(thing)
+                    .setObservations(observations)
+                    .setName("Temperature " + i)
+                    .setDescription("The temperature measured by Thing " + i);
+            datastream.setId(new IdLong(i));
+            datastream.setQuery(query);
+            datastreams.add(datastream);
+        }
+        datastreams.setCount(count);
+        return datastreams;
+    }
+
+    /**
+     * Create a set of Locations with point geometries.
+     *
+     * @param query The query the Locations are loaded for.
+     * @param count The number of Locations.
+     * @return The set of Locations.
+     */
+    public static EntitySet<Location> createLocations(Query query, int count) {
+        EntitySet<Location> locations = new EntitySetImpl<>(EntityType.LOCATION);
+        for (int i = 1; i <= count; i++) {
+            Location location = new Location()
+                    .setEncodingType("application/geo+json")
+                    .setLocation(new Point(8.0 + i * 0.001, 49.0 + i * 0.001))
+                    .setName("Location " + i)
+                    .setDescription("The location of Thing " + i)
+                    .addProperty("address", "Fraunhoferstr. " + i);
+            location.setId(new IdLong(i));
+            location.setQuery(query);
+            locations.add(location);
+        }
+        locations.setCount(count);
+        return locations;
+    }
+
+    private static Polygon createPolygon(double lon, double lat) {
+        return new Polygon(
+                new LngLatAlt(lon, lat),
+                new LngLatAlt(lon + 0.01, lat),
+                new LngLatAlt(lon + 0.01, lat + 0.01),
+                new LngLatAlt(lon, lat + 0.01),
+                new LngLatAlt(lon, lat));
+    }
+
+    /**
+     * @param count The number of Observations in the array.
+     * @return A JSON array of Observations, as posted by a sensor gateway.
+     */
+    public static String createObservationsJson(int count) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"phenomenonTime\":\"2021-01-01T00:").append(String.format("%02d", i % 60)).append(":00Z\",")
+                    .append("\"resultTime\":\"2021-01-01T00:").append(String.format("%02d", i % 60)).append(":01Z\",")
+                    .append("\"result\":").append(20 + i % 10).append(".5,")
+                    .append("\"parameters\":{\"quality\":\"good\",\"battery\":").append(90 - i % 10).append("},")
+                    .append("\"Datastream\":{\"@iot.id\":").append(1 + i % 3).append("}}");
+        }
+        return json.append(']').toString();
+    }
+
+    /**
+     * @return A Thing with new Locations, Datastreams, Sensors and
+     * ObservedProperties, as posted when provisioning a new device.
+     */
+    public static String createDeepThingJson() {
+        StringBuilder json = new StringBuilder()
+                .append("{\"name\":\"Weather station\",\"description\":\"A weather station on the roof\",")
+                .append("\"properties\":{\"building\":\"B1\",\"floor\":3,\"tags\":[\"roof\",\"weather\"]},")
+                .append("\"Locations\":[{\"name\":\"Roof\",\"description\":\"The roof of building B1\",")
+                .append("\"encodingType\":\"application/geo+json\",")
+                .append("\"location\":{\"type\":\"Point\",\"coordinates\":[8.42,49.01]}}],")
+                .append("\"Datastreams\":[");
+        String[] properties = {"Temperature", "Humidity", "Pressure", "Wind speed", "Wind direction"};
+        for (int i = 0; i < properties.length; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"name\":\"").append(properties[i]).append("\",\"description\":\"The ").append(properties[i]).append(" on the roof\",")
+                    .append("\"observationType\":\"http://www.opengis.net/def/observationType/OGC-OM/2.0/OM_Measurement\",")
+                    .append("\"unitOfMeasurement\":{\"name\":\"unit ").append(i).append("\",\"symbol\":\"u").append(i).append("\",\"definition\":\"http://example.org/units/").append(i).append("\"},")
+                    .append("\"Sensor\":{\"name\":\"Sensor ").append(i).append("\",\"description\":\"A sensor\",\"encodingType\":\"application/pdf\",\"metadata\":\"http://example.org/sensor.pdf\"},")
+                    .append("\"ObservedProperty\":{\"name\":\"").append(properties[i]).append("\",\"description\":\"The ").append(properties[i]).append("\",\"definition\":\"http://example.org/properties/").append(i).append("\"}}");
+        }
+        return json.append("]}").toString();
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.benchmarks;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import de.fraunhofer.iosb.ilt.frostserver.json.deserialize.JsonReader;
+import de.fraunhofer.iosb.ilt.frostserver.model.Observation;
+import de.fraunhofer.iosb.ilt.frostserver.model.Thing;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.IdLong;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing of posted entities, using the CustomEntityDeserializer through the
+ * JsonReader.
+ *
+ * @author scf
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonReaderBenchmark {
+
+    private static final TypeReference<List<Observation>> OBSERVATION_LIST = new TypeReference<List<Observation>>() {
+        // Empty
+    };
+
+    private JsonReader reader;
+    private String observationJson;
+    private String observationsJson;
+    private String deepThingJson;
+
+    @Setup
+    public void setup() {
+        reader = new JsonReader(IdLong.class);
+        observationsJson = Fixtures.createObservationsJson(100);
+        String singleArray = Fixtures.createObservationsJson(1);
+        observationJson = singleArray.substring(1, singleArray.length() - 1);
+        deepThingJson = Fixtures.createDeepThingJson();
+    }
+
+    @Benchmark
+    public Observation parseObservation() throws IOException {
+        return reader.parseObservation(observationJson);
+    }
+
+    /**
+     * Parse an array of 100 Observations.
+     *
+     * @return The parsed Observations.
+     * @throws IOException Not expected.
+     */
+    @Benchmark
+    public List<Observation> parseObservations() throws IOException {
+        return reader.parseObject(OBSERVATION_LIST, observationsJson);
+    }
+
+    /**
+     * Parse a Thing with a Location and 5 Datastreams, each with a new Sensor
+     * and ObservedProperty.
+     *
+     * @return The parsed Thing.
+     * @throws IOException Not expected.
+     */
+    @Benchmark
+    public Thing parseDeepThing() throws IOException {
+        return reader.parseThing(deepThingJson);
+    }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.benchmarks;
+
+import de.fraunhofer.iosb.ilt.frostserver.json.serialize.JsonWriter;
+import de.fraunhofer.iosb.ilt.frostserver.model.Datastream;
+import de.fraunhofer.iosb.ilt.frostserver.model.Observation;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.EntitySet;
+import de.fraunhofer.iosb.ilt.frostserver.path.ResourcePath;
+import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Serialisation of entities and entity sets to JSON, using the
+ * EntitySerializer and EntitySetSerializer through the JsonWriter.
+ *
+ * @author scf
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonWriterBenchmark {
+
+    @Param({"100", "1000"})
+    public int size;
+
+    private Observation observation;
+    private EntitySet<Observation> numericObservations;
+    private EntitySet<Observation> jsonObservations;
+    private EntitySet<Datastream> deepDatastreams;
+
+    @Setup
+    public void setup() {
+        CoreSettings settings = Fixtures.createCoreSettings();
+        ResourcePath obsPath = Fixtures.parsePath("/Observations");
+        numericObservations = Fixtures.createObservations(Fixtures.parseQuery(settings, obsPath, ""), size, false);
+        jsonObservations = Fixtures.createObservations(Fixtures.parseQuery(settings, obsPath, ""), size, true);
+
+        ResourcePath singlePath = Fixtures.parsePath("/Observations(1)");
+        observation = Fixtures.createObservation(Fixtures.parseQuery(settings, singlePath, ""), 1, 1, true);
+
+        ResourcePath dsPath = Fixtures.parsePath("/Datastreams");
+        deepDatastreams = Fixtures.createDeepDatastreams(
+                Fixtures.parseQuery(settings, dsPath, "$expand=Thing,Sensor,ObservedProperty,Observations($top=10)"),
+                size / 10,
+                10);
+    }
+
+    @Benchmark
+    public long writeObservation() throws IOException {
+        CountingWriter target = new CountingWriter();
+        JsonWriter.writeEntity(target, observation);
+        return target.getCount();
+    }
+
+    @Benchmark
+    public long writeNumericObservations() throws IOException {
+        CountingWriter target = new CountingWriter();
+        JsonWriter.writeEntityCollection(target, numericObservations);
+        return target.getCount();
+    }
+
+    @Benchmark
+    public long writeJsonObservations() throws IOException {
+        CountingWriter target = new CountingWriter();
+        JsonWriter.writeEntityCollection(target, jsonObservations);
+        return target.getCount();
+    }
+
+    /**
+     * Datastreams with their Thing, Sensor, ObservedProperty and 10
+     * Observations each expanded. The number of Observations is the same as
+     * in the other benchmarks.
+     *
+     * @return The number of characters written.
+     * @throws IOException Not expected.
+     */
+    @Benchmark
+    public long writeDeepExpand() throws IOException {
+        CountingWriter target = new CountingWriter();
+        JsonWriter.writeEntityCollection(target, deepDatastreams);
+        return target.getCount();
+    }
+
+}
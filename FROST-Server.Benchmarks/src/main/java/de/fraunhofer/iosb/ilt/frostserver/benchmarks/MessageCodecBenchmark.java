@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.benchmarks;
+
+import de.fraunhofer.iosb.ilt.frostserver.messagebus.JsonMessageCodec;
+import de.fraunhofer.iosb.ilt.frostserver.messagebus.MessageCodec;
+import de.fraunhofer.iosb.ilt.frostserver.messagebus.SmileMessageCodec;
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityChangedMessage;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.IdLong;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Encoding and decoding of batches of change messages for the MQTT message
+ * bus, with the JSON and the Smile codec.
+ *
+ * @author scf
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MessageCodecBenchmark {
+
+    @Param({"json", "smile"})
+    public String codecName;
+
+    @Param({"1", "100"})
+    public int batchSize;
+
+    @Param({"false", "true"})
+    public boolean jsonResults;
+
+    private MessageCodec codec;
+    private List<EntityChangedMessage> messages;
+    private byte[] payload;
+
+    @Setup
+    public void setup() throws IOException {
+        codec = "smile".equals(codecName) ? new SmileMessageCodec() : new JsonMessageCodec();
+        codec.init(IdLong.class);
+        messages = new ArrayList<>();
+        for (int i = 0; i < batchSize; i++) {
+            EntityChangedMessage message = new EntityChangedMessage()
+                    .setEventType(EntityChangedMessage.Type.CREATE)
+                    .setEntity(Fixtures.createObservation(null, i, 1 + i % 3, jsonResults));
+            messages.add(message);
+        }
+        payload = encode();
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        codec.encode(messages, out);
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public List<EntityChangedMessage> decode() throws IOException {
+        return codec.decode(payload);
+    }
+
+}
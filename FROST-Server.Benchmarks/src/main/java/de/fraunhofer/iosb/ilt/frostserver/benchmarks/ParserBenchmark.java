@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.benchmarks;
+
+import de.fraunhofer.iosb.ilt.frostserver.path.ResourcePath;
+import de.fraunhofer.iosb.ilt.frostserver.query.Query;
+import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing of request paths and query options.
+ *
+ * @author scf
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class PathState {
+
+        @Param({
+            "/Observations",
+            "/Things(1)/Datastreams(2)/Observations",
+            "/Datastreams(12)/Observations(1234)/result"
+        })
+        public String path;
+    }
+
+    @State(Scope.Benchmark)
+    public static class QueryState {
+
+        @Param({"top", "filter", "deepExpand"})
+        public String query;
+
+        private CoreSettings settings;
+        private ResourcePath path;
+        private String queryString;
+
+        @Setup
+        public void setup() {
+            settings = Fixtures.createCoreSettings();
+            switch (query) {
+                case "top":
+                    path = Fixtures.parsePath("/Observations");
+                    queryString = "$top=100";
+                    break;
+
+                case "filter":
+                    path = Fixtures.parsePath("/Datastreams(1)/Observations");
+                    queryString = "$filter=phenomenonTime gt 2021-01-01T00:00:00Z and result gt 20.5&$orderby=phenomenonTime desc&$top=1000";
+                    break;
+
+                case "deepExpand":
+                    path = Fixtures.parsePath("/Things");
+                    queryString = "$select=id,name"
+                            + "&$expand=Datastreams($select=id,name;$expand=Observations($filter=result ge 10;$orderby=phenomenonTime desc;$top=5),ObservedProperty($select=name)),Locations($select=location)"
+                            + "&$filter=st_within(Locations/location, geography'POLYGON((8 49, 9 49, 9 50, 8 50, 8 49))')";
+                    break;
+
+                default:
+                    throw new IllegalArgumentException("Unknown query " + query);
+            }
+        }
+    }
+
+    @Benchmark
+    public ResourcePath parsePath(PathState state) {
+        return Fixtures.parsePath(state.path);
+    }
+
+    @Benchmark
+    public Query parseQuery(QueryState state) {
+        return Fixtures.parseQuery(state.settings, state.path, state.queryString);
+    }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.benchmarks;
+
+import de.fraunhofer.iosb.ilt.frostserver.path.ResourcePath;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.QueryBuilder;
+import de.fraunhofer.iosb.ilt.frostserver.query.Query;
+import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Generation of the SQL for a request, using the QueryBuilder and the
+ * PgExpressionHandler for the filter. No database is needed, the SQL is only
+ * rendered.
+ *
+ * @author scf
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QueryBuilderBenchmark {
+
+    @Param({"top", "filter", "deepPath", "geoFilter"})
+    public String request;
+
+    private CoreSettings settings;
+    private OfflinePersistenceManager pm;
+    private ResourcePath path;
+    private Query query;
+
+    @Setup
+    public void setup() {
+        settings = Fixtures.createCoreSettings();
+        pm = new OfflinePersistenceManager();
+        pm.init(settings);
+        switch (request) {
+            case "top":
+                init("/Observations", "$top=100");
+                break;
+
+            case "filter":
+                init("/Datastreams(1)/Observations", "$filter=phenomenonTime gt 2021-01-01T00:00:00Z and result gt 20.5 and parameters/quality eq 'good'&$orderby=phenomenonTime desc&$top=1000");
+                break;
+
+            case "deepPath":
+                init("/Things(1)/Datastreams(2)/Observations", "$filter=resultTime ge 2021-01-01T00:00:00Z&$select=result,phenomenonTime");
+                break;
+
+            case "geoFilter":
+                init("/Things", "$filter=st_within(Locations/location, geography'POLYGON((8 49, 9 49, 9 50, 8 50, 8 49))') and properties/building eq 'B1'&$orderby=name");
+                break;
+
+            default:
+                throw new IllegalArgumentException("Unknown request " + request);
+        }
+    }
+
+    private void init(String pathString, String queryString) {
+        path = Fixtures.parsePath(pathString);
+        query = Fixtures.parseQuery(settings, path, queryString);
+    }
+
+    @Benchmark
+    public String buildSelect() {
+        return new QueryBuilder<>(pm, settings, pm.getTableCollection())
+                .forPath(path)
+                .usingQuery(query.copy())
+                .buildSelect()
+                .getSQL();
+    }
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.benchmarks;
+
+import de.fraunhofer.iosb.ilt.frostserver.formatter.ResultFormatter;
+import de.fraunhofer.iosb.ilt.frostserver.formatter.ResultFormatterDefault;
+import de.fraunhofer.iosb.ilt.frostserver.model.Location;
+import de.fraunhofer.iosb.ilt.frostserver.model.Observation;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.EntitySet;
+import de.fraunhofer.iosb.ilt.frostserver.path.ResourcePath;
+import de.fraunhofer.iosb.ilt.frostserver.plugin.format.csv.ResultFormatterCsv;
+import de.fraunhofer.iosb.ilt.frostserver.plugin.format.dataarray.PluginResultFormatDataArray;
+import de.fraunhofer.iosb.ilt.frostserver.plugin.format.dataarray.ResultFormatterDataArray;
+import de.fraunhofer.iosb.ilt.frostserver.plugin.format.geojson.ResultFormatterGeoJson;
+import de.fraunhofer.iosb.ilt.frostserver.query.Query;
+import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Formatting of a page of Observations, or Locations for GeoJSON, with the
+ * available result formats. The default JSON format is included as baseline.
+ *
+ * @author scf
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResultFormatterBenchmark {
+
+    @Param({"100", "1000"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean jsonResults;
+
+    private final ResultFormatter formatterDefault = new ResultFormatterDefault();
+    private final ResultFormatter formatterCsv = new ResultFormatterCsv();
+    private final ResultFormatter formatterDataArray = new ResultFormatterDataArray();
+    private final ResultFormatter formatterGeoJson = new ResultFormatterGeoJson();
+
+    private ResourcePath obsPath;
+    private Query obsQuery;
+    private EntitySet<Observation> observations;
+    private ResourcePath locPath;
+    private Query locQuery;
+    private EntitySet<Location> locations;
+
+    @Setup
+    public void setup() {
+        PluginResultFormatDataArray.modifyEntityFormatter();
+        CoreSettings settings = Fixtures.createCoreSettings();
+        obsPath = Fixtures.parsePath("/Observations");
+        obsQuery = Fixtures.parseQuery(settings, obsPath, "$top=" + size);
+        observations = Fixtures.createObservations(obsQuery, size, jsonResults);
+        locPath = Fixtures.parsePath("/Locations");
+        locQuery = Fixtures.parseQuery(settings, locPath, "$top=" + size);
+        locations = Fixtures.createLocations(locQuery, size);
+    }
+
+    @Benchmark
+    public long formatDefault() throws IOException {
+        return format(formatterDefault, obsPath, obsQuery, observations);
+    }
+
+    @Benchmark
+    public long formatCsv() throws IOException {
+        return format(formatterCsv, obsPath, obsQuery, observations);
+    }
+
+    @Benchmark
+    public long formatDataArray() throws IOException {
+        return format(formatterDataArray, obsPath, obsQuery, observations);
+    }
+
+    @Benchmark
+    public long formatGeoJson() throws IOException {
+        return format(formatterGeoJson, locPath, locQuery, locations);
+    }
+
+    private static long format(ResultFormatter formatter, ResourcePath path, Query query, Object result) throws IOException {
+        CountingWriter target = new CountingWriter();
+        formatter.getFormatWriter(path, query, result, false).writeFormatted(target);
+        return target.getCount();
+    }
+
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.benchmarks;
+
+import de.fraunhofer.iosb.ilt.frostserver.model.core.Entity;
+import de.fraunhofer.iosb.ilt.frostserver.path.ResourcePath;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.QueryBuilder;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.bindings.JsonValue;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.tables.StaMainTable;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.utils.DataSize;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.utils.PropertyFieldRegistry.PropertyFields;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.utils.QueryState;
+import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.jooq.Field;
+import org.jooq.Record;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Creating Observations from query result records, by column position using
+ * the RowMapper of the QueryState, compared to looking up each Field in each
+ * record.
+ *
+ * @author scf
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RowMapperBenchmark {
+
+    private static final long START_TIME = 1609459200000L;
+
+    @Param({"", "$select=id,phenomenonTime,result"})
+    public String select;
+
+    private QueryState state;
+    private StaMainTable table;
+    private List<Record> records;
+
+    @Setup
+    public void setup() {
+        CoreSettings settings = Fixtures.createCoreSettings();
+        OfflinePersistenceManager pm = new OfflinePersistenceManager();
+        pm.init(settings);
+        ResourcePath path = Fixtures.parsePath("/Observations");
+        QueryBuilder<Long> queryBuilder = new QueryBuilder<>(pm, settings, pm.getTableCollection())
+                .forPath(path)
+                .usingQuery(Fixtures.parseQuery(settings, path, select));
+        queryBuilder.buildSelect();
+        state = queryBuilder.getQueryState();
+        table = state.getMainTable();
+
+        List<Field> fieldList = new ArrayList<>(state.getSqlSelectFields());
+        Field<?>[] fields = fieldList.toArray(new Field<?>[fieldList.size()]);
+        records = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Record record = pm.getDslContext().newRecord(fields);
+            for (Field field : fields) {
+                record.set(field, createValue(field, i));
+            }
+            records.add(record);
+        }
+    }
+
+    private static Object createValue(Field<?> field, long nr) {
+        Class<?> type = field.getType();
+        if (type == Long.class) {
+            return field.getName().contains("MULTI_DATASTREAM") ? null : nr;
+        }
+        if (type == OffsetDateTime.class) {
+            return OffsetDateTime.ofInstant(Instant.ofEpochMilli(START_TIME + nr * 60_000), ZoneOffset.UTC);
+        }
+        if (type == Double.class) {
+            return 20.5 + nr % 10;
+        }
+        if (type == String.class) {
+            return Double.toString(20.5 + nr % 10);
+        }
+        if (type == Short.class) {
+            // ResultType.NUMBER
+            return (short) 0;
+        }
+        if (type == JsonValue.class) {
+            return new JsonValue("{\"quality\":\"good\"}");
+        }
+        return null;
+    }
+
+    /**
+     * Create 1000 Observations using the positional RowMapper.
+     *
+     * @param blackhole The sink for the created entities.
+     */
+    @Benchmark
+    public void byPosition(Blackhole blackhole) {
+        DataSize dataSize = new DataSize();
+        for (Record record : records) {
+            blackhole.consume(state.entityFromQuery(record, dataSize));
+        }
+    }
+
+    /**
+     * Create 1000 Observations by looking up the Field of each property in
+     * each record.
+     *
+     * @param blackhole The sink for the created entities.
+     */
+    @Benchmark
+    public void byField(Blackhole blackhole) {
+        DataSize dataSize = new DataSize();
+        for (Record record : records) {
+            Entity entity = table.newEntity();
+            for (Object property : state.getSelectedProperties()) {
+                ((PropertyFields) property).setter.setOn(table, record, entity, dataSize);
+            }
+            blackhole.consume(entity);
+        }
+    }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.mqtt;
+
+import de.fraunhofer.iosb.ilt.frostserver.benchmarks.Fixtures;
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityChangedMessage;
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityType;
+import de.fraunhofer.iosb.ilt.frostserver.model.Thing;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.IdLong;
+import de.fraunhofer.iosb.ilt.frostserver.mqtt.subscription.EntitySubscription;
+import de.fraunhofer.iosb.ilt.frostserver.mqtt.subscription.PropertySubscription;
+import de.fraunhofer.iosb.ilt.frostserver.mqtt.subscription.Subscription;
+import de.fraunhofer.iosb.ilt.frostserver.property.EntityPropertyMain;
+import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Finding the subscriptions for a batch of 100 changes when many MQTT clients
+ * each subscribe to a single Thing, or a property of a single Thing. Half of
+ * the changes are for Things with subscriptions. Only finding the
+ * subscriptions is measured, not notifying them, so no MQTT server is needed.
+ * This class is in the mqtt package, since the SubscriptionManager is not
+ * public.
+ *
+ * @author scf
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SubscriptionManagerBenchmark {
+
+    private static final int CHANGE_COUNT = 100;
+
+    @Param({"100", "10000", "100000"})
+    public int subscriptionCount;
+
+    private SubscriptionManager manager;
+    private List<EntityChangedMessage> messages;
+
+    @Setup
+    public void setup() {
+        CoreSettings settings = Fixtures.createCoreSettings();
+        manager = new SubscriptionManager(EntityType.THING, null, new AtomicInteger());
+        String prefix = Fixtures.VERSION.urlPart;
+        for (int i = 0; i < subscriptionCount; i++) {
+            String path = "/Things(" + i + ")";
+            if (i % 2 == 0) {
+                manager.addSubscription(new EntitySubscription(settings, prefix + path, Fixtures.parsePath(path)));
+            } else {
+                path = path + "/name";
+                manager.addSubscription(new PropertySubscription(prefix + path, Fixtures.parsePath(path), settings));
+            }
+        }
+        messages = new ArrayList<>();
+        for (int i = 0; i < CHANGE_COUNT; i++) {
+            long id = i % 2 == 0 ? (long) subscriptionCount + i : (long) i * subscriptionCount / CHANGE_COUNT;
+            messages.add(new EntityChangedMessage()
+                    .setEventType(EntityChangedMessage.Type.UPDATE)
+                    .setEntity(new Thing().setId(new IdLong(id)).setName("Thing " + id))
+                    .addEpField(EntityPropertyMain.NAME));
+        }
+    }
+
+    @Benchmark
+    public List<List<Subscription>> findMatches() {
+        return manager.findMatches(null, messages);
+    }
+
+}
@@ -33,7 +33,8 @@ public enum Extension {
             "http://www.opengis.net/spec/iot_sensing/1.1/req/request-data",
             "http://www.opengis.net/spec/iot_sensing/1.1/req/create-update-delete",
             "https://fraunhoferiosb.github.io/FROST-Server/extensions/DeepSelect.html",
-            "https://fraunhoferiosb.github.io/FROST-Server/extensions/SelectDistinct.html"
+            "https://fraunhoferiosb.github.io/FROST-Server/extensions/SelectDistinct.html",
+            "https://fraunhoferiosb.github.io/FROST-Server/extensions/Aggregate.html"
     ),
     ACTUATION(
             "http://www.opengis.net/spec/iot_tasking/1.0/req/tasking-capability",
@@ -67,7 +67,9 @@ public class EntityChangedMessage {
     private EntityType entityType;
     /**
      * The new version of the entity (for create/update) or the old entity (for
-     * delete).
+     * delete). Null for a delete or update that affected an unknown set of
+     * entities of the entityType, like a delete on a collection, or the
+     * periodic update of (Multi)Datastream extents.
      */
     private Entity entity;
 
@@ -23,6 +23,7 @@ import de.fraunhofer.iosb.ilt.frostserver.model.core.EntitySet;
 import de.fraunhofer.iosb.ilt.frostserver.model.core.Id;
 import de.fraunhofer.iosb.ilt.frostserver.query.Query;
 import de.fraunhofer.iosb.ilt.frostserver.util.StringHelper;
+import java.util.Optional;
 import java.util.regex.Pattern;
 
 /**
@@ -45,6 +46,28 @@ public class UrlHelper {
         return nextLink;
     }
 
+    /**
+     * Generate a nextLink that uses the given skipToken to identify the next
+     * page, instead of a $skip.
+     *
+     * @param path The path of the current page.
+     * @param query The query of the current page.
+     * @param skipToken The token identifying the start of the next page.
+     * @return The nextLink.
+     */
+    public static String generateNextLink(ResourcePath path, Query query, String skipToken) {
+        Optional<Integer> oldSkip = query.getSkip();
+        String oldSkipToken = query.getSkipToken();
+        query.clearSkip();
+        query.setSkipToken(skipToken);
+        String nextLink = path.toString() + "?" + query.toString(false);
+        if (oldSkip.isPresent()) {
+            query.setSkip(oldSkip.get());
+        }
+        query.setSkipToken(oldSkipToken);
+        return nextLink;
+    }
+
     public static String generateSelfLink(String serviceRootUrl, Version version, EntityType entityType, Object id) {
         return new StringBuilder(serviceRootUrl)
                 .append('/')
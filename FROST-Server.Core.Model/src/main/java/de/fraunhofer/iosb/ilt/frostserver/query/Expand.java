@@ -55,6 +55,20 @@ public class Expand {
         this.subQuery.setParentExpand(this);
     }
 
+    /**
+     * Create a copy of this Expand, with a copy of the sub-query, if any. The
+     * parent query of the copy is not set.
+     *
+     * @return a copy of this Expand.
+     */
+    public Expand copy() {
+        Expand copy = new Expand(path);
+        if (subQuery != null) {
+            copy.setSubQuery(subQuery.copy());
+        }
+        return copy;
+    }
+
     public NavigationProperty getPath() {
         return path;
     }
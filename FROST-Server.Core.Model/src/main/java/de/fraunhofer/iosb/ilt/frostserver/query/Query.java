@@ -43,6 +43,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import org.joda.time.Period;
 
 /**
  *
@@ -52,6 +53,13 @@ import java.util.Set;
 public class Query {
 
     private static final Set<EntityPropertyMain> refSelect = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(EntityPropertyMain.SELFLINK)));
+    /**
+     * The properties that aggregated Observations have.
+     */
+    private static final Set<EntityPropertyMain> AGGREGATE_SELECT = Collections.unmodifiableSet(EnumSet.of(
+            EntityPropertyMain.PHENOMENONTIME,
+            EntityPropertyMain.RESULT,
+            EntityPropertyMain.PARAMETERS));
 
     private final QueryDefaults settings;
     private ResourcePath path;
@@ -62,6 +70,8 @@ public class Query {
 
     private Optional<Integer> top;
     private Optional<Integer> skip;
+    private String skipToken;
+    private Period aggregate;
     private Optional<Boolean> count;
     private final Set<Property> select;
     private boolean selectDistinct = false;
@@ -81,6 +91,32 @@ public class Query {
         this.select = new LinkedHashSet<>();
     }
 
+    /**
+     * Create a copy of this Query, that can be changed without affecting this
+     * Query. Expands and their sub-queries are copied, the filter and orderby
+     * expressions are shared, since they are not changed after parsing.
+     *
+     * @return a copy of this Query.
+     */
+    public Query copy() {
+        Query copy = new Query(settings, path);
+        copy.entityType = entityType;
+        copy.top = top;
+        copy.skip = skip;
+        copy.skipToken = skipToken;
+        copy.aggregate = aggregate;
+        copy.count = count;
+        copy.select.addAll(select);
+        copy.selectDistinct = selectDistinct;
+        copy.filter = filter;
+        copy.format = format;
+        copy.orderBy = new ArrayList<>(orderBy);
+        for (Expand e : expand) {
+            copy.addExpand(e.copy());
+        }
+        return copy;
+    }
+
     public Query validate() {
         PathElement mainElement = path.getMainElement();
         if (mainElement instanceof PathElementProperty || mainElement instanceof PathElementCustomProperty) {
@@ -117,9 +153,26 @@ public class Query {
             throw new IllegalArgumentException("Invalid property '" + invalidProperty.get().getName() + "' found in select, for entity type " + entityType.entityName);
         }
         expand.forEach(x -> x.validate(entityType));
+        if (aggregate != null) {
+            validateAggregate(entityType);
+        }
         return this;
     }
 
+    private void validateAggregate(EntityType entityType) {
+        if (entityType != EntityType.OBSERVATION) {
+            throw new IllegalArgumentException("$aggregate is only allowed on Observations, not on " + entityType.plural);
+        }
+        if (!expand.isEmpty()) {
+            throw new IllegalArgumentException("$aggregate can not be combined with $expand.");
+        }
+        for (Property property : select) {
+            if (!AGGREGATE_SELECT.contains(property)) {
+                throw new IllegalArgumentException("Aggregated Observations have no property '" + property.getName() + "'.");
+            }
+        }
+    }
+
     public Version getVersion() {
         return path.getVersion();
     }
@@ -175,6 +228,26 @@ public class Query {
         return dflt;
     }
 
+    /**
+     * The server-generated token that identifies the position of the next
+     * page, or null if not set.
+     *
+     * @return the skipToken
+     */
+    public String getSkipToken() {
+        return skipToken;
+    }
+
+    /**
+     * The length of the time intervals in which Observations are aggregated,
+     * or null if Observations are not aggregated.
+     *
+     * @return the aggregation interval
+     */
+    public Period getAggregate() {
+        return aggregate;
+    }
+
     public Optional<Boolean> getCount() {
         return count;
     }
@@ -245,7 +318,9 @@ public class Query {
         }
         selectEntityPropMain = EnumSet.noneOf(EntityPropertyMain.class);
         selectNavProp = new HashSet<>();
-        if (select.isEmpty()) {
+        if (select.isEmpty() && aggregate != null) {
+            selectEntityPropMain.addAll(AGGREGATE_SELECT);
+        } else if (select.isEmpty()) {
             if (entityType == null) {
                 validate();
             }
@@ -296,6 +371,36 @@ public class Query {
         this.skip = Optional.of(skip);
     }
 
+    public void clearSkip() {
+        this.skip = Optional.empty();
+    }
+
+    public void setSkipToken(String skipToken) {
+        this.skipToken = skipToken;
+    }
+
+    /**
+     * Aggregate the Observations in time intervals of the given length. The
+     * length must be convertible to a fixed number of milliseconds, so it can
+     * not contain months or years.
+     *
+     * @param aggregate the aggregation interval, or null to not aggregate.
+     */
+    public void setAggregate(Period aggregate) {
+        if (aggregate != null) {
+            long millis;
+            try {
+                millis = aggregate.toStandardDuration().getMillis();
+            } catch (UnsupportedOperationException ex) {
+                throw new IllegalArgumentException("$aggregate can not use months or years, got " + aggregate, ex);
+            }
+            if (millis <= 0) {
+                throw new IllegalArgumentException("$aggregate must be a positive duration, got " + aggregate);
+            }
+        }
+        this.aggregate = aggregate;
+    }
+
     public void setCount(boolean count) {
         this.count = Optional.of(count);
     }
@@ -359,7 +464,7 @@ public class Query {
 
     @Override
     public int hashCode() {
-        return Objects.hash(top, skip, count, select, filter, format, expand, orderBy, path, selectDistinct);
+        return Objects.hash(top, skip, skipToken, aggregate, count, select, filter, format, expand, orderBy, path, selectDistinct);
     }
 
     @Override
@@ -377,6 +482,8 @@ public class Query {
         return Objects.equals(this.count, other.count)
                 && Objects.equals(this.top, other.top)
                 && Objects.equals(this.skip, other.skip)
+                && Objects.equals(this.skipToken, other.skipToken)
+                && Objects.equals(this.aggregate, other.aggregate)
                 && Objects.equals(this.select, other.select)
                 && Objects.equals(this.selectDistinct, other.selectDistinct)
                 && Objects.equals(this.filter, other.filter)
@@ -400,6 +507,10 @@ public class Query {
 
         addSkipToUrl(sb, separator);
 
+        addSkipTokenToUrl(sb, separator);
+
+        addAggregateToUrl(sb, separator, inExpand);
+
         addSelectToUrl(sb, separator);
 
         addFilterToUrl(sb, separator, inExpand);
@@ -436,6 +547,23 @@ public class Query {
         }
     }
 
+    private void addSkipTokenToUrl(StringBuilder sb, char separator) {
+        if (skipToken != null) {
+            sb.append(separator).append("$skiptoken=").append(skipToken);
+        }
+    }
+
+    private void addAggregateToUrl(StringBuilder sb, char separator, boolean inExpand) {
+        if (aggregate != null) {
+            sb.append(separator).append("$aggregate=");
+            String aggregateUrl = "duration'" + aggregate + "'";
+            if (!inExpand) {
+                aggregateUrl = StringHelper.urlEncode(aggregateUrl);
+            }
+            sb.append(aggregateUrl);
+        }
+    }
+
     private void addTopToUrl(StringBuilder sb, char separator) {
         if (top.isPresent()) {
             sb.append(separator).append("$top=").append(top.get());
@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.formatter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+
+/**
+ * A formatted result, that can be written to a Writer. This allows formatters
+ * to write their output directly to the response, instead of first
+ * generating the complete response as a String.
+ *
+ * @author scf
+ */
+@FunctionalInterface
+public interface FormatWriter {
+
+    /**
+     * Write the formatted result to the given target. The target is not
+     * closed.
+     *
+     * @param target The Writer to write to.
+     * @throws IOException If writing fails.
+     */
+    public void writeFormatted(Writer target) throws IOException;
+
+    /**
+     * Get the formatted result as a String.
+     *
+     * @return The formatted result as a String.
+     * @throws IOException If formatting fails.
+     */
+    public default String getAsString() throws IOException {
+        StringWriter writer = new StringWriter();
+        writeFormatted(writer);
+        return writer.toString();
+    }
+
+}
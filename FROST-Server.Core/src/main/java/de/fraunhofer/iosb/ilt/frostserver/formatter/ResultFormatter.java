@@ -51,6 +51,25 @@ public interface ResultFormatter {
      */
     public String format(ResourcePath path, Query query, Object result, boolean useAbsoluteNavigationLinks);
 
+    /**
+     * Format the result object, into a FormatWriter that writes the result
+     * directly to the response. The default implementation wraps the String
+     * returned by
+     * {@link #format(ResourcePath, Query, Object, boolean)}. Formatters
+     * should override this if they can write their output directly, without
+     * first generating the complete response as a String.
+     *
+     * @param path The path that was requested.
+     * @param query The query parameters of the request.
+     * @param result The result to format.
+     * @param useAbsoluteNavigationLinks Flag indicating absolute navigation
+     * links should be used.
+     * @return A FormatWriter that writes the formatted result object.
+     */
+    public default FormatWriter getFormatWriter(ResourcePath path, Query query, Object result, boolean useAbsoluteNavigationLinks) {
+        return new FormatWriterGeneric(format(path, query, result, useAbsoluteNavigationLinks));
+    }
+
     /**
      * Get the content type of the result, when formatted by this
      * ResultFormatter.
@@ -45,35 +45,38 @@ public class ResultFormatterDefault implements ResultFormatter {
 
     @Override
     public String format(ResourcePath path, Query query, Object result, boolean useAbsoluteNavigationLinks) {
-        String entityJsonString = "";
         try {
-            if (Entity.class.isAssignableFrom(result.getClass())) {
-                Entity<?> entity = (Entity) result;
-                LOGGER.debug("Formatting as Entity.");
-                entityJsonString = JsonWriter.writeEntity(entity);
+            return getFormatWriter(path, query, result, useAbsoluteNavigationLinks).getAsString();
+        } catch (IOException ex) {
+            LOGGER.error("Failed to format response.", ex);
+        }
+        return "";
+    }
 
-            } else if (EntitySet.class.isAssignableFrom(result.getClass())) {
-                EntitySet<?> entitySet = (EntitySet) result;
-                LOGGER.debug("Formatting as EntitySet.");
-                entityJsonString = JsonWriter.writeEntityCollection(entitySet);
+    @Override
+    public FormatWriter getFormatWriter(ResourcePath path, Query query, Object result, boolean useAbsoluteNavigationLinks) {
+        if (Entity.class.isAssignableFrom(result.getClass())) {
+            Entity<?> entity = (Entity) result;
+            LOGGER.debug("Formatting as Entity.");
+            return target -> JsonWriter.writeEntity(target, entity);
+
+        } else if (EntitySet.class.isAssignableFrom(result.getClass())) {
+            EntitySet<?> entitySet = (EntitySet) result;
+            LOGGER.debug("Formatting as EntitySet.");
+            return target -> JsonWriter.writeEntityCollection(target, entitySet);
 
-            } else if (path != null && path.isValue()) {
-                LOGGER.debug("Formatting as $Value.");
-                if (result instanceof Map || result instanceof GeoJsonObject) {
-                    entityJsonString = JsonWriter.writeObject(result);
-                } else if (result instanceof Id) {
-                    entityJsonString = ((Id) result).getValue().toString();
-                } else {
-                    entityJsonString = result.toString();
-                }
+        } else if (path != null && path.isValue()) {
+            LOGGER.debug("Formatting as $Value.");
+            if (result instanceof Map || result instanceof GeoJsonObject) {
+                return target -> JsonWriter.writeObject(target, result);
+            } else if (result instanceof Id) {
+                return new FormatWriterGeneric(((Id) result).getValue().toString());
             } else {
-                LOGGER.debug("Formatting as Object.");
-                entityJsonString = JsonWriter.writeObject(result);
+                return new FormatWriterGeneric(result.toString());
             }
-        } catch (IOException ex) {
-            LOGGER.error("Failed to format response.", ex);
         }
-        return entityJsonString;
+        LOGGER.debug("Formatting as Object.");
+        return target -> JsonWriter.writeObject(target, result);
     }
 
     @Override
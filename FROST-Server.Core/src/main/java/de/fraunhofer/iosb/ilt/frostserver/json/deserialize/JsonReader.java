@@ -17,6 +17,7 @@
  */
 package de.fraunhofer.iosb.ilt.frostserver.json.deserialize;
 
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
@@ -103,11 +104,25 @@ public class JsonReader {
      * @return The created object mapper.
      */
     private static ObjectMapper createObjectMapper(Class<? extends Id> idClass) {
+        return createObjectMapper(idClass, new JsonFactory());
+    }
+
+    /**
+     * Create a new object mapper for the given id Class, using the given
+     * factory. This allows the entities to be read from other formats that
+     * Jackson supports, like Smile.
+     *
+     * @param idClass The id class to use for this mapper.
+     * @param factory The factory to create the parsers with. Each mapper needs
+     * its own factory instance.
+     * @return The created object mapper.
+     */
+    public static ObjectMapper createObjectMapper(Class<? extends Id> idClass, JsonFactory factory) {
         GeoJsonDeserializier geoJsonDeserializier = new GeoJsonDeserializier();
         for (String encodingType : GeoJsonDeserializier.ENCODINGS) {
             CustomDeserializationManager.getInstance().registerDeserializer(encodingType, geoJsonDeserializier);
         }
-        ObjectMapper mapper = new ObjectMapper()
+        ObjectMapper mapper = new ObjectMapper(factory)
                 .enable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
                 .enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
 
@@ -90,8 +90,16 @@ public class CustomEntityChangedMessageDeserializer extends JsonDeserializer<Ent
                     break;
             }
         }
-        if (type == null || entityJson == null) {
-            throw new IllegalArgumentException("Message json with no type or no entity.");
+        if (type == null) {
+            throw new IllegalArgumentException("Message json with no type.");
+        }
+        if (entityJson == null || entityJson.isNull()) {
+            if (message.getEventType() == EntityChangedMessage.Type.CREATE) {
+                throw new IllegalArgumentException("Message json with no entity.");
+            }
+            // A change to an unknown set of entities, only the type is known.
+            message.setEntityType(type);
+            return message;
         }
         message.setEntity(parseEntity(mapper, entityJson, type));
         return message;
@@ -18,7 +18,10 @@
 package de.fraunhofer.iosb.ilt.frostserver.json.serialize;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.module.SimpleModule;
 import de.fraunhofer.iosb.ilt.frostserver.json.mixin.MixinUtils;
@@ -27,6 +30,7 @@ import de.fraunhofer.iosb.ilt.frostserver.model.core.EntitySet;
 import de.fraunhofer.iosb.ilt.frostserver.model.ext.EntitySetResult;
 import de.fraunhofer.iosb.ilt.frostserver.model.ext.TimeValue;
 import java.io.IOException;
+import java.io.Writer;
 
 /**
  * Enables serialization of entities as JSON.
@@ -37,6 +41,7 @@ import java.io.IOException;
 public class JsonWriter {
 
     private static ObjectMapper objectMapperInstance;
+    private static ObjectWriter streamingWriterInstance;
 
     public static ObjectMapper getObjectMapper() {
         if (objectMapperInstance == null) {
@@ -51,8 +56,33 @@ public class JsonWriter {
         }
     }
 
+    /**
+     * An ObjectWriter that does not close the target it writes to.
+     *
+     * @return An ObjectWriter that does not close the target it writes to.
+     */
+    private static ObjectWriter getStreamingWriter() {
+        if (streamingWriterInstance == null) {
+            streamingWriterInstance = getObjectMapper().writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        }
+        return streamingWriterInstance;
+    }
+
     private static ObjectMapper createObjectMapper() {
-        ObjectMapper mapper = new ObjectMapper();
+        return createObjectMapper(new JsonFactory());
+    }
+
+    /**
+     * Create a new object mapper with the FROST serialisers, using the given
+     * factory. This allows the entities to be written in other formats that
+     * Jackson supports, like Smile.
+     *
+     * @param factory The factory to create the generators with. Each mapper
+     * needs its own factory instance.
+     * @return The created object mapper.
+     */
+    public static ObjectMapper createObjectMapper(JsonFactory factory) {
+        ObjectMapper mapper = new ObjectMapper(factory);
         mapper.setSerializationInclusion(JsonInclude.Include.NON_EMPTY);
         mapper.disable(SerializationFeature.FAIL_ON_EMPTY_BEANS);
 
@@ -80,4 +110,16 @@ public class JsonWriter {
     public static String writeObject(Object object) throws IOException {
         return getObjectMapper().writeValueAsString(object);
     }
+
+    public static <T extends Entity> void writeEntity(Writer target, T entity) throws IOException {
+        getStreamingWriter().writeValue(target, entity);
+    }
+
+    public static void writeEntityCollection(Writer target, EntitySet entityCollection) throws IOException {
+        getStreamingWriter().writeValue(target, new EntitySetResult(entityCollection));
+    }
+
+    public static void writeObject(Writer target, Object object) throws IOException {
+        getStreamingWriter().writeValue(target, object);
+    }
 }
@@ -91,6 +91,16 @@ public class InternalMessageBus implements MessageBus, ConfigDefaults {
         }
     }
 
+    @Override
+    public boolean wantsMessages() {
+        for (MessageListener listener : listeners) {
+            if (listener.wantsMessages()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Override
     public void addMessageListener(MessageListener listener) {
         listeners.add(listener);
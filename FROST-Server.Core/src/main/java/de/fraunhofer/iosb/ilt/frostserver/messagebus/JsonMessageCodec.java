@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.messagebus;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import de.fraunhofer.iosb.ilt.frostserver.json.deserialize.JsonReader;
+import de.fraunhofer.iosb.ilt.frostserver.json.serialize.JsonWriter;
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityChangedMessage;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.Id;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Encodes messages as JSON. A single message is written as an object, a batch
+ * of messages as an array.
+ *
+ * @author scf
+ */
+public class JsonMessageCodec implements MessageCodec {
+
+    private static final TypeReference<List<EntityChangedMessage>> TYPE_LIST_ECM = new TypeReference<List<EntityChangedMessage>>() {
+        // Empty on purpose.
+    };
+
+    private ObjectWriter writer;
+    private ObjectMapper readMapper;
+
+    @Override
+    public void init(Class<? extends Id> idClass) {
+        writer = JsonWriter.createObjectMapper(createFactory())
+                .writer()
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        readMapper = JsonReader.createObjectMapper(idClass, createFactory());
+    }
+
+    /**
+     * Create the factory for the readers and writers. Called once for the
+     * writer and once for the reader.
+     *
+     * @return A new factory.
+     */
+    protected JsonFactory createFactory() {
+        return new JsonFactory();
+    }
+
+    @Override
+    public void encode(List<EntityChangedMessage> messages, OutputStream out) throws IOException {
+        if (messages.size() == 1) {
+            writer.writeValue(out, messages.get(0));
+        } else {
+            writer.writeValue(out, messages);
+        }
+    }
+
+    @Override
+    public boolean canDecode(byte[] payload) {
+        for (byte b : payload) {
+            if (!Character.isWhitespace(b)) {
+                return b == '{' || b == '[';
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public List<EntityChangedMessage> decode(byte[] payload) throws IOException {
+        try (JsonParser parser = readMapper.getFactory().createParser(payload)) {
+            if (parser.nextToken() == JsonToken.START_ARRAY) {
+                return readMapper.readValue(parser, TYPE_LIST_ECM);
+            }
+            return Collections.singletonList(readMapper.readValue(parser, EntityChangedMessage.class));
+        }
+    }
+
+}
@@ -41,6 +41,17 @@ public interface MessageBus {
      */
     public void sendMessage(EntityChangedMessage message);
 
+    /**
+     * Check if anyone is interested in the messages sent over this bus. If
+     * not, the persistence manager does not need to create messages, and does
+     * not need to load the changed entities.
+     *
+     * @return false if all messages sent over this bus would be ignored.
+     */
+    public default boolean wantsMessages() {
+        return true;
+    }
+
     public void addMessageListener(MessageListener listener);
 
     public void removeMessageListener(MessageListener listener);
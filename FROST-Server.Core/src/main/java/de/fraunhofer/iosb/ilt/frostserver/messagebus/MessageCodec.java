@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.messagebus;
+
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityChangedMessage;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.Id;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Encodes EntityChangedMessages to bytes, and decodes them again, for message
+ * buses that send messages over the network.
+ *
+ * @author scf
+ */
+public interface MessageCodec {
+
+    /**
+     * Initialise the codec.
+     *
+     * @param idClass The class used for entity ids.
+     */
+    public void init(Class<? extends Id> idClass);
+
+    /**
+     * Write the given messages to the given stream. A single message should be
+     * written such that older receivers that do not support batches can still
+     * read it.
+     *
+     * @param messages The messages to encode.
+     * @param out The stream to write to. The stream is not closed.
+     * @throws IOException If the messages could not be written.
+     */
+    public void encode(List<EntityChangedMessage> messages, OutputStream out) throws IOException;
+
+    /**
+     * Check if the given payload looks like it was encoded by this codec.
+     *
+     * @param payload The payload to check.
+     * @return true if this codec can decode the payload.
+     */
+    public boolean canDecode(byte[] payload);
+
+    /**
+     * Decode the given payload, containing one message or a batch of
+     * messages.
+     *
+     * @param payload The payload to decode.
+     * @return The decoded messages.
+     * @throws IOException If the payload could not be decoded.
+     */
+    public List<EntityChangedMessage> decode(byte[] payload) throws IOException;
+
+}
@@ -32,4 +32,14 @@ public interface MessageListener {
      * @param message The message that was received.
      */
     public void messageReceived(EntityChangedMessage message);
+
+    /**
+     * Check if the listener currently has any use for messages. If none of
+     * the listeners on a bus do, no messages have to be created.
+     *
+     * @return false if the listener would ignore all messages it receives.
+     */
+    public default boolean wantsMessages() {
+        return true;
+    }
 }
@@ -17,11 +17,8 @@
  */
 package de.fraunhofer.iosb.ilt.frostserver.messagebus;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import de.fraunhofer.iosb.ilt.frostserver.json.deserialize.JsonReader;
-import de.fraunhofer.iosb.ilt.frostserver.json.serialize.JsonWriter;
 import de.fraunhofer.iosb.ilt.frostserver.model.EntityChangedMessage;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.Id;
 import de.fraunhofer.iosb.ilt.frostserver.persistence.PersistenceManagerFactory;
 import de.fraunhofer.iosb.ilt.frostserver.settings.BusSettings;
 import de.fraunhofer.iosb.ilt.frostserver.settings.ConfigDefaults;
@@ -32,9 +29,12 @@ import de.fraunhofer.iosb.ilt.frostserver.settings.annotation.DefaultValue;
 import de.fraunhofer.iosb.ilt.frostserver.settings.annotation.DefaultValueInt;
 import de.fraunhofer.iosb.ilt.frostserver.util.ChangingStatusLogger;
 import de.fraunhofer.iosb.ilt.frostserver.util.ProcessorHelper;
-import de.fraunhofer.iosb.ilt.frostserver.util.StringHelper;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.ArrayBlockingQueue;
@@ -76,6 +76,18 @@ public class MqttMessageBus implements MessageBus, MqttCallback, ConfigDefaults
     public static final String TAG_QOS_LEVEL = "qosLevel";
     @DefaultValueInt(50)
     public static final String TAG_MAX_IN_FLIGHT = "maxInFlight";
+    @DefaultValueInt(1)
+    public static final String TAG_SEND_BATCH_SIZE = "sendBatchSize";
+    @DefaultValueInt(10)
+    public static final String TAG_SEND_BATCH_WAIT = "sendBatchWait";
+    @DefaultValue("de.fraunhofer.iosb.ilt.frostserver.messagebus.JsonMessageCodec")
+    public static final String TAG_CODEC_CLASS = "codecClass";
+
+    /**
+     * Batches are serialised into a per-thread buffer that is re-used for the
+     * next batch, unless it grew beyond this size.
+     */
+    private static final int MAX_REUSED_BUFFER_SIZE = 1024 * 1024;
 
     /**
      * The logger for this class.
@@ -86,6 +98,7 @@ public class MqttMessageBus implements MessageBus, MqttCallback, ConfigDefaults
     private int sendQueueSize;
     private int recvPoolSize;
     private int recvQueueSize;
+    private int sendBatchSize;
     private BlockingQueue<EntityChangedMessage> sendQueue;
     private ExecutorService sendService;
     private BlockingQueue<EntityChangedMessage> recvQueue;
@@ -104,8 +117,15 @@ public class MqttMessageBus implements MessageBus, MqttCallback, ConfigDefaults
     private int maxInFlight;
     private boolean listening = false;
 
-    private ObjectMapper formatter;
-    private JsonReader parser;
+    /**
+     * The codec used to encode sent messages.
+     */
+    private MessageCodec codec;
+    /**
+     * The codecs that can decode received messages, the configured one first.
+     */
+    private final List<MessageCodec> decoders = new ArrayList<>();
+    private final ThreadLocal<ByteArrayOutputStream> sendBuffers = ThreadLocal.withInitial(ByteArrayOutputStream::new);
 
     @Override
     public void init(CoreSettings settings) {
@@ -115,13 +135,26 @@ public class MqttMessageBus implements MessageBus, MqttCallback, ConfigDefaults
         sendQueueSize = customSettings.getInt(TAG_SEND_QUEUE_SIZE, getClass());
         recvPoolSize = customSettings.getInt(TAG_RECV_WORKER_COUNT, getClass());
         recvQueueSize = customSettings.getInt(TAG_RECV_QUEUE_SIZE, getClass());
+        sendBatchSize = customSettings.getInt(TAG_SEND_BATCH_SIZE, getClass());
 
         sendQueue = new ArrayBlockingQueue<>(sendQueueSize);
-        sendService = ProcessorHelper.createProcessors(
-                sendPoolSize,
-                sendQueue,
-                this::handleMessageSent,
-                "mqtt-BusS");
+        if (sendBatchSize > 1) {
+            long sendBatchWait = customSettings.getInt(TAG_SEND_BATCH_WAIT, getClass());
+            sendService = ProcessorHelper.createBatchProcessors(
+                    sendPoolSize,
+                    sendQueue,
+                    this::handleMessagesSent,
+                    sendBatchSize,
+                    sendBatchWait,
+                    "mqtt-BusS");
+            LOGGER.info("Sending up to {} messages per bus message, waiting at most {}ms.", sendBatchSize, sendBatchWait);
+        } else {
+            sendService = ProcessorHelper.createProcessors(
+                    sendPoolSize,
+                    sendQueue,
+                    this::handleMessageSent,
+                    "mqtt-BusS");
+        }
         logStatus.setSendQueueSize(sendQueueSize);
 
         recvQueue = new ArrayBlockingQueue<>(recvQueueSize);
@@ -137,8 +170,14 @@ public class MqttMessageBus implements MessageBus, MqttCallback, ConfigDefaults
         maxInFlight = customSettings.getInt(TAG_MAX_IN_FLIGHT, getClass());
         connect();
 
-        formatter = JsonWriter.getObjectMapper();
-        parser = new JsonReader(PersistenceManagerFactory.getInstance(settings).getIdManager().getIdClass());
+        Class<? extends Id> idClass = PersistenceManagerFactory.getInstance(settings).getIdManager().getIdClass();
+        codec = createCodec(customSettings.get(TAG_CODEC_CLASS, getClass()), idClass);
+        decoders.add(codec);
+        for (String builtIn : Arrays.asList(SmileMessageCodec.class.getName(), JsonMessageCodec.class.getName())) {
+            if (!builtIn.equals(codec.getClass().getName())) {
+                decoders.add(createCodec(builtIn, idClass));
+            }
+        }
 
         long queueLoggingInterval = settings.getSettings().getInt(CoreSettings.TAG_QUEUE_LOGGING_INTERVAL, CoreSettings.class);
         if (queueLoggingInterval > 0) {
@@ -149,6 +188,16 @@ public class MqttMessageBus implements MessageBus, MqttCallback, ConfigDefaults
         }
     }
 
+    private static MessageCodec createCodec(String className, Class<? extends Id> idClass) {
+        try {
+            MessageCodec newCodec = (MessageCodec) Class.forName(className).getDeclaredConstructor().newInstance();
+            newCodec.init(idClass);
+            return newCodec;
+        } catch (ClassNotFoundException | InstantiationException | IllegalAccessException | NoSuchMethodException | InvocationTargetException | ClassCastException ex) {
+            throw new IllegalArgumentException("Could not create MessageCodec " + className, ex);
+        }
+    }
+
     private synchronized void connect() {
         if (client == null) {
             try {
@@ -264,19 +313,37 @@ public class MqttMessageBus implements MessageBus, MqttCallback, ConfigDefaults
     }
 
     private void handleMessageSent(EntityChangedMessage message) {
-        logStatus.setSendQueueCount(sendQueueCount.decrementAndGet());
+        handleMessagesSent(Collections.singletonList(message));
+    }
+
+    /**
+     * Publishes a batch of messages as a single MQTT message.
+     *
+     * @param messages The messages to publish.
+     */
+    private void handleMessagesSent(List<EntityChangedMessage> messages) {
+        logStatus.setSendQueueCount(sendQueueCount.addAndGet(-messages.size()));
+        ByteArrayOutputStream buffer = sendBuffers.get();
         try {
-            String serialisedMessage = formatter.writeValueAsString(message);
-            byte[] bytes = serialisedMessage.getBytes(StringHelper.UTF8);
-            if (!client.isConnected()) {
-                connect();
+            buffer.reset();
+            codec.encode(messages, buffer);
+            publish(buffer.toByteArray());
+        } catch (MqttException | IOException ex) {
+            LOGGER.error("Failed to publish {} messages to bus.", messages.size(), ex);
+        } finally {
+            if (buffer.size() > MAX_REUSED_BUFFER_SIZE) {
+                sendBuffers.remove();
             }
-            client.publish(topicName, bytes, qosLevel, false);
-        } catch (MqttException | JsonProcessingException ex) {
-            LOGGER.error("Failed to publish message to bus.", ex);
         }
     }
 
+    private void publish(byte[] bytes) throws MqttException {
+        if (!client.isConnected()) {
+            connect();
+        }
+        client.publish(topicName, bytes, qosLevel, false);
+    }
+
     @Override
     public void connectionLost(Throwable cause) {
         LOGGER.warn("Connection to message bus lost.");
@@ -285,8 +352,19 @@ public class MqttMessageBus implements MessageBus, MqttCallback, ConfigDefaults
 
     @Override
     public void messageArrived(String topic, MqttMessage mqttMessage) throws IOException {
-        String serialisedEcMessage = new String(mqttMessage.getPayload(), StringHelper.UTF8);
-        EntityChangedMessage ecMessage = parser.parseObject(EntityChangedMessage.class, serialisedEcMessage);
+        byte[] payload = mqttMessage.getPayload();
+        for (MessageCodec decoder : decoders) {
+            if (decoder.canDecode(payload)) {
+                for (EntityChangedMessage ecMessage : decoder.decode(payload)) {
+                    queueReceived(ecMessage);
+                }
+                return;
+            }
+        }
+        LOGGER.error("Received a message on the bus in an unknown format.");
+    }
+
+    private void queueReceived(EntityChangedMessage ecMessage) {
         if (!recvQueue.offer(ecMessage)) {
             LOGGER.error("Failed to add message to receive-queue. Increase {}{} (currently {}) to allow a bigger buffer, or increase {}{} (currently {}) to empty the buffer quicker.",
                     PREFIX_BUS, TAG_RECV_QUEUE_SIZE, recvQueueSize, PREFIX_BUS, TAG_RECV_WORKER_COUNT, recvPoolSize);
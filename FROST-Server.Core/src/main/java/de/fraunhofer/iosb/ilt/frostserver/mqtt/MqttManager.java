@@ -30,7 +30,6 @@ import de.fraunhofer.iosb.ilt.frostserver.mqtt.subscription.SubscriptionListener
 import de.fraunhofer.iosb.ilt.frostserver.path.Version;
 import de.fraunhofer.iosb.ilt.frostserver.persistence.PersistenceManager;
 import de.fraunhofer.iosb.ilt.frostserver.persistence.PersistenceManagerFactory;
-import de.fraunhofer.iosb.ilt.frostserver.property.Property;
 import de.fraunhofer.iosb.ilt.frostserver.service.RequestTypeUtils;
 import de.fraunhofer.iosb.ilt.frostserver.service.Service;
 import de.fraunhofer.iosb.ilt.frostserver.service.ServiceRequestBuilder;
@@ -41,10 +40,12 @@ import de.fraunhofer.iosb.ilt.frostserver.settings.UnknownVersionException;
 import de.fraunhofer.iosb.ilt.frostserver.util.ChangingStatusLogger;
 import de.fraunhofer.iosb.ilt.frostserver.util.ProcessorHelper;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
@@ -122,10 +123,11 @@ public class MqttManager implements SubscriptionListener, MessageListener, Entit
             shutdown = false;
             entityChangedEventQueue = new ArrayBlockingQueue<>(mqttSettings.getSubscribeMessageQueueSize());
             // start watching for EntityChangedEvents
-            entityChangedExecutorService = ProcessorHelper.createProcessors(
+            entityChangedExecutorService = ProcessorHelper.createBatchProcessors(
                     mqttSettings.getSubscribeThreadPoolSize(),
                     entityChangedEventQueue,
-                    this::handleEntityChangedEvent,
+                    this::handleEntityChangedEvents,
+                    mqttSettings.getSubscribeBatchSize(),
                     "Mqtt-EntityChangedProcessor");
             // start watching for EntityCreateEvents
             entityCreateEventQueue = new ArrayBlockingQueue<>(mqttSettings.getCreateMessageQueueSize());
@@ -166,27 +168,72 @@ public class MqttManager implements SubscriptionListener, MessageListener, Entit
         }
     }
 
-    private void handleEntityChangedEvent(EntityChangedMessage message) {
-        logStatus.setEntityChangedQueueSize(entityChangedQueueSize.decrementAndGet());
-        if (message.getEventType() == EntityChangedMessage.Type.DELETE) {
-            // v1.0 does not do delete notification.
-            return;
+    private void handleEntityChangedEvents(List<EntityChangedMessage> messages) {
+        logStatus.setEntityChangedQueueSize(entityChangedQueueSize.addAndGet(-messages.size()));
+        Map<EntityType, List<EntityChangedMessage>> messagesPerType = new EnumMap<>(EntityType.class);
+        for (EntityChangedMessage message : messages) {
+            if (message.getEventType() == EntityChangedMessage.Type.DELETE) {
+                // v1.0 does not do delete notification.
+                continue;
+            }
+            // check if there is any subscription, if not do not publish at all
+            EntityType entityType = message.getEntityType();
+            if (subscriptions.containsKey(entityType)) {
+                messagesPerType.computeIfAbsent(entityType, t -> new ArrayList<>()).add(message);
+            }
         }
-        // check if there is any subscription, if not do not publish at all
-        EntityType entityType = message.getEntityType();
-        if (!subscriptions.containsKey(entityType)) {
+        if (messagesPerType.isEmpty()) {
             return;
         }
-
-        Entity<?> entity = message.getEntity();
-        Set<Property> fields = message.getFields();
         try (PersistenceManager persistenceManager = PersistenceManagerFactory.getInstance(settings).create()) {
-            subscriptions.get(entityType).handleEntityChanged(persistenceManager, entity, fields);
+            for (Map.Entry<EntityType, List<EntityChangedMessage>> entry : messagesPerType.entrySet()) {
+                subscriptions.get(entry.getKey()).handleEntityChanged(persistenceManager, entry.getValue());
+            }
         } catch (Exception ex) {
             LOGGER.error("error handling MQTT subscriptions", ex);
         }
     }
 
+    /**
+     * Send the given entity to all given subscriptions. Subscriptions with the
+     * same format key get the same message, so the message is only formatted
+     * once for each format.
+     *
+     * @param subscriptions The subscriptions to notify.
+     * @param entity The entity to send.
+     */
+    public void notifySubscriptions(List<Subscription> subscriptions, Entity entity) {
+        if (subscriptions.size() == 1) {
+            notifySubscription(subscriptions.get(0), entity);
+            return;
+        }
+        Map<Object, List<Subscription>> subscriptionsPerFormat = new LinkedHashMap<>();
+        for (Subscription subscription : subscriptions) {
+            Object formatKey = subscription.getFormatKey();
+            if (formatKey == null) {
+                notifySubscription(subscription, entity);
+            } else {
+                subscriptionsPerFormat.computeIfAbsent(formatKey, k -> new ArrayList<>()).add(subscription);
+            }
+        }
+        for (List<Subscription> group : subscriptionsPerFormat.values()) {
+            if (group.size() == 1) {
+                notifySubscription(group.get(0), entity);
+                continue;
+            }
+            List<String> topics = new ArrayList<>(group.size());
+            for (Subscription subscription : group) {
+                topics.add(subscription.getTopic());
+            }
+            try {
+                String payload = group.get(0).formatMessage(entity);
+                server.publish(topics, payload, settings.getMqttSettings().getQosLevel());
+            } catch (IOException ex) {
+                LOGGER.error("publishing to MQTT on topics '{}' failed", topics, ex);
+            }
+        }
+    }
+
     public void notifySubscription(Subscription subscription, Entity entity) {
         try {
             String payload = subscription.formatMessage(entity);
@@ -229,7 +276,7 @@ public class MqttManager implements SubscriptionListener, MessageListener, Entit
     }
 
     private void entityChanged(EntityChangedMessage e) {
-        if (shutdown || !enabledMqtt) {
+        if (shutdown || !enabledMqtt || e.getEntity() == null) {
             return;
         }
         if (entityChangedEventQueue.offer(e)) {
@@ -269,6 +316,11 @@ public class MqttManager implements SubscriptionListener, MessageListener, Entit
         entityChanged(message);
     }
 
+    @Override
+    public boolean wantsMessages() {
+        return enabledMqtt && !shutdown && topicCount.get() > 0;
+    }
+
     @Override
     public void onEntityCreate(EntityCreateEvent e) {
         if (shutdown || !enabledMqtt) {
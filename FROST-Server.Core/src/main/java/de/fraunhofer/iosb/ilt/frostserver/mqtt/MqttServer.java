@@ -20,6 +20,7 @@ package de.fraunhofer.iosb.ilt.frostserver.mqtt;
 import de.fraunhofer.iosb.ilt.frostserver.mqtt.create.EntityCreateListener;
 import de.fraunhofer.iosb.ilt.frostserver.mqtt.subscription.SubscriptionListener;
 import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
+import java.util.Collection;
 
 /**
  *
@@ -35,6 +36,20 @@ public interface MqttServer {
 
     public void publish(String topic, String payload, int qos);
 
+    /**
+     * Publish the same payload on all given topics. Implementations can
+     * override this to encode the payload only once.
+     *
+     * @param topics The topics to publish on.
+     * @param payload The payload to publish.
+     * @param qos The QoS level to publish with.
+     */
+    public default void publish(Collection<String> topics, String payload, int qos) {
+        for (String topic : topics) {
+            publish(topic, payload, qos);
+        }
+    }
+
     public void addSubscriptionListener(SubscriptionListener listener);
 
     public void removeSubscriptionListener(SubscriptionListener listener);
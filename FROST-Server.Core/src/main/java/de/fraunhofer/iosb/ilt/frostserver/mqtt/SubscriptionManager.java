@@ -17,15 +17,19 @@
  */
 package de.fraunhofer.iosb.ilt.frostserver.mqtt;
 
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityChangedMessage;
 import de.fraunhofer.iosb.ilt.frostserver.model.EntityType;
 import de.fraunhofer.iosb.ilt.frostserver.model.core.Entity;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.Id;
 import de.fraunhofer.iosb.ilt.frostserver.mqtt.subscription.Subscription;
 import de.fraunhofer.iosb.ilt.frostserver.persistence.PersistenceManager;
 import de.fraunhofer.iosb.ilt.frostserver.property.NavigationPropertyMain;
-import de.fraunhofer.iosb.ilt.frostserver.property.Property;
+import java.util.ArrayList;
 import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -45,6 +49,11 @@ class SubscriptionManager {
      * /Datastreams(1)/Observations
      */
     private final Map<NavigationPropertyMain, SubscriptionSetDirectParent> parentedSubscriptions = new EnumMap<>(NavigationPropertyMain.class);
+    /**
+     * Subscriptions on a single entity with a fixed ID, keyed by that ID. For
+     * example: /Things(5) and /Things(5)/name
+     */
+    private final Map<Id, SubscriptionSet> entitySubscriptions = new ConcurrentHashMap<>();
     /**
      * All other subscriptions.
      */
@@ -63,21 +72,86 @@ class SubscriptionManager {
         return entityType;
     }
 
-    public void handleEntityChanged(PersistenceManager persistenceManager, Entity entity, Set<Property> fields) {
-        for (SubscriptionSetDirectParent subSet : parentedSubscriptions.values()) {
-            subSet.handleEntityChanged(persistenceManager, entity, fields);
+    /**
+     * Notify the subscriptions that match the given changes. All changes must
+     * be of entities of the type of this manager. Subscriptions that need a
+     * query to check if an entity matches, check all changes with one query.
+     *
+     * @param persistenceManager The PersistenceManager to use for queries.
+     * @param messages The changes to handle.
+     */
+    public void handleEntityChanged(PersistenceManager persistenceManager, List<EntityChangedMessage> messages) {
+        List<List<Subscription>> matches = findMatches(persistenceManager, messages);
+        for (int i = 0; i < messages.size(); i++) {
+            List<Subscription> messageMatches = matches.get(i);
+            if (!messageMatches.isEmpty()) {
+                mqttManager.notifySubscriptions(messageMatches, messages.get(i).getEntity());
+            }
         }
+    }
+
+    /**
+     * Find the subscriptions that match the given changes.
+     *
+     * @param persistenceManager The PersistenceManager to use for queries.
+     * @param messages The changes to find the subscriptions for.
+     * @return For each change, in the same order, the matching subscriptions.
+     */
+    List<List<Subscription>> findMatches(PersistenceManager persistenceManager, List<EntityChangedMessage> messages) {
+        final int count = messages.size();
+        List<List<Subscription>> matches = new ArrayList<>(count);
+        for (EntityChangedMessage message : messages) {
+            List<Subscription> messageMatches = new ArrayList<>();
+            Entity entity = message.getEntity();
+            Id entityId = entity.getId();
+            SubscriptionSet subsForEntity = entityId == null ? null : entitySubscriptions.get(entityId);
+            if (subsForEntity != null) {
+                for (Subscription subscription : subsForEntity.getSubscriptions().keySet()) {
+                    if (subscription.matches(persistenceManager, entity, message.getFields())) {
+                        messageMatches.add(subscription);
+                    }
+                }
+            }
+            for (SubscriptionSetDirectParent subSet : parentedSubscriptions.values()) {
+                subSet.findMatches(persistenceManager, entity, message.getFields(), messageMatches);
+            }
+            matches.add(messageMatches);
+        }
+        List<Entity> candidates = new ArrayList<>(count);
+        List<Integer> candidateIndices = new ArrayList<>(count);
         for (Subscription subscription : complexSubscriptions.getSubscriptions().keySet()) {
-            if (subscription.matches(persistenceManager, entity, fields)) {
-                mqttManager.notifySubscription(subscription, entity);
+            candidates.clear();
+            candidateIndices.clear();
+            for (int i = 0; i < count; i++) {
+                EntityChangedMessage message = messages.get(i);
+                if (subscription.matchesWithoutQuery(message.getEntity(), message.getFields())) {
+                    candidates.add(message.getEntity());
+                    candidateIndices.add(i);
+                }
+            }
+            if (candidates.isEmpty()) {
+                continue;
+            }
+            Set<Id> matching = subscription.findMatching(persistenceManager, candidates);
+            for (int i = 0; i < candidates.size(); i++) {
+                if (matching.contains(candidates.get(i).getId())) {
+                    matches.get(candidateIndices.get(i)).add(subscription);
+                }
             }
         }
+        return matches;
     }
 
     public synchronized void addSubscription(Subscription subscription) {
+        Id entityId = subscription.getEntityId();
+        if (entityId != null) {
+            entitySubscriptions.computeIfAbsent(entityId, t -> new SubscriptionSet(topicCount))
+                    .addSubscription(subscription);
+            return;
+        }
         NavigationPropertyMain parentRelation = subscription.getParentRelation();
         if (parentRelation != null) {
-            SubscriptionSetDirectParent parentSet = parentedSubscriptions.computeIfAbsent(parentRelation, t -> new SubscriptionSetDirectParent(mqttManager, parentRelation, topicCount));
+            SubscriptionSetDirectParent parentSet = parentedSubscriptions.computeIfAbsent(parentRelation, t -> new SubscriptionSetDirectParent(parentRelation, topicCount));
             if (parentSet.addSubscription(subscription)) {
                 return;
             }
@@ -86,6 +160,17 @@ class SubscriptionManager {
     }
 
     public synchronized void removeSubscription(Subscription subscription) {
+        Id entityId = subscription.getEntityId();
+        if (entityId != null) {
+            SubscriptionSet subsForEntity = entitySubscriptions.get(entityId);
+            if (subsForEntity != null) {
+                subsForEntity.removeSubscription(subscription);
+                if (subsForEntity.getSubscriptions().isEmpty()) {
+                    entitySubscriptions.remove(entityId);
+                }
+            }
+            return;
+        }
         NavigationPropertyMain parentRelation = subscription.getParentRelation();
         if (parentRelation != null) {
             SubscriptionSetDirectParent parentSet = parentedSubscriptions.get(parentRelation);
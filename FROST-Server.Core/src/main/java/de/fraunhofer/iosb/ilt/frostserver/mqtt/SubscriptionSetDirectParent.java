@@ -23,6 +23,7 @@ import de.fraunhofer.iosb.ilt.frostserver.mqtt.subscription.Subscription;
 import de.fraunhofer.iosb.ilt.frostserver.persistence.PersistenceManager;
 import de.fraunhofer.iosb.ilt.frostserver.property.NavigationPropertyMain;
 import de.fraunhofer.iosb.ilt.frostserver.property.Property;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -39,18 +40,24 @@ class SubscriptionSetDirectParent {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(SubscriptionSetDirectParent.class.getName());
 
-    private final MqttManager mqttManager;
     private final NavigationPropertyMain relationToParent;
     private final Map<Id, SubscriptionSet> subscriptions = new ConcurrentHashMap<>();
     private final AtomicInteger topicCount;
 
-    public SubscriptionSetDirectParent(MqttManager mqttManager, NavigationPropertyMain relationToParent, AtomicInteger topicCount) {
-        this.mqttManager = mqttManager;
+    public SubscriptionSetDirectParent(NavigationPropertyMain relationToParent, AtomicInteger topicCount) {
         this.relationToParent = relationToParent;
         this.topicCount = topicCount;
     }
 
-    public void handleEntityChanged(PersistenceManager persistenceManager, Entity entity, Set<Property> fields) {
+    /**
+     * Add the subscriptions that match the given change to the given list.
+     *
+     * @param persistenceManager The PersistenceManager to use for queries.
+     * @param entity The changed entity.
+     * @param fields The changed fields.
+     * @param matches The list to add the matching subscriptions to.
+     */
+    public void findMatches(PersistenceManager persistenceManager, Entity entity, Set<Property> fields, List<Subscription> matches) {
         Entity parent = (Entity) entity.getProperty(relationToParent);
         if (parent == null) {
             return;
@@ -63,7 +70,7 @@ class SubscriptionSetDirectParent {
         // for each subscription on EntityType check match
         for (Subscription subscription : subsForParent.getSubscriptions().keySet()) {
             if (subscription.matches(persistenceManager, entity, fields)) {
-                mqttManager.notifySubscription(subscription, entity);
+                matches.add(subscription);
             }
         }
     }
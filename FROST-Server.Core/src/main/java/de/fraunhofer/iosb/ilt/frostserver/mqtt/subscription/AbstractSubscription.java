@@ -19,9 +19,11 @@ package de.fraunhofer.iosb.ilt.frostserver.mqtt.subscription;
 
 import de.fraunhofer.iosb.ilt.frostserver.model.EntityType;
 import de.fraunhofer.iosb.ilt.frostserver.model.core.Entity;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.EntitySet;
 import de.fraunhofer.iosb.ilt.frostserver.model.core.Id;
 import de.fraunhofer.iosb.ilt.frostserver.path.PathElement;
 import de.fraunhofer.iosb.ilt.frostserver.path.PathElementEntity;
+import de.fraunhofer.iosb.ilt.frostserver.path.PathElementEntitySet;
 import de.fraunhofer.iosb.ilt.frostserver.path.ResourcePath;
 import de.fraunhofer.iosb.ilt.frostserver.persistence.PersistenceManager;
 import de.fraunhofer.iosb.ilt.frostserver.property.EntityPropertyMain;
@@ -33,11 +35,15 @@ import de.fraunhofer.iosb.ilt.frostserver.query.expression.Path;
 import de.fraunhofer.iosb.ilt.frostserver.query.expression.constant.IntegerConstant;
 import de.fraunhofer.iosb.ilt.frostserver.query.expression.constant.StringConstant;
 import de.fraunhofer.iosb.ilt.frostserver.query.expression.function.comparison.Equal;
+import de.fraunhofer.iosb.ilt.frostserver.query.expression.function.logical.And;
+import de.fraunhofer.iosb.ilt.frostserver.query.expression.function.logical.Or;
 import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
 import de.fraunhofer.iosb.ilt.frostserver.util.PathHelper;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.EnumMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -60,6 +66,7 @@ public abstract class AbstractSubscription implements Subscription {
     private Expression matchExpression = null;
     private Query query;
     private Predicate<? super Entity> matcher;
+    private Object formatKey;
 
     /**
      * If the subscription is over a one-to-many relation, this has a value.
@@ -92,10 +99,7 @@ public abstract class AbstractSubscription implements Subscription {
 
     @Override
     public boolean matches(PersistenceManager persistenceManager, Entity newEntity, Set<Property> fields) {
-        if (!newEntity.getEntityType().equals(entityType)) {
-            return false;
-        }
-        if (matcher != null && !matcher.test(newEntity)) {
+        if (!matchesWithoutQuery(newEntity, fields)) {
             return false;
         }
         if (matchExpression != null) {
@@ -105,6 +109,47 @@ public abstract class AbstractSubscription implements Subscription {
         return true;
     }
 
+    @Override
+    public boolean matchesWithoutQuery(Entity newEntity, Set<Property> fields) {
+        if (!newEntity.getEntityType().equals(entityType)) {
+            return false;
+        }
+        return matcher == null || matcher.test(newEntity);
+    }
+
+    @Override
+    public Set<Id> findMatching(PersistenceManager persistenceManager, List<Entity> candidates) {
+        Set<Id> result = new HashSet<>();
+        if (matchExpression == null) {
+            for (Entity candidate : candidates) {
+                result.add(candidate.getId());
+            }
+            return result;
+        }
+        ResourcePath setPath = new ResourcePath(path.getServiceRootUrl(), path.getVersion(), "/" + entityType.plural);
+        setPath.addPathElement(new PathElementEntitySet(entityType, null), true, false);
+        int chunkSize = settings.getQueryDefaults().getTopMax();
+        for (int start = 0; start < candidates.size(); start += chunkSize) {
+            List<Entity> chunk = candidates.subList(start, Math.min(start + chunkSize, candidates.size()));
+            Expression idFilter = null;
+            for (Entity candidate : chunk) {
+                Expression idEquals = new Equal(new Path(EntityPropertyMain.ID), idConstant(candidate.getId()));
+                idFilter = idFilter == null ? idEquals : new Or(idFilter, idEquals);
+            }
+            Query batchQuery = new Query(settings.getQueryDefaults(), setPath);
+            batchQuery.setFilter(new And(matchExpression, idFilter));
+            batchQuery.addSelect(EntityPropertyMain.ID);
+            batchQuery.setTop(chunk.size());
+            Object found = persistenceManager.get(setPath, batchQuery);
+            if (found instanceof EntitySet) {
+                for (Object entity : (EntitySet<?>) found) {
+                    result.add(((Entity) entity).getId());
+                }
+            }
+        }
+        return result;
+    }
+
     protected void generateFilter(int pathElementOffset) {
         EntityType lastType = getEntityType();
         List<Property> properties = new ArrayList<>();
@@ -153,16 +198,19 @@ public abstract class AbstractSubscription implements Subscription {
 
     private void createMatchExpression(List<Property> properties, final PathElementEntity epe) {
         properties.add(EntityPropertyMain.ID);
-        String epeId = epe.getId().getUrl();
-        if (epeId.startsWith("'")) {
-            matchExpression = new Equal(new Path(properties), new StringConstant(epeId.substring(1, epeId.length() - 1)));
-        } else {
-            matchExpression = new Equal(new Path(properties), new IntegerConstant(epeId));
-        }
+        matchExpression = new Equal(new Path(properties), idConstant(epe.getId()));
         query = new Query(settings.getQueryDefaults(), path);
         query.setFilter(matchExpression);
     }
 
+    private static Expression idConstant(Id id) {
+        String idUrl = id.getUrl();
+        if (idUrl.startsWith("'")) {
+            return new StringConstant(idUrl.substring(1, idUrl.length() - 1));
+        }
+        return new IntegerConstant(idUrl);
+    }
+
     @Override
     public EntityType getEntityType() {
         return entityType;
@@ -178,6 +226,29 @@ public abstract class AbstractSubscription implements Subscription {
         return doFormatMessage(entity);
     }
 
+    /**
+     * Set the format key, for a Subscription that formats entities using the
+     * given query.
+     *
+     * @param formatQuery The query used to format entities, or null if the
+     * messages of this Subscription can not be shared.
+     */
+    protected void initFormatKey(Query formatQuery) {
+        if (formatQuery == null) {
+            formatKey = null;
+            return;
+        }
+        formatKey = Arrays.asList(
+                path.getServiceRootUrl(),
+                path.getVersion(),
+                new HashSet<>(formatQuery.getSelect()));
+    }
+
+    @Override
+    public Object getFormatKey() {
+        return formatKey;
+    }
+
     @Override
     public NavigationPropertyMain getParentRelation() {
         return parentRelation;
@@ -61,6 +61,7 @@ public class EntitySetSubscription extends AbstractSubscription {
             throw new IllegalArgumentException("Invalid subscription to: '" + topic + "': only $select is allowed in query options.");
         }
         generateFilter(1);
+        initFormatKey(query);
     }
 
     private Query parseQuery(String topic) {
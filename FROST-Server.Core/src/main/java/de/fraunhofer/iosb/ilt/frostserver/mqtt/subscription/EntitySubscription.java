@@ -23,7 +23,6 @@ import de.fraunhofer.iosb.ilt.frostserver.model.core.Id;
 import de.fraunhofer.iosb.ilt.frostserver.path.PathElementEntity;
 import de.fraunhofer.iosb.ilt.frostserver.path.PathElementEntitySet;
 import de.fraunhofer.iosb.ilt.frostserver.path.ResourcePath;
-import de.fraunhofer.iosb.ilt.frostserver.persistence.PersistenceManager;
 import de.fraunhofer.iosb.ilt.frostserver.property.EntityPropertyMain;
 import de.fraunhofer.iosb.ilt.frostserver.property.Property;
 import de.fraunhofer.iosb.ilt.frostserver.query.Query;
@@ -42,6 +41,7 @@ public class EntitySubscription extends AbstractSubscription {
     private Query emptyQuery;
 
     private Predicate<? super Entity> matcher;
+    private Id entityId;
 
     public EntitySubscription(CoreSettings settings, String topic, ResourcePath path) {
         super(topic, path, settings);
@@ -59,16 +59,23 @@ public class EntitySubscription extends AbstractSubscription {
         if (size == 2 && path.get(0) instanceof PathElementEntitySet) {
             Id id = ((PathElementEntity) path.getLastElement()).getId();
             matcher = x -> x.getProperty(EntityPropertyMain.ID).equals(id);
+            entityId = id;
         }
         generateFilter(1);
+        initFormatKey(emptyQuery);
     }
 
     @Override
-    public boolean matches(PersistenceManager persistenceManager, Entity newEntity, Set<Property> fields) {
+    public boolean matchesWithoutQuery(Entity newEntity, Set<Property> fields) {
         if (matcher != null && !matcher.test(newEntity)) {
             return false;
         }
-        return super.matches(persistenceManager, newEntity, fields);
+        return super.matchesWithoutQuery(newEntity, fields);
+    }
+
+    @Override
+    public Id getEntityId() {
+        return entityId;
     }
 
     @Override
@@ -23,7 +23,6 @@ import de.fraunhofer.iosb.ilt.frostserver.model.core.Id;
 import de.fraunhofer.iosb.ilt.frostserver.path.PathElementEntity;
 import de.fraunhofer.iosb.ilt.frostserver.path.PathElementProperty;
 import de.fraunhofer.iosb.ilt.frostserver.path.ResourcePath;
-import de.fraunhofer.iosb.ilt.frostserver.persistence.PersistenceManager;
 import de.fraunhofer.iosb.ilt.frostserver.property.EntityPropertyMain;
 import de.fraunhofer.iosb.ilt.frostserver.property.Property;
 import de.fraunhofer.iosb.ilt.frostserver.query.Query;
@@ -41,6 +40,7 @@ public class PropertySubscription extends AbstractSubscription {
 
     private Property property;
     private Predicate<? super Entity> matcher;
+    private Id entityId;
     private Query query;
 
     public PropertySubscription(String topic, ResourcePath path, CoreSettings settings) {
@@ -53,7 +53,9 @@ public class PropertySubscription extends AbstractSubscription {
             throw new IllegalArgumentException("Invalid subscription to: '" + topic + "': query options not allowed for subscription on a property.");
         }
         final int size = path.size();
-        entityType = ((PathElementEntity) path.get(size - 2)).getEntityType();
+        final PathElementEntity entityElement = (PathElementEntity) path.get(size - 2);
+        entityType = entityElement.getEntityType();
+        entityId = entityElement.getId();
         property = ((PathElementProperty) path.get(size - 1)).getProperty();
         if (path.getIdentifiedElement() != null) {
             Id id = path.getIdentifiedElement().getId();
@@ -62,10 +64,11 @@ public class PropertySubscription extends AbstractSubscription {
         query = new Query(settings.getQueryDefaults(), path);
         query.addSelect(property);
         generateFilter(2);
+        initFormatKey(query);
     }
 
     @Override
-    public boolean matches(PersistenceManager persistenceManager, Entity newEntity, Set<Property> fields) {
+    public boolean matchesWithoutQuery(Entity newEntity, Set<Property> fields) {
         if (matcher != null && !matcher.test(newEntity)) {
             return false;
         }
@@ -73,7 +76,12 @@ public class PropertySubscription extends AbstractSubscription {
             return false;
         }
 
-        return super.matches(persistenceManager, newEntity, fields);
+        return super.matchesWithoutQuery(newEntity, fields);
+    }
+
+    @Override
+    public Id getEntityId() {
+        return entityId;
     }
 
     @Override
@@ -24,6 +24,7 @@ import de.fraunhofer.iosb.ilt.frostserver.persistence.PersistenceManager;
 import de.fraunhofer.iosb.ilt.frostserver.property.NavigationPropertyMain;
 import de.fraunhofer.iosb.ilt.frostserver.property.Property;
 import java.io.IOException;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -41,6 +42,18 @@ public interface Subscription {
      */
     public String formatMessage(Entity entity) throws IOException;
 
+    /**
+     * Get a key that identifies how this Subscription formats messages.
+     * Subscriptions with equal keys create identical messages for the same
+     * entity, so the message only needs to be formatted once for all of them.
+     *
+     * @return The format key, or null if the messages of this Subscription
+     * can not be shared with other Subscriptions.
+     */
+    public default Object getFormatKey() {
+        return null;
+    }
+
     /**
      * Get the type of entity that is of interest for this Subscription.
      *
@@ -65,6 +78,29 @@ public interface Subscription {
      */
     public boolean matches(PersistenceManager persistenceManager, Entity newEntity, Set<Property> fields);
 
+    /**
+     * Check the parts of {@link #matches(PersistenceManager, Entity, Set)}
+     * that do not need a query. If this Subscription has no match expression,
+     * this is the complete check.
+     *
+     * @param newEntity The entity to check.
+     * @param fields The fields of the entity that changed.
+     * @return false if the change is not of interest for the Subscription.
+     */
+    public boolean matchesWithoutQuery(Entity newEntity, Set<Property> fields);
+
+    /**
+     * Find which of the given entities match this Subscription. The entities
+     * must have passed {@link #matchesWithoutQuery(Entity, Set)}. Unlike
+     * calling {@link #matches(PersistenceManager, Entity, Set)} for each
+     * entity, this needs at most one query for each batch of entities.
+     *
+     * @param persistenceManager The PersistenceManager to use for queries.
+     * @param candidates The entities to check.
+     * @return The ids of the entities that match.
+     */
+    public Set<Id> findMatching(PersistenceManager persistenceManager, List<Entity> candidates);
+
     /**
      * If the subscription is over a one-to-many relation, this has a value.
      *
@@ -80,4 +116,15 @@ public interface Subscription {
      * @return The Id of the determining parent.
      */
     public Id getParentId();
+
+    /**
+     * If the subscription is on a single entity with a fixed Id, like
+     * v1.1/Things(5) or v1.1/Things(5)/name, this returns that Id. Only
+     * entities with this Id can match the subscription.
+     *
+     * @return The Id of the entity the subscription is on, or null.
+     */
+    public default Id getEntityId() {
+        return null;
+    }
 }
@@ -35,6 +35,7 @@ import java.io.InputStream;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
+import org.joda.time.Period;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -47,6 +48,8 @@ public class QueryParser extends AbstractParserVisitor {
 
     private static final String OP_TOP = "top";
     private static final String OP_SKIP = "skip";
+    private static final String OP_SKIP_TOKEN = "skiptoken";
+    private static final String OP_AGGREGATE = "aggregate";
     private static final String OP_COUNT = "count";
     private static final String OP_SELECT = "select";
     private static final String OP_SELECT_DISTINCT = "selectdistinct";
@@ -118,6 +121,14 @@ public class QueryParser extends AbstractParserVisitor {
                 handleSkip(node, query);
                 break;
 
+            case OP_SKIP_TOKEN:
+                handleSkipToken(node, query);
+                break;
+
+            case OP_AGGREGATE:
+                handleAggregate(node, query);
+                break;
+
             case OP_COUNT:
                 handleCount(node, query);
                 break;
@@ -184,6 +195,16 @@ public class QueryParser extends AbstractParserVisitor {
         query.setSkip(Math.toIntExact((long) child.jjtGetValue()));
     }
 
+    private void handleSkipToken(ASTOption node, Query query) {
+        ASTValueNode child = getChildOfType(node, 0, ASTValueNode.class);
+        query.setSkipToken((String) child.jjtGetValue());
+    }
+
+    private void handleAggregate(ASTOption node, Query query) {
+        ASTValueNode child = getChildOfType(node, 0, ASTValueNode.class);
+        query.setAggregate((Period) child.jjtGetValue());
+    }
+
     private void handleTop(ASTOption node, Query query) {
         ASTValueNode child = getChildOfType(node, 0, ASTValueNode.class);
         int top = Math.toIntExact((long) child.jjtGetValue());
@@ -28,10 +28,13 @@ import de.fraunhofer.iosb.ilt.frostserver.path.PathElementEntity;
 import de.fraunhofer.iosb.ilt.frostserver.path.PathElementEntitySet;
 import de.fraunhofer.iosb.ilt.frostserver.path.ResourcePath;
 import de.fraunhofer.iosb.ilt.frostserver.query.Query;
+import de.fraunhofer.iosb.ilt.frostserver.service.ChangeTracker;
 import de.fraunhofer.iosb.ilt.frostserver.util.exception.IncompleteEntityException;
 import de.fraunhofer.iosb.ilt.frostserver.util.exception.NoSuchEntityException;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  *
@@ -44,6 +47,11 @@ public abstract class AbstractPersistenceManager implements PersistenceManager {
      * The changed entity messages that need to be sent to the bus.
      */
     private final List<EntityChangedMessage> changedEntities;
+    /**
+     * The entity types changed in the current transaction, reported to the
+     * ChangeTracker when the transaction is committed.
+     */
+    private final Set<EntityType> changedTypes = EnumSet.noneOf(EntityType.class);
 
     protected AbstractPersistenceManager() {
         this.changedEntities = new ArrayList<>();
@@ -58,26 +66,58 @@ public abstract class AbstractPersistenceManager implements PersistenceManager {
         return get(entityType, id);
     }
 
+    /**
+     * Check if anyone is interested in change messages. If not, the changed
+     * entities do not have to be loaded after a change.
+     *
+     * @return true if change messages should be created.
+     */
+    protected boolean messagesWanted() {
+        return MessageBusFactory.getMessageBus().wantsMessages();
+    }
+
     @Override
     public boolean insert(Entity entity) throws NoSuchEntityException, IncompleteEntityException {
         boolean result = doInsert(entity);
         if (result) {
+            ChangeTracker.addTypes(entity, changedTypes);
+        }
+        if (result && messagesWanted()) {
             Entity newEntity = fetchEntity(
                     entity.getEntityType(),
                     entity.getId());
-            changedEntities.add(
-                    new EntityChangedMessage()
-                            .setEventType(EntityChangedMessage.Type.CREATE)
-                            .setEntity(newEntity)
-            );
+            entityCreated(newEntity);
         }
         return result;
     }
 
+    /**
+     * Register a create message for the given, newly inserted, entity. The
+     * message is sent to the bus when the transaction is committed.
+     *
+     * @param newEntity The entity that was created.
+     */
+    protected void entityCreated(Entity newEntity) {
+        ChangeTracker.addTypes(newEntity, changedTypes);
+        if (!messagesWanted()) {
+            return;
+        }
+        changedEntities.add(
+                new EntityChangedMessage()
+                        .setEventType(EntityChangedMessage.Type.CREATE)
+                        .setEntity(newEntity)
+        );
+    }
+
     public abstract boolean doInsert(Entity entity) throws NoSuchEntityException, IncompleteEntityException;
 
     @Override
     public boolean delete(PathElementEntity pathElement) throws NoSuchEntityException {
+        // Deletes can cascade to other entity types.
+        changedTypes.addAll(EnumSet.allOf(EntityType.class));
+        if (!messagesWanted()) {
+            return doDelete(pathElement);
+        }
         Entity entity = getEntityByEntityPath(pathElement);
         boolean result = doDelete(pathElement);
         if (result) {
@@ -92,7 +132,16 @@ public abstract class AbstractPersistenceManager implements PersistenceManager {
 
     @Override
     public void delete(ResourcePath path, Query query) throws NoSuchEntityException {
+        changedTypes.addAll(EnumSet.allOf(EntityType.class));
         doDelete(path, query);
+        if (messagesWanted()) {
+            // The deleted entities are not known, other instances must assume
+            // any entity of the type may be gone.
+            changedEntities.add(
+                    new EntityChangedMessage()
+                            .setEventType(EntityChangedMessage.Type.DELETE)
+                            .setEntityType(path.getMainElementType()));
+        }
     }
 
     private Entity getEntityByEntityPath(PathElementEntity pathElement) {
@@ -111,6 +160,9 @@ public abstract class AbstractPersistenceManager implements PersistenceManager {
     public boolean update(PathElementEntity pathElement, Entity entity) throws NoSuchEntityException, IncompleteEntityException {
         EntityChangedMessage result = doUpdate(pathElement, entity);
         if (result != null) {
+            ChangeTracker.addTypes(entity, changedTypes);
+        }
+        if (result != null && messagesWanted()) {
             result.setEventType(EntityChangedMessage.Type.UPDATE);
             Entity newEntity = fetchEntity(
                     entity.getEntityType(),
@@ -140,6 +192,9 @@ public abstract class AbstractPersistenceManager implements PersistenceManager {
     public boolean update(PathElementEntity pathElement, JsonPatch patch) throws NoSuchEntityException, IncompleteEntityException {
         EntityChangedMessage result = doUpdate(pathElement, patch);
         if (result != null) {
+            changedTypes.add(pathElement.getEntityType());
+        }
+        if (result != null && messagesWanted()) {
             result.setEventType(EntityChangedMessage.Type.UPDATE);
             changedEntities.add(result);
         }
@@ -170,11 +225,16 @@ public abstract class AbstractPersistenceManager implements PersistenceManager {
 
     private void clearEntityChangedEvents() {
         changedEntities.clear();
+        changedTypes.clear();
     }
 
     @Override
     public void commit() {
         if (doCommit()) {
+            ChangeTracker tracker = changedTypes.isEmpty() ? null : ChangeTracker.getInstance(getCoreSettings());
+            if (tracker != null) {
+                tracker.changed(changedTypes);
+            }
             fireEntityChangeEvents();
         }
     }
@@ -29,6 +29,7 @@ import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
 import de.fraunhofer.iosb.ilt.frostserver.util.exception.IncompleteEntityException;
 import de.fraunhofer.iosb.ilt.frostserver.util.LiquibaseUser;
 import de.fraunhofer.iosb.ilt.frostserver.util.exception.NoSuchEntityException;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -58,6 +59,30 @@ public interface PersistenceManager extends LiquibaseUser, AutoCloseable {
      */
     public boolean insert(Entity entity) throws NoSuchEntityException, IncompleteEntityException;
 
+    /**
+     * Insert a list of new entities. Entities that can not be inserted are
+     * skipped, the others are still inserted. The default implementation
+     * inserts the entities one by one, implementations can override this to
+     * insert the entities in bulk. In that case the change messages contain
+     * the entities as they were inserted, instead of a freshly loaded copy.
+     *
+     * @param entities The entities to insert.
+     * @return For each entity, in the same order, null if the entity was
+     * inserted, or the exception that caused the entity to not be inserted.
+     */
+    public default List<Exception> insertAll(List<? extends Entity> entities) {
+        List<Exception> result = new ArrayList<>(entities.size());
+        for (Entity entity : entities) {
+            try {
+                insert(entity);
+                result.add(null);
+            } catch (NoSuchEntityException | IncompleteEntityException | IllegalArgumentException exc) {
+                result.add(exc);
+            }
+        }
+        return result;
+    }
+
     public Entity get(EntityType entityType, Id id);
 
     public Object get(ResourcePath path, Query query);
@@ -130,6 +155,43 @@ public interface PersistenceManager extends LiquibaseUser, AutoCloseable {
      */
     public CoreSettings getCoreSettings();
 
+    /**
+     * Hint that this PM will only be used for reading. Must be called before
+     * the first query. Implementations may then use a read-only replica of
+     * the database. The default implementation ignores the hint.
+     */
+    public default void setReadOnly() {
+        // By default there is only one database.
+    }
+
+    /**
+     * The maximum time, in milliseconds, that committed changes may take to
+     * become visible to this PM, for instance because it reads from a
+     * replica.
+     *
+     * @return The maximum staleness of data read by this PM.
+     */
+    public default long getMaxStaleness() {
+        return 0;
+    }
+
+    /**
+     * Start the background tasks that this type of PersistenceManager needs.
+     * Called once by the PersistenceManagerFactory, when it is initialised.
+     * The default implementation has no background tasks.
+     */
+    public default void startBackgroundTasks() {
+        // No background tasks by default.
+    }
+
+    /**
+     * Stop the background tasks started by {@link #startBackgroundTasks()}.
+     * Called by {@link PersistenceManagerFactory#shutdown()}.
+     */
+    public default void stopBackgroundTasks() {
+        // No background tasks by default.
+    }
+
     public void commit();
 
     public void rollback();
@@ -53,6 +53,7 @@ public class PersistenceManagerFactory {
     private static final Logger LOGGER = LoggerFactory.getLogger(PersistenceManagerFactory.class);
     private static final Map<CoreSettings, PersistenceManagerFactory> instances = new HashMap<>();
     private boolean maybeUpdateDatabase = true;
+    private boolean backgroundTasksStarted = false;
 
     public static synchronized PersistenceManagerFactory init(CoreSettings coreSettings) {
         PersistenceManagerFactory instance = instances.computeIfAbsent(coreSettings, t -> {
@@ -66,9 +67,31 @@ public class PersistenceManagerFactory {
                 instance.maybeUpdateDatabase = LiquibaseUtils.maybeUpdateDatabase(LOGGER, pm);
             }
         }
+        if (!instance.backgroundTasksStarted) {
+            try (PersistenceManager pm = instance.create()) {
+                pm.startBackgroundTasks();
+            }
+            instance.backgroundTasksStarted = true;
+        }
         return instance;
     }
 
+    /**
+     * Stop the background tasks of all PersistenceManager types, and forget
+     * all factory instances. Called when the application is shut down.
+     */
+    public static synchronized void shutdown() {
+        for (PersistenceManagerFactory instance : instances.values()) {
+            if (instance.backgroundTasksStarted) {
+                try (PersistenceManager pm = instance.create()) {
+                    pm.stopBackgroundTasks();
+                }
+                instance.backgroundTasksStarted = false;
+            }
+        }
+        instances.clear();
+    }
+
     public static PersistenceManagerFactory getInstance(CoreSettings coreSettings) {
         PersistenceManagerFactory instance = instances.get(coreSettings);
         if (instance == null) {
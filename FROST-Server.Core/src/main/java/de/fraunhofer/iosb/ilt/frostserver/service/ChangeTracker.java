@@ -0,0 +1,329 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.service;
+
+import de.fraunhofer.iosb.ilt.frostserver.messagebus.MessageBusFactory;
+import de.fraunhofer.iosb.ilt.frostserver.messagebus.MessageListener;
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityChangedMessage;
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityType;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.Entity;
+import de.fraunhofer.iosb.ilt.frostserver.path.PathElement;
+import de.fraunhofer.iosb.ilt.frostserver.path.PathElementEntity;
+import de.fraunhofer.iosb.ilt.frostserver.path.PathElementEntitySet;
+import de.fraunhofer.iosb.ilt.frostserver.path.ResourcePath;
+import de.fraunhofer.iosb.ilt.frostserver.property.NavigationProperty;
+import de.fraunhofer.iosb.ilt.frostserver.property.NavigationPropertyMain;
+import de.fraunhofer.iosb.ilt.frostserver.property.Property;
+import de.fraunhofer.iosb.ilt.frostserver.query.Expand;
+import de.fraunhofer.iosb.ilt.frostserver.query.OrderBy;
+import de.fraunhofer.iosb.ilt.frostserver.query.Query;
+import de.fraunhofer.iosb.ilt.frostserver.query.expression.Expression;
+import de.fraunhofer.iosb.ilt.frostserver.query.expression.Path;
+import de.fraunhofer.iosb.ilt.frostserver.query.expression.function.Function;
+import de.fraunhofer.iosb.ilt.frostserver.query.expression.function.date.Now;
+import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
+import java.security.SecureRandom;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Counts the changes to each entity type, so that the server can tell whether
+ * the result of a GET request may have changed since a client last requested
+ * it, without querying the database.
+ *
+ * Changes made through this server are reported by the PersistenceManager
+ * when a transaction is committed. Changes made by other instances are taken
+ * from the messages on the message bus, including the messages without an
+ * entity that are sent for deletes on collections and for the periodic update
+ * of aggregated (Multi)Datastream extents. Changes made directly in the
+ * database are not noticed.
+ *
+ * The validator of a request is derived from the counters of all entity types
+ * that the request path, $expand, $filter and $orderby refer to. Since
+ * counters only go up, the sum of these counters changes whenever one of them
+ * does.
+ *
+ * @author scf
+ */
+public class ChangeTracker implements MessageListener {
+
+    /**
+     * The logger for this class.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChangeTracker.class);
+
+    /**
+     * Changes to an entity type that also change the stored data of other
+     * entity types. New Observations change the phenomenonTime, resultTime
+     * and observedArea of their (Multi)Datastream and may generate a
+     * FeatureOfInterest. Changes to Things and Locations may generate
+     * HistoricalLocations.
+     */
+    private static final Map<EntityType, Set<EntityType>> DEPENDENTS = new EnumMap<>(EntityType.class);
+
+    static {
+        DEPENDENTS.put(EntityType.OBSERVATION, EnumSet.of(EntityType.DATASTREAM, EntityType.MULTIDATASTREAM, EntityType.FEATUREOFINTEREST));
+        DEPENDENTS.put(EntityType.THING, EnumSet.of(EntityType.HISTORICALLOCATION, EntityType.LOCATION));
+        DEPENDENTS.put(EntityType.LOCATION, EnumSet.of(EntityType.HISTORICALLOCATION, EntityType.THING));
+        DEPENDENTS.put(EntityType.HISTORICALLOCATION, EnumSet.of(EntityType.LOCATION, EntityType.THING));
+    }
+
+    private static final Map<CoreSettings, ChangeTracker> instances = new HashMap<>();
+
+    private final String instanceTag;
+    private final boolean etagEnabled;
+    private final AtomicLongArray counters = new AtomicLongArray(EntityType.values().length);
+    private final AtomicLongArray lastChanges = new AtomicLongArray(EntityType.values().length);
+    private boolean listening = false;
+
+    private ChangeTracker(boolean etagEnabled) {
+        this.etagEnabled = etagEnabled;
+        instanceTag = Long.toHexString(new SecureRandom().nextLong());
+    }
+
+    /**
+     * Get the tracker for the given settings, and register it on the message
+     * bus if that has not happened yet.
+     *
+     * @param settings The settings to get the tracker for.
+     * @return The tracker, or null if ETags and the response cache are
+     * disabled in the settings.
+     */
+    public static synchronized ChangeTracker getInstance(CoreSettings settings) {
+        if (settings == null) {
+            return null;
+        }
+        ChangeTracker instance;
+        if (instances.containsKey(settings)) {
+            instance = instances.get(settings);
+        } else {
+            instance = null;
+            boolean etagEnabled = settings.getHttpSettings().getBoolean(CoreSettings.TAG_ETAG_ENABLE, CoreSettings.class);
+            if (etagEnabled || ResponseCache.getInstance(settings) != null) {
+                instance = new ChangeTracker(etagEnabled);
+                LOGGER.info("Tracking changes for ETags and cached responses.");
+            }
+            instances.put(settings, instance);
+        }
+        if (instance != null && !instance.listening) {
+            try {
+                MessageBusFactory.getMessageBus().addMessageListener(instance);
+                instance.listening = true;
+            } catch (IllegalStateException ex) {
+                LOGGER.debug("Message bus not initialised yet, not listening for changes.");
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Remove all trackers.
+     */
+    public static synchronized void shutdown() {
+        instances.clear();
+    }
+
+    /**
+     * @return true if ETags should be sent to clients.
+     */
+    public boolean isETagEnabled() {
+        return etagEnabled;
+    }
+
+    /**
+     * Register that entities of the given types have changed.
+     *
+     * @param types The changed entity types.
+     */
+    public void changed(Collection<EntityType> types) {
+        long now = System.currentTimeMillis();
+        Set<EntityType> all = EnumSet.noneOf(EntityType.class);
+        for (EntityType type : types) {
+            all.add(type);
+            all.addAll(DEPENDENTS.getOrDefault(type, EnumSet.noneOf(EntityType.class)));
+        }
+        for (EntityType type : all) {
+            counters.incrementAndGet(type.ordinal());
+            lastChanges.set(type.ordinal(), now);
+        }
+    }
+
+    /**
+     * Register that all entity types have changed.
+     */
+    public void changedAll() {
+        changed(EnumSet.allOf(EntityType.class));
+    }
+
+    /**
+     * Add the type of the given entity, and of all entities nested in it, to
+     * the given set.
+     *
+     * @param entity The entity to add the types of.
+     * @param types The set to add the types to.
+     */
+    public static void addTypes(Entity<?> entity, Set<EntityType> types) {
+        EntityType type = entity.getEntityType();
+        types.add(type);
+        for (NavigationPropertyMain np : type.getNavigationProperties()) {
+            // Entity sets have no isSet method, check the value instead.
+            Object value = np.getFrom(entity);
+            if (value instanceof Entity) {
+                addTypes((Entity<?>) value, types);
+            } else if (value instanceof Collection) {
+                for (Object item : (Collection<?>) value) {
+                    addTypes((Entity<?>) item, types);
+                }
+            }
+        }
+    }
+
+    /**
+     * Calculate the ETag for the given request.
+     *
+     * @param path The path of the request.
+     * @param query The query of the request.
+     * @param maxStaleness The maximum time, in milliseconds, that a change
+     * may take to become visible to the PersistenceManager.
+     * @return The ETag, or null if the result of the request can change
+     * without the data changing, or if recent changes may not be visible yet.
+     */
+    public String getETag(ResourcePath path, Query query, long maxStaleness) {
+        Set<EntityType> types = EnumSet.noneOf(EntityType.class);
+        for (int i = 0; i < path.size(); i++) {
+            PathElement element = path.get(i);
+            if (element instanceof PathElementEntity) {
+                types.add(((PathElementEntity) element).getEntityType());
+            } else if (element instanceof PathElementEntitySet) {
+                types.add(((PathElementEntitySet) element).getEntityType());
+            }
+        }
+        if (query != null && !addTypes(query, types)) {
+            return null;
+        }
+        long sum = 0;
+        long lastChange = 0;
+        for (EntityType type : types) {
+            sum += counters.get(type.ordinal());
+            lastChange = Math.max(lastChange, lastChanges.get(type.ordinal()));
+        }
+        if (maxStaleness > 0 && System.currentTimeMillis() - lastChange <= maxStaleness) {
+            return null;
+        }
+        return "W/\"" + instanceTag + '-' + Long.toHexString(sum) + '"';
+    }
+
+    /**
+     * Check if the given If-None-Match header matches the given ETag.
+     *
+     * @param ifNoneMatch The value of the If-None-Match header.
+     * @param etag The current ETag.
+     * @return true if the client has the current version.
+     */
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || etag == null) {
+            return false;
+        }
+        String opaqueTag = stripWeak(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if ("*".equals(trimmed) || opaqueTag.equals(stripWeak(trimmed))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String stripWeak(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    private static boolean addTypes(Query query, Set<EntityType> types) {
+        if (query.getFilter() != null && !addTypes(query.getFilter(), types)) {
+            return false;
+        }
+        for (OrderBy orderBy : query.getOrderBy()) {
+            if (!addTypes(orderBy.getExpression(), types)) {
+                return false;
+            }
+        }
+        for (Expand expand : query.getExpand()) {
+            types.add(expand.getPath().getType());
+            if (expand.hasSubQuery() && !addTypes(expand.getSubQuery(), types)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean addTypes(Expression expression, Set<EntityType> types) {
+        if (expression instanceof Now) {
+            return false;
+        }
+        if (expression instanceof Path) {
+            for (Property element : ((Path) expression).getElements()) {
+                if (element instanceof NavigationProperty) {
+                    types.add(((NavigationProperty) element).getType());
+                }
+            }
+        } else if (expression instanceof Function) {
+            for (Expression parameter : ((Function) expression).getParameters()) {
+                if (!addTypes(parameter, types)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void messageReceived(EntityChangedMessage message) {
+        Entity entity = message.getEntity();
+        if (entity == null && message.getEventType() == EntityChangedMessage.Type.UPDATE) {
+            changed(EnumSet.of(message.getEntityType()));
+            return;
+        }
+        if (entity == null || message.getEventType() == EntityChangedMessage.Type.DELETE) {
+            // Deletes can cascade to other entity types.
+            changedAll();
+            return;
+        }
+        Set<EntityType> types = EnumSet.noneOf(EntityType.class);
+        addTypes(entity, types);
+        changed(types);
+    }
+
+    /**
+     * Local changes are reported directly, the tracker should not cause
+     * messages to be generated.
+     *
+     * @return false.
+     */
+    @Override
+    public boolean wantsMessages() {
+        return false;
+    }
+
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.service;
+
+import de.fraunhofer.iosb.ilt.frostserver.path.ResourcePath;
+import de.fraunhofer.iosb.ilt.frostserver.path.Version;
+import de.fraunhofer.iosb.ilt.frostserver.query.Query;
+import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
+import de.fraunhofer.iosb.ilt.frostserver.util.ChangingStatusLogger;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Remembers the parsed and validated path and query of recently requested
+ * URLs, so that clients that poll the same URLs do not cause the URL to be
+ * parsed again for each request.
+ *
+ * Formatters and PersistenceManagers may change the Query they get, so a
+ * cached Query is never handed out directly, each hit returns a copy. Paths
+ * are not changed while handling a request, and are shared.
+ *
+ * @author scf
+ */
+public class QueryCache {
+
+    /**
+     * The logger for this class.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(QueryCache.class);
+
+    private static final Map<CoreSettings, QueryCache> instances = new HashMap<>();
+
+    private final Map<String, Entry> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final ChangingStatusLogger statusLogger = new ChangingStatusLogger(LOGGER);
+    private final LoggingStatus logStatus = new LoggingStatus();
+
+    private QueryCache(final int maxSize, long logInterval) {
+        entries = new LinkedHashMap<String, Entry>(Math.min(maxSize, 1024), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+        if (logInterval > 0) {
+            statusLogger
+                    .setLogIntervalMs(logInterval)
+                    .addLogStatus(logStatus)
+                    .start();
+        }
+    }
+
+    /**
+     * Get the cache for the given settings.
+     *
+     * @param settings The settings to get the cache for.
+     * @return The cache, or null if caching is disabled in the settings.
+     */
+    public static synchronized QueryCache getInstance(CoreSettings settings) {
+        if (instances.containsKey(settings)) {
+            return instances.get(settings);
+        }
+        int maxSize = settings.getSettings().getInt(CoreSettings.TAG_QUERY_CACHE_SIZE, CoreSettings.class);
+        QueryCache instance = null;
+        if (maxSize > 0) {
+            long logInterval = settings.getSettings().getInt(CoreSettings.TAG_QUEUE_LOGGING_INTERVAL, CoreSettings.class);
+            instance = new QueryCache(maxSize, logInterval);
+            LOGGER.info("Caching up to {} parsed queries.", maxSize);
+        }
+        instances.put(settings, instance);
+        return instance;
+    }
+
+    /**
+     * Stop the status logging of all caches, and remove them.
+     */
+    public static synchronized void shutdown() {
+        for (QueryCache instance : instances.values()) {
+            if (instance != null) {
+                instance.statusLogger.stop();
+            }
+        }
+        instances.clear();
+    }
+
+    /**
+     * Get the cached path and query for the given request.
+     *
+     * @param version The version of the request.
+     * @param urlPath The path of the request.
+     * @param urlQuery The query of the request.
+     * @return The cached entry, or null if the request is not cached.
+     */
+    public Entry get(Version version, String urlPath, String urlQuery) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(createKey(version, urlPath, urlQuery));
+        }
+        if (entry == null) {
+            logStatus.setMisses(misses.incrementAndGet());
+        } else {
+            logStatus.setHits(hits.incrementAndGet());
+        }
+        return entry;
+    }
+
+    /**
+     * Add the given parsed and validated path and query for the given request.
+     *
+     * @param version The version of the request.
+     * @param urlPath The path of the request.
+     * @param urlQuery The query of the request.
+     * @param path The parsed path.
+     * @param query The parsed and validated query. The cache stores a copy.
+     */
+    public void put(Version version, String urlPath, String urlQuery, ResourcePath path, Query query) {
+        Entry entry = new Entry(path, query.copy());
+        synchronized (entries) {
+            entries.put(createKey(version, urlPath, urlQuery), entry);
+            logStatus.setSize(entries.size());
+        }
+    }
+
+    /**
+     * @return The number of requests for which a cached query was found.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return The number of requests for which no cached query was found.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return The number of cached queries.
+     */
+    public int getSize() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private static String createKey(Version version, String urlPath, String urlQuery) {
+        StringBuilder key = new StringBuilder(version.urlPart).append(urlPath);
+        if (urlQuery != null && !urlQuery.isEmpty()) {
+            key.append('?').append(urlQuery);
+        }
+        return key.toString();
+    }
+
+    /**
+     * A cached path and query.
+     */
+    public static class Entry {
+
+        private final ResourcePath path;
+        private final Query query;
+
+        private Entry(ResourcePath path, Query query) {
+            this.path = path;
+            this.query = query;
+        }
+
+        /**
+         * @return The parsed path.
+         */
+        public ResourcePath getPath() {
+            return path;
+        }
+
+        /**
+         * @return A copy of the parsed and validated query.
+         */
+        public Query getQuery() {
+            return query.copy();
+        }
+    }
+
+    private static class LoggingStatus extends ChangingStatusLogger.ChangingStatusDefault {
+
+        public static final String MESSAGE = "queryCache size: {}, hits: {}, misses: {}";
+
+        public LoggingStatus() {
+            super(MESSAGE, 3);
+            setAllTo(0L);
+            setObjectAt(0, 0);
+        }
+
+        public void setSize(int size) {
+            setObjectAt(0, size);
+        }
+
+        public void setHits(long hits) {
+            setObjectAt(1, hits);
+        }
+
+        public void setMisses(long misses) {
+            setObjectAt(2, misses);
+        }
+
+    }
+}
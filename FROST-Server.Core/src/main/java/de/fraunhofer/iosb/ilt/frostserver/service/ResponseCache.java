@@ -0,0 +1,352 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.service;
+
+import de.fraunhofer.iosb.ilt.frostserver.formatter.FormatWriter;
+import de.fraunhofer.iosb.ilt.frostserver.path.Version;
+import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
+import de.fraunhofer.iosb.ilt.frostserver.settings.Settings;
+import de.fraunhofer.iosb.ilt.frostserver.util.ChangingStatusLogger;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Remembers the formatted responses of recent GET requests, so that clients
+ * that request the same URLs do not cause the same queries and formatting
+ * over and over.
+ *
+ * Each entry holds the validator that the ChangeTracker calculated for the
+ * request when the response was created. When one of the entity types used
+ * by the request changes, locally or on another instance connected through
+ * the message bus, the validator changes and the entry is no longer used.
+ *
+ * Authorisation is checked by the filters before a request reaches the
+ * Service, and does not change the content of a response, so entries are
+ * shared between users.
+ *
+ * @author scf
+ */
+public class ResponseCache {
+
+    /**
+     * The logger for this class.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResponseCache.class);
+
+    private static final Map<CoreSettings, ResponseCache> instances = new HashMap<>();
+
+    private final long maxSize;
+    private final long maxEntrySize;
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long size = 0;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final ChangingStatusLogger statusLogger = new ChangingStatusLogger(LOGGER);
+    private final LoggingStatus logStatus = new LoggingStatus();
+
+    private ResponseCache(long maxSize, long maxEntrySize, long logInterval) {
+        this.maxSize = maxSize;
+        this.maxEntrySize = Math.min(maxSize, maxEntrySize);
+        if (logInterval > 0) {
+            statusLogger
+                    .setLogIntervalMs(logInterval)
+                    .addLogStatus(logStatus)
+                    .start();
+        }
+    }
+
+    /**
+     * Get the cache for the given settings.
+     *
+     * @param settings The settings to get the cache for.
+     * @return The cache, or null if caching is disabled in the settings.
+     */
+    public static synchronized ResponseCache getInstance(CoreSettings settings) {
+        if (instances.containsKey(settings)) {
+            return instances.get(settings);
+        }
+        Settings coreSettings = settings.getSettings();
+        long maxSize = coreSettings.getLong(CoreSettings.TAG_RESPONSE_CACHE_SIZE, CoreSettings.class);
+        ResponseCache instance = null;
+        if (maxSize > 0) {
+            long maxEntrySize = coreSettings.getLong(CoreSettings.TAG_RESPONSE_CACHE_ENTRY_SIZE, CoreSettings.class);
+            long logInterval = coreSettings.getInt(CoreSettings.TAG_QUEUE_LOGGING_INTERVAL, CoreSettings.class);
+            instance = new ResponseCache(maxSize, maxEntrySize, logInterval);
+            LOGGER.info("Caching up to {} bytes of responses, at most {} bytes per response.", maxSize, instance.maxEntrySize);
+        }
+        instances.put(settings, instance);
+        return instance;
+    }
+
+    /**
+     * Stop the status logging of all caches, and remove them.
+     */
+    public static synchronized void shutdown() {
+        for (ResponseCache instance : instances.values()) {
+            if (instance != null) {
+                instance.statusLogger.stop();
+            }
+        }
+        instances.clear();
+    }
+
+    /**
+     * Create the key for the given request.
+     *
+     * @param version The version of the request.
+     * @param urlPath The path of the request.
+     * @param urlQuery The query of the request, including the result format.
+     * @return The key for the cache.
+     */
+    public static String createKey(Version version, String urlPath, String urlQuery) {
+        StringBuilder key = new StringBuilder(version.urlPart);
+        if (urlPath != null) {
+            key.append(urlPath);
+        }
+        if (urlQuery != null && !urlQuery.isEmpty()) {
+            key.append('?').append(urlQuery);
+        }
+        return key.toString();
+    }
+
+    /**
+     * Get the cached response for the given key, if it was created with the
+     * given validator.
+     *
+     * @param key The key of the request.
+     * @param validator The current validator of the request.
+     * @return The cached entry, or null if there is no valid entry.
+     */
+    public Entry get(String key, String validator) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && !entry.validator.equals(validator)) {
+                entries.remove(key);
+                size -= entry.getSize();
+                logStatus.setSize(entries.size(), size);
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            logStatus.setMisses(misses.incrementAndGet());
+        } else {
+            logStatus.setHits(hits.incrementAndGet());
+        }
+        return entry;
+    }
+
+    /**
+     * Wrap the given FormatWriter, so that the response is added to the cache
+     * while it is written, if it is not too large.
+     *
+     * @param key The key of the request.
+     * @param validator The validator of the request, from before the data was
+     * loaded.
+     * @param contentType The content type of the response.
+     * @param formatWriter The FormatWriter to wrap.
+     * @return A FormatWriter that writes the same output, and caches it.
+     */
+    public FormatWriter wrap(String key, String validator, String contentType, FormatWriter formatWriter) {
+        return target -> {
+            CapturingWriter capture = new CapturingWriter(target, maxEntrySize);
+            formatWriter.writeFormatted(capture);
+            if (!capture.isOverflowed()) {
+                put(key, new Entry(validator, contentType, capture.getCaptured()));
+            }
+        };
+    }
+
+    private void put(String key, Entry entry) {
+        synchronized (entries) {
+            Entry old = entries.put(key, entry);
+            if (old != null) {
+                size -= old.getSize();
+            }
+            size += entry.getSize();
+            Iterator<Entry> it = entries.values().iterator();
+            while (size > maxSize && it.hasNext()) {
+                size -= it.next().getSize();
+                it.remove();
+            }
+            logStatus.setSize(entries.size(), size);
+        }
+    }
+
+    /**
+     * @return The number of requests that were answered from the cache.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return The number of requests for which no valid entry was found.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return The number of cached responses.
+     */
+    public int getCount() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * @return The total size of the cached responses.
+     */
+    public long getSize() {
+        synchronized (entries) {
+            return size;
+        }
+    }
+
+    /**
+     * A cached response.
+     */
+    public static class Entry {
+
+        private final String validator;
+        private final String contentType;
+        private final String content;
+
+        private Entry(String validator, String contentType, String content) {
+            this.validator = validator;
+            this.contentType = contentType;
+            this.content = content;
+        }
+
+        /**
+         * @return The content type of the response.
+         */
+        public String getContentType() {
+            return contentType;
+        }
+
+        /**
+         * @return The formatted response.
+         */
+        public String getContent() {
+            return content;
+        }
+
+        /**
+         * The size of the entry, counting one byte per character, as most
+         * responses are ASCII JSON.
+         *
+         * @return The size of the entry.
+         */
+        public long getSize() {
+            return content.length();
+        }
+    }
+
+    /**
+     * Passes everything on to the target, and keeps a copy until the given
+     * size is exceeded.
+     */
+    private static class CapturingWriter extends Writer {
+
+        private final Writer target;
+        private final long maxSize;
+        private StringBuilder captured = new StringBuilder();
+
+        public CapturingWriter(Writer target, long maxSize) {
+            this.target = target;
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            target.write(cbuf, off, len);
+            if (captured != null) {
+                if (captured.length() + len > maxSize) {
+                    captured = null;
+                } else {
+                    captured.append(cbuf, off, len);
+                }
+            }
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            target.write(str, off, len);
+            if (captured != null) {
+                if (captured.length() + len > maxSize) {
+                    captured = null;
+                } else {
+                    captured.append(str, off, off + len);
+                }
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            target.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            // The target is not ours to close.
+        }
+
+        public boolean isOverflowed() {
+            return captured == null;
+        }
+
+        public String getCaptured() {
+            return captured.toString();
+        }
+    }
+
+    private static class LoggingStatus extends ChangingStatusLogger.ChangingStatusDefault {
+
+        public static final String MESSAGE = "responseCache entries: {}, size: {}, hits: {}, misses: {}";
+
+        public LoggingStatus() {
+            super(MESSAGE, 4);
+            setAllTo(0L);
+            setObjectAt(0, 0);
+        }
+
+        public void setSize(int count, long size) {
+            setObjectAt(0, count);
+            setObjectAt(1, size);
+        }
+
+        public void setHits(long hits) {
+            setObjectAt(2, hits);
+        }
+
+        public void setMisses(long misses) {
+            setObjectAt(3, misses);
+        }
+
+    }
+}
@@ -22,6 +22,8 @@ import com.fasterxml.jackson.databind.JsonMappingException;
 import com.github.fge.jsonpatch.JsonPatch;
 import de.fraunhofer.iosb.ilt.frostserver.extensions.Extension;
 import static de.fraunhofer.iosb.ilt.frostserver.formatter.PluginResultFormatDefault.DEFAULT_FORMAT_NAME;
+import de.fraunhofer.iosb.ilt.frostserver.formatter.FormatWriter;
+import de.fraunhofer.iosb.ilt.frostserver.formatter.FormatWriterGeneric;
 import de.fraunhofer.iosb.ilt.frostserver.formatter.ResultFormatter;
 import de.fraunhofer.iosb.ilt.frostserver.json.deserialize.JsonReader;
 import de.fraunhofer.iosb.ilt.frostserver.json.serialize.JsonWriter;
@@ -105,6 +107,12 @@ public class Service implements AutoCloseable {
     private static final String COULD_NOT_PARSE_JSON = "Could not parse json.";
     private static final String FAILED_TO_UPDATE_ENTITY = "Failed to update entity.";
     private static final String NOTHING_FOUND_RESPONSE = "Nothing found.";
+    private static final String HEADER_ETAG = "ETag";
+    /**
+     * The capabilities document only depends on the settings, it never
+     * changes while the server runs.
+     */
+    private static final String CAPABILITIES_VALIDATOR = "capabilities";
 
     private final CoreSettings settings;
     private PersistenceManager persistenceManager;
@@ -263,6 +271,17 @@ public class Service implements AutoCloseable {
 
     private ServiceResponse executeGetCapabilities(ServiceRequest request) {
         ServiceResponse response = new ServiceResponse();
+        final ResponseCache responseCache = ResponseCache.getInstance(settings);
+        final String cacheKey = ResponseCache.createKey(request.getVersion(), null, null);
+        if (responseCache != null) {
+            ResponseCache.Entry entry = responseCache.get(cacheKey, CAPABILITIES_VALIDATOR);
+            if (entry != null) {
+                response.setResultFormatted(new FormatWriterGeneric(entry.getContent()));
+                response.setContentType(entry.getContentType());
+                response.setCode(200);
+                return response;
+            }
+        }
         Map<String, Object> result = new LinkedHashMap<>();
         Set<Extension> enabledSettings = settings.getEnabledExtensions();
 
@@ -309,7 +328,11 @@ public class Service implements AutoCloseable {
             LOGGER.error("Formatter not available.", ex);
             return errorResponse(response, 500, "Failed to instantiate formatter");
         }
-        response.setResultFormatted(formatter.format(null, null, result, settings.getQueryDefaults().useAbsoluteNavigationLinks()));
+        FormatWriter formatWriter = formatter.getFormatWriter(null, null, result, settings.getQueryDefaults().useAbsoluteNavigationLinks());
+        if (responseCache != null) {
+            formatWriter = responseCache.wrap(cacheKey, CAPABILITIES_VALIDATOR, formatter.getContentType(), formatWriter);
+        }
+        response.setResultFormatted(formatWriter);
         response.setContentType(formatter.getContentType());
         return response;
     }
@@ -324,6 +347,10 @@ public class Service implements AutoCloseable {
     private <T> ServiceResponse<T> executeGet(ServiceRequest request) {
         ServiceResponse<T> response = new ServiceResponse<>();
         PersistenceManager pm = getPm();
+        if (!transactionActive) {
+            // Within a batch transaction reads must see the changes made so far.
+            pm.setReadOnly();
+        }
         try {
             return handleGet(pm, request, response);
         } catch (Exception e) {
@@ -338,29 +365,72 @@ public class Service implements AutoCloseable {
     }
 
     private <T> ServiceResponse<T> handleGet(PersistenceManager pm, ServiceRequest request, ServiceResponse<T> response) {
+        final QueryCache queryCache = QueryCache.getInstance(settings);
+        final QueryCache.Entry cached = queryCache == null ? null : queryCache.get(request.getVersion(), request.getUrlPath(), request.getUrlQuery());
         ResourcePath path;
-        try {
-            path = PathParser.parsePath(
-                    pm.getIdManager(),
-                    settings.getQueryDefaults().getServiceRootUrl(),
-                    request.getVersion(),
-                    request.getUrlPath());
-        } catch (IllegalArgumentException e) {
-            return errorResponse(response, 404, NOT_A_VALID_ID);
-        } catch (IllegalStateException e) {
-            return errorResponse(response, 404, NOT_A_VALID_ID + ": " + e.getMessage());
+        if (cached == null) {
+            try {
+                path = PathParser.parsePath(
+                        pm.getIdManager(),
+                        settings.getQueryDefaults().getServiceRootUrl(),
+                        request.getVersion(),
+                        request.getUrlPath());
+            } catch (IllegalArgumentException e) {
+                return errorResponse(response, 404, NOT_A_VALID_ID);
+            } catch (IllegalStateException e) {
+                return errorResponse(response, 404, NOT_A_VALID_ID + ": " + e.getMessage());
+            }
+        } else {
+            path = cached.getPath();
         }
         Query query;
         ResultFormatter formatter;
         try {
-            query = QueryParser.parseQuery(request.getUrlQuery(), settings, path);
-            query.validate();
+            if (cached == null) {
+                query = QueryParser.parseQuery(request.getUrlQuery(), settings, path);
+                query.validate();
+                if (queryCache != null) {
+                    queryCache.put(request.getVersion(), request.getUrlPath(), request.getUrlQuery(), path, query);
+                }
+            } else {
+                query = cached.getQuery();
+            }
             formatter = settings.getFormatter(query.getFormat());
             formatter.preProcessRequest(path, query);
         } catch (IllegalArgumentException | IncorrectRequestException ex) {
             return errorResponse(response, 400, ex.getMessage());
         }
 
+        final ChangeTracker changeTracker = ChangeTracker.getInstance(settings);
+        final ResponseCache responseCache = transactionActive ? null : ResponseCache.getInstance(settings);
+        String etag = null;
+        String cacheKey = null;
+        if (changeTracker != null) {
+            etag = changeTracker.getETag(path, query, 0);
+            final boolean sendEtag = etag != null && changeTracker.isETagEnabled();
+            if (sendEtag && ChangeTracker.matches(request.getIfNoneMatch(), etag)) {
+                response.addHeader(HEADER_ETAG, etag);
+                return response.setStatus(304, null);
+            }
+            if (responseCache != null && etag != null) {
+                cacheKey = ResponseCache.createKey(request.getVersion(), request.getUrlPath(), request.getUrlQuery());
+                ResponseCache.Entry entry = responseCache.get(cacheKey, etag);
+                if (entry != null) {
+                    if (sendEtag) {
+                        response.addHeader(HEADER_ETAG, etag);
+                    }
+                    response.setResultFormatted(new FormatWriterGeneric(entry.getContent()));
+                    response.setContentType(entry.getContentType());
+                    response.setCode(200);
+                    return response;
+                }
+            }
+            if (etag != null && pm.getMaxStaleness() > 0) {
+                // Only hand out an ETag, or cache, if the result is sure to contain all counted changes.
+                etag = changeTracker.getETag(path, query, pm.getMaxStaleness());
+            }
+        }
+
         if (!pm.validatePath(path)) {
             maybeCommitAndClose();
             return errorResponse(response, 404, NOTHING_FOUND_RESPONSE);
@@ -389,8 +459,15 @@ public class Service implements AutoCloseable {
                 return errorResponse(response, 404, NOTHING_FOUND_RESPONSE);
             }
         } else {
+            if (etag != null && changeTracker.isETagEnabled()) {
+                response.addHeader(HEADER_ETAG, etag);
+            }
             response.setResult(object);
-            response.setResultFormatted(formatter.format(path, query, object, settings.getQueryDefaults().useAbsoluteNavigationLinks()));
+            FormatWriter formatWriter = formatter.getFormatWriter(path, query, object, settings.getQueryDefaults().useAbsoluteNavigationLinks());
+            if (etag != null && cacheKey != null) {
+                formatWriter = responseCache.wrap(cacheKey, etag, formatter.getContentType(), formatWriter);
+            }
+            response.setResultFormatted(formatWriter);
             response.setContentType(formatter.getContentType());
             response.setCode(200);
             return response;
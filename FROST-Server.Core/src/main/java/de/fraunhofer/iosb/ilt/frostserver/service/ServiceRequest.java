@@ -33,6 +33,7 @@ public class ServiceRequest {
     private Version version;
     private String contentType;
     private Map<String, String[]> parameterMap;
+    private String ifNoneMatch;
 
     protected ServiceRequest() {
         // empty by design.
@@ -103,6 +104,24 @@ public class ServiceRequest {
         this.parameterMap = parameterMap;
     }
 
+    /**
+     * Get the value of the If-None-Match header of this request.
+     *
+     * @return the ETags the client has a cached version for, or null.
+     */
+    public String getIfNoneMatch() {
+        return ifNoneMatch;
+    }
+
+    /**
+     * Set the value of the If-None-Match header of this request.
+     *
+     * @param ifNoneMatch the ETags the client has a cached version for.
+     */
+    public void setIfNoneMatch(String ifNoneMatch) {
+        this.ifNoneMatch = ifNoneMatch;
+    }
+
     /**
      * Get the API version for this request.
      *
@@ -34,6 +34,7 @@ public class ServiceRequestBuilder {
     private Optional<String> content;
     private Optional<String> contentType;
     private Optional<Map<String, String[]>> parameterMap;
+    private Optional<String> ifNoneMatch;
     private final Version version;
 
     public ServiceRequestBuilder(Version version) {
@@ -45,6 +46,7 @@ public class ServiceRequestBuilder {
         this.content = Optional.empty();
         this.contentType = Optional.empty();
         this.parameterMap = Optional.empty();
+        this.ifNoneMatch = Optional.empty();
     }
 
     public ServiceRequestBuilder withUrl(String url) {
@@ -77,6 +79,11 @@ public class ServiceRequestBuilder {
         return this;
     }
 
+    public ServiceRequestBuilder withIfNoneMatch(String ifNoneMatch) {
+        this.ifNoneMatch = Optional.ofNullable(ifNoneMatch);
+        return this;
+    }
+
     public ServiceRequestBuilder withRequestType(String requestType) {
         this.requestType = Optional.of(requestType);
         return this;
@@ -106,6 +113,9 @@ public class ServiceRequestBuilder {
         if (requestType.isPresent()) {
             result.setRequestType(requestType.get());
         }
+        if (ifNoneMatch.isPresent()) {
+            result.setIfNoneMatch(ifNoneMatch.get());
+        }
         return result;
     }
 }
@@ -17,6 +17,8 @@
  */
 package de.fraunhofer.iosb.ilt.frostserver.service;
 
+import de.fraunhofer.iosb.ilt.frostserver.formatter.FormatWriter;
+import de.fraunhofer.iosb.ilt.frostserver.formatter.FormatWriterGeneric;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -34,7 +36,7 @@ public class ServiceResponse<T> {
     /**
      * The formatted result.
      */
-    private String resultFormatted;
+    private FormatWriter resultFormatted;
     /**
      * The content type of the formatted result.
      */
@@ -47,7 +49,7 @@ public class ServiceResponse<T> {
         this.headers = new HashMap<>();
     }
 
-    public ServiceResponse(int code, String message, T result, String resultFormatted) {
+    public ServiceResponse(int code, String message, T result, FormatWriter resultFormatted) {
         this.headers = new HashMap<>();
         this.result = result;
         this.code = code;
@@ -117,14 +119,18 @@ public class ServiceResponse<T> {
         return this;
     }
 
-    public String getResultFormatted() {
+    public FormatWriter getResultFormatted() {
         return resultFormatted;
     }
 
-    public void setResultFormatted(String resultFormatted) {
+    public void setResultFormatted(FormatWriter resultFormatted) {
         this.resultFormatted = resultFormatted;
     }
 
+    public void setResultFormatted(String resultFormatted) {
+        this.resultFormatted = resultFormatted == null ? null : new FormatWriterGeneric(resultFormatted);
+    }
+
     public boolean isSuccessful() {
         return code >= 200 && code < 300;
     }
@@ -74,6 +74,12 @@ public class CoreSettings implements ConfigDefaults {
     public static final String TAG_ENABLE_MULTIDATASTREAM = "enableMultiDatastream";
     @DefaultValueInt(0)
     public static final String TAG_QUEUE_LOGGING_INTERVAL = "queueLoggingInterval";
+    @DefaultValueInt(1000)
+    public static final String TAG_QUERY_CACHE_SIZE = "queryCacheSize";
+    @DefaultValueInt(0)
+    public static final String TAG_RESPONSE_CACHE_SIZE = "responseCacheSize";
+    @DefaultValueInt(1_000_000)
+    public static final String TAG_RESPONSE_CACHE_ENTRY_SIZE = "responseCacheEntrySize";
 
     /**
      * Used when passing CoreSettings in a map.
@@ -97,6 +103,14 @@ public class CoreSettings implements ConfigDefaults {
     public static final String TAG_CORS_PREFLIGHT_MAXAGE = "cors.preflight.maxage";
     @DefaultValueBoolean(true)
     public static final String TAG_CORS_REQUEST_DECORATE = "cors.request.decorate";
+    @DefaultValueBoolean(false)
+    public static final String TAG_ETAG_ENABLE = "etag.enable";
+    @DefaultValueInt(0)
+    public static final String TAG_ASYNC_WORKERS = "async.workers";
+    @DefaultValueInt(100)
+    public static final String TAG_ASYNC_QUEUE_SIZE = "async.queueSize";
+    @DefaultValueInt(5)
+    public static final String TAG_ASYNC_RETRY_AFTER = "async.retryAfter";
 
     // Auth Tags
     @DefaultValue("")
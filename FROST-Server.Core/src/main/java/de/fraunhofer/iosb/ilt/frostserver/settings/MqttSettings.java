@@ -59,6 +59,8 @@ public class MqttSettings implements ConfigDefaults {
     public static final String TAG_SUBSCRIBE_MESSAGE_QUEUE_SIZE = "SubscribeMessageQueueSize";
     @DefaultValueInt(10)
     public static final String TAG_SUBSCRIBE_THREAD_POOL_SIZE = "SubscribeThreadPoolSize";
+    @DefaultValueInt(100)
+    public static final String TAG_SUBSCRIBE_BATCH_SIZE = "SubscribeBatchSize";
     @DefaultValueInt(10)
     public static final String TAG_CREATE_MESSAGE_QUEUE_SIZE = "CreateMessageQueueSize";
     @DefaultValueInt(5)
@@ -130,6 +132,10 @@ public class MqttSettings implements ConfigDefaults {
      * Number of threads used to process EntityChangeEvents.
      */
     private int subscribeThreadPoolSize;
+    /**
+     * Maximum number of EntityChangeEvents processed together.
+     */
+    private int subscribeBatchSize;
     /**
      * Queue size for create messages passed between PersistenceManager and
      * MqttManager.
@@ -161,6 +167,7 @@ public class MqttSettings implements ConfigDefaults {
         setInternalHost(customSettings.get(TAG_HOST_INTERNAL, getClass()));
         setSubscribeMessageQueueSize(customSettings.getInt(TAG_SUBSCRIBE_MESSAGE_QUEUE_SIZE, getClass()));
         setSubscribeThreadPoolSize(customSettings.getInt(TAG_SUBSCRIBE_THREAD_POOL_SIZE, getClass()));
+        setSubscribeBatchSize(customSettings.getInt(TAG_SUBSCRIBE_BATCH_SIZE, getClass()));
         setCreateMessageQueueSize(customSettings.getInt(TAG_CREATE_MESSAGE_QUEUE_SIZE, getClass()));
         setCreateThreadPoolSize(customSettings.getInt(TAG_CREATE_THREAD_POOL_SIZE, getClass()));
         setQosLevel(customSettings.getInt(TAG_QOS, getClass()));
@@ -299,6 +306,17 @@ public class MqttSettings implements ConfigDefaults {
         this.subscribeThreadPoolSize = subscribeThreadPoolSize;
     }
 
+    public int getSubscribeBatchSize() {
+        return subscribeBatchSize;
+    }
+
+    public void setSubscribeBatchSize(int subscribeBatchSize) {
+        if (subscribeBatchSize < 1) {
+            throw new IllegalArgumentException(TAG_SUBSCRIBE_BATCH_SIZE + MUST_BE_POSITIVE);
+        }
+        this.subscribeBatchSize = subscribeBatchSize;
+    }
+
     public String getMqttServerImplementationClass() {
         return mqttServerImplementationClass;
     }
@@ -42,6 +42,20 @@ public class PersistenceSettings implements ConfigDefaults {
     public static final String TAG_SLOW_QUERY_THRESHOLD = "slowQueryThreshold";
     @DefaultValueInt(0)
     public static final String TAG_QUERY_TIMEOUT = "queryTimeout";
+    @DefaultValueBoolean(true)
+    public static final String TAG_BATCH_EXPAND = "batchExpand";
+    @DefaultValueBoolean(false)
+    public static final String TAG_KEYSET_PAGING = "keysetPaging";
+    @DefaultValueBoolean(true)
+    public static final String TAG_BULK_INSERT = "bulkInsert";
+    @DefaultValue("Trigger")
+    public static final String TAG_EXTENT_MODE = "extentMode";
+    @DefaultValueInt(5)
+    public static final String TAG_EXTENT_FLUSH_INTERVAL = "extentFlushInterval";
+    @DefaultValueInt(10000)
+    public static final String TAG_EXISTENCE_CACHE_SIZE = "existenceCacheSize";
+    @DefaultValueInt(60)
+    public static final String TAG_EXISTENCE_CACHE_TTL = "existenceCacheTtl";
 
     /**
      * Fully-qualified class name of the PersistenceManager implementation class
@@ -66,6 +80,35 @@ public class PersistenceSettings implements ConfigDefaults {
      * Flag indicating a queryTimeout is set.
      */
     private boolean timeoutQueries;
+    /**
+     * Flag indicating expands should be loaded for all entities in a set at
+     * once.
+     */
+    private boolean batchExpand;
+    /**
+     * Flag indicating nextLinks should use a $skiptoken instead of $skip.
+     */
+    private boolean keysetPaging;
+    /**
+     * Flag indicating lists of new entities should be inserted in bulk.
+     */
+    private boolean bulkInsert;
+    /**
+     * How the time and area extents of (Multi)Datastreams are maintained.
+     */
+    private String extentMode;
+    /**
+     * The interval, in seconds, at which aggregated extents are flushed.
+     */
+    private int extentFlushInterval;
+    /**
+     * The maximum number of entities of which the existence is cached.
+     */
+    private int existenceCacheSize;
+    /**
+     * The time, in seconds, that the existence of an entity is cached.
+     */
+    private int existenceCacheTtl;
     /**
      * Extension point for implementation specific settings
      */
@@ -87,6 +130,13 @@ public class PersistenceSettings implements ConfigDefaults {
         logSlowQueries = slowQueryThreshold > 0;
         queryTimeout = settings.getInt(TAG_QUERY_TIMEOUT, getClass());
         timeoutQueries = queryTimeout > 0;
+        batchExpand = settings.getBoolean(TAG_BATCH_EXPAND, getClass());
+        keysetPaging = settings.getBoolean(TAG_KEYSET_PAGING, getClass());
+        bulkInsert = settings.getBoolean(TAG_BULK_INSERT, getClass());
+        extentMode = settings.get(TAG_EXTENT_MODE, getClass());
+        extentFlushInterval = settings.getInt(TAG_EXTENT_FLUSH_INTERVAL, getClass());
+        existenceCacheSize = settings.getInt(TAG_EXISTENCE_CACHE_SIZE, getClass());
+        existenceCacheTtl = settings.getInt(TAG_EXISTENCE_CACHE_TTL, getClass());
         customSettings = settings;
     }
 
@@ -146,4 +196,76 @@ public class PersistenceSettings implements ConfigDefaults {
         return timeoutQueries;
     }
 
+    /**
+     * Flag indicating expands should be loaded for all entities in a set at
+     * once, instead of one entity at a time.
+     *
+     * @return true if expands should be loaded in batches.
+     */
+    public boolean isBatchExpand() {
+        return batchExpand;
+    }
+
+    /**
+     * Flag indicating nextLinks should continue after the sort values of the
+     * last entity of a page, using a $skiptoken, instead of using $skip.
+     *
+     * @return true if keyset paging should be used.
+     */
+    public boolean isKeysetPaging() {
+        return keysetPaging;
+    }
+
+    /**
+     * Flag indicating lists of new entities, like the Observations of a
+     * dataArray request, should be inserted using multi-row inserts, instead
+     * of one entity at a time.
+     *
+     * @return true if lists of entities should be inserted in bulk.
+     */
+    public boolean isBulkInsert() {
+        return bulkInsert;
+    }
+
+    /**
+     * How the time and area extents of (Multi)Datastreams are maintained.
+     * Either "Trigger", updating the (Multi)Datastream for each new
+     * Observation, or "Aggregated", collecting the extents and applying them
+     * periodically.
+     *
+     * @return The extent maintenance mode.
+     */
+    public String getExtentMode() {
+        return extentMode;
+    }
+
+    /**
+     * The interval, in seconds, at which aggregated extents are applied to
+     * the (Multi)Datastreams, when the extentMode is "Aggregated".
+     *
+     * @return The flush interval in seconds.
+     */
+    public int getExtentFlushInterval() {
+        return extentFlushInterval;
+    }
+
+    /**
+     * The maximum number of entities of which the existence is cached. A
+     * value of 0 disables the cache.
+     *
+     * @return The maximum size of the existence cache.
+     */
+    public int getExistenceCacheSize() {
+        return existenceCacheSize;
+    }
+
+    /**
+     * The time, in seconds, that the existence of an entity is cached.
+     *
+     * @return The time-to-live of existence cache entries, in seconds.
+     */
+    public int getExistenceCacheTtl() {
+        return existenceCacheTtl;
+    }
+
 }
@@ -17,6 +17,8 @@
  */
 package de.fraunhofer.iosb.ilt.frostserver.util;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -49,6 +51,47 @@ public class ProcessorHelper {
         return result;
     }
 
+    /**
+     * Create processors that take all available items from the queue, up to
+     * the given maximum, and pass them to the consumer together.
+     *
+     * @param <T> The type of the items in the queue.
+     * @param threadCount The number of processors to create.
+     * @param queue The queue to take items from.
+     * @param consumer The consumer of the batches of items.
+     * @param maxBatchSize The maximum number of items in one batch.
+     * @param name The name of the processors.
+     * @return The executor service running the processors.
+     */
+    public static <T> ExecutorService createBatchProcessors(int threadCount, BlockingQueue<T> queue, Consumer<List<T>> consumer, int maxBatchSize, String name) {
+        return createBatchProcessors(threadCount, queue, consumer, maxBatchSize, 0, name);
+    }
+
+    /**
+     * Create processors that take items from the queue, up to the given
+     * maximum, and pass them to the consumer together. If fewer items than the
+     * maximum are available, the processors wait up to the given time for more
+     * items to arrive before passing on the batch.
+     *
+     * @param <T> The type of the items in the queue.
+     * @param threadCount The number of processors to create.
+     * @param queue The queue to take items from.
+     * @param consumer The consumer of the batches of items.
+     * @param maxBatchSize The maximum number of items in one batch.
+     * @param maxWaitMs The maximum time, in milliseconds, to wait for a batch
+     * to fill up, after the first item of the batch is taken.
+     * @param name The name of the processors.
+     * @return The executor service running the processors.
+     */
+    public static <T> ExecutorService createBatchProcessors(int threadCount, BlockingQueue<T> queue, Consumer<List<T>> consumer, int maxBatchSize, long maxWaitMs, String name) {
+        ThreadFactory factory = new BasicThreadFactory.Builder().namingPattern(name + "-%d").build();
+        ExecutorService result = Executors.newFixedThreadPool(threadCount, factory);
+        for (int i = 0; i < threadCount; i++) {
+            result.submit(new Processor<>(queue, consumer, name, maxBatchSize, maxWaitMs));
+        }
+        return result;
+    }
+
     public static void shutdownProcessors(ExecutorService executorService, BlockingQueue<?> queue, long timeout, TimeUnit timeUnit) {
         if (executorService != null) {
             executorService.shutdown();
@@ -78,13 +121,24 @@ public class ProcessorHelper {
         private static final Logger LOGGER = LoggerFactory.getLogger(Processor.class);
         private final BlockingQueue<T> queue;
         private final Consumer<T> consumer;
+        private final Consumer<List<T>> batchConsumer;
+        private final int maxBatchSize;
+        private final long maxWaitMs;
         private final String name;
 
         private Processor(BlockingQueue<T> queue, Consumer<T> consumer, String name) {
+            this(queue, consumer, null, name, 1, 0);
+        }
+
+        private Processor(BlockingQueue<T> queue, Consumer<List<T>> batchConsumer, String name, int maxBatchSize, long maxWaitMs) {
+            this(queue, null, batchConsumer, name, maxBatchSize, maxWaitMs);
+        }
+
+        private Processor(BlockingQueue<T> queue, Consumer<T> consumer, Consumer<List<T>> batchConsumer, String name, int maxBatchSize, long maxWaitMs) {
             if (queue == null) {
                 throw new IllegalArgumentException("queue must be non-null");
             }
-            if (consumer == null) {
+            if (consumer == null && batchConsumer == null) {
                 throw new IllegalArgumentException("handler must be non-null");
             }
             if (name == null || name.isEmpty()) {
@@ -94,16 +148,22 @@ public class ProcessorHelper {
             }
             this.queue = queue;
             this.consumer = consumer;
+            this.batchConsumer = batchConsumer;
+            this.maxBatchSize = Math.max(1, maxBatchSize);
+            this.maxWaitMs = Math.max(0, maxWaitMs);
         }
 
         @Override
         public void run() {
             LOGGER.debug("starting {}-Thread", name);
             while (!Thread.currentThread().isInterrupted()) {
-                T event;
                 try {
-                    event = queue.take();
-                    consumer.accept(event);
+                    T event = queue.take();
+                    if (batchConsumer == null) {
+                        consumer.accept(event);
+                    } else {
+                        batchConsumer.accept(fillBatch(event));
+                    }
                 } catch (InterruptedException ex) {
                     LOGGER.trace("{} interrupted", name, ex);
                     Thread.currentThread().interrupt();
@@ -114,5 +174,24 @@ public class ProcessorHelper {
             }
             LOGGER.debug("exiting {}-Thread", name);
         }
+
+        private List<T> fillBatch(T first) throws InterruptedException {
+            List<T> batch = new ArrayList<>();
+            batch.add(first);
+            queue.drainTo(batch, maxBatchSize - 1);
+            if (maxWaitMs <= 0) {
+                return batch;
+            }
+            final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+            while (batch.size() < maxBatchSize) {
+                T next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (next == null) {
+                    break;
+                }
+                batch.add(next);
+                queue.drainTo(batch, maxBatchSize - batch.size());
+            }
+            return batch;
+        }
     }
 }
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.formatter;
+
+import de.fraunhofer.iosb.ilt.frostserver.path.ResourcePath;
+import de.fraunhofer.iosb.ilt.frostserver.query.Query;
+import java.io.IOException;
+import java.io.StringWriter;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author scf
+ */
+public class FormatWriterTest {
+
+    @Test
+    public void testGetAsString() throws IOException {
+        FormatWriter writer = target -> {
+            target.write("Hello ");
+            target.write("World");
+        };
+        Assert.assertEquals("Hello World", writer.getAsString());
+        // Writing can be repeated.
+        Assert.assertEquals("Hello World", writer.getAsString());
+    }
+
+    @Test
+    public void testGeneric() throws IOException {
+        FormatWriterGeneric writer = new FormatWriterGeneric("{\"a\": 1}");
+        Assert.assertEquals("{\"a\": 1}", writer.getAsString());
+        CloseTrackingWriter target = new CloseTrackingWriter();
+        target.write("prefix:");
+        writer.writeFormatted(target);
+        Assert.assertEquals("prefix:{\"a\": 1}", target.toString());
+        Assert.assertFalse("The target must not be closed.", target.closed);
+    }
+
+    @Test
+    public void testFormatterWithoutFormatWriter() throws IOException {
+        ResultFormatter formatter = new ResultFormatter() {
+            @Override
+            public String format(ResourcePath path, Query query, Object result, boolean useAbsoluteNavigationLinks) {
+                return "formatted " + result;
+            }
+
+            @Override
+            public String getContentType() {
+                return "text/plain";
+            }
+        };
+        FormatWriter writer = formatter.getFormatWriter(null, null, "result", false);
+        StringWriter target = new StringWriter();
+        writer.writeFormatted(target);
+        Assert.assertEquals("formatted result", target.toString());
+    }
+
+    /**
+     * A StringWriter that remembers if it was closed.
+     */
+    public static class CloseTrackingWriter extends StringWriter {
+
+        public boolean closed = false;
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            super.close();
+        }
+
+    }
+}
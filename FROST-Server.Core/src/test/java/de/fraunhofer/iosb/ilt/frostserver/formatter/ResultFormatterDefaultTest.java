@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.formatter;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import de.fraunhofer.iosb.ilt.frostserver.formatter.FormatWriterTest.CloseTrackingWriter;
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityType;
+import de.fraunhofer.iosb.ilt.frostserver.model.Thing;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.EntitySet;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.EntitySetImpl;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.IdLong;
+import de.fraunhofer.iosb.ilt.frostserver.parser.path.PathParser;
+import de.fraunhofer.iosb.ilt.frostserver.parser.query.QueryParser;
+import de.fraunhofer.iosb.ilt.frostserver.path.ResourcePath;
+import de.fraunhofer.iosb.ilt.frostserver.path.Version;
+import de.fraunhofer.iosb.ilt.frostserver.query.Query;
+import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
+import de.fraunhofer.iosb.ilt.frostserver.util.SimpleJsonMapper;
+import java.io.IOException;
+import java.util.Collections;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ *
+ * @author scf
+ */
+public class ResultFormatterDefaultTest {
+
+    private static CoreSettings coreSettings;
+    private static ResultFormatterDefault formatter;
+
+    @BeforeClass
+    public static void initClass() {
+        coreSettings = new CoreSettings();
+        formatter = new ResultFormatterDefault();
+    }
+
+    @Test
+    public void testEntity() throws IOException {
+        ResourcePath path = PathParser.parsePath("http://example.org", Version.V_1_1, "/Things(1)");
+        Query query = QueryParser.parseQuery("$select=id,name", coreSettings, path).validate();
+        Thing thing = createThing(query, 1);
+        String written = write(path, query, thing);
+        Assert.assertEquals(formatter.format(path, query, thing, false), written);
+        JsonNode json = SimpleJsonMapper.getSimpleObjectMapper().readTree(written);
+        Assert.assertEquals(1, json.get("@iot.id").asInt());
+        Assert.assertEquals("Thing 1", json.get("name").asText());
+        Assert.assertNull(json.get("description"));
+    }
+
+    @Test
+    public void testEntitySet() throws IOException {
+        ResourcePath path = PathParser.parsePath("http://example.org", Version.V_1_1, "/Things");
+        Query query = QueryParser.parseQuery("$select=id,name&$count=true", coreSettings, path).validate();
+        EntitySet<Thing> things = new EntitySetImpl<>(EntityType.THING);
+        for (int i = 1; i <= 3; i++) {
+            things.add(createThing(query, i));
+        }
+        things.setCount(10);
+        things.setNextLink("http://example.org/v1.1/Things?$skip=3");
+        String written = write(path, query, things);
+        Assert.assertEquals(formatter.format(path, query, things, false), written);
+        JsonNode json = SimpleJsonMapper.getSimpleObjectMapper().readTree(written);
+        Assert.assertEquals(10, json.get("@iot.count").asInt());
+        Assert.assertEquals("http://example.org/v1.1/Things?$skip=3", json.get("@iot.nextLink").asText());
+        Assert.assertEquals(3, json.get("value").size());
+        Assert.assertEquals("Thing 3", json.get("value").get(2).get("name").asText());
+    }
+
+    @Test
+    public void testValue() throws IOException {
+        ResourcePath path = PathParser.parsePath("http://example.org", Version.V_1_1, "/Things(1)/name/$value");
+        Assert.assertEquals("Thing 1", write(path, null, "Thing 1"));
+        Assert.assertEquals("5", write(path, null, new IdLong(5)));
+        Assert.assertEquals("{\"a\":1}", write(path, null, Collections.singletonMap("a", 1)));
+    }
+
+    @Test
+    public void testObject() throws IOException {
+        ResourcePath path = PathParser.parsePath("http://example.org", Version.V_1_1, "/Things(1)/properties");
+        String written = write(path, null, Collections.singletonMap("properties", Collections.singletonMap("a", 1)));
+        Assert.assertEquals("{\"properties\":{\"a\":1}}", written);
+    }
+
+    private static String write(ResourcePath path, Query query, Object result) throws IOException {
+        CloseTrackingWriter target = new CloseTrackingWriter();
+        formatter.getFormatWriter(path, query, result, false).writeFormatted(target);
+        Assert.assertFalse("The target must not be closed.", target.closed);
+        return target.toString();
+    }
+
+    private static Thing createThing(Query query, int id) {
+        return new Thing()
+                .setQuery(query)
+                .setId(new IdLong(id))
+                .setName("Thing " + id)
+                .setDescription("Description " + id);
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.messagebus;
+
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityChangedMessage;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author scf
+ */
+public class InternalMessageBusTest {
+
+    @Test
+    public void testWantsMessages() {
+        InternalMessageBus bus = new InternalMessageBus();
+        assertFalse("Bus without listeners should not want messages.", bus.wantsMessages());
+
+        MessageListener notInterested = new MessageListener() {
+            @Override
+            public void messageReceived(EntityChangedMessage message) {
+                // Ignored.
+            }
+
+            @Override
+            public boolean wantsMessages() {
+                return false;
+            }
+        };
+        bus.addMessageListener(notInterested);
+        assertFalse("Bus with only uninterested listeners should not want messages.", bus.wantsMessages());
+
+        MessageListener interested = message -> {
+            // Ignored.
+        };
+        bus.addMessageListener(interested);
+        assertTrue("Bus with an interested listener should want messages.", bus.wantsMessages());
+
+        bus.removeMessageListener(interested);
+        assertFalse("Bus should not want messages after the listener is removed.", bus.wantsMessages());
+    }
+
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.messagebus;
+
+import de.fraunhofer.iosb.ilt.frostserver.model.Datastream;
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityChangedMessage;
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityType;
+import de.fraunhofer.iosb.ilt.frostserver.model.Location;
+import de.fraunhofer.iosb.ilt.frostserver.model.Observation;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.IdLong;
+import de.fraunhofer.iosb.ilt.frostserver.model.ext.TimeInstant;
+import de.fraunhofer.iosb.ilt.frostserver.property.EntityPropertyMain;
+import de.fraunhofer.iosb.ilt.frostserver.util.RawJsonMap;
+import de.fraunhofer.iosb.ilt.frostserver.util.RawJsonValue;
+import de.fraunhofer.iosb.ilt.frostserver.util.TestHelper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ *
+ * @author scf
+ */
+public class MessageCodecTest {
+
+    private static MessageCodec jsonCodec;
+    private static MessageCodec smileCodec;
+
+    @BeforeClass
+    public static void initClass() {
+        jsonCodec = new JsonMessageCodec();
+        jsonCodec.init(IdLong.class);
+        smileCodec = new SmileMessageCodec();
+        smileCodec.init(IdLong.class);
+    }
+
+    @Test
+    public void testRoundTripSingle() throws IOException {
+        List<EntityChangedMessage> messages = Collections.singletonList(createObservationMessage(1));
+        for (MessageCodec codec : Arrays.asList(jsonCodec, smileCodec)) {
+            byte[] payload = encode(codec, messages);
+            Assert.assertEquals(messages, codec.decode(payload));
+        }
+    }
+
+    @Test
+    public void testRoundTripBatch() throws IOException {
+        List<EntityChangedMessage> messages = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            messages.add(createObservationMessage(i));
+        }
+        EntityChangedMessage locationMessage = new EntityChangedMessage();
+        locationMessage.setEntity(new Location()
+                .setId(new IdLong(123456))
+                .setName("testLocation")
+                .setDescription("A Location for testing")
+                .setEncodingType("application/geo+json")
+                .setLocation(TestHelper.getPoint(-117.123, 54.123)));
+        locationMessage.addEpField(EntityPropertyMain.LOCATION);
+        messages.add(locationMessage);
+
+        for (MessageCodec codec : Arrays.asList(jsonCodec, smileCodec)) {
+            byte[] payload = encode(codec, messages);
+            Assert.assertEquals(messages, codec.decode(payload));
+        }
+    }
+
+    @Test
+    public void testRoundTripRawJson() throws IOException {
+        Observation raw = new Observation()
+                .setId(new IdLong(2000))
+                .setResult(new RawJsonValue("{\"state\": \"on\", \"values\": [1, 2, null]}"))
+                .setDatastream(new Datastream().setId(new IdLong(12)));
+        raw.setParameters(new RawJsonMap("{\"param1\": \"value\", \"nested\": {\"a\": true}}"));
+        raw.setResultTime(new TimeInstant(null));
+        EntityChangedMessage rawMessage = new EntityChangedMessage();
+        rawMessage.setEntity(raw);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("state", "on");
+        result.put("values", Arrays.asList(1, 2, null));
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        parameters.put("param1", "value");
+        parameters.put("nested", Collections.singletonMap("a", true));
+        Observation parsed = new Observation()
+                .setId(new IdLong(2000))
+                .setResult(result)
+                .setDatastream(new Datastream().setId(new IdLong(12)));
+        parsed.setParameters(parameters);
+        parsed.setResultTime(new TimeInstant(null));
+        EntityChangedMessage parsedMessage = new EntityChangedMessage();
+        parsedMessage.setEntity(parsed);
+
+        for (MessageCodec codec : Arrays.asList(jsonCodec, smileCodec)) {
+            byte[] payload = encode(codec, Collections.singletonList(rawMessage));
+            Assert.assertEquals(Collections.singletonList(parsedMessage), codec.decode(payload));
+        }
+    }
+
+    @Test
+    public void testRoundTripWithoutEntity() throws IOException {
+        EntityChangedMessage message = new EntityChangedMessage()
+                .setEventType(EntityChangedMessage.Type.DELETE)
+                .setEntityType(EntityType.OBSERVATION);
+        EntityChangedMessage extents = new EntityChangedMessage()
+                .setEventType(EntityChangedMessage.Type.UPDATE)
+                .setEntityType(EntityType.DATASTREAM)
+                .addEpField(EntityPropertyMain.PHENOMENONTIME);
+        List<EntityChangedMessage> messages = Arrays.asList(message, extents, createObservationMessage(1));
+        for (MessageCodec codec : Arrays.asList(jsonCodec, smileCodec)) {
+            Assert.assertEquals(messages, codec.decode(encode(codec, messages)));
+            List<EntityChangedMessage> decoded = codec.decode(encode(codec, Collections.singletonList(message)));
+            Assert.assertEquals(EntityType.OBSERVATION, decoded.get(0).getEntityType());
+            Assert.assertNull(decoded.get(0).getEntity());
+        }
+    }
+
+    @Test
+    public void testRoundTripUpdateWithoutEntity() throws IOException {
+        EntityChangedMessage extents = new EntityChangedMessage()
+                .setEventType(EntityChangedMessage.Type.UPDATE)
+                .setEntityType(EntityType.MULTIDATASTREAM)
+                .addEpField(EntityPropertyMain.PHENOMENONTIME)
+                .addEpField(EntityPropertyMain.RESULTTIME)
+                .addEpField(EntityPropertyMain.OBSERVEDAREA);
+        for (MessageCodec codec : Arrays.asList(jsonCodec, smileCodec)) {
+            List<EntityChangedMessage> decoded = codec.decode(encode(codec, Collections.singletonList(extents)));
+            Assert.assertEquals(1, decoded.size());
+            EntityChangedMessage message = decoded.get(0);
+            Assert.assertEquals(EntityChangedMessage.Type.UPDATE, message.getEventType());
+            Assert.assertEquals(EntityType.MULTIDATASTREAM, message.getEntityType());
+            Assert.assertNull(message.getEntity());
+            Assert.assertEquals(extents.getEpFields(), message.getEpFields());
+        }
+    }
+
+    @Test
+    public void testCreateWithoutEntityRejected() throws IOException {
+        EntityChangedMessage create = new EntityChangedMessage()
+                .setEventType(EntityChangedMessage.Type.CREATE)
+                .setEntityType(EntityType.OBSERVATION);
+        for (MessageCodec codec : Arrays.asList(jsonCodec, smileCodec)) {
+            byte[] payload = encode(codec, Collections.singletonList(create));
+            try {
+                codec.decode(payload);
+                Assert.fail("A create message without entity should be rejected.");
+            } catch (IllegalArgumentException exc) {
+                // Expected.
+            }
+        }
+    }
+
+    @Test
+    public void testFormatDetection() throws IOException {
+        List<EntityChangedMessage> messages = Collections.singletonList(createObservationMessage(1));
+        byte[] json = encode(jsonCodec, messages);
+        byte[] smile = encode(smileCodec, messages);
+        Assert.assertTrue(jsonCodec.canDecode(json));
+        Assert.assertFalse(jsonCodec.canDecode(smile));
+        Assert.assertTrue(smileCodec.canDecode(smile));
+        Assert.assertFalse(smileCodec.canDecode(json));
+        Assert.assertTrue("Smile payload should be smaller than JSON", smile.length < json.length);
+    }
+
+    private static byte[] encode(MessageCodec codec, List<EntityChangedMessage> messages) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        codec.encode(messages, out);
+        return out.toByteArray();
+    }
+
+    private static EntityChangedMessage createObservationMessage(int nr) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("state", "state " + nr);
+        result.put("values", Arrays.asList(1, 2, 3, nr));
+        Observation entity = new Observation()
+                .setId(new IdLong(1000 + nr))
+                .setResult(result)
+                .addParameter("param1", "value " + nr)
+                .setDatastream(new Datastream().setId(new IdLong(12)));
+        entity.setResultTime(new TimeInstant(null));
+        EntityChangedMessage message = new EntityChangedMessage();
+        message.setEntity(entity);
+        return message;
+    }
+
+}
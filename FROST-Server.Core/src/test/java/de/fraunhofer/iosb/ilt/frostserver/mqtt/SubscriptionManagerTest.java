@@ -0,0 +1,294 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.mqtt;
+
+import com.github.fge.jsonpatch.JsonPatch;
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityChangedMessage;
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityType;
+import de.fraunhofer.iosb.ilt.frostserver.model.Location;
+import de.fraunhofer.iosb.ilt.frostserver.model.Thing;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.Entity;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.EntitySetImpl;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.Id;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.IdLong;
+import de.fraunhofer.iosb.ilt.frostserver.mqtt.subscription.EntitySetSubscription;
+import de.fraunhofer.iosb.ilt.frostserver.mqtt.subscription.EntitySubscription;
+import de.fraunhofer.iosb.ilt.frostserver.mqtt.subscription.PropertySubscription;
+import de.fraunhofer.iosb.ilt.frostserver.mqtt.subscription.Subscription;
+import de.fraunhofer.iosb.ilt.frostserver.parser.path.PathParser;
+import de.fraunhofer.iosb.ilt.frostserver.path.PathElementEntity;
+import de.fraunhofer.iosb.ilt.frostserver.path.ResourcePath;
+import de.fraunhofer.iosb.ilt.frostserver.path.Version;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.IdManager;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.IdManagerLong;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.PersistenceManager;
+import de.fraunhofer.iosb.ilt.frostserver.property.EntityPropertyMain;
+import de.fraunhofer.iosb.ilt.frostserver.query.Query;
+import de.fraunhofer.iosb.ilt.frostserver.query.expression.Expression;
+import de.fraunhofer.iosb.ilt.frostserver.query.expression.constant.Constant;
+import de.fraunhofer.iosb.ilt.frostserver.query.expression.function.Function;
+import de.fraunhofer.iosb.ilt.frostserver.query.expression.function.comparison.Equal;
+import de.fraunhofer.iosb.ilt.frostserver.query.expression.function.logical.And;
+import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ *
+ * @author scf
+ */
+public class SubscriptionManagerTest {
+
+    private static final String SERVICE_ROOT = "http://example.org/FROST-Server";
+    private static final int SUBSCRIPTION_COUNT = 20000;
+
+    private static CoreSettings settings;
+
+    @BeforeClass
+    public static void initClass() {
+        Properties properties = new Properties();
+        properties.put(CoreSettings.TAG_SERVICE_ROOT_URL, SERVICE_ROOT);
+        properties.put(CoreSettings.TAG_TEMP_PATH, "/tmp/");
+        settings = new CoreSettings(properties);
+    }
+
+    @Test
+    public void testEntitySubscriptionsIndexedById() {
+        AtomicInteger topicCount = new AtomicInteger();
+        SubscriptionManager manager = new SubscriptionManager(EntityType.THING, null, topicCount);
+        for (int i = 0; i < SUBSCRIPTION_COUNT; i++) {
+            manager.addSubscription(entitySubscription("v1.1/Things(" + i + ")"));
+        }
+        Subscription thing7 = entitySubscription("v1.1/Things(7)");
+        Subscription thing7Name = new PropertySubscription("v1.1/Things(7)/name", parse("/Things(7)/name"), settings);
+        Subscription things = new EntitySetSubscription(settings, "v1.1/Things", parse("/Things"));
+        Assert.assertEquals(new IdLong(7), thing7.getEntityId());
+        Assert.assertEquals(new IdLong(7), thing7Name.getEntityId());
+        Assert.assertNull(things.getEntityId());
+        manager.addSubscription(thing7Name);
+        manager.addSubscription(things);
+        Assert.assertEquals(SUBSCRIPTION_COUNT + 2, topicCount.get());
+
+        EntityChangedMessage nameChanged = changeMessage(7, EntityPropertyMain.NAME);
+        EntityChangedMessage descriptionChanged = changeMessage(8, EntityPropertyMain.DESCRIPTION);
+        List<List<Subscription>> matches = manager.findMatches(null, Arrays.asList(nameChanged, descriptionChanged));
+        Assert.assertEquals(new HashSet<>(Arrays.asList(thing7, thing7Name, things)), new HashSet<>(matches.get(0)));
+        Assert.assertEquals(new HashSet<>(Arrays.asList(entitySubscription("v1.1/Things(8)"), things)), new HashSet<>(matches.get(1)));
+
+        manager.removeSubscription(thing7);
+        matches = manager.findMatches(null, Arrays.asList(nameChanged));
+        Assert.assertEquals(new HashSet<>(Arrays.asList(thing7Name, things)), new HashSet<>(matches.get(0)));
+        Assert.assertEquals(SUBSCRIPTION_COUNT + 1, topicCount.get());
+    }
+
+    @Test
+    public void testBatchMatchingWithQuery() {
+        Properties properties = new Properties();
+        properties.put(CoreSettings.TAG_SERVICE_ROOT_URL, SERVICE_ROOT);
+        properties.put(CoreSettings.TAG_TEMP_PATH, "/tmp/");
+        properties.put(CoreSettings.TAG_MAX_TOP, "2");
+        CoreSettings smallTopSettings = new CoreSettings(properties);
+
+        SubscriptionManager manager = new SubscriptionManager(EntityType.LOCATION, null, new AtomicInteger());
+        Subscription thing1Locations = new EntitySetSubscription(smallTopSettings, "v1.1/Things(1)/Locations", parse("/Things(1)/Locations"));
+        Subscription thing2Locations = new EntitySetSubscription(smallTopSettings, "v1.1/Things(2)/Locations", parse("/Things(2)/Locations"));
+        Subscription locations = new EntitySetSubscription(smallTopSettings, "v1.1/Locations", parse("/Locations"));
+        manager.addSubscription(thing1Locations);
+        manager.addSubscription(thing2Locations);
+        manager.addSubscription(locations);
+
+        LinkPersistenceManager pm = new LinkPersistenceManager();
+        pm.addLinks(1, 1, 2, 5);
+        pm.addLinks(2, 3);
+
+        List<EntityChangedMessage> messages = new ArrayList<>();
+        for (long id = 1; id <= 5; id++) {
+            messages.add(changeMessage(new Location().setId(new IdLong(id)).setName("Location " + id), EntityPropertyMain.NAME));
+        }
+        List<List<Subscription>> matches = manager.findMatches(pm, messages);
+        Assert.assertEquals(new HashSet<>(Arrays.asList(thing1Locations, locations)), new HashSet<>(matches.get(0)));
+        Assert.assertEquals(new HashSet<>(Arrays.asList(thing1Locations, locations)), new HashSet<>(matches.get(1)));
+        Assert.assertEquals(new HashSet<>(Arrays.asList(thing2Locations, locations)), new HashSet<>(matches.get(2)));
+        Assert.assertEquals(new HashSet<>(Arrays.asList(locations)), new HashSet<>(matches.get(3)));
+        Assert.assertEquals(new HashSet<>(Arrays.asList(thing1Locations, locations)), new HashSet<>(matches.get(4)));
+
+        // Two subscriptions need a query, each checks the 5 candidates in chunks of maxTop.
+        Assert.assertEquals(6, pm.queries.size());
+        for (Query query : pm.queries) {
+            Assert.assertTrue(query.getTop().get() <= 2);
+            Assert.assertEquals(Collections.singleton(EntityPropertyMain.ID), query.getSelect());
+        }
+    }
+
+    private static EntityChangedMessage changeMessage(long id, EntityPropertyMain field) {
+        return changeMessage(new Thing().setId(new IdLong(id)).setName("Thing " + id), field);
+    }
+
+    private static EntityChangedMessage changeMessage(Entity entity, EntityPropertyMain field) {
+        return new EntityChangedMessage()
+                .setEventType(EntityChangedMessage.Type.UPDATE)
+                .setEntity(entity)
+                .addEpField(field);
+    }
+
+    private static Subscription entitySubscription(String topic) {
+        return new EntitySubscription(settings, topic, parse(topic.substring(Version.V_1_1.urlPart.length())));
+    }
+
+    private static ResourcePath parse(String path) {
+        return PathParser.parsePath(new IdManagerLong(), SERVICE_ROOT, Version.V_1_1, path);
+    }
+
+    /**
+     * Answers the batch queries of subscriptions on the Locations of a Thing,
+     * from a fixed set of Thing-Location links.
+     */
+    private static class LinkPersistenceManager implements PersistenceManager {
+
+        private final Map<Long, Set<Long>> locationsByThing = new HashMap<>();
+        private final List<Query> queries = new ArrayList<>();
+        private final IdManager idManager = new IdManagerLong();
+
+        public void addLinks(long thingId, long... locationIds) {
+            Set<Long> locationSet = locationsByThing.computeIfAbsent(thingId, t -> new HashSet<>());
+            for (long locationId : locationIds) {
+                locationSet.add(locationId);
+            }
+        }
+
+        @Override
+        public Object get(ResourcePath path, Query query) {
+            queries.add(query);
+            // The filter is (Things/id eq thingId) and (id eq x or id eq y ...)
+            And filter = (And) query.getFilter();
+            long thingId = constantValue(((Equal) filter.getParameters().get(0)).getParameters().get(1));
+            Set<Long> requested = new HashSet<>();
+            collectIds(filter.getParameters().get(1), requested);
+            EntitySetImpl<Location> result = new EntitySetImpl<>(EntityType.LOCATION);
+            for (Long locationId : locationsByThing.getOrDefault(thingId, Collections.emptySet())) {
+                if (requested.contains(locationId)) {
+                    result.add(new Location().setId(new IdLong(locationId)));
+                }
+            }
+            return result;
+        }
+
+        private static void collectIds(Expression expression, Set<Long> target) {
+            if (expression instanceof Equal) {
+                target.add(constantValue(((Equal) expression).getParameters().get(1)));
+                return;
+            }
+            for (Expression parameter : ((Function) expression).getParameters()) {
+                collectIds(parameter, target);
+            }
+        }
+
+        private static long constantValue(Expression expression) {
+            return ((Number) ((Constant) expression).getValue()).longValue();
+        }
+
+        @Override
+        public IdManager getIdManager() {
+            return idManager;
+        }
+
+        @Override
+        public boolean validatePath(ResourcePath path) {
+            return true;
+        }
+
+        @Override
+        public boolean insert(Entity entity) {
+            return true;
+        }
+
+        @Override
+        public Entity get(EntityType entityType, Id id) {
+            return null;
+        }
+
+        @Override
+        public boolean delete(PathElementEntity pathElement) {
+            return true;
+        }
+
+        @Override
+        public void delete(ResourcePath path, Query query) {
+        }
+
+        @Override
+        public boolean update(PathElementEntity pathElement, Entity entity) {
+            return true;
+        }
+
+        @Override
+        public boolean update(PathElementEntity pathElement, JsonPatch patch) {
+            return true;
+        }
+
+        @Override
+        public List<EntityChangedMessage> getEntityChangedMessages() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public void init(CoreSettings settings) {
+        }
+
+        @Override
+        public CoreSettings getCoreSettings() {
+            return settings;
+        }
+
+        @Override
+        public void commit() {
+        }
+
+        @Override
+        public void rollback() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public String checkForUpgrades() {
+            return "";
+        }
+
+        @Override
+        public boolean doUpgrades(Writer out) {
+            return true;
+        }
+
+    }
+
+}
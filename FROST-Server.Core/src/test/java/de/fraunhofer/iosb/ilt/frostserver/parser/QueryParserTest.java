@@ -54,6 +54,7 @@ import de.fraunhofer.iosb.ilt.frostserver.settings.ConfigUtils;
 import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
+import org.joda.time.Period;
 import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -101,6 +102,40 @@ public class QueryParserTest {
         Assert.assertEquals(10, result.getSkip(11));
     }
 
+    @Test
+    public void testSkipToken() {
+        Query expResult = new Query(settings.getQueryDefaults(), path);
+        Assert.assertNull(expResult.getSkipToken());
+        expResult.setSkipToken("kWzEyLCIyMDIwLTAxLTAxVDAwOjAwWiJd");
+        expResult.setTop(10);
+
+        String query = "$skiptoken=kWzEyLCIyMDIwLTAxLTAxVDAwOjAwWiJd&$top=10";
+        Query result = QueryParser.parseQuery(query, settings, path);
+        Assert.assertEquals(expResult, result);
+        Assert.assertEquals("kWzEyLCIyMDIwLTAxLTAxVDAwOjAwWiJd", result.getSkipToken());
+    }
+
+    @Test
+    public void testAggregate() {
+        Query expResult = new Query(settings.getQueryDefaults(), path);
+        Assert.assertNull(expResult.getAggregate());
+        expResult.setAggregate(Period.hours(1));
+        expResult.setTop(10);
+
+        String query = "$aggregate=duration'PT1H'&$top=10";
+        Query result = QueryParser.parseQuery(query, settings, path);
+        Assert.assertEquals(expResult, result);
+        Assert.assertEquals(3600000, result.getAggregate().toStandardDuration().getMillis());
+        Assert.assertEquals(result, QueryParser.parseQuery(result.toString(true).replace(';', '&'), settings, path));
+
+        try {
+            QueryParser.parseQuery("$aggregate=duration'P1M'", settings, path);
+            Assert.fail("$aggregate should not allow months.");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
     @Test
     public void testCount() {
         Query expResult = new Query(settings.getQueryDefaults(), path);
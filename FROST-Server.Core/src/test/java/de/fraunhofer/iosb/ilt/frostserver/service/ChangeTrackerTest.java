@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.service;
+
+import de.fraunhofer.iosb.ilt.frostserver.model.Datastream;
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityChangedMessage;
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityType;
+import de.fraunhofer.iosb.ilt.frostserver.model.Location;
+import de.fraunhofer.iosb.ilt.frostserver.model.Sensor;
+import de.fraunhofer.iosb.ilt.frostserver.parser.path.PathParser;
+import de.fraunhofer.iosb.ilt.frostserver.parser.query.QueryParser;
+import de.fraunhofer.iosb.ilt.frostserver.path.ResourcePath;
+import de.fraunhofer.iosb.ilt.frostserver.path.Version;
+import de.fraunhofer.iosb.ilt.frostserver.property.EntityPropertyMain;
+import de.fraunhofer.iosb.ilt.frostserver.query.Query;
+import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Properties;
+import java.util.Set;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ *
+ * @author scf
+ */
+public class ChangeTrackerTest {
+
+    private static final String SERVICE_ROOT = "http://example.org/FROST-Server";
+
+    private static CoreSettings settings;
+
+    @BeforeClass
+    public static void initClass() {
+        Properties properties = new Properties();
+        properties.put(CoreSettings.TAG_SERVICE_ROOT_URL, SERVICE_ROOT);
+        properties.put(CoreSettings.TAG_TEMP_PATH, "/tmp/");
+        properties.put(CoreSettings.PREFIX_HTTP + CoreSettings.TAG_ETAG_ENABLE, "true");
+        settings = new CoreSettings(properties);
+    }
+
+    @AfterClass
+    public static void cleanup() {
+        ChangeTracker.shutdown();
+    }
+
+    private static String getETag(ChangeTracker tracker, String urlPath, String urlQuery, long maxStaleness) {
+        ResourcePath path = PathParser.parsePath(SERVICE_ROOT, Version.V_1_1, urlPath);
+        Query query = QueryParser.parseQuery(urlQuery, settings, path);
+        return tracker.getETag(path, query, maxStaleness);
+    }
+
+    @Test
+    public void testETagChanges() {
+        ChangeTracker tracker = ChangeTracker.getInstance(settings);
+        Assert.assertNotNull(tracker);
+        String things = getETag(tracker, "/Things", "$expand=Datastreams", 0);
+        String sensors = getETag(tracker, "/Sensors", null, 0);
+        Assert.assertNotNull(things);
+        Assert.assertEquals(things, getETag(tracker, "/Things", "$expand=Datastreams", 0));
+
+        tracker.changed(Arrays.asList(EntityType.OBSERVATION));
+        String things2 = getETag(tracker, "/Things", "$expand=Datastreams", 0);
+        Assert.assertNotEquals("New Observations change Datastreams.", things, things2);
+        Assert.assertEquals(sensors, getETag(tracker, "/Sensors", null, 0));
+
+        String filtered = getETag(tracker, "/Sensors", "$filter=Datastreams/Thing/name eq 'a'", 0);
+        tracker.changed(Arrays.asList(EntityType.THING));
+        Assert.assertEquals(sensors, getETag(tracker, "/Sensors", null, 0));
+        Assert.assertNotEquals(filtered, getETag(tracker, "/Sensors", "$filter=Datastreams/Thing/name eq 'a'", 0));
+
+        tracker.changedAll();
+        Assert.assertNotEquals(sensors, getETag(tracker, "/Sensors", null, 0));
+    }
+
+    @Test
+    public void testCollectionDeleteOnOtherInstance() {
+        ChangeTracker tracker = ChangeTracker.getInstance(settings);
+        String etag = getETag(tracker, "/Datastreams", "$top=10", 0);
+        Assert.assertTrue(ChangeTracker.matches(etag, getETag(tracker, "/Datastreams", "$top=10", 0)));
+
+        // Another instance ran DELETE /Observations?$filter=...
+        tracker.messageReceived(new EntityChangedMessage()
+                .setEventType(EntityChangedMessage.Type.DELETE)
+                .setEntityType(EntityType.OBSERVATION));
+        String etag2 = getETag(tracker, "/Datastreams", "$top=10", 0);
+        Assert.assertFalse("Conditional GET must not return 304 after a collection delete.", ChangeTracker.matches(etag, etag2));
+    }
+
+    @Test
+    public void testExtentUpdate() {
+        ChangeTracker tracker = ChangeTracker.getInstance(settings);
+        String datastreams = getETag(tracker, "/Datastreams", null, 0);
+        String sensors = getETag(tracker, "/Sensors", null, 0);
+
+        // The extent flusher updated the phenomenonTime of Datastreams.
+        tracker.messageReceived(new EntityChangedMessage()
+                .setEventType(EntityChangedMessage.Type.UPDATE)
+                .setEntityType(EntityType.DATASTREAM)
+                .addEpField(EntityPropertyMain.PHENOMENONTIME));
+        Assert.assertNotEquals(datastreams, getETag(tracker, "/Datastreams", null, 0));
+        Assert.assertEquals(sensors, getETag(tracker, "/Sensors", null, 0));
+    }
+
+    @Test
+    public void testNoETag() {
+        ChangeTracker tracker = ChangeTracker.getInstance(settings);
+        Assert.assertNull(getETag(tracker, "/Observations", "$filter=phenomenonTime gt now()", 0));
+        tracker.changed(Arrays.asList(EntityType.SENSOR));
+        Assert.assertNull("Recent changes may not be visible yet.", getETag(tracker, "/Sensors", null, 60000));
+    }
+
+    @Test
+    public void testAddTypes() {
+        Sensor sensor = new Sensor().setName("Sensor");
+        sensor.addDatastream(new Datastream().setName("Datastream"));
+        Set<EntityType> types = EnumSet.noneOf(EntityType.class);
+        ChangeTracker.addTypes(sensor, types);
+        Assert.assertEquals(EnumSet.of(EntityType.SENSOR, EntityType.DATASTREAM), types);
+
+        types.clear();
+        ChangeTracker.addTypes(new Location().setName("Location"), types);
+        Assert.assertEquals(EnumSet.of(EntityType.LOCATION), types);
+    }
+
+    @Test
+    public void testMatches() {
+        String etag = "W/\"abc-1\"";
+        Assert.assertTrue(ChangeTracker.matches(etag, etag));
+        Assert.assertTrue(ChangeTracker.matches("\"x\", \"abc-1\"", etag));
+        Assert.assertTrue(ChangeTracker.matches("*", etag));
+        Assert.assertFalse(ChangeTracker.matches("W/\"abc-2\"", etag));
+        Assert.assertFalse(ChangeTracker.matches(null, etag));
+        Assert.assertFalse(ChangeTracker.matches(etag, null));
+    }
+
+}
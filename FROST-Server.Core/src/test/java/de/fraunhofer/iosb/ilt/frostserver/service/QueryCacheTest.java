@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.service;
+
+import de.fraunhofer.iosb.ilt.frostserver.parser.query.QueryParser;
+import de.fraunhofer.iosb.ilt.frostserver.path.ResourcePath;
+import de.fraunhofer.iosb.ilt.frostserver.path.Version;
+import de.fraunhofer.iosb.ilt.frostserver.property.EntityPropertyMain;
+import de.fraunhofer.iosb.ilt.frostserver.query.Query;
+import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
+import java.util.Properties;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ *
+ * @author scf
+ */
+public class QueryCacheTest {
+
+    private static final String URL_PATH = "/Datastreams";
+    private static final String URL_QUERY = "$select=id,name&$filter=name eq 'a'&$expand=Observations($select=result;$top=2)&$orderby=id";
+
+    private static CoreSettings settings;
+    private static ResourcePath path;
+
+    @BeforeClass
+    public static void initClass() {
+        Properties properties = new Properties();
+        properties.put(CoreSettings.TAG_SERVICE_ROOT_URL, "http://example.org/FROST-Server");
+        properties.put(CoreSettings.TAG_TEMP_PATH, "/tmp/");
+        properties.put(CoreSettings.TAG_QUERY_CACHE_SIZE, "2");
+        properties.put(CoreSettings.TAG_QUEUE_LOGGING_INTERVAL, "0");
+        settings = new CoreSettings(properties);
+        path = new ResourcePath("http://example.org/FROST-Server", Version.V_1_0, URL_PATH);
+    }
+
+    @AfterClass
+    public static void cleanup() {
+        QueryCache.shutdown();
+    }
+
+    @Test
+    public void testHitReturnsIndependentCopy() {
+        QueryCache cache = QueryCache.getInstance(settings);
+        Assert.assertNotNull(cache);
+        Assert.assertNull(cache.get(Version.V_1_0, URL_PATH, URL_QUERY));
+
+        Query query = QueryParser.parseQuery(URL_QUERY, settings, path);
+        cache.put(Version.V_1_0, URL_PATH, URL_QUERY, path, query);
+        Query expected = QueryParser.parseQuery(URL_QUERY, settings, path);
+
+        QueryCache.Entry entry = cache.get(Version.V_1_0, URL_PATH, URL_QUERY);
+        Assert.assertNotNull(entry);
+        Assert.assertSame(path, entry.getPath());
+        Query first = entry.getQuery();
+        Assert.assertEquals(expected, first);
+
+        first.addSelect(EntityPropertyMain.DESCRIPTION);
+        first.getExpand().get(0).getSubQuery().setTop(5);
+        Query second = entry.getQuery();
+        Assert.assertNotSame(first, second);
+        Assert.assertEquals(expected, second);
+
+        Assert.assertNull(cache.get(Version.V_1_1, URL_PATH, URL_QUERY));
+        Assert.assertTrue(cache.getHits() >= 1);
+        Assert.assertTrue(cache.getMisses() >= 2);
+    }
+
+    @Test
+    public void testSizeLimit() {
+        QueryCache cache = QueryCache.getInstance(settings);
+        for (int i = 0; i < 5; i++) {
+            String urlQuery = "$top=" + i;
+            cache.put(Version.V_1_0, URL_PATH, urlQuery, path, QueryParser.parseQuery(urlQuery, settings, path));
+        }
+        Assert.assertEquals(2, cache.getSize());
+        Assert.assertNotNull(cache.get(Version.V_1_0, URL_PATH, "$top=4"));
+        Assert.assertNull(cache.get(Version.V_1_0, URL_PATH, "$top=0"));
+    }
+
+}
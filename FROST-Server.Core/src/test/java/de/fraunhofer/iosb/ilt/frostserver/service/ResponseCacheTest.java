@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.service;
+
+import de.fraunhofer.iosb.ilt.frostserver.formatter.FormatWriter;
+import de.fraunhofer.iosb.ilt.frostserver.formatter.FormatWriterGeneric;
+import de.fraunhofer.iosb.ilt.frostserver.path.Version;
+import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Properties;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ *
+ * @author scf
+ */
+public class ResponseCacheTest {
+
+    private static final String CONTENT_TYPE = "application/json";
+
+    private static CoreSettings settings;
+
+    @BeforeClass
+    public static void initClass() {
+        Properties properties = new Properties();
+        properties.put(CoreSettings.TAG_SERVICE_ROOT_URL, "http://example.org/FROST-Server");
+        properties.put(CoreSettings.TAG_TEMP_PATH, "/tmp/");
+        properties.put(CoreSettings.TAG_RESPONSE_CACHE_SIZE, "100");
+        properties.put(CoreSettings.TAG_RESPONSE_CACHE_ENTRY_SIZE, "40");
+        settings = new CoreSettings(properties);
+    }
+
+    @AfterClass
+    public static void cleanup() {
+        ResponseCache.shutdown();
+    }
+
+    private static String write(ResponseCache cache, String key, String validator, String content) throws IOException {
+        FormatWriter writer = cache.wrap(key, validator, CONTENT_TYPE, new FormatWriterGeneric(content));
+        StringWriter target = new StringWriter();
+        writer.writeFormatted(target);
+        return target.toString();
+    }
+
+    @Test
+    public void testValidator() throws IOException {
+        ResponseCache cache = ResponseCache.getInstance(settings);
+        Assert.assertNotNull(cache);
+        String key = ResponseCache.createKey(Version.V_1_1, "/Things", "$top=1");
+        Assert.assertNull(cache.get(key, "a"));
+
+        Assert.assertEquals("{\"value\":[]}", write(cache, key, "a", "{\"value\":[]}"));
+        ResponseCache.Entry entry = cache.get(key, "a");
+        Assert.assertNotNull(entry);
+        Assert.assertEquals("{\"value\":[]}", entry.getContent());
+        Assert.assertEquals(CONTENT_TYPE, entry.getContentType());
+
+        Assert.assertNull("A changed validator must invalidate the entry.", cache.get(key, "b"));
+        Assert.assertNull(cache.get(key, "a"));
+        Assert.assertTrue(cache.getHits() >= 1);
+        Assert.assertTrue(cache.getMisses() >= 3);
+    }
+
+    @Test
+    public void testSizeLimits() throws IOException {
+        ResponseCache cache = ResponseCache.getInstance(settings);
+        String large = "0123456789012345678901234567890123456789-";
+        String key = ResponseCache.createKey(Version.V_1_1, "/Sensors", null);
+        Assert.assertEquals("Large responses must still be written completely.", large, write(cache, key, "a", large));
+        Assert.assertNull(cache.get(key, "a"));
+
+        String content = "01234567890123456789012345678901234";
+        for (int i = 0; i < 4; i++) {
+            write(cache, ResponseCache.createKey(Version.V_1_1, "/Sensors", "$skip=" + i), "a", content);
+        }
+        Assert.assertTrue(cache.getSize() <= 100);
+        Assert.assertNull(cache.get(ResponseCache.createKey(Version.V_1_1, "/Sensors", "$skip=0"), "a"));
+        Assert.assertNotNull(cache.get(ResponseCache.createKey(Version.V_1_1, "/Sensors", "$skip=3"), "a"));
+    }
+
+}
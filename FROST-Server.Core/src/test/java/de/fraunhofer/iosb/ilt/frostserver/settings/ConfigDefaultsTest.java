@@ -1,11 +1,14 @@
 package de.fraunhofer.iosb.ilt.frostserver.settings;
 
 import de.fraunhofer.iosb.ilt.frostserver.messagebus.MqttMessageBus;
+import static de.fraunhofer.iosb.ilt.frostserver.messagebus.MqttMessageBus.TAG_CODEC_CLASS;
 import static de.fraunhofer.iosb.ilt.frostserver.messagebus.MqttMessageBus.TAG_MAX_IN_FLIGHT;
 import static de.fraunhofer.iosb.ilt.frostserver.messagebus.MqttMessageBus.TAG_MQTT_BROKER;
 import static de.fraunhofer.iosb.ilt.frostserver.messagebus.MqttMessageBus.TAG_QOS_LEVEL;
 import static de.fraunhofer.iosb.ilt.frostserver.messagebus.MqttMessageBus.TAG_RECV_QUEUE_SIZE;
 import static de.fraunhofer.iosb.ilt.frostserver.messagebus.MqttMessageBus.TAG_RECV_WORKER_COUNT;
+import static de.fraunhofer.iosb.ilt.frostserver.messagebus.MqttMessageBus.TAG_SEND_BATCH_SIZE;
+import static de.fraunhofer.iosb.ilt.frostserver.messagebus.MqttMessageBus.TAG_SEND_BATCH_WAIT;
 import static de.fraunhofer.iosb.ilt.frostserver.messagebus.MqttMessageBus.TAG_SEND_QUEUE_SIZE;
 import static de.fraunhofer.iosb.ilt.frostserver.messagebus.MqttMessageBus.TAG_SEND_WORKER_COUNT;
 import static de.fraunhofer.iosb.ilt.frostserver.messagebus.MqttMessageBus.TAG_TOPIC_NAME;
@@ -131,6 +134,9 @@ public class ConfigDefaultsTest {
         tags.add(TAG_MAX_IN_FLIGHT);
         tags.add(TAG_MQTT_BROKER);
         tags.add(TAG_TOPIC_NAME);
+        tags.add(TAG_SEND_BATCH_SIZE);
+        tags.add(TAG_SEND_BATCH_WAIT);
+        tags.add(TAG_CODEC_CLASS);
         assertEquals(tags, b.configTags());
 
     }
@@ -238,6 +244,9 @@ public class ConfigDefaultsTest {
         tags.add(TAG_MAX_IN_FLIGHT);
         tags.add(TAG_MQTT_BROKER);
         tags.add(TAG_TOPIC_NAME);
+        tags.add(TAG_SEND_BATCH_SIZE);
+        tags.add(TAG_SEND_BATCH_WAIT);
+        tags.add(TAG_CODEC_CLASS);
         assertEquals(tags, ConfigUtils.getConfigTags(c));
     }
 
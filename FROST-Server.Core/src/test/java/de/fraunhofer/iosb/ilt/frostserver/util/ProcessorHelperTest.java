@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author scf
+ */
+public class ProcessorHelperTest {
+
+    @Test
+    public void testBatchWaitsForMoreItems() throws InterruptedException {
+        BlockingQueue<Integer> queue = new ArrayBlockingQueue<>(10);
+        BlockingQueue<List<Integer>> batches = new LinkedBlockingQueue<>();
+        ExecutorService service = ProcessorHelper.createBatchProcessors(1, queue, batches::add, 3, 500, "test");
+        try {
+            queue.add(1);
+            Thread.sleep(50);
+            queue.add(2);
+            queue.add(3);
+            queue.add(4);
+            List<Integer> first = batches.poll(5, TimeUnit.SECONDS);
+            Assert.assertEquals(listOf(1, 2, 3), first);
+            List<Integer> second = batches.poll(5, TimeUnit.SECONDS);
+            Assert.assertEquals(listOf(4), second);
+        } finally {
+            ProcessorHelper.shutdownProcessors(service, queue, 1, TimeUnit.SECONDS);
+        }
+    }
+
+    private static List<Integer> listOf(Integer... items) {
+        List<Integer> list = new ArrayList<>();
+        for (Integer item : items) {
+            list.add(item);
+        }
+        return list;
+    }
+
+}
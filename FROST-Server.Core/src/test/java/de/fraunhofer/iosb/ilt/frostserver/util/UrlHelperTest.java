@@ -68,6 +68,22 @@ public class UrlHelperTest {
                 "/Things?$skip=4&$top=2");
     }
 
+    @Test
+    public void testNextLinkSkipToken() {
+        String baseUrl = "/Things(5)/Datastreams?$skip=2&$top=2&$orderby=name";
+        String expectedNextUrl = "/Things(5)/Datastreams?$skiptoken=kWyJhIiwxMl0&$top=2&$orderby=name";
+        Query queryBase = ParserHelper.parsePathAndQuery(new IdManagerLong(), SERVICE_ROOT_URL, Version.V_1_1, baseUrl, settings);
+        Query queryExpected = ParserHelper.parsePathAndQuery(new IdManagerLong(), SERVICE_ROOT_URL, Version.V_1_1, expectedNextUrl, settings);
+
+        String nextLink = UrlHelper.generateNextLink(queryBase.getPath(), queryBase, "kWyJhIiwxMl0");
+        nextLink = StringHelper.urlDecode(nextLink).substring(SERVICE_ROOT_URL_V11.length());
+        Query next = ParserHelper.parsePathAndQuery(new IdManagerLong(), SERVICE_ROOT_URL, Version.V_1_1, nextLink, settings);
+
+        Assert.assertEquals(queryExpected, next);
+        Assert.assertEquals(2, queryBase.getSkip(0));
+        Assert.assertNull(queryBase.getSkipToken());
+    }
+
     @Test
     public void testNextLinkCountTrue() {
         testNextLink(
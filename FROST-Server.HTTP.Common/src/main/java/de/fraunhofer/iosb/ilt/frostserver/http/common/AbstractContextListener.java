@@ -19,6 +19,9 @@ package de.fraunhofer.iosb.ilt.frostserver.http.common;
 
 import de.fraunhofer.iosb.ilt.frostserver.messagebus.MessageBusFactory;
 import de.fraunhofer.iosb.ilt.frostserver.persistence.PersistenceManagerFactory;
+import de.fraunhofer.iosb.ilt.frostserver.service.ChangeTracker;
+import de.fraunhofer.iosb.ilt.frostserver.service.QueryCache;
+import de.fraunhofer.iosb.ilt.frostserver.service.ResponseCache;
 import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
 import static de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings.TAG_CORE_SETTINGS;
 import de.fraunhofer.iosb.ilt.frostserver.settings.Settings;
@@ -92,6 +95,11 @@ public abstract class AbstractContextListener implements ServletContextListener
     public void contextDestroyed(ServletContextEvent sce) {
         LOGGER.info("Context destroyed, shutting down threads...");
         MessageBusFactory.getMessageBus().stop();
+        QueryCache.shutdown();
+        ChangeTracker.shutdown();
+        ResponseCache.shutdown();
+        RequestExecutor.shutdown();
+        PersistenceManagerFactory.shutdown();
         try {
             Thread.sleep(5000L);
         } catch (InterruptedException ex) {
@@ -109,6 +117,7 @@ public abstract class AbstractContextListener implements ServletContextListener
                 String filterName = "CorsFilter";
 
                 FilterRegistration.Dynamic corsFilter = servletContext.addFilter(filterName, "org.apache.catalina.filters.CorsFilter");
+                corsFilter.setAsyncSupported(true);
                 corsFilter.addMappingForUrlPatterns(EnumSet.of(DispatcherType.REQUEST, DispatcherType.FORWARD), true, "/*");
 
                 String allowedOrigins = httpSettings.get(CoreSettings.TAG_CORS_ALLOWED_ORIGINS, CoreSettings.class);
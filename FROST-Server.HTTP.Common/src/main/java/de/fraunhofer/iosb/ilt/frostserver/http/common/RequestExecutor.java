@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.http.common;
+
+import de.fraunhofer.iosb.ilt.frostserver.service.RequestTypeUtils;
+import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
+import de.fraunhofer.iosb.ilt.frostserver.settings.Settings;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.http.HttpServletResponse;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs heavy read requests on a bounded pool of worker threads, so that a
+ * burst of expensive queries can not use up all threads of the servlet
+ * container, and cheap requests are still answered quickly.
+ *
+ * When all workers are busy, requests wait in a queue of limited size. When
+ * the queue is full, requests are rejected, and should be answered with a
+ * 503. Requests still queued when the executor shuts down are rejected the
+ * same way.
+ *
+ * @author scf
+ */
+public class RequestExecutor {
+
+    /**
+     * The logger for this class.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(RequestExecutor.class);
+
+    /**
+     * Query options that can make a read request expensive, whatever their
+     * value.
+     */
+    private static final Set<String> HEAVY_OPTIONS = new HashSet<>(Arrays.asList("$expand", "$aggregate", "$resultformat"));
+    /**
+     * The count option, that makes a read request expensive if it is true.
+     */
+    private static final String OPTION_COUNT = "$count";
+
+    private static final Map<CoreSettings, RequestExecutor> instances = new HashMap<>();
+
+    private final ThreadPoolExecutor executor;
+    private final int retryAfter;
+
+    RequestExecutor(int workers, int queueSize, int retryAfter) {
+        this.retryAfter = retryAfter;
+        executor = new ThreadPoolExecutor(
+                workers, workers,
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueSize)),
+                new BasicThreadFactory.Builder().namingPattern("FROST-Request-%d").daemon(true).build());
+    }
+
+    /**
+     * Get the executor for the given settings.
+     *
+     * @param settings The settings to get the executor for.
+     * @return The executor, or null if asynchronous processing is disabled in
+     * the settings.
+     */
+    public static synchronized RequestExecutor getInstance(CoreSettings settings) {
+        if (instances.containsKey(settings)) {
+            return instances.get(settings);
+        }
+        Settings httpSettings = settings.getHttpSettings();
+        int workers = httpSettings.getInt(CoreSettings.TAG_ASYNC_WORKERS, CoreSettings.class);
+        RequestExecutor instance = null;
+        if (workers > 0) {
+            int queueSize = httpSettings.getInt(CoreSettings.TAG_ASYNC_QUEUE_SIZE, CoreSettings.class);
+            int retryAfter = httpSettings.getInt(CoreSettings.TAG_ASYNC_RETRY_AFTER, CoreSettings.class);
+            instance = new RequestExecutor(workers, queueSize, retryAfter);
+            LOGGER.info("Running heavy requests on {} worker threads, queueing up to {}.", workers, queueSize);
+        }
+        instances.put(settings, instance);
+        return instance;
+    }
+
+    /**
+     * Stop the worker threads of all executors, and remove them. Requests
+     * that are still queued are not executed, but rejected.
+     */
+    public static synchronized void shutdown() {
+        for (RequestExecutor instance : instances.values()) {
+            if (instance != null) {
+                instance.stop();
+            }
+        }
+        instances.clear();
+    }
+
+    private void stop() {
+        List<Runnable> queued = executor.shutdownNow();
+        if (!queued.isEmpty()) {
+            LOGGER.info("Rejecting {} queued requests.", queued.size());
+        }
+        for (Runnable task : queued) {
+            try {
+                ((Request) task).reject();
+            } catch (RuntimeException exc) {
+                LOGGER.warn("Failed to reject queued request: {}", exc.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Check if the request with the given type and query is expensive enough
+     * to be handled by a worker thread. These are read requests with options
+     * that can make them take long.
+     *
+     * @param requestType The type of the request.
+     * @param urlQuery The decoded query string of the request.
+     * @return true if the request should be handled by a worker thread.
+     */
+    public static boolean isHeavy(String requestType, String urlQuery) {
+        if (!RequestTypeUtils.READ.equals(requestType) || urlQuery == null) {
+            return false;
+        }
+        for (String parameter : urlQuery.split("&")) {
+            String[] nameValue = parameter.split("=", 2);
+            String name = nameValue[0].trim().toLowerCase();
+            if (HEAVY_OPTIONS.contains(name)) {
+                return true;
+            }
+            if (OPTION_COUNT.equals(name) && nameValue.length == 2 && "true".equalsIgnoreCase(nameValue[1].trim())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Run the given request on a worker thread. If all workers are busy and
+     * the queue is full, or the executor is shut down, the request is
+     * rejected right away.
+     *
+     * @param request The request to run.
+     */
+    public void execute(Request request) {
+        try {
+            executor.execute(request);
+        } catch (RejectedExecutionException exc) {
+            LOGGER.debug("All request workers busy, rejecting request.");
+            request.reject();
+        }
+    }
+
+    /**
+     * Answer a rejected request with a 503, telling the client when to retry.
+     *
+     * @param response The response to send the 503 on.
+     */
+    public void sendBusy(HttpServletResponse response) {
+        response.setStatus(503);
+        response.setHeader("Retry-After", Integer.toString(retryAfter));
+        try {
+            response.getWriter().write("Server busy, try again later.");
+        } catch (IOException exc) {
+            LOGGER.error("Error writing HTTP result", exc);
+        }
+    }
+
+    /**
+     * @return The number of seconds clients should wait before retrying a
+     * rejected request.
+     */
+    public int getRetryAfter() {
+        return retryAfter;
+    }
+
+    /**
+     * A request that is handled on a worker thread.
+     */
+    public interface Request extends Runnable {
+
+        /**
+         * Answer the request without running it, because all workers are
+         * busy and the queue is full, or the executor is shutting down.
+         */
+        public void reject();
+    }
+
+}
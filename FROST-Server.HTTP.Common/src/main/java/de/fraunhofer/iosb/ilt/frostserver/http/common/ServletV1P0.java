@@ -31,6 +31,8 @@ import de.fraunhofer.iosb.ilt.frostserver.util.StringHelper;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.util.stream.Collectors;
+import javax.servlet.AsyncContext;
+import javax.servlet.DispatcherType;
 import javax.servlet.ServletException;
 import javax.servlet.annotation.MultipartConfig;
 import javax.servlet.annotation.WebInitParam;
@@ -50,6 +52,7 @@ import org.slf4j.LoggerFactory;
         // This annotation MUST be kept aligned with the constant 
         // de.fraunhofer.iosb.ilt.frostserver.util.Contants.HTTP_URL_PATTERNS!
         urlPatterns = {"/v1.0", "/v1.0/*", "/v1.1", "/v1.1/*"},
+        asyncSupported = true,
         initParams = {
             @WebInitParam(name = "readonly", value = "false")
         }
@@ -63,6 +66,11 @@ public class ServletV1P0 extends HttpServlet {
     private static final Logger LOGGER = LoggerFactory.getLogger(ServletV1P0.class);
     private static final String ENCODING = "UTF-8";
     public static final String JSON_PATCH_CONTENT_TYPE = "application/json-patch+json";
+    /**
+     * The request attribute holding the exception that broke off writing an
+     * asynchronously handled response.
+     */
+    private static final String ATTR_WRITE_FAILURE = ServletV1P0.class.getName() + ".writeFailure";
 
     private void processGetRequest(HttpServletRequest request, HttpServletResponse response) {
         response.setContentType("application/json");
@@ -118,8 +126,53 @@ public class ServletV1P0 extends HttpServlet {
 
     private void executeService(String requestType, HttpServletRequest request, HttpServletResponse response) {
         CoreSettings coreSettings = (CoreSettings) request.getServletContext().getAttribute(TAG_CORE_SETTINGS);
+        RequestExecutor executor = RequestExecutor.getInstance(coreSettings);
+        if (executor == null || !request.isAsyncSupported() || !RequestExecutor.isHeavy(requestType, getDecodedQuery(request))) {
+            executeService(coreSettings, requestType, request, response);
+            return;
+        }
+        AsyncContext asyncContext = request.startAsync();
+        // The queryTimeout of the persistence manager limits long queries.
+        // Since there is no timeout, run() must always end the async context.
+        asyncContext.setTimeout(0);
+        executor.execute(new RequestExecutor.Request() {
+            @Override
+            public void run() {
+                HttpServletResponse asyncResponse = (HttpServletResponse) asyncContext.getResponse();
+                boolean dispatched = false;
+                try {
+                    executeService(coreSettings, requestType, (HttpServletRequest) asyncContext.getRequest(), asyncResponse);
+                } catch (ResponseWriteException exc) {
+                    // Only a container thread can abort the connection.
+                    asyncContext.getRequest().setAttribute(ATTR_WRITE_FAILURE, exc);
+                    asyncContext.dispatch();
+                    dispatched = true;
+                } catch (Throwable exc) {
+                    LOGGER.error("Failed to handle request.", exc);
+                    if (!asyncResponse.isCommitted()) {
+                        asyncResponse.reset();
+                        sendResponse(new ServiceResponse<>(500, "Failed to handle the request."), asyncResponse);
+                    }
+                } finally {
+                    if (!dispatched) {
+                        asyncContext.complete();
+                    }
+                }
+            }
+
+            @Override
+            public void reject() {
+                executor.sendBusy((HttpServletResponse) asyncContext.getResponse());
+                asyncContext.complete();
+            }
+        });
+    }
+
+    private void executeService(CoreSettings coreSettings, String requestType, HttpServletRequest request, HttpServletResponse response) {
         try (Service service = new Service(coreSettings)) {
             sendResponse(service.execute(serviceRequestFromHttpRequest(request, requestType)), response);
+        } catch (ResponseWriteException exc) {
+            throw exc;
         } catch (Exception exc) {
             LOGGER.error("", exc);
             sendResponse(new ServiceResponse<>(500, exc.getMessage()), response);
@@ -148,26 +201,29 @@ public class ServletV1P0 extends HttpServlet {
         return new ServiceRequestBuilder(version)
                 .withRequestType(requestType)
                 .withUrlPath(pathInfo)
-                .withUrlQuery(request.getQueryString() != null
-                        ? StringHelper.urlDecode(request.getQueryString())
-                        : null)
+                .withUrlQuery(getDecodedQuery(request))
                 .withContent(readRequestData(request.getReader()))
                 .withContentType(request.getContentType())
                 .withParameterMap(request.getParameterMap())
+                .withIfNoneMatch(request.getHeader("If-None-Match"))
                 .build();
     }
 
+    private static String getDecodedQuery(HttpServletRequest request) {
+        String queryString = request.getQueryString();
+        return queryString == null ? null : StringHelper.urlDecode(queryString);
+    }
+
     private void sendResponse(ServiceResponse<?> serviceResponse, HttpServletResponse httpResponse) {
         httpResponse.setStatus(serviceResponse.getCode());
         serviceResponse.getHeaders().entrySet().forEach(x -> httpResponse.setHeader(x.getKey(), x.getValue()));
         try {
             if (serviceResponse.getCode() >= 200
                     && serviceResponse.getCode() < 300
-                    && serviceResponse.getResultFormatted() != null
-                    && !serviceResponse.getResultFormatted().isEmpty()) {
+                    && serviceResponse.getResultFormatted() != null) {
                 httpResponse.setContentType(serviceResponse.getContentType());
                 httpResponse.setCharacterEncoding(ENCODING);
-                httpResponse.getWriter().write(serviceResponse.getResultFormatted());
+                writeFormatted(serviceResponse, httpResponse);
 
             } else if (serviceResponse.getMessage() != null
                     && !serviceResponse.getMessage().isEmpty()) {
@@ -179,6 +235,28 @@ public class ServletV1P0 extends HttpServlet {
         }
     }
 
+    /**
+     * Write the formatted result to the response. If formatting fails before
+     * the response is committed, a 500 is sent instead. If the response is
+     * already committed, the client has received a success status, and the
+     * connection must be aborted, so the client can tell the body is
+     * incomplete.
+     */
+    private void writeFormatted(ServiceResponse<?> serviceResponse, HttpServletResponse httpResponse) throws IOException {
+        try {
+            serviceResponse.getResultFormatted().writeFormatted(httpResponse.getWriter());
+        } catch (IOException | RuntimeException exc) {
+            if (httpResponse.isCommitted()) {
+                LOGGER.error("Failed to write HTTP result after the response was committed, aborting.", exc);
+                throw new ResponseWriteException(exc);
+            }
+            LOGGER.error("Failed to format HTTP result.", exc);
+            httpResponse.reset();
+            httpResponse.setStatus(500);
+            httpResponse.getWriter().write("Failed to format the result.");
+        }
+    }
+
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response) {
         processGetRequest(request, response);
@@ -215,6 +293,11 @@ public class ServletV1P0 extends HttpServlet {
 
     @Override
     protected void service(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+        Object writeFailure = request.getAttribute(ATTR_WRITE_FAILURE);
+        if (writeFailure != null && request.getDispatcherType() == DispatcherType.ASYNC) {
+            // Let the container abort the committed response.
+            throw new ServletException("Failed to write the response.", (Throwable) writeFailure);
+        }
         if ("PATCH".equals(request.getMethod())) {
             doPatch(request, response);
             return;
@@ -226,4 +309,17 @@ public class ServletV1P0 extends HttpServlet {
         return reader.lines().collect(Collectors.joining("\n"));
     }
 
+    /**
+     * Thrown when writing a committed response fails. The servlet container
+     * aborts the connection when this escapes the servlet.
+     */
+    private static class ResponseWriteException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        public ResponseWriteException(Throwable cause) {
+            super(cause);
+        }
+    }
+
 }
@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.http.common;
+
+import de.fraunhofer.iosb.ilt.frostserver.service.RequestTypeUtils;
+import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.servlet.http.HttpServletResponse;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author scf
+ */
+public class RequestExecutorTest {
+
+    @Test
+    public void testIsHeavy() {
+        final String read = RequestTypeUtils.READ;
+        Assert.assertTrue(RequestExecutor.isHeavy(read, "$expand=Datastreams"));
+        Assert.assertTrue(RequestExecutor.isHeavy(read, "$top=10&$EXPAND=Datastreams"));
+        Assert.assertTrue(RequestExecutor.isHeavy(read, "$count=true"));
+        Assert.assertTrue(RequestExecutor.isHeavy(read, "$top=1&$count=TRUE"));
+        Assert.assertTrue(RequestExecutor.isHeavy(read, "$aggregate=PT1H"));
+        Assert.assertTrue(RequestExecutor.isHeavy(read, "$resultFormat=dataArray"));
+
+        Assert.assertFalse(RequestExecutor.isHeavy(read, null));
+        Assert.assertFalse(RequestExecutor.isHeavy(read, ""));
+        Assert.assertFalse(RequestExecutor.isHeavy(read, "$top=10&$select=id"));
+        Assert.assertFalse(RequestExecutor.isHeavy(read, "$count=false"));
+        Assert.assertFalse("Option names in values must not count.", RequestExecutor.isHeavy(read, "$filter=name eq '$expand'"));
+        Assert.assertFalse("Option names in values must not count.", RequestExecutor.isHeavy(read, "$filter=description eq '$count=true'"));
+        Assert.assertFalse("Only read requests are heavy.", RequestExecutor.isHeavy(RequestTypeUtils.CREATE, "$expand=Datastreams"));
+    }
+
+    @Test
+    public void testQueueFullRejects() throws InterruptedException {
+        RequestExecutor executor = new RequestExecutor(1, 1, 7);
+        CountDownLatch release = new CountDownLatch(1);
+        TestRequest running = new TestRequest(release);
+        TestRequest queued = new TestRequest(release);
+        TestRequest overflow = new TestRequest(release);
+        executor.execute(running);
+        Assert.assertTrue(running.started.await(5, TimeUnit.SECONDS));
+        executor.execute(queued);
+        executor.execute(overflow);
+        Assert.assertEquals("A request beyond the queue must be rejected.", 1, overflow.rejected.get());
+        Assert.assertEquals(0, queued.rejected.get());
+
+        release.countDown();
+        Assert.assertTrue(queued.started.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(0, overflow.ran.get());
+    }
+
+    @Test
+    public void testSendBusy() {
+        RequestExecutor executor = new RequestExecutor(1, 1, 7);
+        TestResponse response = new TestResponse();
+        executor.sendBusy(response.proxy);
+        Assert.assertEquals(503, response.status);
+        Assert.assertEquals("7", response.headers.get("Retry-After"));
+        Assert.assertEquals("Server busy, try again later.", response.body.toString());
+    }
+
+    @Test
+    public void testRejectOnShutdown() throws InterruptedException {
+        CoreSettings settings = createSettings(1, 5);
+        RequestExecutor executor = RequestExecutor.getInstance(settings);
+        Assert.assertSame(executor, RequestExecutor.getInstance(settings));
+
+        CountDownLatch release = new CountDownLatch(1);
+        TestRequest running = new TestRequest(release);
+        TestRequest queued1 = new TestRequest(release);
+        TestRequest queued2 = new TestRequest(release);
+        executor.execute(running);
+        Assert.assertTrue(running.started.await(5, TimeUnit.SECONDS));
+        executor.execute(queued1);
+        executor.execute(queued2);
+
+        RequestExecutor.shutdown();
+        Assert.assertEquals(0, running.rejected.get());
+        Assert.assertEquals(1, queued1.rejected.get());
+        Assert.assertEquals(1, queued2.rejected.get());
+        Assert.assertEquals(0, queued1.ran.get());
+
+        TestRequest late = new TestRequest(release);
+        executor.execute(late);
+        Assert.assertEquals("Requests after shutdown must be rejected.", 1, late.rejected.get());
+    }
+
+    @Test
+    public void testDisabled() {
+        Assert.assertNull(RequestExecutor.getInstance(createSettings(0, 5)));
+    }
+
+    private static CoreSettings createSettings(int workers, int queueSize) {
+        Properties properties = new Properties();
+        properties.put(CoreSettings.TAG_SERVICE_ROOT_URL, "http://localhost:8080/FROST-Server");
+        properties.put(CoreSettings.TAG_TEMP_PATH, System.getProperty("java.io.tmpdir"));
+        properties.put(CoreSettings.PREFIX_HTTP + CoreSettings.TAG_ASYNC_WORKERS, Integer.toString(workers));
+        properties.put(CoreSettings.PREFIX_HTTP + CoreSettings.TAG_ASYNC_QUEUE_SIZE, Integer.toString(queueSize));
+        return new CoreSettings(properties);
+    }
+
+    private static class TestRequest implements RequestExecutor.Request {
+
+        private final CountDownLatch release;
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final AtomicInteger ran = new AtomicInteger();
+        private final AtomicInteger rejected = new AtomicInteger();
+
+        public TestRequest(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void run() {
+            ran.incrementAndGet();
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void reject() {
+            rejected.incrementAndGet();
+        }
+    }
+
+    /**
+     * Records the status, headers and body written to a response.
+     */
+    private static class TestResponse {
+
+        private int status;
+        private final Map<String, String> headers = new HashMap<>();
+        private final StringWriter body = new StringWriter();
+        private final PrintWriter writer = new PrintWriter(body, true);
+        private final HttpServletResponse proxy = (HttpServletResponse) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class<?>[]{HttpServletResponse.class},
+                (p, method, args) -> {
+                    switch (method.getName()) {
+                        case "setStatus":
+                            status = (Integer) args[0];
+                            return null;
+                        case "setHeader":
+                            headers.put((String) args[0], (String) args[1]);
+                            return null;
+                        case "getWriter":
+                            return writer;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
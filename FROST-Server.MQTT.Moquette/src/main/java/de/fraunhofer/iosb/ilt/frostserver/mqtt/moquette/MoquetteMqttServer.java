@@ -51,11 +51,13 @@ import io.netty.handler.codec.mqtt.MqttQoS;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.UUID;
+import java.util.function.Consumer;
 import javax.swing.event.EventListenerList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -124,6 +126,40 @@ public class MoquetteMqttServer implements MqttServer, ConfigDefaults {
         }
     }
 
+    @Override
+    public void publish(Collection<String> topics, String message, int qos) {
+        if (mqttBroker == null) {
+            return;
+        }
+        publishAll(topics, message, qos, mqttPublishMessage -> mqttBroker.internalPublish(mqttPublishMessage, frostClientId));
+    }
+
+    /**
+     * Encode the message once and publish it on all given topics. Each
+     * published message gets its own view on the same bytes. The publisher
+     * must retain the payload if it keeps it after returning, as the moquette
+     * broker does for each subscriber.
+     *
+     * @param topics The topics to publish on.
+     * @param message The message to publish.
+     * @param qos The QoS to publish with.
+     * @param publisher The consumer that publishes the messages.
+     * @return The payload buffer, released by the time this method returns.
+     */
+    static ByteBuf publishAll(Collection<String> topics, String message, int qos, Consumer<MqttPublishMessage> publisher) {
+        final ByteBuf payload = ByteBufUtil.writeUtf8(UnpooledByteBufAllocator.DEFAULT, message);
+        try {
+            MqttFixedHeader fixedHeader = new MqttFixedHeader(MqttMessageType.PUBLISH, false, MqttQoS.valueOf(qos), false, 0);
+            for (String topic : topics) {
+                MqttPublishVariableHeader varHeader = new MqttPublishVariableHeader(topic, 0);
+                publisher.accept(new MqttPublishMessage(fixedHeader, varHeader, payload.duplicate()));
+            }
+        } finally {
+            payload.release();
+        }
+        return payload;
+    }
+
     @Override
     public void addSubscriptionListener(SubscriptionListener listener) {
         subscriptionListeners.add(SubscriptionListener.class, listener);
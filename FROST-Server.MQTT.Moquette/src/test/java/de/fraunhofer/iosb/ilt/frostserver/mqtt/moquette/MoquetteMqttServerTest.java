@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.mqtt.moquette;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.mqtt.MqttPublishMessage;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author scf
+ */
+public class MoquetteMqttServerTest {
+
+    private static final String MESSAGE = "{\"result\":42}";
+
+    @Test
+    public void testPublishAllReleasesPayload() {
+        List<String> received = new ArrayList<>();
+        ByteBuf payload = MoquetteMqttServer.publishAll(Arrays.asList("a", "b", "c"), MESSAGE, 1,
+                message -> received.add(message.variableHeader().topicName() + ":" + message.payload().toString(StandardCharsets.UTF_8)));
+        Assert.assertEquals(Arrays.asList("a:" + MESSAGE, "b:" + MESSAGE, "c:" + MESSAGE), received);
+        Assert.assertEquals(0, payload.refCnt());
+    }
+
+    @Test
+    public void testPublishAllWithRetainingPublisher() {
+        // Like the broker, keep a retained duplicate of each payload for later delivery.
+        List<ByteBuf> kept = new ArrayList<>();
+        ByteBuf payload = MoquetteMqttServer.publishAll(Arrays.asList("a", "b"), MESSAGE, 1,
+                (MqttPublishMessage message) -> kept.add(message.payload().retainedDuplicate()));
+        Assert.assertEquals(2, payload.refCnt());
+        for (ByteBuf buffer : kept) {
+            Assert.assertEquals(MESSAGE, buffer.toString(StandardCharsets.UTF_8));
+            buffer.release();
+        }
+        Assert.assertEquals(0, payload.refCnt());
+    }
+
+}
@@ -37,7 +37,11 @@ import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.tables.TableCollect
 import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.utils.ConnectionUtils;
 import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.utils.ConnectionUtils.ConnectionWrapper;
 import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.utils.DataSize;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.utils.EntityExistenceCache;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.utils.ExtentFlusher;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.utils.GeneratedFoiCache;
 import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.utils.LiquibaseHelper;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.utils.ReplicaLagMonitor;
 import de.fraunhofer.iosb.ilt.frostserver.property.EntityPropertyMain;
 import de.fraunhofer.iosb.ilt.frostserver.query.Query;
 import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
@@ -52,8 +56,14 @@ import java.sql.Connection;
 import java.sql.SQLException;
 import java.time.Instant;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import org.jooq.DSLContext;
 import org.jooq.Delete;
 import org.jooq.Record;
@@ -79,16 +89,66 @@ public abstract class PostgresPersistenceManager<J extends Comparable> extends A
 
     private static final Logger LOGGER = LoggerFactory.getLogger(PostgresPersistenceManager.class.getName());
     private static final String SOURCE_NAME_FROST = "FROST-Source";
+    private static final String SOURCE_NAME_FROST_READ_ONLY = "FROST-Source-ReadOnly";
 
     private CoreSettings settings;
     private ConnectionWrapper connectionProvider;
     private DSLContext dslContext;
+    /**
+     * The entities found to exist in the current transaction. These are added
+     * to the existence cache when the transaction is committed.
+     */
+    private final Set<EntityExistenceCache.Key> existingInTransaction = new HashSet<>();
+    /**
+     * The delete count of the existence cache from before the current
+     * transaction started looking for entities, or -1 if it did not yet.
+     */
+    private long existenceDeleteCount = -1;
+    /**
+     * The entities deleted in the current transaction. These are removed from
+     * the existence cache again after the transaction is committed, in case
+     * another transaction added them in the mean time.
+     */
+    private final List<EntityExistenceCache.Key> deletedInTransaction = new ArrayList<>();
+    /**
+     * The FeaturesOfInterest generated in the current transaction, by
+     * (Multi)Datastream. These are added to the cache when the transaction is
+     * committed.
+     */
+    private final Map<EntityExistenceCache.Key, Id> generatedFoisInTransaction = new HashMap<>();
+    /**
+     * Flag indicating entities that influence the generated
+     * FeaturesOfInterest were changed in the current transaction.
+     */
+    private boolean foiSourcesChanged = false;
+    /**
+     * Flag indicating this PM reads from the read-only database. Results from
+     * a replica may be outdated, and are not added to the caches.
+     */
+    private boolean usingReplica = false;
+    /**
+     * The maximum replication lag, in milliseconds, of the database this PM
+     * reads from.
+     */
+    private long maxStaleness = 0;
 
     @Override
     public void init(CoreSettings settings) {
         this.settings = settings;
         Settings customSettings = settings.getPersistenceSettings().getCustomSettings();
         connectionProvider = new ConnectionWrapper(customSettings, SOURCE_NAME_FROST);
+        EntityExistenceCache.init(settings.getPersistenceSettings());
+        GeneratedFoiCache.init(settings.getPersistenceSettings());
+    }
+
+    @Override
+    public void startBackgroundTasks() {
+        ExtentFlusher.startIfNeeded(SOURCE_NAME_FROST, settings.getPersistenceSettings());
+    }
+
+    @Override
+    public void stopBackgroundTasks() {
+        ExtentFlusher.stop();
     }
 
     @Override
@@ -104,6 +164,31 @@ public abstract class PostgresPersistenceManager<J extends Comparable> extends A
 
     public abstract String getLiquibaseChangelogFilename();
 
+    /**
+     * Use the read-only database, if one is configured and its replication
+     * lag is acceptable. Has no effect once a query has been executed.
+     */
+    @Override
+    public void setReadOnly() {
+        if (dslContext != null) {
+            LOGGER.debug("Connection already in use, not switching to read-only database.");
+            return;
+        }
+        Settings customSettings = settings.getPersistenceSettings().getCustomSettings();
+        Settings readOnlySettings = ConnectionUtils.getReadOnlySettings(customSettings);
+        if (readOnlySettings != null && ReplicaLagMonitor.isUsable(SOURCE_NAME_FROST_READ_ONLY, readOnlySettings)) {
+            connectionProvider = new ConnectionWrapper(readOnlySettings, SOURCE_NAME_FROST_READ_ONLY);
+            usingReplica = true;
+            int maxLag = readOnlySettings.getInt(ConnectionUtils.TAG_READ_ONLY_MAX_LAG, ConnectionUtils.class);
+            maxStaleness = maxLag > 0 ? TimeUnit.SECONDS.toMillis(maxLag) : Long.MAX_VALUE;
+        }
+    }
+
+    @Override
+    public long getMaxStaleness() {
+        return maxStaleness;
+    }
+
     public DSLContext getDslContext() {
         if (dslContext == null) {
             dslContext = DSL.using(connectionProvider.get(), SQLDialect.POSTGRES);
@@ -115,6 +200,97 @@ public abstract class PostgresPersistenceManager<J extends Comparable> extends A
         return connectionProvider;
     }
 
+    /**
+     * Check if the given entity is known to exist, either because it was
+     * found or created in the current transaction, or because it is in the
+     * existence cache.
+     *
+     * @param type The type of the entity.
+     * @param id The id of the entity.
+     * @return true if the entity is known to exist, false if it is not known.
+     */
+    public boolean isKnownToExist(EntityType type, Id id) {
+        EntityExistenceCache cache = EntityExistenceCache.getInstance();
+        if (cache == null || !EntityExistenceCache.isCached(type)) {
+            return false;
+        }
+        if (existenceDeleteCount < 0) {
+            existenceDeleteCount = cache.getDeleteCount();
+        }
+        EntityExistenceCache.Key key = new EntityExistenceCache.Key(type, id);
+        return existingInTransaction.contains(key) || cache.contains(key);
+    }
+
+    /**
+     * Register that the given entity exists. It is added to the existence
+     * cache when the current transaction is committed.
+     *
+     * @param type The type of the entity.
+     * @param id The id of the entity.
+     */
+    public void markExisting(EntityType type, Id id) {
+        EntityExistenceCache cache = EntityExistenceCache.getInstance();
+        if (id != null && cache != null && EntityExistenceCache.isCached(type)) {
+            if (existenceDeleteCount < 0) {
+                existenceDeleteCount = cache.getDeleteCount();
+            }
+            existingInTransaction.add(new EntityExistenceCache.Key(type, id));
+        }
+    }
+
+    /**
+     * Get the id of the FeatureOfInterest previously generated for the
+     * Observations of the given (Multi)Datastream.
+     *
+     * @param streamType DATASTREAM or MULTIDATASTREAM.
+     * @param streamId The id of the (Multi)Datastream.
+     * @return The id of the FeatureOfInterest, or null if it is not known.
+     */
+    public Id getGeneratedFoi(EntityType streamType, Id streamId) {
+        GeneratedFoiCache cache = GeneratedFoiCache.getInstance();
+        if (cache == null || foiSourcesChanged) {
+            return null;
+        }
+        EntityExistenceCache.Key key = new EntityExistenceCache.Key(streamType, streamId);
+        Id foiId = generatedFoisInTransaction.get(key);
+        if (foiId == null) {
+            foiId = cache.get(key);
+        }
+        return foiId;
+    }
+
+    /**
+     * Register the FeatureOfInterest generated for the Observations of the
+     * given (Multi)Datastream. It is added to the cache when the current
+     * transaction is committed.
+     *
+     * @param streamType DATASTREAM or MULTIDATASTREAM.
+     * @param streamId The id of the (Multi)Datastream.
+     * @param foiId The id of the FeatureOfInterest.
+     */
+    public void registerGeneratedFoi(EntityType streamType, Id streamId, Id foiId) {
+        if (GeneratedFoiCache.getInstance() != null && !foiSourcesChanged) {
+            generatedFoisInTransaction.put(new EntityExistenceCache.Key(streamType, streamId), foiId);
+        }
+    }
+
+    private void entityChanged(EntityChangedMessage.Type eventType, EntityType type) {
+        GeneratedFoiCache cache = GeneratedFoiCache.getInstance();
+        if (cache != null && GeneratedFoiCache.isAffectedBy(eventType, type)) {
+            foiSourcesChanged = true;
+            generatedFoisInTransaction.clear();
+            cache.clear();
+        }
+    }
+
+    private void clearTransactionCaches() {
+        existingInTransaction.clear();
+        existenceDeleteCount = -1;
+        deletedInTransaction.clear();
+        generatedFoisInTransaction.clear();
+        foiSourcesChanged = false;
+    }
+
     @Override
     public boolean validatePath(ResourcePath path) {
         PathElement element = path.getIdentifiedElement();
@@ -221,9 +397,42 @@ public abstract class PostgresPersistenceManager<J extends Comparable> extends A
         EntityFactories<J> ef = getEntityFactories();
         EntityFactory<Entity, J> factory = ef.getFactoryFor(entity.getEntityType());
         factory.insert(this, entity);
+        entityInserted(entity);
         return true;
     }
 
+    /**
+     * Update the transaction caches for a newly inserted entity.
+     *
+     * @param entity The inserted entity.
+     */
+    private void entityInserted(Entity entity) {
+        markExisting(entity.getEntityType(), entity.getId());
+        entityChanged(EntityChangedMessage.Type.CREATE, entity.getEntityType());
+    }
+
+    @Override
+    public List<Exception> insertAll(List<? extends Entity> entities) {
+        if (entities.isEmpty() || !settings.getPersistenceSettings().isBulkInsert()) {
+            return super.insertAll(entities);
+        }
+        EntityType type = entities.get(0).getEntityType();
+        for (Entity entity : entities) {
+            if (entity.getEntityType() != type) {
+                return super.insertAll(entities);
+            }
+        }
+        EntityFactory<Entity, J> factory = getEntityFactories().getFactoryFor(type);
+        List<Exception> result = factory.insertAll(this, (List<Entity>) entities);
+        for (int i = 0; i < result.size(); i++) {
+            if (result.get(i) == null) {
+                entityInserted(entities.get(i));
+                entityCreated(entities.get(i));
+            }
+        }
+        return result;
+    }
+
     @Override
     public EntityChangedMessage doUpdate(PathElementEntity pathElement, Entity entity) throws NoSuchEntityException, IncompleteEntityException {
         EntityFactories<J> ef = getEntityFactories();
@@ -235,6 +444,7 @@ public abstract class PostgresPersistenceManager<J extends Comparable> extends A
         }
 
         EntityFactory<Entity, J> factory = ef.getFactoryFor(entity.getEntityType());
+        entityChanged(EntityChangedMessage.Type.UPDATE, entity.getEntityType());
         return factory.update(this, entity, id);
     }
 
@@ -277,6 +487,7 @@ public abstract class PostgresPersistenceManager<J extends Comparable> extends A
         EntityFactories<J> ef = getEntityFactories();
         EntityFactory<Entity, J> factory = ef.getFactoryFor(entityType);
         factory.update(this, newEntity, (J) id.getValue());
+        entityChanged(EntityChangedMessage.Type.UPDATE, entityType);
 
         message.setEntity(newEntity);
         message.setEventType(EntityChangedMessage.Type.UPDATE);
@@ -289,6 +500,13 @@ public abstract class PostgresPersistenceManager<J extends Comparable> extends A
         EntityType type = pathElement.getEntityType();
         EntityFactory<Entity, J> factory = ef.getFactoryFor(type);
         factory.delete(this, (J) pathElement.getId().getValue());
+        entityChanged(EntityChangedMessage.Type.DELETE, type);
+        EntityExistenceCache cache = EntityExistenceCache.getInstance();
+        if (cache != null) {
+            existingInTransaction.clear();
+            cache.deleted(type, pathElement.getId());
+            deletedInTransaction.add(new EntityExistenceCache.Key(type, pathElement.getId()));
+        }
         return true;
     }
 
@@ -304,20 +522,51 @@ public abstract class PostgresPersistenceManager<J extends Comparable> extends A
 
         long rowCount = sqlDelete.execute();
         LOGGER.debug("Deleted {} rows using query {}", rowCount, sqlDelete);
+        if (rowCount > 0) {
+            entityChanged(EntityChangedMessage.Type.DELETE, path.getMainElementType());
+        }
+        EntityExistenceCache cache = EntityExistenceCache.getInstance();
+        if (cache != null && rowCount > 0) {
+            existingInTransaction.clear();
+            cache.clear();
+            deletedInTransaction.add(new EntityExistenceCache.Key(path.getMainElementType(), null));
+        }
     }
 
     @Override
     protected boolean doCommit() {
-        return connectionProvider.commit();
+        boolean committed = connectionProvider.commit();
+        EntityExistenceCache cache = EntityExistenceCache.getInstance();
+        if (cache != null) {
+            for (EntityExistenceCache.Key key : deletedInTransaction) {
+                cache.deleted(key.getType(), key.getId());
+            }
+            if (committed && !usingReplica && !existingInTransaction.isEmpty()) {
+                cache.addAll(existingInTransaction, existenceDeleteCount);
+            }
+        }
+        GeneratedFoiCache foiCache = GeneratedFoiCache.getInstance();
+        if (foiCache != null) {
+            if (foiSourcesChanged) {
+                // Another transaction may have cached an old value while this one was running.
+                foiCache.clear();
+            } else if (committed && !usingReplica && !generatedFoisInTransaction.isEmpty()) {
+                foiCache.addAll(generatedFoisInTransaction);
+            }
+        }
+        clearTransactionCaches();
+        return committed;
     }
 
     @Override
     protected boolean doRollback() {
+        clearTransactionCaches();
         return connectionProvider.rollback();
     }
 
     @Override
     protected boolean doClose() {
+        clearTransactionCaches();
         try {
             connectionProvider.close();
             return true;
@@ -333,7 +582,7 @@ public abstract class PostgresPersistenceManager<J extends Comparable> extends A
             Settings customSettings = settings.getPersistenceSettings().getCustomSettings();
             Connection connection = ConnectionUtils.getConnection(SOURCE_NAME_FROST, customSettings);
             String liquibaseChangelogFilename = getLiquibaseChangelogFilename();
-            return LiquibaseHelper.checkForUpgrades(connection, liquibaseChangelogFilename);
+            return LiquibaseHelper.checkForUpgrades(connection, liquibaseChangelogFilename, getLiquibaseParams());
         } catch (SQLException ex) {
             LOGGER.error("Could not initialise database.", ex);
             return "Failed to initialise database:\n"
@@ -356,7 +605,13 @@ public abstract class PostgresPersistenceManager<J extends Comparable> extends A
             return false;
         }
         String liquibaseChangelogFilename = getLiquibaseChangelogFilename();
-        return LiquibaseHelper.doUpgrades(connection, liquibaseChangelogFilename, out);
+        return LiquibaseHelper.doUpgrades(connection, liquibaseChangelogFilename, getLiquibaseParams(), out);
+    }
+
+    private Map<String, Object> getLiquibaseParams() {
+        Map<String, Object> params = new HashMap<>();
+        params.put("extent_mode", ExtentFlusher.getExtentMode(settings.getPersistenceSettings()));
+        return params;
     }
 
 }
@@ -28,10 +28,13 @@ import de.fraunhofer.iosb.ilt.frostserver.path.PathElementEntitySet;
 import de.fraunhofer.iosb.ilt.frostserver.path.PathElementProperty;
 import de.fraunhofer.iosb.ilt.frostserver.path.ResourcePath;
 import de.fraunhofer.iosb.ilt.frostserver.path.ResourcePathVisitor;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.tables.AbstractTableObservations;
 import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.tables.StaMainTable;
 import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.tables.TableCollection;
 import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.utils.QueryState;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.utils.SkipTokenHelper;
 import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.utils.TableRef;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.utils.Utils;
 import de.fraunhofer.iosb.ilt.frostserver.property.EntityPropertyMain;
 import de.fraunhofer.iosb.ilt.frostserver.property.NavigationProperty;
 import de.fraunhofer.iosb.ilt.frostserver.property.Property;
@@ -39,12 +42,18 @@ import de.fraunhofer.iosb.ilt.frostserver.query.Expand;
 import de.fraunhofer.iosb.ilt.frostserver.query.OrderBy;
 import de.fraunhofer.iosb.ilt.frostserver.query.Query;
 import de.fraunhofer.iosb.ilt.frostserver.query.expression.Expression;
+import de.fraunhofer.iosb.ilt.frostserver.query.expression.Path;
 import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
 import de.fraunhofer.iosb.ilt.frostserver.settings.PersistenceSettings;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import org.jooq.AggregateFunction;
+import org.jooq.Condition;
 import org.jooq.DSLContext;
 import org.jooq.Delete;
 import org.jooq.DeleteConditionStep;
@@ -52,13 +61,19 @@ import org.jooq.Field;
 import org.jooq.OrderField;
 import org.jooq.Record;
 import org.jooq.Record1;
+import org.jooq.Record2;
 import org.jooq.ResultQuery;
+import org.jooq.Row1;
 import org.jooq.SelectConditionStep;
+import org.jooq.SelectField;
+import org.jooq.SelectHavingStep;
 import org.jooq.SelectIntoStep;
 import org.jooq.SelectSeekStepN;
 import org.jooq.SelectWithTiesAfterOffsetStep;
+import org.jooq.Table;
 import org.jooq.conf.ParamType;
 import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -84,6 +99,33 @@ public class QueryBuilder<J extends Comparable> implements ResourcePathVisitor {
     public static final String ALIAS_PREFIX = "e";
     public static final String DEFAULT_PREFIX = QueryBuilder.ALIAS_PREFIX + "0";
 
+    /**
+     * The names used for the table and the extra columns of batch queries.
+     */
+    private static final String BATCH_TABLE = "batch";
+    private static final String BATCH_PARENTS = "batch_parents";
+    private static final String BATCH_FIELD_PREFIX = "f";
+    private static final String BATCH_PARENT_ID = "parent_id";
+    private static final String BATCH_ROW_NUMBER = "row_nr";
+    /**
+     * The prefix for the names of the sort value columns used for keyset
+     * paging.
+     */
+    private static final String KEYSET_FIELD_PREFIX = "k";
+
+    /**
+     * The names of the columns returned by the aggregate query.
+     */
+    public static final String AGGREGATE_BUCKET = "bucket";
+    public static final String AGGREGATE_COUNT = "count";
+    public static final String AGGREGATE_MIN = "min";
+    public static final String AGGREGATE_MAX = "max";
+    public static final String AGGREGATE_AVG = "avg";
+    public static final String AGGREGATE_FIRST = "first";
+    public static final String AGGREGATE_LAST = "last";
+    private static final String AGGREGATE_TABLE = "agg";
+    private static final Path AGGREGATE_ORDER = new Path(EntityPropertyMain.PHENOMENONTIME);
+
     private final PostgresPersistenceManager<J> pm;
     private final CoreSettings coreSettings;
     private final PersistenceSettings settings;
@@ -104,6 +146,15 @@ public class QueryBuilder<J extends Comparable> implements ResourcePathVisitor {
     private boolean single = false;
     private boolean parsed = false;
 
+    private Collection<J> batchIds;
+    private TableRef<J> batchRef;
+    private Field[] batchSelectFields;
+    private Field<J> batchParentIdField;
+
+    private List<Field> keysetFields;
+    private List<OrderBy.OrderType> keysetTypes;
+    private List<Field> keysetSelectFields;
+
     private QueryState<J, ?, ?> queryState;
 
     public QueryBuilder(PostgresPersistenceManager<J> pm, CoreSettings coreSettings, TableCollection<J> tableCollection) {
@@ -120,24 +171,39 @@ public class QueryBuilder<J extends Comparable> implements ResourcePathVisitor {
     public ResultQuery<Record> buildSelect() {
         gatherData();
 
+        List<Field> selectFields = new ArrayList<>(queryState.getSqlSelectFields());
+        Condition where = queryState.getSqlWhere();
+        if (prepareKeysetPaging()) {
+            for (Field keysetField : keysetSelectFields) {
+                selectFields.add(keysetField);
+            }
+            String skipToken = staQuery.getSkipToken();
+            if (skipToken != null) {
+                List<Object> values = SkipTokenHelper.parseSkipToken(skipToken, keysetFields);
+                where = where.and(SkipTokenHelper.createSeekCondition(keysetFields, keysetTypes, values));
+            }
+        } else if (staQuery != null && staQuery.getSkipToken() != null) {
+            throw new IllegalArgumentException("$skiptoken is not supported for this request.");
+        }
+
         DSLContext dslContext = pm.getDslContext();
         SelectIntoStep<Record> selectStep;
         if (staQuery != null && staQuery.isSelectDistinct()) {
-            selectStep = dslContext.selectDistinct(queryState.getSqlSelectFields());
+            selectStep = dslContext.selectDistinct(selectFields);
         } else if (queryState.isDistinctRequired()) {
             if (queryState.isSqlSortFieldsSet()) {
                 queryState.getSqlSortFields().add(queryState.getSqlMainIdField(), OrderBy.OrderType.ASCENDING);
-                selectStep = dslContext.select(queryState.getSqlSelectFields())
+                selectStep = dslContext.select(selectFields)
                         .distinctOn(queryState.getSqlSortFields().getSqlSortSelectFields());
             } else {
-                selectStep = dslContext.select(queryState.getSqlSelectFields())
+                selectStep = dslContext.select(selectFields)
                         .distinctOn(queryState.getSqlMainIdField());
             }
         } else {
-            selectStep = dslContext.select(queryState.getSqlSelectFields());
+            selectStep = dslContext.select(selectFields);
         }
         SelectConditionStep<Record> whereStep = selectStep.from(queryState.getSqlFrom())
-                .where(queryState.getSqlWhere());
+                .where(where);
 
         final List<OrderField> sortFields = queryState.getSqlSortFields().getSqlSortFields();
         SelectSeekStepN<Record> orderByStep = whereStep.orderBy(sortFields.toArray(new OrderField[sortFields.size()]));
@@ -164,6 +230,199 @@ public class QueryBuilder<J extends Comparable> implements ResourcePathVisitor {
         return limit;
     }
 
+    /**
+     * Checks if keyset paging can be used for this query, and if so, makes
+     * sure the sort order is unique by adding the id, and prepares the fields
+     * used to create and read skipTokens.
+     *
+     * @return true if keyset paging is used.
+     */
+    private boolean prepareKeysetPaging() {
+        if (!settings.isKeysetPaging() || single || forUpdate || staQuery == null || staQuery.isSelectDistinct()) {
+            return false;
+        }
+        Utils.SortSelectFields sortFields = queryState.getSqlSortFields();
+        if (!sortFields.getSqlSortSelectFields().contains(queryState.getSqlMainIdField())) {
+            sortFields.add(queryState.getSqlMainIdField(), OrderBy.OrderType.ASCENDING);
+        }
+        if (!SkipTokenHelper.isSupported(sortFields.getSqlSortSelectFields())) {
+            return false;
+        }
+        keysetFields = new ArrayList<>(sortFields.getSqlSortSelectFields());
+        keysetTypes = new ArrayList<>(sortFields.getSqlSortTypes());
+        keysetSelectFields = new ArrayList<>(keysetFields.size());
+        for (int i = 0; i < keysetFields.size(); i++) {
+            keysetSelectFields.add(keysetFields.get(i).as(KEYSET_FIELD_PREFIX + i));
+        }
+        return true;
+    }
+
+    /**
+     * Create a skipToken that identifies the position directly after the
+     * given record, that was returned by the query generated by
+     * {@link #buildSelect()}.
+     *
+     * @param lastRecord The record of the last entity of the current page.
+     * @return The skipToken, or null if keyset paging is not used for this
+     * query.
+     */
+    public String createSkipToken(Record lastRecord) {
+        if (keysetSelectFields == null || lastRecord == null) {
+            return null;
+        }
+        List<Object> values = new ArrayList<>(keysetSelectFields.size());
+        for (Field keysetField : keysetSelectFields) {
+            values.add(lastRecord.get(keysetField));
+        }
+        return SkipTokenHelper.createSkipToken(values);
+    }
+
+    /**
+     * Build a select query that loads the requested entities for all ids given
+     * in {@link #forBatch(java.util.Collection)} at once. Each row also
+     * contains the batch id it belongs to.
+     *
+     * If the path leads to an entity set, $top, $skip and $orderby are applied
+     * for each of the batch ids separately, by joining the batch ids
+     * laterally with the normal (limited) query.
+     *
+     * Batching is not possible if the query requires a DISTINCT. In that case
+     * null is returned and the entities have to be loaded one parent at a
+     * time.
+     *
+     * @return the batch query, or null if the query can not be batched.
+     */
+    public ResultQuery<Record> buildBatchSelect() {
+        if (batchIds == null) {
+            throw new IllegalStateException("Not a batch query, call forBatch() first.");
+        }
+        gatherData();
+        if (queryState.isDistinctRequired() || (staQuery != null && staQuery.isSelectDistinct())) {
+            return null;
+        }
+        int skip = 0;
+        int count = 1;
+        if (staQuery != null) {
+            skip = staQuery.getSkip(0);
+            count = staQuery.getTopOrDefault() + 1;
+        }
+
+        DSLContext dslContext = pm.getDslContext();
+        Field<J> parentId = batchRef.getTable().getId();
+        List<Field> selectFields = new ArrayList<>(queryState.getSqlSelectFields());
+        List<OrderField> sortFields = new ArrayList<>(queryState.getSqlSortFields().getSqlSortFields());
+        sortFields.add(queryState.getSqlMainIdField().asc());
+        final OrderField[] sortArray = sortFields.toArray(new OrderField[sortFields.size()]);
+
+        ResultQuery<Record> query;
+        if (batchRef == mainTable) {
+            if (skip > 0) {
+                return null;
+            }
+            // The batch ids are the ids of the requested entities themselves.
+            List<SelectField<?>> fields = new ArrayList<>();
+            for (Field field : selectFields) {
+                fields.add(field);
+            }
+            batchParentIdField = parentId.as(BATCH_PARENT_ID);
+            fields.add(batchParentIdField);
+            query = dslContext.select(fields)
+                    .from(queryState.getSqlFrom())
+                    .where(queryState.getSqlWhere().and(parentId.in(batchIds)));
+        } else {
+            List<Row1<J>> rows = new ArrayList<>(batchIds.size());
+            for (J id : batchIds) {
+                rows.add(DSL.row(DSL.val(id, parentId)));
+            }
+            Table<Record1<J>> parents = DSL.values(rows.toArray(new Row1[rows.size()])).as(BATCH_PARENTS, BATCH_PARENT_ID);
+            Field<J> parentsIdField = (Field<J>) parents.field(BATCH_PARENT_ID);
+
+            List<SelectField<?>> innerFields = new ArrayList<>(selectFields.size() + 1);
+            for (int i = 0; i < selectFields.size(); i++) {
+                innerFields.add(selectFields.get(i).as(BATCH_FIELD_PREFIX + i));
+            }
+            innerFields.add(DSL.rowNumber().over(DSL.orderBy(sortArray)).as(BATCH_ROW_NUMBER));
+            Table<Record> batchTable = dslContext.select(innerFields)
+                    .from(queryState.getSqlFrom())
+                    .where(queryState.getSqlWhere().and(parentId.eq(parentsIdField)))
+                    .orderBy(sortArray)
+                    .limit(skip, count)
+                    .asTable(BATCH_TABLE);
+            batchSelectFields = selectFields.toArray(new Field[selectFields.size()]);
+            batchParentIdField = parentsIdField;
+
+            List<SelectField<?>> fields = new ArrayList<>(Arrays.asList(batchTable.fields()));
+            fields.add(parentsIdField);
+            query = dslContext.select(fields)
+                    .from(parents)
+                    .crossJoin(DSL.lateral(batchTable))
+                    .orderBy(batchTable.field(BATCH_ROW_NUMBER));
+        }
+
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace(GENERATED_SQL, query.getSQL(ParamType.INDEXED));
+        }
+        return query;
+    }
+
+    /**
+     * Build a query that counts the requested entities for each of the ids
+     * given in {@link #forBatch(java.util.Collection)}. Batch ids without any
+     * entities are not returned.
+     *
+     * @return the batch count query.
+     */
+    public ResultQuery<Record2<J, Integer>> buildBatchCount() {
+        if (batchIds == null) {
+            throw new IllegalStateException("Not a batch query, call forBatch() first.");
+        }
+        gatherData();
+
+        DSLContext dslContext = pm.getDslContext();
+        Field<J> parentId = batchRef.getTable().getId();
+        ResultQuery<Record2<J, Integer>> query = dslContext.select(parentId, DSL.count(queryState.getSqlMainIdField()))
+                .from(queryState.getSqlFrom())
+                .where(queryState.getSqlWhere().and(parentId.in(batchIds)))
+                .groupBy(parentId);
+
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace(GENERATED_SQL, query.getSQL(ParamType.INDEXED));
+        }
+        return query;
+    }
+
+    /**
+     * Get the batch id from a record returned by the query generated by
+     * {@link #buildBatchSelect()}.
+     *
+     * @param batchRecord The record to get the batch id from.
+     * @return The batch id the record belongs to.
+     */
+    public J getBatchId(Record batchRecord) {
+        return batchRecord.get(batchParentIdField);
+    }
+
+    /**
+     * Turns a record returned by the query generated by
+     * {@link #buildBatchSelect()} into a record that can be passed to the
+     * QueryState to create an entity.
+     *
+     * @param batchRecord The record to unwrap.
+     * @return a record with the fields of a normal select query.
+     */
+    public Record unwrapBatchRecord(Record batchRecord) {
+        if (batchSelectFields == null) {
+            return batchRecord;
+        }
+        Object[] values = new Object[batchSelectFields.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = batchRecord.get(i);
+        }
+        Record result = pm.getDslContext().newRecord(batchSelectFields);
+        result.fromArray(values);
+        return result;
+    }
+
     /**
      * Build a count query.
      *
@@ -189,6 +448,136 @@ public class QueryBuilder<J extends Comparable> implements ResourcePathVisitor {
         return query;
     }
 
+    /**
+     * Build a query that aggregates the numeric results of the requested
+     * Observations into the time intervals given by the $aggregate option of
+     * the query. Each row is one interval that contains at least one numeric
+     * result, identified by its number, counted from the epoch.
+     *
+     * @return the aggregate query.
+     */
+    public ResultQuery<Record> buildAggregateSelect() {
+        gatherData();
+        final AggregateSource<J> source = createAggregateSource();
+        final AbstractTableObservations<J> table = source.table;
+        final Field<Long> bucket = createAggregateBucket(table);
+        final Field<Double> result = table.colResultNumber;
+        final Field<OffsetDateTime> time = table.colPhenomenonTimeStart;
+        final Field<J> id = table.getId();
+
+        final List<SelectField<?>> fields = Arrays.asList(
+                bucket.as(AGGREGATE_BUCKET),
+                DSL.count(result).as(AGGREGATE_COUNT),
+                DSL.min(result).as(AGGREGATE_MIN),
+                DSL.max(result).as(AGGREGATE_MAX),
+                DSL.avg(result).cast(SQLDataType.DOUBLE).as(AGGREGATE_AVG),
+                DSL.field("(array_agg({0} ORDER BY {1}, {2}))[1]", Double.class, result, time, id).as(AGGREGATE_FIRST),
+                DSL.field("(array_agg({0} ORDER BY {1} DESC, {2} DESC))[1]", Double.class, result, time, id).as(AGGREGATE_LAST));
+
+        DSLContext dslContext = pm.getDslContext();
+        SelectHavingStep<Record> groupStep = dslContext.select(fields)
+                .from(source.from)
+                .where(source.where)
+                .groupBy(bucket);
+
+        final OrderField<Long> order = isAggregateDescending() ? bucket.desc() : bucket.asc();
+        final int skip = staQuery.getSkip(0);
+        final int count = staQuery.getTopOrDefault() + 1;
+        SelectWithTiesAfterOffsetStep<Record> limit = groupStep.orderBy(order).limit(skip, count);
+
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace(GENERATED_SQL, limit.getSQL(ParamType.INDEXED));
+        }
+        return limit;
+    }
+
+    /**
+     * Build a query that counts the intervals returned by the query generated
+     * by {@link #buildAggregateSelect()}, without $top and $skip.
+     *
+     * @return the aggregate count query.
+     */
+    public ResultQuery<Record1<Integer>> buildAggregateCount() {
+        gatherData();
+        final AggregateSource<J> source = createAggregateSource();
+        final Field<Long> bucket = createAggregateBucket(source.table);
+
+        DSLContext dslContext = pm.getDslContext();
+        SelectConditionStep<Record1<Integer>> query = dslContext.select(DSL.countDistinct(bucket))
+                .from(source.from)
+                .where(source.where);
+
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace(GENERATED_SQL, query.getSQL(ParamType.INDEXED));
+        }
+        return query;
+    }
+
+    /**
+     * @return The length of the intervals of the $aggregate option, in
+     * milliseconds.
+     */
+    public long getAggregateMillis() {
+        return staQuery.getAggregate().toStandardDuration().getMillis();
+    }
+
+    private AggregateSource<J> createAggregateSource() {
+        if (staQuery == null || staQuery.getAggregate() == null) {
+            throw new IllegalStateException("Not an aggregate query.");
+        }
+        if (staQuery.getSkipToken() != null) {
+            throw new IllegalArgumentException("$skiptoken is not supported together with $aggregate.");
+        }
+        final AbstractTableObservations<J> mainObs = (AbstractTableObservations<J>) queryState.getMainTable();
+        final Condition hasNumber = mainObs.colResultNumber.isNotNull();
+        if (!queryState.isDistinctRequired()) {
+            return new AggregateSource<>(mainObs, queryState.getSqlFrom(), queryState.getSqlWhere().and(hasNumber));
+        }
+        // The joins of the filter can return an Observation more than once.
+        // Aggregate over a clean Observations table, limited to the filtered ids.
+        final AbstractTableObservations<J> table = mainObs.as(AGGREGATE_TABLE);
+        SelectConditionStep<Record1<J>> idSelect = DSL.select(queryState.getSqlMainIdField())
+                .from(queryState.getSqlFrom())
+                .where(queryState.getSqlWhere());
+        return new AggregateSource<>(table, table, table.getId().in(idSelect).and(table.colResultNumber.isNotNull()));
+    }
+
+    private Field<Long> createAggregateBucket(AbstractTableObservations<J> table) {
+        final double seconds = getAggregateMillis() / 1000.0;
+        final Field<Double> epoch = DSL.field("extract(epoch from {0})", Double.class, table.colPhenomenonTimeStart);
+        return DSL.floor(epoch.div(DSL.inline(seconds))).cast(SQLDataType.BIGINT);
+    }
+
+    /**
+     * Aggregated results can only be ordered by their phenomenonTime.
+     *
+     * @return true if the results are to be ordered from new to old.
+     */
+    private boolean isAggregateDescending() {
+        final List<OrderBy> orderBys = staQuery.getOrderBy();
+        if (orderBys.isEmpty()) {
+            return false;
+        }
+        final OrderBy orderBy = orderBys.get(0);
+        if (orderBys.size() > 1 || !AGGREGATE_ORDER.equals(orderBy.getExpression())) {
+            throw new IllegalArgumentException("With $aggregate, $orderby only supports phenomenonTime.");
+        }
+        return orderBy.getType() == OrderBy.OrderType.DESCENDING;
+    }
+
+    private static class AggregateSource<J extends Comparable> {
+
+        private final AbstractTableObservations<J> table;
+        private final Table<?> from;
+        private final Condition where;
+
+        public AggregateSource(AbstractTableObservations<J> table, Table<?> from, Condition where) {
+            this.table = table;
+            this.from = from;
+            this.where = where;
+        }
+    }
+
     public Delete buildDelete(PathElementEntitySet set) {
         gatherData();
 
@@ -233,6 +622,24 @@ public class QueryBuilder<J extends Comparable> implements ResourcePathVisitor {
         return this;
     }
 
+    /**
+     * Restrict the query to the entities identified by the first element of
+     * the path that have one of the given ids. The path should not have an id
+     * on its first element. Use {@link #buildBatchSelect()} to build the
+     * query.
+     *
+     * @param ids The ids of the entities identified by the first element of
+     * the path.
+     * @return this.
+     */
+    public QueryBuilder<J> forBatch(Collection<J> ids) {
+        if (!forPath) {
+            throw new IllegalStateException("Batch queries must be for a path.");
+        }
+        batchIds = ids;
+        return this;
+    }
+
     public QueryBuilder<J> forUpdate(boolean forUpdate) {
         this.forUpdate = forUpdate;
         return this;
@@ -252,6 +659,9 @@ public class QueryBuilder<J extends Comparable> implements ResourcePathVisitor {
             if (forPath) {
                 parsePath();
             }
+            if (batchIds != null) {
+                parseBatch();
+            }
             if (forTypeAndId) {
                 parseTypeAndId();
             }
@@ -273,6 +683,13 @@ public class QueryBuilder<J extends Comparable> implements ResourcePathVisitor {
         }
     }
 
+    private void parseBatch() {
+        batchRef = lastPath;
+        // The joins along the path never return an entity twice for the same
+        // batch id, and the batch query is split by that id.
+        queryState.setDistinctRequired(false);
+    }
+
     private void parseTypeAndId() {
         lastPath = queryEntityType(requestedEntityType, requestedId, lastPath);
         single = true;
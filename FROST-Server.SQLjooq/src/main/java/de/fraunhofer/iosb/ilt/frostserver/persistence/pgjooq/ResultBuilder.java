@@ -19,9 +19,13 @@ package de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq;
 
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import de.fraunhofer.iosb.ilt.frostserver.model.EntityType;
+import de.fraunhofer.iosb.ilt.frostserver.model.Observation;
 import de.fraunhofer.iosb.ilt.frostserver.model.core.Entity;
 import de.fraunhofer.iosb.ilt.frostserver.model.core.EntitySet;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.EntitySetImpl;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.Id;
 import de.fraunhofer.iosb.ilt.frostserver.model.core.NavigableElement;
+import de.fraunhofer.iosb.ilt.frostserver.model.ext.TimeInterval;
 import de.fraunhofer.iosb.ilt.frostserver.path.PathElement;
 import de.fraunhofer.iosb.ilt.frostserver.path.PathElementArrayIndex;
 import de.fraunhofer.iosb.ilt.frostserver.path.PathElementCustomProperty;
@@ -35,16 +39,22 @@ import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.utils.DataSize;
 import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.utils.QueryState;
 import de.fraunhofer.iosb.ilt.frostserver.property.NavigationProperty;
 import de.fraunhofer.iosb.ilt.frostserver.property.NavigationPropertyCustom;
+import de.fraunhofer.iosb.ilt.frostserver.property.NavigationPropertyMain;
 import de.fraunhofer.iosb.ilt.frostserver.query.Expand;
 import de.fraunhofer.iosb.ilt.frostserver.query.Query;
 import de.fraunhofer.iosb.ilt.frostserver.settings.PersistenceSettings;
 import de.fraunhofer.iosb.ilt.frostserver.util.CustomLinksHelper;
+import de.fraunhofer.iosb.ilt.frostserver.util.RawJsonValue;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import org.joda.time.DateTimeZone;
 import org.jooq.Cursor;
 import org.jooq.Record;
 import org.jooq.Record1;
+import org.jooq.Record2;
 import org.jooq.Result;
 import org.jooq.ResultQuery;
 import org.jooq.conf.ParamType;
@@ -64,6 +74,10 @@ public class ResultBuilder<J extends Comparable> implements ResourcePathVisitor
      * The logger for this class.
      */
     private static final Logger LOGGER = LoggerFactory.getLogger(ResultBuilder.class);
+    /**
+     * The maximum number of parent ids used in one batch expand query.
+     */
+    private static final int MAX_BATCH_SIZE = 1000;
     private final PostgresPersistenceManager<J> pm;
     private final PersistenceSettings persistenceSettings;
     private final ResourcePath path;
@@ -91,10 +105,21 @@ public class ResultBuilder<J extends Comparable> implements ResourcePathVisitor
         this.path = path;
         this.staQuery = query;
         this.sqlQueryBuilder = sqlQueryBuilder;
-        this.sqlQuery = sqlQueryBuilder.buildSelect();
+        if (isAggregate(query)) {
+            if (!(path.getLastElement() instanceof PathElementEntitySet)) {
+                throw new IllegalArgumentException("$aggregate is only supported on collections of Observations.");
+            }
+            this.sqlQuery = null;
+        } else {
+            this.sqlQuery = sqlQueryBuilder.buildSelect();
+        }
         this.persistenceSettings = pm.getCoreSettings().getPersistenceSettings();
     }
 
+    private static boolean isAggregate(Query query) {
+        return query != null && query.getAggregate() != null;
+    }
+
     public Object getEntity() {
         return resultObject;
     }
@@ -179,8 +204,14 @@ public class ResultBuilder<J extends Comparable> implements ResourcePathVisitor
     }
 
     private void createExpandedElement(Entity entity, NavigationProperty firstNp, Query subQuery) {
-        PathElement parentCollection = new PathElementEntitySet(entity.getEntityType(), null);
-        PathElement parent = new PathElementEntity(entity.getId(), entity.getEntityType(), parentCollection);
+        ResourcePath ePath = createExpandPath(entity.getEntityType(), entity.getId(), firstNp);
+        Object child = pm.get(ePath, subQuery);
+        entity.setProperty(firstNp, child);
+    }
+
+    private ResourcePath createExpandPath(EntityType parentType, Id parentId, NavigationProperty firstNp) {
+        PathElement parentCollection = new PathElementEntitySet(parentType, null);
+        PathElement parent = new PathElementEntity(parentId, parentType, parentCollection);
         ResourcePath ePath = new ResourcePath(path.getServiceRootUrl(), path.getVersion(), null);
         ePath.addPathElement(parentCollection, false, false);
         ePath.addPathElement(parent, false, true);
@@ -191,16 +222,194 @@ public class ResultBuilder<J extends Comparable> implements ResourcePathVisitor
             PathElementEntity childPe = new PathElementEntity(null, firstNp.getType(), parent);
             ePath.addPathElement(childPe, true, false);
         }
-        Object child = pm.get(ePath, subQuery);
-        entity.setProperty(firstNp, child);
+        return ePath;
+    }
+
+    private void expandEntitySet(EntitySet<? extends Entity> entitySet, Query subQuery) {
+        if (subQuery == null) {
+            return;
+        }
+        if (!persistenceSettings.isBatchExpand() || entitySet.size() < 2) {
+            for (Object subEntity : entitySet) {
+                if (subEntity instanceof Entity) {
+                    expandEntity((Entity) subEntity, subQuery);
+                }
+            }
+            return;
+        }
+        for (Entity subEntity : entitySet) {
+            CustomLinksHelper.expandCustomLinks(pm.getCoreSettings(), subEntity, path);
+        }
+        for (Expand expand : subQuery.getExpand()) {
+            List<Entity> notBatched = addExpandToEntitySet(entitySet, expand);
+            for (Entity subEntity : notBatched) {
+                addExpandToEntity(subEntity, expand);
+            }
+        }
+    }
+
+    /**
+     * Loads the given expand for all entities in the given set, using one
+     * query for each batch of entities, instead of one query per entity.
+     *
+     * @param entitySet The entities to load the expand for.
+     * @param expand The expand to load.
+     * @return The entities for which the expand could not be loaded in a
+     * batch. The caller must handle these one by one.
+     */
+    private List<Entity> addExpandToEntitySet(EntitySet<? extends Entity> entitySet, Expand expand) {
+        List<Entity> notBatched = new ArrayList<>();
+        NavigationProperty firstNp = expand.getPath();
+        if (!(firstNp instanceof NavigationPropertyMain) || isAggregate(expand.getSubQuery())) {
+            notBatched.addAll(entitySet);
+            return notBatched;
+        }
+        // For sets the parents are keyed by their own id, for single
+        // entities by the id of the (not yet loaded) target entity.
+        Map<J, List<Entity>> parentsById = new LinkedHashMap<>();
+        EntityType parentType = null;
+        for (Entity entity : entitySet) {
+            Object existing = entity.getProperty(firstNp);
+            if (existing instanceof NavigableElement && !((NavigableElement) existing).isEmpty()) {
+                notBatched.add(entity);
+            } else if (firstNp.isEntitySet()) {
+                parentType = entity.getEntityType();
+                parentsById.computeIfAbsent((J) entity.getId().asBasicPersistenceType(), k -> new ArrayList<>())
+                        .add(entity);
+            } else if (existing instanceof Entity) {
+                parentsById.computeIfAbsent((J) ((Entity) existing).getId().asBasicPersistenceType(), k -> new ArrayList<>())
+                        .add(entity);
+            } else {
+                // The foreign key is null, there is nothing to load.
+                entity.setProperty(firstNp, null);
+            }
+        }
+        if (parentsById.isEmpty()) {
+            return notBatched;
+        }
+
+        Query subQuery = expand.getSubQuery();
+        EntitySet children = new EntitySetImpl(firstNp.getType());
+        List<J> ids = new ArrayList<>(parentsById.keySet());
+        for (int start = 0; start < ids.size(); start += MAX_BATCH_SIZE) {
+            List<J> batchIds = ids.subList(start, Math.min(ids.size(), start + MAX_BATCH_SIZE));
+            boolean batched;
+            if (firstNp.isEntitySet()) {
+                batched = loadSetBatch(parentType, firstNp, subQuery, batchIds, parentsById, children);
+            } else {
+                batched = loadEntityBatch(firstNp, subQuery, batchIds, parentsById, children);
+            }
+            if (!batched) {
+                for (J id : ids.subList(start, ids.size())) {
+                    notBatched.addAll(parentsById.get(id));
+                }
+                break;
+            }
+        }
+        expandEntitySet(children, subQuery);
+        return notBatched;
+    }
+
+    private boolean loadEntityBatch(NavigationProperty firstNp, Query subQuery, List<J> batchIds, Map<J, List<Entity>> parentsById, EntitySet children) {
+        ResourcePath batchPath = new ResourcePath(path.getServiceRootUrl(), path.getVersion(), null);
+        batchPath.addPathElement(new PathElementEntitySet(firstNp.getType(), null), true, false);
+        QueryBuilder<J> batchBuilder = new QueryBuilder<>(pm, pm.getCoreSettings(), pm.getTableCollection())
+                .forPath(batchPath)
+                .usingQuery(subQuery)
+                .forBatch(batchIds);
+        ResultQuery<Record> batchQuery = batchBuilder.buildBatchSelect();
+        if (batchQuery == null) {
+            return false;
+        }
+        QueryState<J, ? extends Entity, ?> queryState = batchBuilder.getQueryState();
+        Map<J, Entity> loaded = new HashMap<>();
+        try (Cursor<Record> results = timeQuery(batchQuery)) {
+            for (Record batchRecord : results) {
+                Entity child = queryState.entityFromQuery(batchBuilder.unwrapBatchRecord(batchRecord), new DataSize());
+                child.setQuery(subQuery);
+                loaded.put(batchBuilder.getBatchId(batchRecord), child);
+                children.add(child);
+            }
+        }
+        for (J id : batchIds) {
+            Entity child = loaded.get(id);
+            for (Entity parent : parentsById.get(id)) {
+                parent.setProperty(firstNp, child);
+            }
+        }
+        return true;
     }
 
-    private void expandEntitySet(EntitySet entitySet, Query subQuery) {
-        for (Object subEntity : entitySet) {
-            if (subEntity instanceof Entity) {
-                expandEntity((Entity) subEntity, subQuery);
+    private boolean loadSetBatch(EntityType parentType, NavigationProperty firstNp, Query subQuery, List<J> batchIds, Map<J, List<Entity>> parentsById, EntitySet children) {
+        QueryBuilder<J> batchBuilder = new QueryBuilder<>(pm, pm.getCoreSettings(), pm.getTableCollection())
+                .forPath(createExpandPath(parentType, null, firstNp))
+                .usingQuery(subQuery)
+                .forBatch(batchIds);
+        ResultQuery<Record> batchQuery = batchBuilder.buildBatchSelect();
+        if (batchQuery == null) {
+            return false;
+        }
+        QueryState<J, ? extends Entity, ?> queryState = batchBuilder.getQueryState();
+        int top = subQuery.getTopOrDefault();
+        long maxDataSize = pm.getCoreSettings().getDataSizeMax();
+        Map<J, BatchedSet> loaded = new HashMap<>();
+        for (J id : batchIds) {
+            loaded.put(id, new BatchedSet(queryState.getMainTable().newSet()));
+        }
+        try (Cursor<Record> results = timeQuery(batchQuery)) {
+            for (Record batchRecord : results) {
+                BatchedSet batchedSet = loaded.get(batchBuilder.getBatchId(batchRecord));
+                if (batchedSet.entities.size() >= top || batchedSet.size.getDataSize() > maxDataSize) {
+                    batchedSet.hasMore = true;
+                    continue;
+                }
+                Entity child = queryState.entityFromQuery(batchBuilder.unwrapBatchRecord(batchRecord), batchedSet.size);
+                child.setQuery(subQuery);
+                batchedSet.entities.add(child);
+                children.add(child);
+            }
+        }
+        if (subQuery.isCountOrDefault()) {
+            for (BatchedSet batchedSet : loaded.values()) {
+                batchedSet.entities.setCount(0);
+            }
+            try (Cursor<Record2<J, Integer>> counts = timeQuery(batchBuilder.buildBatchCount())) {
+                for (Record2<J, Integer> count : counts) {
+                    loaded.get(count.value1()).entities.setCount(count.value2());
+                }
+            }
+        }
+        for (J id : batchIds) {
+            BatchedSet batchedSet = loaded.get(id);
+            EntitySet entities = batchedSet.entities;
+            for (Entity parent : parentsById.get(id)) {
+                if (batchedSet.hasMore && top > 0) {
+                    ResourcePath parentPath = createExpandPath(parentType, parent.getId(), firstNp);
+                    entities.setNextLink(generateNextLink(parentPath, subQuery, entities.size()));
+                }
+                parent.setProperty(firstNp, entities);
             }
         }
+        return true;
+    }
+
+    /**
+     * Generate the nextLink for an expanded set of one parent. The subQuery
+     * is shared by all parents and is not changed.
+     *
+     * @param parentPath The path of the expanded set of the parent.
+     * @param subQuery The query of the expand.
+     * @param entityCount The number of entities loaded for the parent.
+     * @return The nextLink.
+     */
+    static String generateNextLink(ResourcePath parentPath, Query subQuery, int entityCount) {
+        if (entityCount >= subQuery.getTopOrDefault()) {
+            return UrlHelper.generateNextLink(parentPath, subQuery);
+        }
+        // The loading was aborted, probably due to size constraints.
+        Query parentQuery = subQuery.copy();
+        parentQuery.setTop(entityCount);
+        return UrlHelper.generateNextLink(parentPath, parentQuery);
     }
 
     private <R extends Record> Cursor<R> timeQuery(ResultQuery<R> query) {
@@ -230,6 +439,10 @@ public class ResultBuilder<J extends Comparable> implements ResourcePathVisitor
 
     @Override
     public void visit(PathElementEntitySet element) {
+        if (isAggregate(staQuery)) {
+            visitAggregate();
+            return;
+        }
         int top = staQuery.getTopOrDefault();
         try (Cursor<Record> results = timeQuery(sqlQuery)) {
             EntitySet<? extends Entity> entitySet = sqlQueryBuilder
@@ -249,16 +462,74 @@ public class ResultBuilder<J extends Comparable> implements ResourcePathVisitor
                 staQuery.setTop(entityCount);
             }
             if (hasMore && top > 0) {
-                entitySet.setNextLink(UrlHelper.generateNextLink(path, staQuery));
+                entitySet.setNextLink(generateNextLink());
             }
             for (Entity e : entitySet) {
                 e.setQuery(staQuery);
-                expandEntity(e, staQuery);
             }
+            expandEntitySet(entitySet, staQuery);
             resultObject = entitySet;
         }
     }
 
+    /**
+     * Loads the aggregated results of the requested Observations. Each
+     * interval is returned as an Observation with the interval as
+     * phenomenonTime, the average as result, and the statistics of the
+     * interval in the parameters.
+     */
+    private void visitAggregate() {
+        final int top = staQuery.getTopOrDefault();
+        final long intervalMillis = sqlQueryBuilder.getAggregateMillis();
+        final EntitySet<Observation> entitySet = new EntitySetImpl<>(EntityType.OBSERVATION);
+        boolean hasMore = false;
+        try (Cursor<Record> results = timeQuery(sqlQueryBuilder.buildAggregateSelect())) {
+            for (Record aggRecord : results) {
+                if (entitySet.size() >= top) {
+                    hasMore = true;
+                    break;
+                }
+                entitySet.add(observationFromAggregate(aggRecord, intervalMillis));
+            }
+        }
+        if (staQuery.isCountOrDefault()) {
+            try (Cursor<Record1<Integer>> countCursor = timeQuery(sqlQueryBuilder.buildAggregateCount())) {
+                entitySet.setCount(countCursor.fetchNext().component1());
+            }
+        }
+        if (hasMore && top > 0) {
+            entitySet.setNextLink(UrlHelper.generateNextLink(path, staQuery));
+        }
+        resultObject = entitySet;
+    }
+
+    private Observation observationFromAggregate(Record aggRecord, long intervalMillis) {
+        final long start = aggRecord.get(QueryBuilder.AGGREGATE_BUCKET, Long.class) * intervalMillis;
+        final Double avg = aggRecord.get(QueryBuilder.AGGREGATE_AVG, Double.class);
+        final Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put(QueryBuilder.AGGREGATE_COUNT, aggRecord.get(QueryBuilder.AGGREGATE_COUNT, Integer.class));
+        stats.put(QueryBuilder.AGGREGATE_MIN, aggRecord.get(QueryBuilder.AGGREGATE_MIN, Double.class));
+        stats.put(QueryBuilder.AGGREGATE_MAX, aggRecord.get(QueryBuilder.AGGREGATE_MAX, Double.class));
+        stats.put(QueryBuilder.AGGREGATE_AVG, avg);
+        stats.put(QueryBuilder.AGGREGATE_FIRST, aggRecord.get(QueryBuilder.AGGREGATE_FIRST, Double.class));
+        stats.put(QueryBuilder.AGGREGATE_LAST, aggRecord.get(QueryBuilder.AGGREGATE_LAST, Double.class));
+
+        final Observation observation = new Observation();
+        observation.setPhenomenonTime(TimeInterval.create(start, start + intervalMillis, DateTimeZone.UTC));
+        observation.setResult(avg);
+        observation.setParameters(stats);
+        observation.setQuery(staQuery);
+        return observation;
+    }
+
+    private String generateNextLink() {
+        String skipToken = sqlQueryBuilder.createSkipToken(sqlQueryBuilder.getQueryState().getLastRecord());
+        if (skipToken == null) {
+            return UrlHelper.generateNextLink(path, staQuery);
+        }
+        return UrlHelper.generateNextLink(path, staQuery, skipToken);
+    }
+
     private void fetchAndAddCount(EntitySet<? extends Entity> entitySet) {
         if (staQuery.isCountOrDefault()) {
             ResultQuery<Record1<Integer>> countQuery = sqlQueryBuilder.buildCount();
@@ -314,6 +585,9 @@ public class ResultBuilder<J extends Comparable> implements ResourcePathVisitor
         if (resultObject instanceof Map) {
             Map map = (Map) resultObject;
             Object inner = map.get(entityName);
+            if (inner instanceof RawJsonValue) {
+                inner = ((RawJsonValue) inner).getTree();
+            }
             Object propertyValue = null;
             if (inner instanceof ArrayNode && ((ArrayNode) inner).size() > index) {
                 propertyValue = ((ArrayNode) inner).get(index);
@@ -334,4 +608,18 @@ public class ResultBuilder<J extends Comparable> implements ResourcePathVisitor
         entityName = null;
     }
 
+    /**
+     * Holds the state of one of the sets loaded by a batch expand query.
+     */
+    private static class BatchedSet {
+
+        private final EntitySet entities;
+        private final DataSize size = new DataSize();
+        private boolean hasMore;
+
+        public BatchedSet(EntitySet entities) {
+            this.entities = entities;
+        }
+    }
+
 }
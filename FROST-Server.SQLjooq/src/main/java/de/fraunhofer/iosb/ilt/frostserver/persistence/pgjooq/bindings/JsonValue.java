@@ -20,6 +20,8 @@ package de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.bindings;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
 import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.utils.Utils;
+import de.fraunhofer.iosb.ilt.frostserver.util.RawJsonMap;
+import de.fraunhofer.iosb.ilt.frostserver.util.RawJsonValue;
 import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -67,6 +69,35 @@ public class JsonValue {
         return getValue(Utils.TYPE_MAP_STRING_OBJECT);
     }
 
+    /**
+     * Get the value as a Map that keeps the JSON text from the database, and
+     * is only parsed when its content is accessed. Falls back to
+     * {@link #getMapValue()} if the value is not a JSON object, or has already
+     * been parsed.
+     *
+     * @return The value as a Map.
+     */
+    public Map<String, Object> getRawMapValue() {
+        if (value == null && RawJsonMap.isJsonObject(stringValue)) {
+            return new RawJsonMap(stringValue);
+        }
+        return getMapValue();
+    }
+
+    /**
+     * Get the value as a RawJsonValue that keeps the JSON text from the
+     * database, and is written as is when serialised. Falls back to
+     * {@link #getValue()} if the value has already been parsed.
+     *
+     * @return The value.
+     */
+    public Object getRawValue() {
+        if (value == null && stringValue != null) {
+            return new RawJsonValue(stringValue);
+        }
+        return getValue();
+    }
+
     public <T> T getValue(TypeReference<T> typeReference) {
         if (type != null && !type.equals(typeReference)) {
             LOGGER.warn("Type Switch, from {} to {}", type, typeReference);
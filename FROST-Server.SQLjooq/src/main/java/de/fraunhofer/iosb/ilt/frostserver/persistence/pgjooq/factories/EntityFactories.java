@@ -57,6 +57,7 @@ import de.fraunhofer.iosb.ilt.frostserver.util.exception.NoSuchEntityException;
 import java.io.IOException;
 import java.time.Instant;
 import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.EnumMap;
 import java.util.Map;
 import org.geojson.Crs;
@@ -68,11 +69,13 @@ import org.geolatte.geom.Geometry;
 import org.joda.time.Interval;
 import org.jooq.DSLContext;
 import org.jooq.Field;
+import org.jooq.InsertValuesStep2;
 import org.jooq.Record;
 import org.jooq.Record3;
 import org.jooq.Result;
 import org.jooq.SelectConditionStep;
 import org.jooq.SelectOnConditionStep;
+import org.jooq.Table;
 import org.jooq.impl.DSL;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -274,6 +277,11 @@ public class EntityFactories<J extends Comparable> {
     }
 
     public FeatureOfInterest generateFeatureOfInterest(PostgresPersistenceManager<J> pm, Id datastreamId, boolean isMultiDatastream) throws NoSuchEntityException, IncompleteEntityException {
+        final EntityType streamType = isMultiDatastream ? EntityType.MULTIDATASTREAM : EntityType.DATASTREAM;
+        Id cachedFoiId = pm.getGeneratedFoi(streamType, datastreamId);
+        if (cachedFoiId != null) {
+            return new FeatureOfInterest(cachedFoiId);
+        }
         J dsId = (J) datastreamId.getValue();
         DSLContext dslContext = pm.getDslContext();
         AbstractTableLocations<J> ql = tableCollection.getTableLocations();
@@ -347,6 +355,7 @@ public class EntityFactories<J extends Comparable> {
             // Can not generate foi from Thing with no locations.
             throw new NoSuchEntityException("Can not generate foi for Thing, all locations have an un supported encoding type.");
         }
+        pm.registerGeneratedFoi(streamType, datastreamId, foi.getId());
         return foi;
     }
 
@@ -398,6 +407,9 @@ public class EntityFactories<J extends Comparable> {
     }
 
     public boolean entityExists(PostgresPersistenceManager<J> pm, EntityType type, Id entityId) {
+        if (pm.isKnownToExist(type, entityId)) {
+            return true;
+        }
         J id = (J) entityId.getValue();
         StaMainTable<J, ?, ?> table = tableCollection.getTablesByType().get(type);
 
@@ -412,7 +424,11 @@ public class EntityFactories<J extends Comparable> {
         if (count > 1) {
             LOGGER.error("More than one instance of {} with id {}.", type, id);
         }
-        return count > 0;
+        if (count > 0) {
+            pm.markExisting(type, entityId);
+            return true;
+        }
+        return false;
 
     }
 
@@ -423,6 +439,31 @@ public class EntityFactories<J extends Comparable> {
         return entityExists(pm, e.getEntityType(), e.getId());
     }
 
+    /**
+     * Link one entity to a set of other entities, by inserting rows into the
+     * given link table. All rows are inserted with a single statement.
+     *
+     * @param <R> The record type of the link table.
+     * @param <J> The type of the ID fields.
+     * @param dslContext The DSLContext to use.
+     * @param linkTable The link table to insert into.
+     * @param sourceField The field holding the id of the entity to link.
+     * @param sourceId The id of the entity to link.
+     * @param targetField The field holding the ids of the entities to link to.
+     * @param targetIds The ids of the entities to link to.
+     * @return The number of inserted rows.
+     */
+    public static <R extends Record, J extends Comparable> int insertLinks(DSLContext dslContext, Table<R> linkTable, Field<J> sourceField, J sourceId, Field<J> targetField, Collection<J> targetIds) {
+        if (targetIds.isEmpty()) {
+            return 0;
+        }
+        InsertValuesStep2<R, J, J> insert = dslContext.insertInto(linkTable, sourceField, targetField);
+        for (J targetId : targetIds) {
+            insert = insert.values(sourceId, targetId);
+        }
+        return insert.execute();
+    }
+
     public static void insertTimeValue(Map<Field, Object> clause, Field<OffsetDateTime> startField, Field<OffsetDateTime> endField, TimeValue time) {
         if (time instanceof TimeInstant) {
             TimeInstant timeInstant = (TimeInstant) time;
@@ -22,6 +22,8 @@ import de.fraunhofer.iosb.ilt.frostserver.model.core.Entity;
 import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.PostgresPersistenceManager;
 import de.fraunhofer.iosb.ilt.frostserver.util.exception.IncompleteEntityException;
 import de.fraunhofer.iosb.ilt.frostserver.util.exception.NoSuchEntityException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  *
@@ -44,6 +46,29 @@ public interface EntityFactory<T extends Entity, J extends Comparable> {
      */
     public boolean insert(PostgresPersistenceManager<J> pm, T entity) throws NoSuchEntityException, IncompleteEntityException;
 
+    /**
+     * Insert the given entities into the database as new entities. Entities
+     * that can not be inserted are skipped. The default implementation
+     * inserts the entities one by one.
+     *
+     * @param pm The persistenceManager to use to access the database.
+     * @param entities The entities to insert into the database.
+     * @return For each entity, in the same order, null if the entity was
+     * inserted, or the exception that caused the entity to not be inserted.
+     */
+    public default List<Exception> insertAll(PostgresPersistenceManager<J> pm, List<T> entities) {
+        List<Exception> result = new ArrayList<>(entities.size());
+        for (T entity : entities) {
+            try {
+                insert(pm, entity);
+                result.add(null);
+            } catch (NoSuchEntityException | IncompleteEntityException | IllegalArgumentException exc) {
+                result.add(exc);
+            }
+        }
+        return result;
+    }
+
     /**
      * Update the given entity in the database.
      *
@@ -39,8 +39,10 @@ import de.fraunhofer.iosb.ilt.frostserver.util.exception.IncompleteEntityExcepti
 import de.fraunhofer.iosb.ilt.frostserver.util.exception.NoSuchEntityException;
 import java.time.Instant;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import org.jooq.DSLContext;
 import org.jooq.Field;
@@ -94,16 +96,14 @@ public class HistoricalLocationFactory<J extends Comparable> implements EntityFa
         h.setId(entityFactories.idFromObject(generatedId));
 
         EntitySet<Location> locations = h.getLocations();
+        List<J> locationIds = new ArrayList<>();
         for (Location l : locations) {
             entityFactories.entityExistsOrCreate(pm, l);
-            J lId = (J) l.getId().getValue();
-            AbstractTableLocationsHistLocations<J> qlhl = tableCollection.getTableLocationsHistLocations();
-            dslContext.insertInto(qlhl)
-                    .set(qlhl.getHistLocationId(), generatedId)
-                    .set(qlhl.getLocationId(), lId)
-                    .execute();
-            LOGGER.debug(LINKED_L_TO_HL, lId, generatedId);
+            locationIds.add((J) l.getId().getValue());
         }
+        AbstractTableLocationsHistLocations<J> qlhl = tableCollection.getTableLocationsHistLocations();
+        EntityFactories.insertLinks(dslContext, qlhl, qlhl.getHistLocationId(), generatedId, qlhl.getLocationId(), locationIds);
+        LOGGER.debug(LINKED_L_TO_HL, locationIds, generatedId);
 
         // https://github.com/opengeospatial/sensorthings/issues/30
         // Check the time of the latest HistoricalLocation of our thing.
@@ -124,19 +124,16 @@ public class HistoricalLocationFactory<J extends Comparable> implements EntityFa
                     .execute();
             LOGGER.debug(UNLINKED_L_FROM_T, count, thingId);
 
-            // Link new locations to Thing, track the ids.
+            // Link new locations to Thing.
+            List<J> thingLocationIds = new ArrayList<>();
             for (Location l : h.getLocations()) {
                 if (l.getId() == null || !entityFactories.entityExists(pm, l)) {
                     throw new NoSuchEntityException("Location with no id.");
                 }
-                J locationId = (J) l.getId().getValue();
-
-                dslContext.insertInto(qtl)
-                        .set(qtl.getThingId(), thingId)
-                        .set(qtl.getLocationId(), locationId)
-                        .execute();
-                LOGGER.debug(LINKED_L_TO_T, locationId, thingId);
+                thingLocationIds.add((J) l.getId().getValue());
             }
+            EntityFactories.insertLinks(dslContext, qtl, qtl.getThingId(), thingId, qtl.getLocationId(), thingLocationIds);
+            LOGGER.debug(LINKED_L_TO_T, thingLocationIds, thingId);
         }
         return true;
     }
@@ -177,19 +174,16 @@ public class HistoricalLocationFactory<J extends Comparable> implements EntityFa
         LOGGER.debug("Updated Location {}", id);
 
         // Link existing locations to the HistoricalLocation.
+        List<J> locationIds = new ArrayList<>();
         for (Location l : hl.getLocations()) {
             if (!entityFactories.entityExists(pm, l)) {
                 throw new IllegalArgumentException("Unknown Location or Location with no id.");
             }
-            J lId = (J) l.getId().getValue();
-
-            AbstractTableLocationsHistLocations<J> qlhl = tableCollection.getTableLocationsHistLocations();
-            dslContext.insertInto(qlhl)
-                    .set(qlhl.getHistLocationId(), id)
-                    .set(qlhl.getLocationId(), lId)
-                    .execute();
-            LOGGER.debug(LINKED_L_TO_HL, lId, id);
+            locationIds.add((J) l.getId().getValue());
         }
+        AbstractTableLocationsHistLocations<J> qlhl = tableCollection.getTableLocationsHistLocations();
+        EntityFactories.insertLinks(dslContext, qlhl, qlhl.getHistLocationId(), id, qlhl.getLocationId(), locationIds);
+        LOGGER.debug(LINKED_L_TO_HL, locationIds, id);
         return message;
     }
 
@@ -40,7 +40,9 @@ import static de.fraunhofer.iosb.ilt.frostserver.util.Constants.UTC;
 import de.fraunhofer.iosb.ilt.frostserver.util.exception.IncompleteEntityException;
 import de.fraunhofer.iosb.ilt.frostserver.util.exception.NoSuchEntityException;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import org.jooq.DSLContext;
 import org.jooq.Field;
@@ -202,19 +204,16 @@ public class LocationFactory<J extends Comparable> implements EntityFactory<Loca
     }
 
     private void linkHistoricalLocations(Location l, DSLContext dslContext, J locationId) {
+        List<J> hlIds = new ArrayList<>();
         for (HistoricalLocation hl : l.getHistoricalLocations()) {
             if (hl.getId() == null) {
                 throw new IllegalArgumentException("HistoricalLocation with no id.");
             }
-            J hlId = (J) hl.getId().getValue();
-
-            AbstractTableLocationsHistLocations<J> qlhl = entityFactories.tableCollection.getTableLocationsHistLocations();
-            dslContext.insertInto(qlhl)
-                    .set(qlhl.getHistLocationId(), hlId)
-                    .set(qlhl.getLocationId(), locationId)
-                    .execute();
-            LOGGER.debug(LINKED_L_TO_HL, locationId, hlId);
+            hlIds.add((J) hl.getId().getValue());
         }
+        AbstractTableLocationsHistLocations<J> qlhl = entityFactories.tableCollection.getTableLocationsHistLocations();
+        EntityFactories.insertLinks(dslContext, qlhl, qlhl.getLocationId(), locationId, qlhl.getHistLocationId(), hlIds);
+        LOGGER.debug(LINKED_L_TO_HL, locationId, hlIds);
     }
 
     @Override
@@ -39,11 +39,14 @@ import de.fraunhofer.iosb.ilt.frostserver.property.EntityPropertyMain;
 import de.fraunhofer.iosb.ilt.frostserver.property.NavigationPropertyMain;
 import de.fraunhofer.iosb.ilt.frostserver.util.exception.IncompleteEntityException;
 import de.fraunhofer.iosb.ilt.frostserver.util.exception.NoSuchEntityException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import org.jooq.DSLContext;
 import org.jooq.Field;
+import org.jooq.InsertValuesStep3;
+import org.jooq.Record;
 import org.jooq.Record1;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -102,20 +105,12 @@ public class MultiDatastreamFactory<J extends Comparable> implements EntityFacto
 
         // Link ObservedProperties.
         EntitySet<ObservedProperty> ops = ds.getObservedProperties();
-        int rank = 0;
+        List<J> opIds = new ArrayList<>();
         for (ObservedProperty op : ops) {
             entityFactories.entityExistsOrCreate(pm, op);
-            J opId = (J) op.getId().getValue();
-
-            AbstractTableMultiDatastreamsObsProperties<J> tMdOp = tableCollection.getTableMultiDatastreamsObsProperties();
-            dslContext.insertInto(tMdOp)
-                    .set(tMdOp.getMultiDatastreamId(), multiDatastreamId)
-                    .set(tMdOp.getObsPropertyId(), opId)
-                    .set(tMdOp.colRank, rank)
-                    .execute();
-            LOGGER.debug("Linked MultiDatastream {} to ObservedProperty {} with rank {}.", multiDatastreamId, opId, rank);
-            rank++;
+            opIds.add((J) op.getId().getValue());
         }
+        linkObservedProperties(dslContext, tableCollection.getTableMultiDatastreamsObsProperties(), multiDatastreamId, 0, opIds);
 
         // Create Observations, if any.
         for (Observation o : ds.getObservations()) {
@@ -253,23 +248,39 @@ public class MultiDatastreamFactory<J extends Comparable> implements EntityFacto
 
     private static <J extends Comparable> void linkExistingObservedProperties(J mdsId, int countOrig, EntitySet<ObservedProperty> ops, DSLContext dslContext, PostgresPersistenceManager<J> pm, EntityFactories<J> entityFactories) throws NoSuchEntityException {
         // Link existing ObservedProperties to the MultiDatastream.
-        int rank = countOrig;
+        List<J> opIds = new ArrayList<>();
         for (ObservedProperty op : ops) {
             if (op.getId() == null || !entityFactories.entityExists(pm, op)) {
                 throw new NoSuchEntityException("ObservedProperty with no id or not found.");
             }
-            J opId = (J) op.getId().getValue();
-            AbstractTableMultiDatastreamsObsProperties<J> tMdOp = entityFactories.tableCollection.getTableMultiDatastreamsObsProperties();
-            int count = dslContext.insertInto(tMdOp)
-                    .set(tMdOp.getMultiDatastreamId(), mdsId)
-                    .set(tMdOp.getObsPropertyId(), opId)
-                    .set(tMdOp.colRank, rank)
-                    .execute();
-            if (count > 0) {
-                LOGGER.debug("Assigned datastream {} to ObservedProperty {} with rank {}.", mdsId, opId, rank);
-            }
+            opIds.add((J) op.getId().getValue());
+        }
+        linkObservedProperties(dslContext, entityFactories.tableCollection.getTableMultiDatastreamsObsProperties(), mdsId, countOrig, opIds);
+    }
+
+    /**
+     * Links the given ObservedProperties to the given MultiDatastream, with
+     * increasing ranks, using a single statement.
+     *
+     * @param <J> The type of the ID fields.
+     * @param dslContext The DSLContext to use.
+     * @param tMdOp The link table.
+     * @param mdsId The id of the MultiDatastream.
+     * @param firstRank The rank of the first ObservedProperty.
+     * @param opIds The ids of the ObservedProperties, in order.
+     */
+    static <J extends Comparable> void linkObservedProperties(DSLContext dslContext, AbstractTableMultiDatastreamsObsProperties<J> tMdOp, J mdsId, int firstRank, List<J> opIds) {
+        if (opIds.isEmpty()) {
+            return;
+        }
+        InsertValuesStep3<Record, J, J, Integer> insert = dslContext.insertInto(tMdOp, tMdOp.getMultiDatastreamId(), tMdOp.getObsPropertyId(), tMdOp.colRank);
+        int rank = firstRank;
+        for (J opId : opIds) {
+            insert = insert.values(mdsId, opId, rank);
             rank++;
         }
+        insert.execute();
+        LOGGER.debug("Linked MultiDatastream {} to ObservedProperties {}, starting with rank {}.", mdsId, opIds, firstRank);
     }
 
     private static <J extends Comparable> void linkExistingObservations(MultiDatastream md, PostgresPersistenceManager<J> pm, EntityFactories<J> entityFactories, DSLContext dslContext, J mdsId) throws NoSuchEntityException {
@@ -23,6 +23,7 @@ import de.fraunhofer.iosb.ilt.frostserver.model.EntityType;
 import de.fraunhofer.iosb.ilt.frostserver.model.FeatureOfInterest;
 import de.fraunhofer.iosb.ilt.frostserver.model.MultiDatastream;
 import de.fraunhofer.iosb.ilt.frostserver.model.Observation;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.Entity;
 import de.fraunhofer.iosb.ilt.frostserver.model.core.Id;
 import de.fraunhofer.iosb.ilt.frostserver.model.ext.TimeInstant;
 import de.fraunhofer.iosb.ilt.frostserver.model.ext.TimeValue;
@@ -37,12 +38,19 @@ import de.fraunhofer.iosb.ilt.frostserver.property.EntityPropertyMain;
 import de.fraunhofer.iosb.ilt.frostserver.property.NavigationPropertyMain;
 import de.fraunhofer.iosb.ilt.frostserver.util.exception.IncompleteEntityException;
 import de.fraunhofer.iosb.ilt.frostserver.util.exception.NoSuchEntityException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import org.jooq.DSLContext;
 import org.jooq.Field;
+import org.jooq.InsertValuesStepN;
 import org.jooq.Record1;
+import org.jooq.Result;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -57,6 +65,11 @@ public class ObservationFactory<J extends Comparable> implements EntityFactory<O
      * The logger for this class.
      */
     private static final Logger LOGGER = LoggerFactory.getLogger(ObservationFactory.class);
+    /**
+     * The maximum number of rows in one multi-row insert. PostgreSQL allows
+     * at most 32767 parameters per statement.
+     */
+    private static final int BULK_INSERT_SIZE = 1000;
 
     private final EntityFactories<J> entityFactories;
     private final AbstractTableObservations<J> table;
@@ -70,15 +83,86 @@ public class ObservationFactory<J extends Comparable> implements EntityFactory<O
 
     @Override
     public boolean insert(PostgresPersistenceManager<J> pm, Observation newObservation) throws NoSuchEntityException, IncompleteEntityException {
+        Map<Field, Object> insert = createInsertRecord(pm, newObservation, new InsertCache<>());
+
+        DSLContext dslContext = pm.getDslContext();
+        Record1<J> result = dslContext.insertInto(table)
+                .set(insert)
+                .returningResult(table.getId())
+                .fetchOne();
+        J generatedId = result.component1();
+        LOGGER.debug("Inserted Observation. Created id = {}.", generatedId);
+        newObservation.setId(entityFactories.idFromObject(generatedId));
+        return true;
+    }
+
+    /**
+     * Inserts the given Observations using multi-row inserts. Each
+     * (Multi)Datastream and FeatureOfInterest is checked only once, and the
+     * FeatureOfInterest is generated only once for each (Multi)Datastream.
+     *
+     * @param pm The persistenceManager to use to access the database.
+     * @param observations The Observations to insert.
+     * @return For each Observation, in the same order, null if it was
+     * inserted, or the exception that caused it to not be inserted.
+     */
+    @Override
+    public List<Exception> insertAll(PostgresPersistenceManager<J> pm, List<Observation> observations) {
+        final int count = observations.size();
+        final List<Exception> result = new ArrayList<>(Collections.nCopies(count, (Exception) null));
+        final List<Map<Field, Object>> records = new ArrayList<>(count);
+        // Rows can only be inserted together if they set the same columns.
+        final Map<Set<Field>, List<Integer>> rowsPerFieldSet = new LinkedHashMap<>();
+        final InsertCache<J> cache = new InsertCache<>();
+        for (int i = 0; i < count; i++) {
+            try {
+                Map<Field, Object> insert = createInsertRecord(pm, observations.get(i), cache);
+                records.add(insert);
+                rowsPerFieldSet.computeIfAbsent(new HashSet<>(insert.keySet()), k -> new ArrayList<>()).add(i);
+            } catch (NoSuchEntityException | IncompleteEntityException | IllegalArgumentException exc) {
+                records.add(null);
+                result.set(i, exc);
+            }
+        }
+
+        DSLContext dslContext = pm.getDslContext();
+        for (List<Integer> rows : rowsPerFieldSet.values()) {
+            List<Field> fields = new ArrayList<>(records.get(rows.get(0)).keySet());
+            for (int start = 0; start < rows.size(); start += BULK_INSERT_SIZE) {
+                List<Integer> chunk = rows.subList(start, Math.min(start + BULK_INSERT_SIZE, rows.size()));
+                InsertValuesStepN<?> insert = dslContext.insertInto(table, fields.toArray(new Field<?>[fields.size()]));
+                for (Integer row : chunk) {
+                    Map<Field, Object> insertRecord = records.get(row);
+                    List<Object> values = new ArrayList<>(fields.size());
+                    for (Field field : fields) {
+                        values.add(insertRecord.get(field));
+                    }
+                    insert = insert.values(values);
+                }
+                // PostgreSQL returns the generated ids in the order of the VALUES list.
+                Result<Record1<J>> ids = insert.returningResult(table.getId()).fetch();
+                if (ids.size() != chunk.size()) {
+                    throw new IllegalStateException("Inserted " + chunk.size() + " Observations, but got " + ids.size() + " ids.");
+                }
+                for (int j = 0; j < chunk.size(); j++) {
+                    observations.get(chunk.get(j)).setId(entityFactories.idFromObject(ids.get(j).component1()));
+                }
+            }
+        }
+        LOGGER.debug("Inserted {} Observations in bulk.", records.size());
+        return result;
+    }
+
+    private Map<Field, Object> createInsertRecord(PostgresPersistenceManager<J> pm, Observation newObservation, InsertCache<J> cache) throws NoSuchEntityException, IncompleteEntityException {
         Datastream ds = newObservation.getDatastream();
         MultiDatastream mds = newObservation.getMultiDatastream();
         Id streamId;
         boolean newIsMultiDatastream = false;
         if (ds != null) {
-            entityFactories.entityExistsOrCreate(pm, ds);
+            entityExistsOrCreate(pm, ds, cache.checkedDatastreams);
             streamId = ds.getId();
         } else if (mds != null) {
-            entityFactories.entityExistsOrCreate(pm, mds);
+            entityExistsOrCreate(pm, mds, cache.checkedMultiDatastreams);
             streamId = mds.getId();
             newIsMultiDatastream = true;
         } else {
@@ -87,9 +171,15 @@ public class ObservationFactory<J extends Comparable> implements EntityFactory<O
 
         FeatureOfInterest f = newObservation.getFeatureOfInterest();
         if (f == null) {
-            f = entityFactories.generateFeatureOfInterest(pm, streamId, newIsMultiDatastream);
+            Map<Id, FeatureOfInterest> generatedFois = newIsMultiDatastream ? cache.generatedFoisMds : cache.generatedFoisDs;
+            f = generatedFois.get(streamId);
+            if (f == null) {
+                f = entityFactories.generateFeatureOfInterest(pm, streamId, newIsMultiDatastream);
+                generatedFois.put(streamId, f);
+            }
+            newObservation.setFeatureOfInterest(f);
         } else {
-            entityFactories.entityExistsOrCreate(pm, f);
+            entityExistsOrCreate(pm, f, cache.checkedFeatures);
         }
 
         Map<Field, Object> insert = new HashMap<>();
@@ -104,12 +194,13 @@ public class ObservationFactory<J extends Comparable> implements EntityFactory<O
         TimeValue phenomenonTime = newObservation.getPhenomenonTime();
         if (phenomenonTime == null) {
             phenomenonTime = TimeInstant.now();
+            newObservation.setPhenomenonTime(phenomenonTime);
         }
         EntityFactories.insertTimeValue(insert, table.colPhenomenonTimeStart, table.colPhenomenonTimeEnd, phenomenonTime);
         EntityFactories.insertTimeInstant(insert, table.colResultTime, newObservation.getResultTime());
         EntityFactories.insertTimeInterval(insert, table.colValidTimeStart, table.colValidTimeEnd, newObservation.getValidTime());
 
-        handleResult(newObservation, newIsMultiDatastream, pm, insert);
+        handleResult(newObservation, newIsMultiDatastream, pm, insert, cache.obsPropCounts);
 
         if (newObservation.getResultQuality() != null) {
             insert.put(table.colResultQuality, EntityFactories.objectToJson(newObservation.getResultQuality()));
@@ -118,16 +209,15 @@ public class ObservationFactory<J extends Comparable> implements EntityFactory<O
         insert.put(table.getFeatureId(), f.getId().getValue());
 
         entityFactories.insertUserDefinedId(pm, insert, table.getId(), newObservation);
+        return insert;
+    }
 
-        DSLContext dslContext = pm.getDslContext();
-        Record1<J> result = dslContext.insertInto(table)
-                .set(insert)
-                .returningResult(table.getId())
-                .fetchOne();
-        J generatedId = result.component1();
-        LOGGER.debug("Inserted Observation. Created id = {}.", generatedId);
-        newObservation.setId(entityFactories.idFromObject(generatedId));
-        return true;
+    private void entityExistsOrCreate(PostgresPersistenceManager<J> pm, Entity entity, Set<Id> checked) throws NoSuchEntityException, IncompleteEntityException {
+        if (entity.getId() != null && checked.contains(entity.getId())) {
+            return;
+        }
+        entityFactories.entityExistsOrCreate(pm, entity);
+        checked.add(entity.getId());
     }
 
     @Override
@@ -163,7 +253,7 @@ public class ObservationFactory<J extends Comparable> implements EntityFactory<O
         }
 
         if (newObservation.isSetResult()) {
-            handleResult(newObservation, newIsMultiDatastream, pm, update);
+            handleResult(newObservation, newIsMultiDatastream, pm, update, new HashMap<>());
             message.addField(EntityPropertyMain.RESULT);
         }
 
@@ -196,7 +286,7 @@ public class ObservationFactory<J extends Comparable> implements EntityFactory<O
         return message;
     }
 
-    private void handleResult(Observation newObservation, boolean newIsMultiDatastream, PostgresPersistenceManager<J> pm, Map<Field, Object> record) {
+    private void handleResult(Observation newObservation, boolean newIsMultiDatastream, PostgresPersistenceManager<J> pm, Map<Field, Object> record, Map<J, Integer> obsPropCounts) {
         Object result = newObservation.getResult();
         if (newIsMultiDatastream) {
             if (!(result instanceof List)) {
@@ -205,12 +295,16 @@ public class ObservationFactory<J extends Comparable> implements EntityFactory<O
             List list = (List) result;
             MultiDatastream mds = newObservation.getMultiDatastream();
             J mdsId = (J) mds.getId().getValue();
-            AbstractTableMultiDatastreamsObsProperties<J> tableMdsOps = tableCollection.getTableMultiDatastreamsObsProperties();
-            Integer count = pm.getDslContext()
-                    .selectCount()
-                    .from(tableMdsOps)
-                    .where(tableMdsOps.getMultiDatastreamId().eq(mdsId))
-                    .fetchOne().component1();
+            Integer count = obsPropCounts.get(mdsId);
+            if (count == null) {
+                AbstractTableMultiDatastreamsObsProperties<J> tableMdsOps = tableCollection.getTableMultiDatastreamsObsProperties();
+                count = pm.getDslContext()
+                        .selectCount()
+                        .from(tableMdsOps)
+                        .where(tableMdsOps.getMultiDatastreamId().eq(mdsId))
+                        .fetchOne().component1();
+                obsPropCounts.put(mdsId, count);
+            }
             if (count != list.size()) {
                 throw new IllegalArgumentException("Size of result array (" + list.size() + ") must match number of observed properties (" + count + ") in the MultiDatastream.");
             }
@@ -296,4 +390,20 @@ public class ObservationFactory<J extends Comparable> implements EntityFactory<O
         }
     }
 
+    /**
+     * Holds the results of the checks done while inserting Observations, so
+     * that inserting many Observations does not repeat the same checks.
+     *
+     * @param <J> The type of the ID fields.
+     */
+    private static class InsertCache<J> {
+
+        private final Set<Id> checkedDatastreams = new HashSet<>();
+        private final Set<Id> checkedMultiDatastreams = new HashSet<>();
+        private final Set<Id> checkedFeatures = new HashSet<>();
+        private final Map<Id, FeatureOfInterest> generatedFoisDs = new HashMap<>();
+        private final Map<Id, FeatureOfInterest> generatedFoisMds = new HashMap<>();
+        private final Map<J, Integer> obsPropCounts = new HashMap<>();
+    }
+
 }
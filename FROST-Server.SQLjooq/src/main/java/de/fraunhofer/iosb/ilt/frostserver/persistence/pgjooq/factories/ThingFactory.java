@@ -100,36 +100,12 @@ public class ThingFactory<J extends Comparable> implements EntityFactory<Thing,
         List<J> locationIds = new ArrayList<>();
         for (Location l : t.getLocations()) {
             entityFactories.entityExistsOrCreate(pm, l);
-            J lId = (J) l.getId().getValue();
-
-            AbstractTableThingsLocations<J> qtl = tableCollection.getTableThingsLocations();
-            dslContext.insertInto(qtl)
-                    .set(qtl.getThingId(), thingId)
-                    .set(qtl.getLocationId(), lId)
-                    .execute();
-            LOGGER.debug(LINKED_L_TO_T, lId, thingId);
-            locationIds.add(lId);
+            locationIds.add((J) l.getId().getValue());
         }
 
-        // Now link the new locations also to a historicalLocation.
+        // Link the locations to the Thing, and to a new historicalLocation.
         if (!locationIds.isEmpty()) {
-            AbstractTableHistLocations<J> qhl = tableCollection.getTableHistLocations();
-            Record1<J> newHistLoc = dslContext.insertInto(qhl)
-                    .set(qhl.getThingId(), thingId)
-                    .set(qhl.time, OffsetDateTime.now(UTC))
-                    .returningResult(qhl.getId())
-                    .fetchOne();
-            J histLocationId = newHistLoc.component1();
-            LOGGER.debug(CREATED_HL, histLocationId);
-
-            AbstractTableLocationsHistLocations<J> qlhl = tableCollection.getTableLocationsHistLocations();
-            for (J locId : locationIds) {
-                dslContext.insertInto(qlhl)
-                        .set(qlhl.getHistLocationId(), histLocationId)
-                        .set(qlhl.getLocationId(), locId)
-                        .execute();
-                LOGGER.debug(LINKED_L_TO_HL, locId, histLocationId);
-            }
+            linkLocations(dslContext, thingId, locationIds);
         }
 
         // Create new datastreams, if any.
@@ -217,41 +193,18 @@ public class ThingFactory<J extends Comparable> implements EntityFactory<Thing,
         long count = dslContext.delete(ttl).where(ttl.getThingId().eq(thingId)).execute();
         LOGGER.debug(UNLINKED_L_FROM_T, count, thingId);
 
-        // Link new locations to Thing, track the ids.
+        // Track the ids of the new locations.
         List<J> locationIds = new ArrayList<>();
         for (Location l : t.getLocations()) {
             if (l.getId() == null || !entityFactories.entityExists(pm, l)) {
                 throw new NoSuchEntityException("Location with no id.");
             }
-            J locationId = (J) l.getId().getValue();
-
-            dslContext.insertInto(ttl)
-                    .set(ttl.getThingId(), thingId)
-                    .set(ttl.getLocationId(), locationId)
-                    .execute();
-            LOGGER.debug(LINKED_L_TO_T, locationId, thingId);
-            locationIds.add(locationId);
+            locationIds.add((J) l.getId().getValue());
         }
 
-        // Now link the newly linked locations also to a historicalLocation.
+        // Link the new locations to the Thing, and to a historicalLocation.
         if (!locationIds.isEmpty()) {
-            AbstractTableHistLocations<J> thl = tableCollection.getTableHistLocations();
-            Record1<J> insert = dslContext.insertInto(thl)
-                    .set(thl.getThingId(), thingId)
-                    .set(thl.time, OffsetDateTime.now(UTC))
-                    .returningResult(thl.getId())
-                    .fetchOne();
-            J histLocationId = insert.component1();
-            LOGGER.debug(CREATED_HL, histLocationId);
-
-            AbstractTableLocationsHistLocations<J> qlhl = tableCollection.getTableLocationsHistLocations();
-            for (J locId : locationIds) {
-                dslContext.insertInto(qlhl)
-                        .set(qlhl.getHistLocationId(), histLocationId)
-                        .set(qlhl.getLocationId(), locId)
-                        .execute();
-                LOGGER.debug(LINKED_L_TO_HL, locId, histLocationId);
-            }
+            J histLocationId = linkLocations(dslContext, thingId, locationIds);
 
             HistoricalLocation newHl = (HistoricalLocation) pm.get(EntityType.HISTORICALLOCATION, pm.getIdManager().fromObject(histLocationId));
             pm.getEntityChangedMessages().add(
@@ -262,40 +215,74 @@ public class ThingFactory<J extends Comparable> implements EntityFactory<Thing,
         }
     }
 
+    /**
+     * Links the given Locations to the given Thing, creates a new
+     * HistoricalLocation for the Thing and links the Locations to it. The
+     * links are inserted with one statement per link table.
+     *
+     * @param dslContext The DSLContext to use.
+     * @param thingId The id of the Thing.
+     * @param locationIds The ids of the Locations.
+     * @return The id of the new HistoricalLocation.
+     */
+    private J linkLocations(DSLContext dslContext, J thingId, List<J> locationIds) {
+        AbstractTableThingsLocations<J> qtl = tableCollection.getTableThingsLocations();
+        EntityFactories.insertLinks(dslContext, qtl, qtl.getThingId(), thingId, qtl.getLocationId(), locationIds);
+        LOGGER.debug(LINKED_L_TO_T, locationIds, thingId);
+
+        AbstractTableHistLocations<J> qhl = tableCollection.getTableHistLocations();
+        Record1<J> newHistLoc = dslContext.insertInto(qhl)
+                .set(qhl.getThingId(), thingId)
+                .set(qhl.time, OffsetDateTime.now(UTC))
+                .returningResult(qhl.getId())
+                .fetchOne();
+        J histLocationId = newHistLoc.component1();
+        LOGGER.debug(CREATED_HL, histLocationId);
+
+        AbstractTableLocationsHistLocations<J> qlhl = tableCollection.getTableLocationsHistLocations();
+        EntityFactories.insertLinks(dslContext, qlhl, qlhl.getHistLocationId(), histLocationId, qlhl.getLocationId(), locationIds);
+        LOGGER.debug(LINKED_L_TO_HL, locationIds, histLocationId);
+        return histLocationId;
+    }
+
     private void linkExistingMultiDatastreams(Thing t, PostgresPersistenceManager<J> pm, DSLContext dslContext, J thingId) throws NoSuchEntityException {
         // Link existing MultiDatastreams to the thing.
+        List<J> mdsIds = new ArrayList<>();
         for (MultiDatastream mds : t.getMultiDatastreams()) {
             if (mds.getId() == null || !entityFactories.entityExists(pm, mds)) {
                 throw new NoSuchEntityException("MultiDatastream" + NO_ID_OR_NOT_FOUND);
             }
-            J mdsId = (J) mds.getId().getValue();
-            AbstractTableMultiDatastreams<J> qmds = tableCollection.getTableMultiDatastreams();
-            long mdsCount = dslContext.update(qmds)
-                    .set(qmds.getThingId(), thingId)
-                    .where(qmds.getId().eq(mdsId))
-                    .execute();
-            if (mdsCount > 0) {
-                LOGGER.debug("Assigned multiDatastream {} to thing {}.", mdsId, thingId);
-            }
+            mdsIds.add((J) mds.getId().getValue());
+        }
+        if (mdsIds.isEmpty()) {
+            return;
         }
+        AbstractTableMultiDatastreams<J> qmds = tableCollection.getTableMultiDatastreams();
+        long mdsCount = dslContext.update(qmds)
+                .set(qmds.getThingId(), thingId)
+                .where(qmds.getId().in(mdsIds))
+                .execute();
+        LOGGER.debug("Assigned {} multiDatastreams to thing {}.", mdsCount, thingId);
     }
 
     private void linkExistingDatastreams(Thing t, PostgresPersistenceManager<J> pm, DSLContext dslContext, J thingId) throws NoSuchEntityException {
         // Link existing Datastreams to the thing.
+        List<J> dsIds = new ArrayList<>();
         for (Datastream ds : t.getDatastreams()) {
             if (ds.getId() == null || !entityFactories.entityExists(pm, ds)) {
                 throw new NoSuchEntityException("Datastream" + NO_ID_OR_NOT_FOUND);
             }
-            J dsId = (J) ds.getId().getValue();
-            AbstractTableDatastreams<J> qds = tableCollection.getTableDatastreams();
-            long dsCount = dslContext.update(qds)
-                    .set(qds.getThingId(), thingId)
-                    .where(qds.getId().eq(dsId))
-                    .execute();
-            if (dsCount > 0) {
-                LOGGER.debug("Assigned datastream {} to thing {}.", dsId, thingId);
-            }
+            dsIds.add((J) ds.getId().getValue());
         }
+        if (dsIds.isEmpty()) {
+            return;
+        }
+        AbstractTableDatastreams<J> qds = tableCollection.getTableDatastreams();
+        long dsCount = dslContext.update(qds)
+                .set(qds.getThingId(), thingId)
+                .where(qds.getId().in(dsIds))
+                .execute();
+        LOGGER.debug("Assigned {} datastreams to thing {}.", dsCount, thingId);
     }
 
     @Override
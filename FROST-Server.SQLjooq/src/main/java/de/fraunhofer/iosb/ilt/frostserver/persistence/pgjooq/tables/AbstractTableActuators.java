@@ -103,7 +103,7 @@ public abstract class AbstractTableActuators<J extends Comparable> extends StaTa
                 (AbstractTableActuators<J> table, Record tuple, Actuator entity, DataSize dataSize) -> {
                     JsonValue props = Utils.getFieldJsonValue(tuple, table.colProperties);
                     dataSize.increase(props.getStringLength());
-                    entity.setProperties(props.getMapValue());
+                    entity.setProperties(props.getRawMapValue());
                 });
         pfReg.addEntry(NavigationPropertyMain.TASKINGCAPABILITIES, AbstractTableActuators::getId, setterId);
     }
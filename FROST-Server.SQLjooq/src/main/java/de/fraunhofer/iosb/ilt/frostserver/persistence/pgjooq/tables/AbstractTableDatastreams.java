@@ -194,7 +194,7 @@ public abstract class AbstractTableDatastreams<J extends Comparable> extends Sta
                 (AbstractTableDatastreams<J> table, Record tuple, Datastream entity, DataSize dataSize) -> {
                     JsonValue props = Utils.getFieldJsonValue(tuple, table.colProperties);
                     dataSize.increase(props.getStringLength());
-                    entity.setProperties(props.getMapValue());
+                    entity.setProperties(props.getRawMapValue());
                 });
         pfReg.addEntry(EntityPropertyMain.RESULTTIME,
                 (AbstractTableDatastreams<J> table, Record tuple, Datastream entity, DataSize dataSize)
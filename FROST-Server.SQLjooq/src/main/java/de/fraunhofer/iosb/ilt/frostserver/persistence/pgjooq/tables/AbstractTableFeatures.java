@@ -119,7 +119,7 @@ public abstract class AbstractTableFeatures<J extends Comparable> extends StaTab
                 (AbstractTableFeatures<J> table, Record tuple, FeatureOfInterest entity, DataSize dataSize) -> {
                     JsonValue props = Utils.getFieldJsonValue(tuple, table.colProperties);
                     dataSize.increase(props.getStringLength());
-                    entity.setProperties(props.getMapValue());
+                    entity.setProperties(props.getRawMapValue());
                 });
         pfReg.addEntry(NavigationPropertyMain.OBSERVATIONS, AbstractTableFeatures::getId, setterId);
     }
@@ -137,7 +137,7 @@ public abstract class AbstractTableLocations<J extends Comparable> extends StaTa
                 (AbstractTableLocations<J> table, Record tuple, Location entity, DataSize dataSize) -> {
                     JsonValue props = Utils.getFieldJsonValue(tuple, table.colProperties);
                     dataSize.increase(props.getStringLength());
-                    entity.setProperties(props.getMapValue());
+                    entity.setProperties(props.getRawMapValue());
                 });
         pfReg.addEntry(NavigationPropertyMain.THINGS, AbstractTableLocations::getId, setterId);
         pfReg.addEntry(NavigationPropertyMain.HISTORICALLOCATIONS, AbstractTableLocations::getId, setterId);
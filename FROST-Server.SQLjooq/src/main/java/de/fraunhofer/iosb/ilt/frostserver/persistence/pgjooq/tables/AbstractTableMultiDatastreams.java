@@ -184,7 +184,7 @@ public abstract class AbstractTableMultiDatastreams<J extends Comparable> extend
                 (AbstractTableMultiDatastreams<J> table, Record tuple, MultiDatastream entity, DataSize dataSize) -> {
                     JsonValue props = Utils.getFieldJsonValue(tuple, table.colProperties);
                     dataSize.increase(props.getStringLength());
-                    entity.setProperties(props.getMapValue());
+                    entity.setProperties(props.getRawMapValue());
                 });
         pfReg.addEntry(
                 EntityPropertyMain.RESULTTIME,
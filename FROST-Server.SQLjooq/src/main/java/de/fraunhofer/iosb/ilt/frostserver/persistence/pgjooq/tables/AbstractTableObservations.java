@@ -12,6 +12,7 @@ import static de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.fieldwrapper
 import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.relations.RelationOneToMany;
 import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.utils.DataSize;
 import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.utils.PropertyFieldRegistry.NFP;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.utils.PropertyFieldRegistry.PositionalSetter;
 import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.utils.PropertyFieldRegistry.PropertyFields;
 import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.utils.PropertyFieldRegistry.PropertySetter;
 import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.utils.Utils;
@@ -131,60 +132,84 @@ public abstract class AbstractTableObservations<J extends Comparable> extends St
         final PropertySetter<AbstractTableObservations<J>, Observation> setterId
                 = (AbstractTableObservations<J> table, Record tuple, Observation entity, DataSize dataSize)
                 -> entity.setId(idManager.fromObject(tuple.get(table.getId())));
-        pfReg.addEntry(EntityPropertyMain.ID, AbstractTableObservations<J>::getId, setterId);
-        pfReg.addEntry(EntityPropertyMain.SELFLINK, AbstractTableObservations<J>::getId, setterId);
+        final PositionalSetter<Observation> positionalId
+                = (Record tuple, int[] pos, Observation entity, DataSize dataSize)
+                -> entity.setId(idManager.fromObject(Utils.getValueOrNull(tuple, pos[0])));
+        pfReg.addEntry(EntityPropertyMain.ID, AbstractTableObservations<J>::getId, setterId)
+                .setPositionalSetter(positionalId);
+        pfReg.addEntry(EntityPropertyMain.SELFLINK, AbstractTableObservations<J>::getId, setterId)
+                .setPositionalSetter(positionalId);
         pfReg.addEntry(
                 EntityPropertyMain.PARAMETERS,
                 table -> table.colParameters,
                 (AbstractTableObservations<J> table, Record tuple, Observation entity, DataSize dataSize) -> {
                     JsonValue props = Utils.getFieldJsonValue(tuple, table.colParameters);
                     dataSize.increase(props.getStringLength());
-                    entity.setParameters(props.getMapValue());
-                });
+                    entity.setParameters(props.getRawMapValue());
+                }).setPositionalSetter((Record tuple, int[] pos, Observation entity, DataSize dataSize) -> {
+            JsonValue props = Utils.getJsonValue(tuple, pos[0]);
+            dataSize.increase(props.getStringLength());
+            entity.setParameters(props.getRawMapValue());
+        });
         pfReg.addEntry(
                 EntityPropertyMain.PHENOMENONTIME,
                 (AbstractTableObservations<J> table, Record tuple, Observation entity, DataSize dataSize) -> entity.setPhenomenonTime(Utils.valueFromTimes(
                         tuple.get(table.colPhenomenonTimeStart),
                         tuple.get(table.colPhenomenonTimeEnd))),
                 new NFP<>(KEY_TIME_INTERVAL_START, table -> table.colPhenomenonTimeStart),
-                new NFP<>(KEY_TIME_INTERVAL_END, table -> table.colPhenomenonTimeEnd));
+                new NFP<>(KEY_TIME_INTERVAL_END, table -> table.colPhenomenonTimeEnd))
+                .setPositionalSetter((Record tuple, int[] pos, Observation entity, DataSize dataSize) -> entity.setPhenomenonTime(Utils.valueFromTimes(
+                        Utils.getValueOrNull(tuple, pos[0]),
+                        Utils.getValueOrNull(tuple, pos[1]))));
         pfReg.addEntry(EntityPropertyMain.RESULT, Utils::readResultFromDb,
                 new NFP<>("n", table -> table.colResultNumber),
                 new NFP<>("b", table -> table.colResultBoolean),
                 new NFP<>("s", table -> table.colResultString),
                 new NFP<>("j", table -> table.colResultJson),
-                new NFP<>("t", table -> table.colResultType));
+                new NFP<>("t", table -> table.colResultType))
+                .setPositionalSetter(Utils::readResultFromDb);
         pfReg.addEntry(
                 EntityPropertyMain.RESULTQUALITY,
                 table -> table.colResultQuality,
                 (AbstractTableObservations<J> table, Record tuple, Observation entity, DataSize dataSize) -> {
                     JsonValue resultQuality = Utils.getFieldJsonValue(tuple, table.colResultQuality);
                     dataSize.increase(resultQuality.getStringLength());
-                    entity.setResultQuality(resultQuality.getValue());
-                });
+                    entity.setResultQuality(resultQuality.getRawValue());
+                }).setPositionalSetter((Record tuple, int[] pos, Observation entity, DataSize dataSize) -> {
+            JsonValue resultQuality = Utils.getJsonValue(tuple, pos[0]);
+            dataSize.increase(resultQuality.getStringLength());
+            entity.setResultQuality(resultQuality.getRawValue());
+        });
         pfReg.addEntry(
                 EntityPropertyMain.RESULTTIME,
                 table -> table.colResultTime,
-                (AbstractTableObservations<J> table, Record tuple, Observation entity, DataSize dataSize) -> entity.setResultTime(Utils.instantFromTime(tuple.get(table.colResultTime))));
+                (AbstractTableObservations<J> table, Record tuple, Observation entity, DataSize dataSize) -> entity.setResultTime(Utils.instantFromTime(tuple.get(table.colResultTime))))
+                .setPositionalSetter((Record tuple, int[] pos, Observation entity, DataSize dataSize) -> entity.setResultTime(Utils.instantFromTime(Utils.getValueOrNull(tuple, pos[0]))));
         pfReg.addEntry(
                 EntityPropertyMain.VALIDTIME,
                 (AbstractTableObservations<J> table, Record tuple, Observation entity, DataSize dataSize) -> entity.setValidTime(Utils.intervalFromTimes(
                         tuple.get(table.colValidTimeStart),
                         tuple.get(table.colValidTimeEnd))),
                 new NFP<>(KEY_TIME_INTERVAL_START, table -> table.colValidTimeStart),
-                new NFP<>(KEY_TIME_INTERVAL_END, table -> table.colValidTimeEnd));
+                new NFP<>(KEY_TIME_INTERVAL_END, table -> table.colValidTimeEnd))
+                .setPositionalSetter((Record tuple, int[] pos, Observation entity, DataSize dataSize) -> entity.setValidTime(Utils.intervalFromTimes(
+                        Utils.getValueOrNull(tuple, pos[0]),
+                        Utils.getValueOrNull(tuple, pos[1]))));
         pfReg.addEntry(
                 NavigationPropertyMain.FEATUREOFINTEREST,
                 AbstractTableObservations::getFeatureId,
-                (AbstractTableObservations<J> table, Record tuple, Observation entity, DataSize dataSize) -> entity.setFeatureOfInterest(entityFactories.featureOfInterestFromId(tuple, table.getFeatureId())));
+                (AbstractTableObservations<J> table, Record tuple, Observation entity, DataSize dataSize) -> entity.setFeatureOfInterest(entityFactories.featureOfInterestFromId(tuple, table.getFeatureId())))
+                .setPositionalSetter((Record tuple, int[] pos, Observation entity, DataSize dataSize) -> entity.setFeatureOfInterest(entityFactories.featureOfInterestFromId(Utils.<J>getValueOrNull(tuple, pos[0]))));
         pfReg.addEntry(
                 NavigationPropertyMain.DATASTREAM,
                 AbstractTableObservations::getDatastreamId,
-                (AbstractTableObservations<J> table, Record tuple, Observation entity, DataSize dataSize) -> entity.setDatastream(entityFactories.datastreamFromId(tuple, table.getDatastreamId())));
+                (AbstractTableObservations<J> table, Record tuple, Observation entity, DataSize dataSize) -> entity.setDatastream(entityFactories.datastreamFromId(tuple, table.getDatastreamId())))
+                .setPositionalSetter((Record tuple, int[] pos, Observation entity, DataSize dataSize) -> entity.setDatastream(entityFactories.datastreamFromId(Utils.<J>getValueOrNull(tuple, pos[0]))));
         pfReg.addEntry(
                 NavigationPropertyMain.MULTIDATASTREAM,
                 AbstractTableObservations::getMultiDatastreamId,
-                (AbstractTableObservations<J> table, Record tuple, Observation entity, DataSize dataSize) -> entity.setMultiDatastream(entityFactories.multiDatastreamFromId(tuple, table.getMultiDatastreamId())));
+                (AbstractTableObservations<J> table, Record tuple, Observation entity, DataSize dataSize) -> entity.setMultiDatastream(entityFactories.multiDatastreamFromId(tuple, table.getMultiDatastreamId())))
+                .setPositionalSetter((Record tuple, int[] pos, Observation entity, DataSize dataSize) -> entity.setMultiDatastream(entityFactories.multiDatastreamFromId(Utils.<J>getValueOrNull(tuple, pos[0]))));
     }
 
     @Override
@@ -117,7 +117,7 @@ public abstract class AbstractTableSensors<J extends Comparable> extends StaTabl
                 (AbstractTableSensors<J> table, Record tuple, Sensor entity, DataSize dataSize) -> {
                     JsonValue props = Utils.getFieldJsonValue(tuple, table.colProperties);
                     dataSize.increase(props.getStringLength());
-                    entity.setProperties(props.getMapValue());
+                    entity.setProperties(props.getRawMapValue());
                 });
         pfReg.addEntry(NavigationPropertyMain.DATASTREAMS, AbstractTableSensors::getId, setterId);
         pfReg.addEntry(NavigationPropertyMain.MULTIDATASTREAMS, AbstractTableSensors::getId, setterId);
@@ -105,7 +105,7 @@ public abstract class AbstractTableTaskingCapabilities<J extends Comparable> ext
                 (AbstractTableTaskingCapabilities<J> table, Record tuple, TaskingCapability entity, DataSize dataSize) -> {
                     JsonValue props = Utils.getFieldJsonValue(tuple, table.colProperties);
                     dataSize.increase(props.getStringLength());
-                    entity.setProperties(props.getMapValue());
+                    entity.setProperties(props.getRawMapValue());
                 });
         pfReg.addEntry(EntityPropertyMain.TASKINGPARAMETERS, table -> table.colTaskingParameters,
                 (AbstractTableTaskingCapabilities<J> table, Record tuple, TaskingCapability entity, DataSize dataSize) -> {
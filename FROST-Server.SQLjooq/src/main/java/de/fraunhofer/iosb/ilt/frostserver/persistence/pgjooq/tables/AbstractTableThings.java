@@ -112,7 +112,7 @@ public abstract class AbstractTableThings<J extends Comparable> extends StaTable
                 (AbstractTableThings<J> table, Record tuple, Thing entity, DataSize dataSize) -> {
                     JsonValue props = Utils.getFieldJsonValue(tuple, table.colProperties);
                     dataSize.increase(props.getStringLength());
-                    entity.setProperties(props.getMapValue());
+                    entity.setProperties(props.getRawMapValue());
                 });
         pfReg.addEntry(NavigationPropertyMain.DATASTREAMS, AbstractTableThings::getId, setterId);
         pfReg.addEntry(NavigationPropertyMain.HISTORICALLOCATIONS, AbstractTableThings::getId, setterId);
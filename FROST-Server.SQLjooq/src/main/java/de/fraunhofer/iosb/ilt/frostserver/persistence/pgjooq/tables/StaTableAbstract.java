@@ -92,9 +92,7 @@ public abstract class StaTableAbstract<J extends Comparable, E extends Entity<E>
     @Override
     public E entityFromQuery(Record tuple, QueryState<J, E, T> state, DataSize dataSize) {
         E newEntity = newEntity();
-        for (PropertyFields<T, E> sp : state.getSelectedProperties()) {
-            sp.setter.setOn(state.getMainTable(), tuple, newEntity, dataSize);
-        }
+        state.getRowMapper(tuple).setOn(tuple, newEntity, dataSize);
         return newEntity;
     }
 
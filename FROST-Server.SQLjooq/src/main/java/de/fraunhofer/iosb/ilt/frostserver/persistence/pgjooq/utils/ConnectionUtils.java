@@ -20,6 +20,7 @@ package de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.utils;
 import de.fraunhofer.iosb.ilt.frostserver.settings.ConfigDefaults;
 import de.fraunhofer.iosb.ilt.frostserver.settings.Settings;
 import de.fraunhofer.iosb.ilt.frostserver.settings.annotation.DefaultValue;
+import de.fraunhofer.iosb.ilt.frostserver.settings.annotation.DefaultValueInt;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
@@ -62,6 +63,19 @@ public class ConnectionUtils implements ConfigDefaults {
     public static final String TAG_DB_MAXIDLE = "db.conn.idle.max";
     public static final String TAG_DB_MINIDLE = "db.conn.idle.min";
 
+    /**
+     * The prefix of the settings of the optional read-only database. These
+     * settings use the same names as those of the main database.
+     */
+    public static final String PREFIX_READ_ONLY = "readOnly.";
+    /**
+     * The maximum replication lag, in seconds, of the read-only database. When
+     * the lag is larger, reads use the main database. 0 disables the check.
+     * Relative to the read-only prefix.
+     */
+    @DefaultValueInt(10)
+    public static final String TAG_READ_ONLY_MAX_LAG = "maxLag";
+
     /**
      * The logger for this class.
      */
@@ -150,6 +164,22 @@ public class ConnectionUtils implements ConfigDefaults {
         }
     }
 
+    /**
+     * Get the settings of the read-only database, if one is configured.
+     *
+     * @param settings The settings of the main database.
+     * @return The settings of the read-only database, or null if no read-only
+     * database is configured.
+     */
+    public static Settings getReadOnlySettings(Settings settings) {
+        Settings readOnlySettings = new Settings(settings.getProperties(), settings.getPrefix() + PREFIX_READ_ONLY, false, settings.getLogSensitiveData());
+        if (readOnlySettings.get(TAG_DB_URL, ConnectionUtils.class, false).isEmpty()
+                && readOnlySettings.get(TAG_DATA_SOURCE, ConnectionUtils.class).isEmpty()) {
+            return null;
+        }
+        return readOnlySettings;
+    }
+
     /**
      * Set up a connection pool. The driver used in the connection URI should
      * already be loaded using
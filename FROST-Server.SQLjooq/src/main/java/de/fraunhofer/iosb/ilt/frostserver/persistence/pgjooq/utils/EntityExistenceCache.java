@@ -0,0 +1,261 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.utils;
+
+import de.fraunhofer.iosb.ilt.frostserver.messagebus.MessageBusFactory;
+import de.fraunhofer.iosb.ilt.frostserver.messagebus.MessageListener;
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityChangedMessage;
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityType;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.Entity;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.Id;
+import de.fraunhofer.iosb.ilt.frostserver.settings.PersistenceSettings;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Remembers which entities are known to exist, so that checking the
+ * (Multi)Datastream and FeatureOfInterest of each new Observation, and each
+ * entity in a request path, does not need a query every time.
+ *
+ * Only positive results are cached, for a limited time. Entries are removed
+ * when the entity is deleted locally, or when a delete message for the entity
+ * arrives on the message bus, so the cache stays correct with multiple
+ * FROST-Server instances. Deletes that cascade to other entities, and deletes
+ * on collections, clear the entire cache.
+ *
+ * A transaction that found an entity to exist may commit after another
+ * transaction deleted that entity. To not re-add such entities, the cache
+ * counts deletes, and entities are only added if no delete happened since the
+ * adding transaction started looking for them.
+ *
+ * @author scf
+ */
+public class EntityExistenceCache implements MessageListener {
+
+    /**
+     * The logger for this class.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(EntityExistenceCache.class);
+
+    /**
+     * Observations and Tasks are rarely referenced more than once, caching
+     * them would only push out the useful entries.
+     */
+    private static final Set<EntityType> UNCACHED_TYPES = EnumSet.of(EntityType.OBSERVATION, EntityType.TASK);
+
+    /**
+     * Deleting these entities cascades to entities that are cached.
+     */
+    private static final Set<EntityType> CASCADING_TYPES = EnumSet.of(
+            EntityType.ACTUATOR,
+            EntityType.OBSERVEDPROPERTY,
+            EntityType.SENSOR,
+            EntityType.TASKINGCAPABILITY,
+            EntityType.THING);
+
+    private static EntityExistenceCache instance;
+
+    private final LruTtlCache<Key, Boolean> entries;
+    private long deleteCount = 0;
+    private boolean listening = false;
+
+    EntityExistenceCache(int maxSize, long ttlMillis) {
+        this.entries = new LruTtlCache<>(maxSize, ttlMillis);
+    }
+
+    /**
+     * Create the cache if it is enabled in the given settings, and register it
+     * on the message bus if that has not happened yet.
+     *
+     * @param settings The persistence settings.
+     */
+    public static synchronized void init(PersistenceSettings settings) {
+        if (instance == null) {
+            int maxSize = settings.getExistenceCacheSize();
+            int ttl = settings.getExistenceCacheTtl();
+            if (maxSize <= 0 || ttl <= 0) {
+                return;
+            }
+            instance = new EntityExistenceCache(maxSize, TimeUnit.SECONDS.toMillis(ttl));
+            LOGGER.info("Caching the existence of up to {} entities for {} seconds.", maxSize, ttl);
+        }
+        if (!instance.listening) {
+            try {
+                MessageBusFactory.getMessageBus().addMessageListener(instance);
+                instance.listening = true;
+            } catch (IllegalStateException ex) {
+                LOGGER.debug("Message bus not initialised yet, not listening for deletes.");
+            }
+        }
+    }
+
+    /**
+     * Get the cache, if it is enabled.
+     *
+     * @return The cache, or null if it is not enabled.
+     */
+    public static EntityExistenceCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Check if the existence of entities of the given type is cached.
+     *
+     * @param type The type to check.
+     * @return true if entities of the given type are cached.
+     */
+    public static boolean isCached(EntityType type) {
+        return !UNCACHED_TYPES.contains(type);
+    }
+
+    /**
+     * Check if the given entity is known to exist.
+     *
+     * @param key The key of the entity.
+     * @return true if the entity is known to exist, false if it is not known.
+     */
+    public boolean contains(Key key) {
+        return entries.get(key) != null;
+    }
+
+    /**
+     * Get the number of deletes handled by the cache so far. Should be
+     * fetched before looking for entities, and passed to
+     * {@link #addAll(Collection, long)} when adding the found entities.
+     *
+     * @return The number of deletes handled so far.
+     */
+    public synchronized long getDeleteCount() {
+        return deleteCount;
+    }
+
+    /**
+     * Add the given entities as existing, unless an entity was deleted since
+     * the given delete count was fetched. Should only be called for entities
+     * that exist in a committed transaction.
+     *
+     * @param keys The keys of the entities.
+     * @param sinceDeleteCount The delete count from before the entities were
+     * found.
+     */
+    public synchronized void addAll(Collection<Key> keys, long sinceDeleteCount) {
+        if (deleteCount != sinceDeleteCount) {
+            LOGGER.debug("Entities were deleted during the transaction, not caching {} entities.", keys.size());
+            return;
+        }
+        Map<Key, Boolean> values = new HashMap<>();
+        for (Key key : keys) {
+            values.put(key, Boolean.TRUE);
+        }
+        entries.putAll(values);
+    }
+
+    /**
+     * Notify the cache that the given entity has been deleted.
+     *
+     * @param type The type of the deleted entity.
+     * @param id The id of the deleted entity.
+     */
+    public synchronized void deleted(EntityType type, Id id) {
+        deleteCount++;
+        if (CASCADING_TYPES.contains(type) || id == null) {
+            entries.clear();
+        } else {
+            entries.remove(new Key(type, id));
+        }
+    }
+
+    /**
+     * Remove all entries.
+     */
+    public synchronized void clear() {
+        deleteCount++;
+        entries.clear();
+    }
+
+    @Override
+    public void messageReceived(EntityChangedMessage message) {
+        if (message.getEventType() != EntityChangedMessage.Type.DELETE) {
+            return;
+        }
+        Entity entity = message.getEntity();
+        if (entity == null) {
+            clear();
+        } else {
+            deleted(entity.getEntityType(), entity.getId());
+        }
+    }
+
+    /**
+     * The cache only needs delete messages, and these are also handled
+     * locally. It should not cause messages to be generated.
+     *
+     * @return false.
+     */
+    @Override
+    public boolean wantsMessages() {
+        return false;
+    }
+
+    /**
+     * The key of an entity in the cache.
+     */
+    public static final class Key {
+
+        private final EntityType type;
+        private final Id id;
+
+        public Key(EntityType type, Id id) {
+            this.type = type;
+            this.id = id;
+        }
+
+        public EntityType getType() {
+            return type;
+        }
+
+        public Id getId() {
+            return id;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, id);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return type == other.type && Objects.equals(id, other.id);
+        }
+
+    }
+}
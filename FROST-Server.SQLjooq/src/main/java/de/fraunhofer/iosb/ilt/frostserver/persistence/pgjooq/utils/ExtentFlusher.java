@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.utils;
+
+import de.fraunhofer.iosb.ilt.frostserver.messagebus.MessageBus;
+import de.fraunhofer.iosb.ilt.frostserver.messagebus.MessageBusFactory;
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityChangedMessage;
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityType;
+import de.fraunhofer.iosb.ilt.frostserver.property.EntityPropertyMain;
+import de.fraunhofer.iosb.ilt.frostserver.settings.PersistenceSettings;
+import de.fraunhofer.iosb.ilt.frostserver.settings.Settings;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Periodically applies the (Multi)Datastream extents that are queued by the
+ * database when the extentMode is "Aggregated".
+ *
+ * In this mode, inserting Observations does not update the (Multi)Datastream
+ * rows, so concurrent inserts into the same (Multi)Datastream do not have to
+ * wait for each other. The phenomenonTime, resultTime and observedArea of
+ * (Multi)Datastreams can lag behind by up to one flush interval. After each
+ * flush that changed extents, a message is sent on the message bus, so that
+ * the ETags and cached responses of all instances are invalidated.
+ *
+ * @author scf
+ */
+public class ExtentFlusher {
+
+    public static final String MODE_TRIGGER = "trigger";
+    public static final String MODE_AGGREGATED = "aggregated";
+
+    /**
+     * The logger for this class.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExtentFlusher.class);
+
+    /**
+     * The entity types that have their extents updated by a flush.
+     */
+    private static final EntityType[] EXTENT_TYPES = {EntityType.DATASTREAM, EntityType.MULTIDATASTREAM};
+
+    private static ScheduledExecutorService executor;
+
+    private ExtentFlusher() {
+        // Utility class, should not be instantiated.
+    }
+
+    /**
+     * Get the extent mode from the given settings, as used by the database
+     * function datastreams_set_extent_mode.
+     *
+     * @param settings The settings to get the mode from.
+     * @return either MODE_TRIGGER or MODE_AGGREGATED.
+     */
+    public static String getExtentMode(PersistenceSettings settings) {
+        if (MODE_AGGREGATED.equalsIgnoreCase(settings.getExtentMode())) {
+            return MODE_AGGREGATED;
+        }
+        return MODE_TRIGGER;
+    }
+
+    /**
+     * Start flushing the queued extents, if the extent mode is "Aggregated"
+     * and flushing has not been started yet.
+     *
+     * @param sourceName The name of the connection pool to use.
+     * @param settings The persistence settings.
+     */
+    public static synchronized void startIfNeeded(String sourceName, PersistenceSettings settings) {
+        if (executor != null || !MODE_AGGREGATED.equals(getExtentMode(settings))) {
+            return;
+        }
+        final Settings customSettings = settings.getCustomSettings();
+        final int interval = Math.max(1, settings.getExtentFlushInterval());
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ExtentFlusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(() -> flush(sourceName, customSettings), interval, interval, TimeUnit.SECONDS);
+        LOGGER.info("Flushing aggregated Datastream extents every {} seconds.", interval);
+    }
+
+    /**
+     * Stop flushing the queued extents.
+     */
+    public static synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private static void flush(String sourceName, Settings customSettings) {
+        try (Connection connection = ConnectionUtils.getConnection(sourceName, customSettings)) {
+            Integer count = DSL.using(connection, SQLDialect.POSTGRES)
+                    .select(DSL.function("datastreams_flush_extents", Integer.class))
+                    .fetchOne()
+                    .component1();
+            connection.commit();
+            LOGGER.debug("Applied {} queued Datastream extents.", count);
+            if (count != null && count > 0) {
+                extentsChanged();
+            }
+        } catch (SQLException | RuntimeException ex) {
+            LOGGER.warn("Failed to apply queued Datastream extents: {}", ex.getMessage());
+            LOGGER.debug("Exception:", ex);
+        }
+    }
+
+    private static void extentsChanged() {
+        MessageBus messageBus;
+        try {
+            messageBus = MessageBusFactory.getMessageBus();
+        } catch (IllegalStateException ex) {
+            LOGGER.debug("Message bus not initialised, not sending extent changes.");
+            return;
+        }
+        extentsChanged(messageBus);
+    }
+
+    /**
+     * Tell all instances that the extents of (Multi)Datastreams changed, using
+     * one message without entity for each type, since the flush does not
+     * report which (Multi)Datastreams it changed.
+     *
+     * @param messageBus The message bus to send the messages on.
+     */
+    static void extentsChanged(MessageBus messageBus) {
+        for (EntityType type : EXTENT_TYPES) {
+            messageBus.sendMessage(new EntityChangedMessage()
+                    .setEventType(EntityChangedMessage.Type.UPDATE)
+                    .setEntityType(type)
+                    .addEpField(EntityPropertyMain.PHENOMENONTIME)
+                    .addEpField(EntityPropertyMain.RESULTTIME)
+                    .addEpField(EntityPropertyMain.OBSERVEDAREA));
+        }
+    }
+}
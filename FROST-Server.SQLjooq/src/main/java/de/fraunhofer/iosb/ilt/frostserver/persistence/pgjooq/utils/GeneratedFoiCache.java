@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.utils;
+
+import de.fraunhofer.iosb.ilt.frostserver.messagebus.MessageBusFactory;
+import de.fraunhofer.iosb.ilt.frostserver.messagebus.MessageListener;
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityChangedMessage;
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityType;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.Id;
+import de.fraunhofer.iosb.ilt.frostserver.settings.PersistenceSettings;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Remembers the FeatureOfInterest that was generated for the Observations of
+ * each (Multi)Datastream, so that inserting Observations without a
+ * FeatureOfInterest does not need to look up the Locations of the Thing every
+ * time.
+ *
+ * Creating a Location or HistoricalLocation, and changing or deleting a Thing,
+ * Location, HistoricalLocation, FeatureOfInterest or (Multi)Datastream,
+ * locally or announced on the message bus, clears the cache. These changes
+ * are rare compared to Observation inserts.
+ *
+ * @author scf
+ */
+public class GeneratedFoiCache implements MessageListener {
+
+    /**
+     * The logger for this class.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(GeneratedFoiCache.class);
+
+    /**
+     * Creating these entity types can change the FeatureOfInterest to use for
+     * a (Multi)Datastream.
+     */
+    private static final Set<EntityType> SOURCE_TYPES_CREATE = EnumSet.of(
+            EntityType.HISTORICALLOCATION,
+            EntityType.LOCATION);
+    /**
+     * Changing or deleting these entity types can change the
+     * FeatureOfInterest to use for a (Multi)Datastream.
+     */
+    private static final Set<EntityType> SOURCE_TYPES = EnumSet.of(
+            EntityType.DATASTREAM,
+            EntityType.FEATUREOFINTEREST,
+            EntityType.HISTORICALLOCATION,
+            EntityType.LOCATION,
+            EntityType.MULTIDATASTREAM,
+            EntityType.THING);
+
+    private static GeneratedFoiCache instance;
+
+    private final LruTtlCache<EntityExistenceCache.Key, Id> entries;
+    private boolean listening = false;
+
+    private GeneratedFoiCache(int maxSize, long ttlMillis) {
+        this.entries = new LruTtlCache<>(maxSize, ttlMillis);
+    }
+
+    /**
+     * Create the cache if it is enabled in the given settings, and register it
+     * on the message bus if that has not happened yet. The cache uses the
+     * same size and time-to-live as the existence cache.
+     *
+     * @param settings The persistence settings.
+     */
+    public static synchronized void init(PersistenceSettings settings) {
+        if (instance == null) {
+            int maxSize = settings.getExistenceCacheSize();
+            int ttl = settings.getExistenceCacheTtl();
+            if (maxSize <= 0 || ttl <= 0) {
+                return;
+            }
+            instance = new GeneratedFoiCache(maxSize, TimeUnit.SECONDS.toMillis(ttl));
+        }
+        if (!instance.listening) {
+            try {
+                MessageBusFactory.getMessageBus().addMessageListener(instance);
+                instance.listening = true;
+            } catch (IllegalStateException ex) {
+                LOGGER.debug("Message bus not initialised yet, not listening for changes.");
+            }
+        }
+    }
+
+    /**
+     * Get the cache, if it is enabled.
+     *
+     * @return The cache, or null if it is not enabled.
+     */
+    public static GeneratedFoiCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Check if the given change can change the FeatureOfInterest generated for
+     * a (Multi)Datastream.
+     *
+     * @param eventType The type of change.
+     * @param type The type of the changed entity.
+     * @return true if the cache has to be cleared after such a change.
+     */
+    public static boolean isAffectedBy(EntityChangedMessage.Type eventType, EntityType type) {
+        if (eventType == EntityChangedMessage.Type.CREATE) {
+            return SOURCE_TYPES_CREATE.contains(type);
+        }
+        return SOURCE_TYPES.contains(type);
+    }
+
+    /**
+     * Get the id of the FeatureOfInterest generated for the given
+     * (Multi)Datastream.
+     *
+     * @param key The type and id of the (Multi)Datastream.
+     * @return The id of the FeatureOfInterest, or null if it is not known.
+     */
+    public Id get(EntityExistenceCache.Key key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Add the given FeaturesOfInterest. Should only be called for
+     * FeaturesOfInterest that exist in a committed transaction.
+     *
+     * @param fois The ids of the FeaturesOfInterest, by (Multi)Datastream.
+     */
+    public void addAll(Map<EntityExistenceCache.Key, Id> fois) {
+        entries.putAll(fois);
+    }
+
+    /**
+     * Remove all entries.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    @Override
+    public void messageReceived(EntityChangedMessage message) {
+        if (message.getEntity() == null && message.getEventType() == EntityChangedMessage.Type.UPDATE) {
+            // Only the extents of (Multi)Datastreams are updated in bulk.
+            return;
+        }
+        if (isAffectedBy(message.getEventType(), message.getEntityType())) {
+            clear();
+        }
+    }
+
+    /**
+     * Local changes are handled directly, the cache should not cause messages
+     * to be generated.
+     *
+     * @return false.
+     */
+    @Override
+    public boolean wantsMessages() {
+        return false;
+    }
+
+}
@@ -22,6 +22,8 @@ import java.io.IOException;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.sql.Connection;
+import java.util.Collections;
+import java.util.Map;
 import liquibase.Contexts;
 import liquibase.Liquibase;
 import liquibase.database.Database;
@@ -47,10 +49,14 @@ public class LiquibaseHelper {
     }
 
     public static String checkForUpgrades(Connection connection, String liquibaseChangelogFilename) {
+        return checkForUpgrades(connection, liquibaseChangelogFilename, Collections.emptyMap());
+    }
+
+    public static String checkForUpgrades(Connection connection, String liquibaseChangelogFilename, Map<String, Object> params) {
         StringWriter out = new StringWriter();
         try {
             Database database = DatabaseFactory.getInstance().findCorrectDatabaseImplementation(new JdbcConnection(connection));
-            runLiquibaseCheck(liquibaseChangelogFilename, database, out);
+            runLiquibaseCheck(liquibaseChangelogFilename, params, database, out);
         } catch (DatabaseException ex) {
             outputError(ex, out, "Failed to initialise database");
         }
@@ -58,9 +64,13 @@ public class LiquibaseHelper {
     }
 
     public static boolean doUpgrades(Connection connection, String liquibaseChangelogFilename, Writer out) throws UpgradeFailedException, IOException {
+        return doUpgrades(connection, liquibaseChangelogFilename, Collections.emptyMap(), out);
+    }
+
+    public static boolean doUpgrades(Connection connection, String liquibaseChangelogFilename, Map<String, Object> params, Writer out) throws UpgradeFailedException, IOException {
         try {
             Database database = DatabaseFactory.getInstance().findCorrectDatabaseImplementation(new JdbcConnection(connection));
-            runLiquibaseUpdate(liquibaseChangelogFilename, database, out);
+            runLiquibaseUpdate(liquibaseChangelogFilename, params, database, out);
         } catch (DatabaseException ex) {
             outputError(ex, out, "Failed to initialise database");
             return false;
@@ -68,8 +78,9 @@ public class LiquibaseHelper {
         return true;
     }
 
-    private static void runLiquibaseCheck(String liquibaseChangelogFilename, Database database, StringWriter out) {
+    private static void runLiquibaseCheck(String liquibaseChangelogFilename, Map<String, Object> params, Database database, StringWriter out) {
         try (Liquibase liquibase = new Liquibase(liquibaseChangelogFilename, new ClassLoaderResourceAccessor(), database)) {
+            setParameters(liquibase, params);
             liquibase.update(new Contexts(), out);
         } catch (LiquibaseException ex) {
             outputError(ex, out, "Failed to upgrade database");
@@ -78,8 +89,9 @@ public class LiquibaseHelper {
         }
     }
 
-    private static void runLiquibaseUpdate(String liquibaseChangelogFilename, Database database, Writer out) throws UpgradeFailedException, IOException {
+    private static void runLiquibaseUpdate(String liquibaseChangelogFilename, Map<String, Object> params, Database database, Writer out) throws UpgradeFailedException, IOException {
         try (Liquibase liquibase = new Liquibase(liquibaseChangelogFilename, new ClassLoaderResourceAccessor(), database)) {
+            setParameters(liquibase, params);
             liquibase.update(new Contexts());
         } catch (LiquibaseException ex) {
             outputError(ex, out, "Failed to upgrade database");
@@ -89,6 +101,12 @@ public class LiquibaseHelper {
         }
     }
 
+    private static void setParameters(Liquibase liquibase, Map<String, Object> params) {
+        for (Map.Entry<String, Object> entry : params.entrySet()) {
+            liquibase.setChangeLogParameter(entry.getKey(), entry.getValue());
+        }
+    }
+
     private static void outputError(final Exception exception, final StringWriter out, final String message) {
         try {
             outputError(exception, (Writer) out, message);
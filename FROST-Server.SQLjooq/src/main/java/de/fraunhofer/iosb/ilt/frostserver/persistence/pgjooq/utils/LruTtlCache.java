@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A simple, thread safe, size-bounded cache in which entries expire after a
+ * fixed time. When full, the least recently used entry is removed.
+ *
+ * @author scf
+ * @param <K> The type of the keys.
+ * @param <V> The type of the values.
+ */
+public class LruTtlCache<K, V> {
+
+    private final Map<K, Entry<V>> entries;
+    private final long ttlMillis;
+
+    /**
+     * Create a new cache.
+     *
+     * @param maxSize The maximum number of entries.
+     * @param ttlMillis The time, in milliseconds, after which entries expire.
+     */
+    public LruTtlCache(final int maxSize, long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<K, Entry<V>>(Math.min(maxSize, 1024), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Get the value for the given key, if it is present and not expired.
+     *
+     * @param key The key to get the value for.
+     * @return The value, or null if there is no valid entry for the key.
+     */
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expires < System.currentTimeMillis()) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.value;
+    }
+
+    /**
+     * Add the given entry to the cache, replacing any existing entry for the
+     * key.
+     *
+     * @param key The key of the entry.
+     * @param value The value of the entry.
+     */
+    public synchronized void put(K key, V value) {
+        entries.put(key, new Entry<>(value, System.currentTimeMillis() + ttlMillis));
+    }
+
+    /**
+     * Add all given entries to the cache.
+     *
+     * @param values The entries to add.
+     */
+    public synchronized void putAll(Map<K, V> values) {
+        long expires = System.currentTimeMillis() + ttlMillis;
+        for (Map.Entry<K, V> value : values.entrySet()) {
+            entries.put(value.getKey(), new Entry<>(value.getValue(), expires));
+        }
+    }
+
+    /**
+     * Remove the entry for the given key.
+     *
+     * @param key The key of the entry to remove.
+     */
+    public synchronized void remove(K key) {
+        entries.remove(key);
+    }
+
+    /**
+     * Remove all entries.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    private static class Entry<V> {
+
+        final V value;
+        final long expires;
+
+        Entry(V value, long expires) {
+            this.value = value;
+            this.expires = expires;
+        }
+    }
+}
@@ -66,11 +66,39 @@ public class PropertyFieldRegistry<J extends Comparable, E extends Entity<E>, T
         public void setOn(T table, Record tuple, E entity, DataSize dataSize);
     }
 
+    /**
+     * Sets a property on an entity, reading the values from the tuple by
+     * position instead of by Field.
+     *
+     * @param <E> The entity type.
+     */
+    public static interface PositionalSetter<E> {
+
+        /**
+         * Set the property on the given entity.
+         *
+         * @param tuple The tuple to read the values from.
+         * @param positions The positions in the tuple of the fields of the
+         * property, in the order in which the fields were registered. All
+         * positions are valid, since RowMapper throws an
+         * IllegalArgumentException when a field of a mapped property is not
+         * in the tuple.
+         * @param entity The entity to set the property on.
+         * @param dataSize The DataSize to increase by the size of the values.
+         */
+        public void setOn(Record tuple, int[] positions, E entity, DataSize dataSize);
+    }
+
     public static class PropertyFields<T, E> {
 
         public final Property property;
         public final Map<String, ExpressionFactory<T>> fields = new LinkedHashMap<>();
         public final PropertySetter<T, E> setter;
+        /**
+         * The optional setter that reads the values by position, used instead
+         * of the normal setter when available.
+         */
+        public PositionalSetter<E> positionalSetter;
 
         public PropertyFields(Property property, PropertySetter<T, E> setter) {
             this.property = property;
@@ -85,6 +113,11 @@ public class PropertyFieldRegistry<J extends Comparable, E extends Entity<E>, T
             fields.put(key, field);
             return this;
         }
+
+        public PropertyFields<T, E> setPositionalSetter(PositionalSetter<E> positionalSetter) {
+            this.positionalSetter = positionalSetter;
+            return this;
+        }
     }
 
     public static class PropertyFactoryCombo<T> {
@@ -212,13 +245,17 @@ public class PropertyFieldRegistry<J extends Comparable, E extends Entity<E>, T
      *
      * @param property The property that this field supplies data for.
      * @param factory The factory to use to generate the Field instance.
+     * @param ps The PropertySetter used to set the property from a database
+     * tuple.
+     * @return The registered PropertyFields.
      */
-    public void addEntry(Property property, ExpressionFactory<T> factory, PropertySetter<T, E> ps) {
+    public PropertyFields<T, E> addEntry(Property property, ExpressionFactory<T> factory, PropertySetter<T, E> ps) {
         PropertyFields<T, E> pf = new PropertyFields(property, ps);
         pf.addField(null, factory);
         epMapSelect.put(property, pf);
         allSelectPropertyFields.add(pf);
         addEntry(epMapAll, property, null, factory);
+        return pf;
     }
 
     /**
@@ -228,8 +265,9 @@ public class PropertyFieldRegistry<J extends Comparable, E extends Entity<E>, T
      * @param ps The PropertySetter used to set the property from a database
      * tuple.
      * @param factories The factories to use to generate the Field instance.
+     * @return The registered PropertyFields.
      */
-    public void addEntry(Property property, PropertySetter<T, E> ps, NFP<T>... factories) {
+    public PropertyFields<T, E> addEntry(Property property, PropertySetter<T, E> ps, NFP<T>... factories) {
         PropertyFields<T, E> pf = new PropertyFields(property, ps);
         for (NFP<T> nfp : factories) {
             pf.addField(nfp.name, nfp.factory);
@@ -237,6 +275,7 @@ public class PropertyFieldRegistry<J extends Comparable, E extends Entity<E>, T
         }
         epMapSelect.put(property, pf);
         allSelectPropertyFields.add(pf);
+        return pf;
     }
 
     /**
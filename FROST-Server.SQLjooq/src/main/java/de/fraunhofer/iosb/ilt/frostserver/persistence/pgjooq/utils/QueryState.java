@@ -53,6 +53,9 @@ public class QueryState<J extends Comparable, E extends Entity<E>, T extends Sta
     private Condition sqlWhere = DSL.trueCondition();
     private Utils.SortSelectFields sqlSortFields;
 
+    private Record lastRecord;
+    private RowMapper<J, E, T> rowMapper;
+
     private boolean distinctRequired = false;
     private boolean isFilter = false;
 
@@ -72,6 +75,21 @@ public class QueryState<J extends Comparable, E extends Entity<E>, T extends Sta
     public E entityFromQuery(Record tuple, DataSize dataSize) {
         return mainTable.entityFromQuery(tuple, this, dataSize);
     }
+
+    /**
+     * Get the RowMapper for the selected properties and the fields of the
+     * given record. The mapper is re-used for all records with the same
+     * fields.
+     *
+     * @param tuple The record to get the mapper for.
+     * @return The RowMapper for the record.
+     */
+    public RowMapper<J, E, T> getRowMapper(Record tuple) {
+        if (rowMapper == null || !rowMapper.isFor(tuple)) {
+            rowMapper = new RowMapper<>(mainTable, selectedProperties, tuple);
+        }
+        return rowMapper;
+    }
     
     public EntitySet<E> createSetFromRecords(Cursor<Record> tuples, Query query, long maxDataSize) {
         EntitySet<E> entitySet = mainTable.newSet();
@@ -80,6 +98,7 @@ public class QueryState<J extends Comparable, E extends Entity<E>, T extends Sta
         int top = query.getTopOrDefault();
         while (tuples.hasNext() && count < top) {
             Record tuple = tuples.fetchNext();
+            lastRecord = tuple;
             entitySet.add(entityFromQuery(tuple, size));
             count++;
             if (size.getDataSize() > maxDataSize) {
@@ -90,6 +109,13 @@ public class QueryState<J extends Comparable, E extends Entity<E>, T extends Sta
         return entitySet;
     }
 
+    /**
+     * @return The record of the last entity added by
+     * {@link #createSetFromRecords(org.jooq.Cursor, de.fraunhofer.iosb.ilt.frostserver.query.Query, long)}.
+     */
+    public Record getLastRecord() {
+        return lastRecord;
+    }
 
     public String getNextAlias() {
         return ALIAS_PREFIX + (++aliasNr);
@@ -134,6 +160,7 @@ public class QueryState<J extends Comparable, E extends Entity<E>, T extends Sta
     public void setSelectedProperties(Set<PropertyFields<T, E>> sqlSelectFields) {
         this.selectedProperties = sqlSelectFields;
         this.sqlSelectFields = null;
+        this.rowMapper = null;
     }
 
     /**
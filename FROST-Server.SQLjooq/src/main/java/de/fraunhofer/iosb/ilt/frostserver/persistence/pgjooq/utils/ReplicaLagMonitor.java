@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.utils;
+
+import de.fraunhofer.iosb.ilt.frostserver.settings.Settings;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps track of the replication lag of read-only databases, so that reads
+ * can fall back to the main database when a replica is too far behind, or
+ * can not be reached.
+ *
+ * The lag is checked at most once per second for each replica. While one
+ * request checks the lag, other requests use the previous result.
+ *
+ * @author scf
+ */
+public class ReplicaLagMonitor {
+
+    /**
+     * The logger for this class.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    private static final long CHECK_INTERVAL_MS = 1000;
+    private static final String LAG_QUERY = "SELECT CASE"
+            + " WHEN NOT pg_is_in_recovery() OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0"
+            + " ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0)"
+            + " END";
+
+    private static final Map<String, ReplicaLagMonitor> MONITORS = new HashMap<>();
+
+    private final String sourceName;
+    private final Settings settings;
+    private final double maxLag;
+    private final AtomicBoolean checking = new AtomicBoolean();
+    private volatile long lastCheck = 0;
+    private volatile boolean usable = false;
+
+    private ReplicaLagMonitor(String sourceName, Settings settings) {
+        this.sourceName = sourceName;
+        this.settings = settings;
+        this.maxLag = settings.getInt(ConnectionUtils.TAG_READ_ONLY_MAX_LAG, ConnectionUtils.class);
+    }
+
+    /**
+     * Check if the read-only database with the given name can be used.
+     *
+     * @param sourceName The name of the connection source of the read-only
+     * database.
+     * @param settings The settings of the read-only database.
+     * @return true if the read-only database can be used, false if reads
+     * should use the main database.
+     */
+    public static boolean isUsable(String sourceName, Settings settings) {
+        ReplicaLagMonitor monitor;
+        synchronized (MONITORS) {
+            monitor = MONITORS.computeIfAbsent(sourceName, n -> new ReplicaLagMonitor(n, settings));
+        }
+        return monitor.isUsable();
+    }
+
+    private boolean isUsable() {
+        if (maxLag <= 0) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        if (now - lastCheck >= CHECK_INTERVAL_MS && checking.compareAndSet(false, true)) {
+            try {
+                usable = checkLag();
+                lastCheck = System.currentTimeMillis();
+            } finally {
+                checking.set(false);
+            }
+        }
+        return usable;
+    }
+
+    private boolean checkLag() {
+        try (Connection connection = ConnectionUtils.getPoolingConnection(sourceName, settings);
+                Statement statement = connection.createStatement();
+                ResultSet result = statement.executeQuery(LAG_QUERY)) {
+            double lag = result.next() ? result.getDouble(1) : 0;
+            if (lag > maxLag) {
+                if (usable || lastCheck == 0) {
+                    LOGGER.warn("Replication lag of {} is {}s, reading from the main database.", sourceName, lag);
+                }
+                return false;
+            }
+            if (!usable && lastCheck != 0) {
+                LOGGER.info("Replication lag of {} is {}s, reading from the replica again.", sourceName, lag);
+            }
+            return true;
+        } catch (SQLException | RuntimeException ex) {
+            if (usable || lastCheck == 0) {
+                LOGGER.warn("Failed to check replication lag of {}, reading from the main database.", sourceName, ex);
+            }
+            return false;
+        }
+    }
+
+}
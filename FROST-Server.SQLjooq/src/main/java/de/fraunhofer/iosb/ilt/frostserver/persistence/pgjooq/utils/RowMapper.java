@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.utils;
+
+import de.fraunhofer.iosb.ilt.frostserver.model.core.Entity;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.tables.StaMainTable;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.utils.PropertyFieldRegistry.ExpressionFactory;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.utils.PropertyFieldRegistry.PositionalSetter;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.utils.PropertyFieldRegistry.PropertyFields;
+import java.util.Collection;
+import org.jooq.Field;
+import org.jooq.Record;
+import org.jooq.Row;
+
+/**
+ * Sets the selected properties of entities from records with a fixed list of
+ * fields. The positions of the fields of all selected properties are resolved
+ * once, when the mapper is created. Properties that have a PositionalSetter
+ * then read their values by index, instead of looking up each Field in each
+ * record.
+ *
+ * @author scf
+ * @param <J> The type of the ID fields.
+ * @param <E> The entity type.
+ * @param <T> The table type.
+ */
+public class RowMapper<J extends Comparable, E extends Entity<E>, T extends StaMainTable<J, E, T>> {
+
+    private final T table;
+    private final Field<?>[] recordFields;
+    private final PropertyFields<T, E>[] properties;
+    private final int[][] positions;
+
+    /**
+     * Create a mapper for the given properties and the fields of the given
+     * record.
+     *
+     * @param table The table the record was selected from.
+     * @param selectedProperties The properties to set on entities.
+     * @param record A record with the fields of all selected properties.
+     * @throws IllegalArgumentException If a field of a selected property is
+     * not in the record.
+     */
+    public RowMapper(T table, Collection<PropertyFields<T, E>> selectedProperties, Record record) {
+        this.table = table;
+        final Row row = record.fieldsRow();
+        recordFields = new Field<?>[row.size()];
+        for (int i = 0; i < recordFields.length; i++) {
+            recordFields[i] = row.field(i);
+        }
+        properties = selectedProperties.toArray(new PropertyFields[selectedProperties.size()]);
+        positions = new int[properties.length][];
+        for (int i = 0; i < properties.length; i++) {
+            PropertyFields<T, E> property = properties[i];
+            if (property.positionalSetter == null) {
+                continue;
+            }
+            int[] propertyPositions = new int[property.fields.size()];
+            int idx = 0;
+            for (ExpressionFactory<T> factory : property.fields.values()) {
+                Field<?> field = factory.get(table);
+                int position = row.indexOf(field);
+                if (position < 0) {
+                    throw new IllegalArgumentException("Field " + field + " of property " + property.property + " is not selected.");
+                }
+                propertyPositions[idx++] = position;
+            }
+            positions[i] = propertyPositions;
+        }
+    }
+
+    /**
+     * Check if the given record has the same fields, in the same order, as the
+     * record this mapper was created for.
+     *
+     * @param record The record to check.
+     * @return true if this mapper can be used for the record.
+     */
+    public boolean isFor(Record record) {
+        if (record.size() != recordFields.length) {
+            return false;
+        }
+        for (int i = 0; i < recordFields.length; i++) {
+            if (record.field(i) != recordFields[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Set the selected properties on the given entity, from the given record.
+     *
+     * @param record The record to read the values from.
+     * @param entity The entity to set the properties on.
+     * @param dataSize The DataSize to increase by the size of the values.
+     */
+    public void setOn(Record record, E entity, DataSize dataSize) {
+        for (int i = 0; i < properties.length; i++) {
+            PropertyFields<T, E> property = properties[i];
+            if (positions[i] == null) {
+                property.setter.setOn(table, record, entity, dataSize);
+            } else {
+                property.positionalSetter.setOn(record, positions[i], entity, dataSize);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.utils;
+
+import de.fraunhofer.iosb.ilt.frostserver.query.OrderBy;
+import de.fraunhofer.iosb.ilt.frostserver.util.SimpleJsonMapper;
+import java.io.IOException;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import org.jooq.Condition;
+import org.jooq.Field;
+import org.jooq.exception.DataTypeException;
+import org.jooq.impl.DSL;
+
+/**
+ * Creates and parses the $skiptoken values used for keyset paging.
+ *
+ * A skipToken contains the values of the sort fields of the last entity of a
+ * page. The next page is loaded by selecting all entities that sort after
+ * these values, which, unlike an OFFSET, does not get slower for every page.
+ *
+ * @author scf
+ */
+public class SkipTokenHelper {
+
+    /**
+     * Prefix for the token, to ensure the query parser always sees it as a
+     * plain character sequence.
+     */
+    private static final String TOKEN_PREFIX = "k";
+    private static final String INVALID_TOKEN = "Invalid $skiptoken.";
+
+    private SkipTokenHelper() {
+        // Utility class, should not be instantiated.
+    }
+
+    /**
+     * Checks if the values of all given fields can be stored in a skipToken.
+     *
+     * @param fields The fields to check.
+     * @return true if all fields have a supported type.
+     */
+    public static boolean isSupported(List<Field> fields) {
+        for (Field field : fields) {
+            Class<?> type = field.getType();
+            if (!Number.class.isAssignableFrom(type)
+                    && type != String.class
+                    && type != Boolean.class
+                    && type != OffsetDateTime.class
+                    && type != UUID.class) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Create a skipToken from the given sort values.
+     *
+     * @param values The sort values of the last entity of a page.
+     * @return The skipToken.
+     */
+    public static String createSkipToken(List<Object> values) {
+        List<Object> jsonValues = new ArrayList<>(values.size());
+        for (Object value : values) {
+            if (value instanceof OffsetDateTime || value instanceof UUID) {
+                jsonValues.add(value.toString());
+            } else {
+                jsonValues.add(value);
+            }
+        }
+        try {
+            byte[] json = SimpleJsonMapper.getSimpleObjectMapper().writeValueAsBytes(jsonValues);
+            return TOKEN_PREFIX + Base64.getUrlEncoder().withoutPadding().encodeToString(json);
+        } catch (IOException ex) {
+            throw new IllegalStateException("Failed to create skipToken.", ex);
+        }
+    }
+
+    /**
+     * Parse the given skipToken into values for the given fields.
+     *
+     * @param skipToken The skipToken to parse.
+     * @param fields The sort fields of the query.
+     * @return The sort values, in the types of the given fields.
+     * @throws IllegalArgumentException if the token is not valid for the
+     * given fields.
+     */
+    public static List<Object> parseSkipToken(String skipToken, List<Field> fields) {
+        if (!skipToken.startsWith(TOKEN_PREFIX)) {
+            throw new IllegalArgumentException(INVALID_TOKEN);
+        }
+        List<Object> jsonValues;
+        try {
+            byte[] json = Base64.getUrlDecoder().decode(skipToken.substring(TOKEN_PREFIX.length()));
+            jsonValues = SimpleJsonMapper.getSimpleObjectMapper().readValue(json, List.class);
+        } catch (IllegalArgumentException | IOException ex) {
+            throw new IllegalArgumentException(INVALID_TOKEN, ex);
+        }
+        if (jsonValues == null || jsonValues.size() != fields.size()) {
+            throw new IllegalArgumentException(INVALID_TOKEN + " Did $orderby change?");
+        }
+        List<Object> values = new ArrayList<>(fields.size());
+        try {
+            for (int i = 0; i < fields.size(); i++) {
+                Object value = jsonValues.get(i);
+                Field field = fields.get(i);
+                if (value == null) {
+                    values.add(null);
+                } else if (field.getType() == OffsetDateTime.class) {
+                    values.add(OffsetDateTime.parse(value.toString()));
+                } else {
+                    // jOOQ converts unparseable values to null instead of failing.
+                    Object converted = field.getDataType().convert(value);
+                    if (converted == null) {
+                        throw new IllegalArgumentException(INVALID_TOKEN);
+                    }
+                    values.add(converted);
+                }
+            }
+        } catch (DateTimeParseException | DataTypeException ex) {
+            throw new IllegalArgumentException(INVALID_TOKEN, ex);
+        }
+        return values;
+    }
+
+    /**
+     * Create the condition that selects all rows that sort after the given
+     * values.
+     *
+     * The condition follows the PostgreSQL default null ordering: nulls sort
+     * after all other values, so come last when ascending, and first when
+     * descending. The first sort field is also given a separate range
+     * condition, so the database can use an index on it.
+     *
+     * @param fields The sort fields.
+     * @param types The sort direction of each of the sort fields.
+     * @param values The sort values of the last row of the previous page.
+     * @return The condition.
+     */
+    public static Condition createSeekCondition(List<Field> fields, List<OrderBy.OrderType> types, List<Object> values) {
+        List<Condition> options = new ArrayList<>(fields.size());
+        List<Condition> equalSoFar = new ArrayList<>(fields.size());
+        for (int i = 0; i < fields.size(); i++) {
+            Field field = fields.get(i);
+            Object value = values.get(i);
+            List<Condition> option = new ArrayList<>(equalSoFar);
+            option.add(after(field, types.get(i), value));
+            options.add(DSL.and(option));
+            equalSoFar.add(value == null ? field.isNull() : field.eq(value));
+        }
+        if (fields.isEmpty()) {
+            return DSL.falseCondition();
+        }
+        return atOrAfter(fields.get(0), types.get(0), values.get(0)).and(DSL.or(options));
+    }
+
+    private static Condition after(Field field, OrderBy.OrderType type, Object value) {
+        if (type == OrderBy.OrderType.ASCENDING) {
+            if (value == null) {
+                return DSL.falseCondition();
+            }
+            return field.gt(value).or(field.isNull());
+        }
+        if (value == null) {
+            return field.isNotNull();
+        }
+        return field.lt(value);
+    }
+
+    private static Condition atOrAfter(Field field, OrderBy.OrderType type, Object value) {
+        if (type == OrderBy.OrderType.ASCENDING) {
+            if (value == null) {
+                return field.isNull();
+            }
+            return field.ge(value).or(field.isNull());
+        }
+        if (value == null) {
+            return DSL.trueCondition();
+        }
+        return field.le(value);
+    }
+}
@@ -210,10 +210,42 @@ public class Utils {
         return NULL_JSON_VALUE;
     }
 
+    /**
+     * Get the value at the given position of the record.
+     *
+     * @param <T> The type of the value.
+     * @param record The record to get the value from.
+     * @param position The position of the value, or -1 if the field is not in
+     * the record.
+     * @return The value, or null if the position is -1.
+     */
+    public static <T> T getValueOrNull(Record record, int position) {
+        if (position < 0) {
+            return null;
+        }
+        return (T) record.get(position);
+    }
+
+    /**
+     * Get the JsonValue at the given position of the record.
+     *
+     * @param record The record to get the value from.
+     * @param position The position of the value, or -1 if the field is not in
+     * the record.
+     * @return The value, or NULL_JSON_VALUE if the position is -1.
+     */
+    public static JsonValue getJsonValue(Record record, int position) {
+        if (position < 0) {
+            return NULL_JSON_VALUE;
+        }
+        return (JsonValue) record.get(position);
+    }
+
     public static class SortSelectFields {
 
         private final List<OrderField> sqlSortFields = new ArrayList<>();
         private final List<Field> sqlSortSelectFields = new ArrayList<>();
+        private final List<OrderBy.OrderType> sqlSortTypes = new ArrayList<>();
 
         public void add(Field field, OrderBy.OrderType type) {
             if (type == OrderBy.OrderType.ASCENDING) {
@@ -222,6 +254,7 @@ public class Utils {
                 sqlSortFields.add(field.desc());
             }
             sqlSortSelectFields.add(field);
+            sqlSortTypes.add(type);
         }
 
         public List<OrderField> getSqlSortFields() {
@@ -231,6 +264,10 @@ public class Utils {
         public List<Field> getSqlSortSelectFields() {
             return sqlSortSelectFields;
         }
+
+        public List<OrderBy.OrderType> getSqlSortTypes() {
+            return sqlSortTypes;
+        }
     }
 
     public static <J extends Comparable<J>> void readResultFromDb(AbstractTableObservations<J> table, Record tuple, Observation entity, DataSize dataSize) {
@@ -249,7 +286,7 @@ public class Utils {
                 case OBJECT_ARRAY:
                     JsonValue jsonData = Utils.getFieldJsonValue(tuple, table.colResultJson);
                     dataSize.increase(jsonData.getStringLength());
-                    entity.setResult(jsonData.getValue());
+                    entity.setResult(jsonData.getRawValue());
                     break;
 
                 case STRING:
@@ -265,6 +302,53 @@ public class Utils {
         }
     }
 
+    /**
+     * Read the result of an Observation by position.
+     *
+     * @param tuple The record to read from.
+     * @param positions The positions of the result number, boolean, string,
+     * json and type fields, in that order.
+     * @param entity The Observation to set the result on.
+     * @param dataSize The DataSize to increase by the size of the result.
+     */
+    public static void readResultFromDb(Record tuple, int[] positions, Observation entity, DataSize dataSize) {
+        Short resultTypeOrd = getValueOrNull(tuple, positions[4]);
+        if (resultTypeOrd != null) {
+            ResultType resultType = ResultType.fromSqlValue(resultTypeOrd);
+            switch (resultType) {
+                case BOOLEAN:
+                    entity.setResult(getValueOrNull(tuple, positions[1]));
+                    break;
+
+                case NUMBER:
+                    String numberString = getValueOrNull(tuple, positions[2]);
+                    try {
+                        entity.setResult(new BigDecimal(numberString));
+                    } catch (NumberFormatException | NullPointerException e) {
+                        // It was not a Number? Use the double value.
+                        entity.setResult(getValueOrNull(tuple, positions[0]));
+                    }
+                    break;
+
+                case OBJECT_ARRAY:
+                    JsonValue jsonData = getJsonValue(tuple, positions[3]);
+                    dataSize.increase(jsonData.getStringLength());
+                    entity.setResult(jsonData.getRawValue());
+                    break;
+
+                case STRING:
+                    String stringData = getValueOrNull(tuple, positions[2]);
+                    dataSize.increase(stringData == null ? 0 : stringData.length());
+                    entity.setResult(stringData);
+                    break;
+
+                default:
+                    LOGGER.error("Unhandled result type: {}", resultType);
+                    throw new IllegalStateException("Unhandled resultType: " + resultType);
+            }
+        }
+    }
+
     private static <J extends Comparable> void handleNumber(Observation entity, Record tuple, AbstractTableObservations<J> table) {
         try {
             entity.setResult(new BigDecimal(Utils.getFieldOrNull(tuple, table.colResultString)));
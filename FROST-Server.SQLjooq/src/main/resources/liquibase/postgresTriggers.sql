@@ -49,11 +49,6 @@ END;
 $$ LANGUAGE plpgsql IMMUTABLE;
 
 
--- ---------------------------------------
--- Trigger: datastreams_actualization_insert on OBSERVATIONS
--- ---------------------------------------
-drop trigger if exists datastreams_actualization_insert ON "OBSERVATIONS";
-
 -- ---------------------------------------
 -- Function: datastreams_update_insert()
 --
@@ -116,11 +111,140 @@ $BODY$
 
 
 
-create trigger datastreams_actualization_insert
-  after insert
-  on "OBSERVATIONS"
-  for each row
-  execute procedure datastreams_update_insert();
+-- ---------------------------------------
+-- Function: datastreams_queue_extents()
+--
+-- Statement level alternative for datastreams_update_insert(). Instead of
+-- updating the (Multi)Datastream once or more for each new Observation, it
+-- stores the combined extents of all Observations inserted by one statement
+-- in DATASTREAM_EXTENT_UPDATES, one row per (Multi)Datastream. These are
+-- applied by datastreams_flush_extents(), so inserting Observations does not
+-- lock the (Multi)Datastream rows.
+-- ---------------------------------------
+create or replace function datastreams_queue_extents()
+  returns trigger as
+$BODY$
+begin
+
+insert into "DATASTREAM_EXTENT_UPDATES"
+	("DATASTREAM_ID", "MULTI_DATASTREAM_ID", "PHENOMENON_TIME_START", "PHENOMENON_TIME_END", "RESULT_TIME_START", "RESULT_TIME_END", "OBSERVED_AREA")
+	select "NEW_ROWS"."DATASTREAM_ID", "NEW_ROWS"."MULTI_DATASTREAM_ID",
+		min("NEW_ROWS"."PHENOMENON_TIME_START"), max(coalesce("NEW_ROWS"."PHENOMENON_TIME_END", "NEW_ROWS"."PHENOMENON_TIME_START")),
+		min("NEW_ROWS"."RESULT_TIME"), max("NEW_ROWS"."RESULT_TIME"),
+		ST_ConvexHull(ST_Collect("FEATURES"."GEOM"))
+	from "NEW_ROWS"
+	left join "FEATURES" on "FEATURES"."ID" = "NEW_ROWS"."FEATURE_ID"
+	group by "NEW_ROWS"."DATASTREAM_ID", "NEW_ROWS"."MULTI_DATASTREAM_ID";
+
+return null;
+END
+$BODY$
+  language plpgsql volatile
+  cost 100;
+
+
+
+-- ---------------------------------------
+-- Function: datastreams_flush_extents()
+--
+-- Applies the extents queued by datastreams_queue_extents() to the
+-- (Multi)Datastreams, using one update per (Multi)Datastream.
+-- Returns the number of queued rows that were applied.
+-- ---------------------------------------
+create or replace function datastreams_flush_extents()
+  returns integer as
+$BODY$
+declare
+"ROW_COUNT" integer;
+begin
+
+with "QUEUED" as (
+	delete from "DATASTREAM_EXTENT_UPDATES" returning *
+), "DS_UPDATE" as (
+	update "DATASTREAMS" set
+		"PHENOMENON_TIME_START" = least("DATASTREAMS"."PHENOMENON_TIME_START", "Q"."PHENOMENON_TIME_START"),
+		"PHENOMENON_TIME_END" = greatest("DATASTREAMS"."PHENOMENON_TIME_END", "Q"."PHENOMENON_TIME_END"),
+		"RESULT_TIME_START" = least("DATASTREAMS"."RESULT_TIME_START", "Q"."RESULT_TIME_START"),
+		"RESULT_TIME_END" = greatest("DATASTREAMS"."RESULT_TIME_END", "Q"."RESULT_TIME_END"),
+		"OBSERVED_AREA" = ST_ConvexHull(ST_Collect("DATASTREAMS"."OBSERVED_AREA", "Q"."OBSERVED_AREA"))
+	from (
+		select "DATASTREAM_ID",
+			min("PHENOMENON_TIME_START") as "PHENOMENON_TIME_START", max("PHENOMENON_TIME_END") as "PHENOMENON_TIME_END",
+			min("RESULT_TIME_START") as "RESULT_TIME_START", max("RESULT_TIME_END") as "RESULT_TIME_END",
+			ST_ConvexHull(ST_Collect("OBSERVED_AREA")) as "OBSERVED_AREA"
+		from "QUEUED" where "DATASTREAM_ID" is not null group by "DATASTREAM_ID"
+	) as "Q"
+	where "DATASTREAMS"."ID" = "Q"."DATASTREAM_ID"
+), "MDS_UPDATE" as (
+	update "MULTI_DATASTREAMS" set
+		"PHENOMENON_TIME_START" = least("MULTI_DATASTREAMS"."PHENOMENON_TIME_START", "Q"."PHENOMENON_TIME_START"),
+		"PHENOMENON_TIME_END" = greatest("MULTI_DATASTREAMS"."PHENOMENON_TIME_END", "Q"."PHENOMENON_TIME_END"),
+		"RESULT_TIME_START" = least("MULTI_DATASTREAMS"."RESULT_TIME_START", "Q"."RESULT_TIME_START"),
+		"RESULT_TIME_END" = greatest("MULTI_DATASTREAMS"."RESULT_TIME_END", "Q"."RESULT_TIME_END"),
+		"OBSERVED_AREA" = ST_ConvexHull(ST_Collect("MULTI_DATASTREAMS"."OBSERVED_AREA", "Q"."OBSERVED_AREA"))
+	from (
+		select "MULTI_DATASTREAM_ID",
+			min("PHENOMENON_TIME_START") as "PHENOMENON_TIME_START", max("PHENOMENON_TIME_END") as "PHENOMENON_TIME_END",
+			min("RESULT_TIME_START") as "RESULT_TIME_START", max("RESULT_TIME_END") as "RESULT_TIME_END",
+			ST_ConvexHull(ST_Collect("OBSERVED_AREA")) as "OBSERVED_AREA"
+		from "QUEUED" where "MULTI_DATASTREAM_ID" is not null group by "MULTI_DATASTREAM_ID"
+	) as "Q"
+	where "MULTI_DATASTREAMS"."ID" = "Q"."MULTI_DATASTREAM_ID"
+)
+select count(*) into "ROW_COUNT" from "QUEUED";
+
+return "ROW_COUNT";
+END
+$BODY$
+  language plpgsql volatile
+  cost 100;
+
+
+
+-- ---------------------------------------
+-- Function: datastreams_set_extent_mode(text)
+--
+-- Switches between maintaining the (Multi)Datastream extents for each
+-- inserted Observation ('trigger'), and queueing them for
+-- datastreams_flush_extents() ('aggregated').
+-- ---------------------------------------
+create or replace function datastreams_set_extent_mode(v_mode text)
+  returns void as
+$BODY$
+begin
+
+drop trigger if exists datastreams_actualization_insert ON "OBSERVATIONS";
+drop trigger if exists datastreams_extents_insert ON "OBSERVATIONS";
+
+if (lower(v_mode) = 'aggregated')
+then
+	create trigger datastreams_extents_insert
+	  after insert
+	  on "OBSERVATIONS"
+	  referencing new table as "NEW_ROWS"
+	  for each statement
+	  execute procedure datastreams_queue_extents();
+else
+	perform datastreams_flush_extents();
+	create trigger datastreams_actualization_insert
+	  after insert
+	  on "OBSERVATIONS"
+	  for each row
+	  execute procedure datastreams_update_insert();
+end if;
+
+END
+$BODY$
+  language plpgsql volatile
+  cost 100;
+
+
+-- Re-create the insert trigger, keeping the current mode.
+select datastreams_set_extent_mode(
+	case when exists (select 1 from pg_trigger where tgname = 'datastreams_extents_insert')
+	then 'aggregated'
+	else 'trigger'
+	end);
 
 
 
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq;
+
+import de.fraunhofer.iosb.ilt.frostserver.messagebus.MessageBusFactory;
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityChangedMessage;
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityType;
+import de.fraunhofer.iosb.ilt.frostserver.model.Location;
+import de.fraunhofer.iosb.ilt.frostserver.model.Sensor;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.Entity;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.IdLong;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.factories.EntityFactories;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.factories.EntityFactory;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.imp.PostgresPersistenceManagerLong;
+import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ *
+ * @author scf
+ */
+public class PostgresPersistenceManagerTest {
+
+    private static CoreSettings settings;
+
+    @BeforeClass
+    public static void initClass() {
+        Properties properties = new Properties();
+        properties.put(CoreSettings.TAG_SERVICE_ROOT_URL, "http://example.org/FROST-Server");
+        properties.put(CoreSettings.TAG_TEMP_PATH, "/tmp/");
+        settings = new CoreSettings(properties);
+        MessageBusFactory.init(settings);
+    }
+
+    @Test
+    public void testInsertAllRunsInsertHooks() {
+        TestPersistenceManager pm = new TestPersistenceManager();
+        pm.init(settings);
+
+        List<Sensor> sensors = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            sensors.add(new Sensor().setName("Sensor " + i));
+        }
+        List<Exception> result = pm.insertAll(sensors);
+        Assert.assertEquals(Arrays.asList(null, null, null), result);
+        Assert.assertEquals(sensors.size(), pm.inserted.size());
+        for (Sensor sensor : sensors) {
+            Assert.assertTrue("Batch-inserted entities must be marked as existing.", pm.isKnownToExist(EntityType.SENSOR, sensor.getId()));
+        }
+
+        IdLong datastreamId = new IdLong(1);
+        pm.registerGeneratedFoi(EntityType.DATASTREAM, datastreamId, new IdLong(2));
+        Assert.assertNotNull(pm.getGeneratedFoi(EntityType.DATASTREAM, datastreamId));
+        pm.insertAll(Arrays.asList(new Location().setName("Location 1"), new Location().setName("Location 2")));
+        Assert.assertNull("Batch-inserted Locations must invalidate generated FeaturesOfInterest.", pm.getGeneratedFoi(EntityType.DATASTREAM, datastreamId));
+    }
+
+    /**
+     * A PersistenceManager with entity factories that do not need a database.
+     */
+    private static class TestPersistenceManager extends PostgresPersistenceManagerLong {
+
+        private final List<Entity> inserted = new ArrayList<>();
+        private EntityFactories<Long> factories;
+
+        @Override
+        public EntityFactories<Long> getEntityFactories() {
+            if (factories == null) {
+                final EntityFactory<Entity, Long> factory = new EntityFactory<Entity, Long>() {
+                    @Override
+                    public boolean insert(PostgresPersistenceManager<Long> pm, Entity entity) {
+                        entity.setId(new IdLong(100 + inserted.size()));
+                        inserted.add(entity);
+                        return true;
+                    }
+
+                    @Override
+                    public EntityChangedMessage update(PostgresPersistenceManager<Long> pm, Entity entity, Long entityId) {
+                        throw new UnsupportedOperationException();
+                    }
+
+                    @Override
+                    public void delete(PostgresPersistenceManager<Long> pm, Long entityId) {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+                factories = new EntityFactories<Long>(getIdManager(), getTableCollection()) {
+                    @Override
+                    public <T extends Entity<T>> EntityFactory<T, Long> getFactoryFor(EntityType type) {
+                        return (EntityFactory) factory;
+                    }
+                };
+            }
+            return factories;
+        }
+    }
+
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq;
+
+import de.fraunhofer.iosb.ilt.frostserver.parser.path.PathParser;
+import de.fraunhofer.iosb.ilt.frostserver.parser.query.QueryParser;
+import de.fraunhofer.iosb.ilt.frostserver.path.ResourcePath;
+import de.fraunhofer.iosb.ilt.frostserver.path.Version;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.imp.PostgresPersistenceManagerLong;
+import de.fraunhofer.iosb.ilt.frostserver.query.Query;
+import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
+import java.util.Properties;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.conf.ParamType;
+import org.jooq.impl.DSL;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ *
+ * @author scf
+ */
+public class QueryBuilderAggregateTest {
+
+    private static final String SERVICE_ROOT = "http://example.org/FROST-Server";
+    private static final String BUCKET_HOUR = "cast(floor((extract(epoch from \"e0\".\"PHENOMENON_TIME_START\") / 3600.0)) as bigint)";
+    private static final String BUCKET_DAY = "cast(floor((extract(epoch from \"agg\".\"PHENOMENON_TIME_START\") / 86400.0)) as bigint)";
+    private static final String FILTER_LOCATIONS = "$filter=Datastream/Thing/Locations/name eq 'x'";
+
+    private static CoreSettings settings;
+    private static PostgresPersistenceManagerLong pm;
+
+    @BeforeClass
+    public static void initClass() {
+        Properties properties = new Properties();
+        properties.put(CoreSettings.TAG_SERVICE_ROOT_URL, SERVICE_ROOT);
+        properties.put(CoreSettings.TAG_TEMP_PATH, "/tmp/");
+        settings = new CoreSettings(properties);
+        pm = new PostgresPersistenceManagerLong() {
+            private final DSLContext dslContext = DSL.using(SQLDialect.POSTGRES);
+
+            @Override
+            public DSLContext getDslContext() {
+                // Only used to generate SQL, no connection needed.
+                return dslContext;
+            }
+        };
+        pm.init(settings);
+    }
+
+    @Test
+    public void testAggregateSelect() {
+        String sql = createBuilder("/Datastreams(1)/Observations", "$aggregate=duration'PT1H'&$top=10&$skip=5")
+                .buildAggregateSelect()
+                .getSQL(ParamType.INLINED);
+        Assert.assertTrue(sql, sql.startsWith("select " + BUCKET_HOUR + " as \"bucket\", "));
+        Assert.assertTrue(sql, sql.contains("count(\"e0\".\"RESULT_NUMBER\") as \"count\""));
+        Assert.assertTrue(sql, sql.contains("min(\"e0\".\"RESULT_NUMBER\") as \"min\""));
+        Assert.assertTrue(sql, sql.contains("max(\"e0\".\"RESULT_NUMBER\") as \"max\""));
+        Assert.assertTrue(sql, sql.contains("cast(avg(\"e0\".\"RESULT_NUMBER\") as double precision) as \"avg\""));
+        Assert.assertTrue(sql, sql.contains("(array_agg(\"e0\".\"RESULT_NUMBER\" ORDER BY \"e0\".\"PHENOMENON_TIME_START\", \"e0\".\"ID\"))[1] as \"first\""));
+        Assert.assertTrue(sql, sql.contains("(array_agg(\"e0\".\"RESULT_NUMBER\" ORDER BY \"e0\".\"PHENOMENON_TIME_START\" DESC, \"e0\".\"ID\" DESC))[1] as \"last\""));
+        Assert.assertTrue(sql, sql.contains("\"e1\".\"ID\" = 1 and \"e0\".\"RESULT_NUMBER\" is not null"));
+        Assert.assertTrue(sql, sql.contains(" group by " + BUCKET_HOUR + " order by " + BUCKET_HOUR + " asc"));
+        Assert.assertTrue("One extra row is fetched to detect a next page. " + sql, sql.endsWith(" limit 11 offset 5"));
+        Assert.assertFalse(sql, sql.contains("\"agg\""));
+    }
+
+    @Test
+    public void testAggregateSelectDescending() {
+        String sql = createBuilder("/Datastreams(1)/Observations", "$aggregate=duration'PT1H'&$orderby=phenomenonTime desc")
+                .buildAggregateSelect()
+                .getSQL(ParamType.INLINED);
+        Assert.assertTrue(sql, sql.contains(" order by " + BUCKET_HOUR + " desc"));
+    }
+
+    @Test
+    public void testAggregateCount() {
+        String sql = createBuilder("/Datastreams(1)/Observations", "$aggregate=duration'PT1H'&$top=10&$skip=5")
+                .buildAggregateCount()
+                .getSQL(ParamType.INLINED);
+        Assert.assertTrue(sql, sql.startsWith("select count(distinct " + BUCKET_HOUR + ") from \"OBSERVATIONS\" as \"e0\""));
+        Assert.assertTrue(sql, sql.endsWith("\"e1\".\"ID\" = 1 and \"e0\".\"RESULT_NUMBER\" is not null)"));
+        Assert.assertFalse("The count must ignore $top and $skip. " + sql, sql.contains("limit"));
+    }
+
+    @Test
+    public void testAggregateDistinctFallback() {
+        // Thing to Locations is many-to-many, the joins can duplicate Observations.
+        String sql = createBuilder("/Observations", "$aggregate=duration'P1D'&" + FILTER_LOCATIONS)
+                .buildAggregateSelect()
+                .getSQL(ParamType.INLINED);
+        Assert.assertTrue(sql, sql.startsWith("select " + BUCKET_DAY + " as \"bucket\", "));
+        Assert.assertTrue(sql, sql.contains(" from \"OBSERVATIONS\" as \"agg\" where (\"agg\".\"ID\" in (select \"e0\".\"ID\" from \"OBSERVATIONS\" as \"e0\" "));
+        Assert.assertTrue(sql, sql.contains("\"e4\".\"NAME\" = 'x')) and \"agg\".\"RESULT_NUMBER\" is not null)"));
+        Assert.assertTrue(sql, sql.contains(" group by " + BUCKET_DAY));
+
+        String count = createBuilder("/Observations", "$aggregate=duration'P1D'&" + FILTER_LOCATIONS)
+                .buildAggregateCount()
+                .getSQL(ParamType.INLINED);
+        Assert.assertTrue(count, count.startsWith("select count(distinct " + BUCKET_DAY + ") from \"OBSERVATIONS\" as \"agg\" where (\"agg\".\"ID\" in (select "));
+    }
+
+    @Test
+    public void testAggregateMillis() {
+        Assert.assertEquals(3_600_000L, createBuilder("/Observations", "$aggregate=duration'PT1H'").getAggregateMillis());
+        Assert.assertEquals(86_400_000L, createBuilder("/Observations", "$aggregate=duration'P1D'").getAggregateMillis());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAggregateOrderByOther() {
+        createBuilder("/Observations", "$aggregate=duration'PT1H'&$orderby=result").buildAggregateSelect();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testNotAggregate() {
+        createBuilder("/Observations", "$top=10").buildAggregateSelect();
+    }
+
+    private static QueryBuilder<Long> createBuilder(String url, String queryString) {
+        ResourcePath path = PathParser.parsePath(SERVICE_ROOT, Version.V_1_1, url);
+        Query query = QueryParser.parseQuery(queryString, settings, path).validate();
+        return new QueryBuilder<>(pm, settings, pm.getTableCollection())
+                .forPath(path)
+                .usingQuery(query);
+    }
+
+}
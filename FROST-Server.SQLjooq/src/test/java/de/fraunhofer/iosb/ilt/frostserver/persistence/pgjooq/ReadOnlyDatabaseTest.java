@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq;
+
+import de.fraunhofer.iosb.ilt.frostserver.messagebus.MessageBusFactory;
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityType;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.IdLong;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.imp.PostgresPersistenceManagerLong;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.utils.ConnectionUtils;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.utils.FakeDatabase;
+import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
+import java.sql.Connection;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests the use of the read-only database, using stand-ins for the main and
+ * read-only databases.
+ *
+ * @author scf
+ */
+public class ReadOnlyDatabaseTest {
+
+    private static final String PREFIX = CoreSettings.PREFIX_PERSISTENCE;
+
+    private static CoreSettings settings;
+    private static FakeDatabase primary;
+    private static FakeDatabase replica;
+
+    @BeforeClass
+    public static void initClass() {
+        primary = FakeDatabase.register("pm-primary");
+        replica = FakeDatabase.register("pm-replica");
+        Properties properties = new Properties();
+        properties.put(CoreSettings.TAG_SERVICE_ROOT_URL, "http://example.org/FROST-Server");
+        properties.put(CoreSettings.TAG_TEMP_PATH, "/tmp/");
+        properties.put(PREFIX + ConnectionUtils.TAG_DATA_SOURCE, "pm-primary");
+        properties.put(PREFIX + ConnectionUtils.PREFIX_READ_ONLY + ConnectionUtils.TAG_DATA_SOURCE, "pm-replica");
+        properties.put(PREFIX + ConnectionUtils.PREFIX_READ_ONLY + ConnectionUtils.TAG_READ_ONLY_MAX_LAG, "10");
+        settings = new CoreSettings(properties);
+        MessageBusFactory.init(settings);
+    }
+
+    /**
+     * The monitor of the read-only database is shared by all
+     * PersistenceManagers, so the scenarios run in one test, in order.
+     *
+     * @throws InterruptedException If the test is interrupted.
+     */
+    @Test
+    public void testReadOnlyRouting() throws InterruptedException {
+        replica.setLag(1);
+        assertReadsFromReplica(true);
+        Assert.assertEquals(1, replica.getLagQueries());
+
+        // Within a second the previous check is used.
+        replica.setLag(30);
+        assertReadsFromReplica(true);
+        assertReadsFromReplica(true);
+        Assert.assertEquals(1, replica.getLagQueries());
+
+        Thread.sleep(1100);
+        assertReadsFromReplica(false);
+        Assert.assertEquals(2, replica.getLagQueries());
+
+        replica.setFailing(true);
+        Thread.sleep(1100);
+        assertReadsFromReplica(false);
+
+        replica.setFailing(false);
+        replica.setLag(0);
+        Thread.sleep(1100);
+        assertReadsFromReplica(true);
+    }
+
+    @Test
+    public void testWithoutReadOnlyDatabase() {
+        Properties properties = new Properties();
+        properties.put(CoreSettings.TAG_SERVICE_ROOT_URL, "http://example.org/FROST-Server");
+        properties.put(CoreSettings.TAG_TEMP_PATH, "/tmp/");
+        properties.put(PREFIX + ConnectionUtils.TAG_DATA_SOURCE, "pm-primary");
+        PostgresPersistenceManagerLong pm = new PostgresPersistenceManagerLong();
+        pm.init(new CoreSettings(properties));
+        pm.setReadOnly();
+        Assert.assertEquals(0, pm.getMaxStaleness());
+        Assert.assertTrue(primary.owns(pm.getConnectionProvider().get()));
+    }
+
+    private static void assertReadsFromReplica(boolean expected) {
+        PostgresPersistenceManagerLong pm = new PostgresPersistenceManagerLong();
+        pm.init(settings);
+        pm.setReadOnly();
+        Connection connection = pm.getConnectionProvider().get();
+        Assert.assertEquals("Reading from the wrong database.", expected, replica.owns(connection));
+        Assert.assertEquals("Reading from the wrong database.", !expected, primary.owns(connection));
+        Assert.assertEquals(expected ? TimeUnit.SECONDS.toMillis(10) : 0, pm.getMaxStaleness());
+
+        // Results from the replica may be outdated, and must not be cached.
+        IdLong sensorId = new IdLong(System.nanoTime());
+        IdLong datastreamId = new IdLong(System.nanoTime());
+        pm.markExisting(EntityType.SENSOR, sensorId);
+        pm.registerGeneratedFoi(EntityType.DATASTREAM, datastreamId, new IdLong(1));
+        pm.commit();
+        pm.close();
+        PostgresPersistenceManagerLong checker = new PostgresPersistenceManagerLong();
+        checker.init(settings);
+        Assert.assertEquals(!expected, checker.isKnownToExist(EntityType.SENSOR, sensorId));
+        Assert.assertEquals(!expected, checker.getGeneratedFoi(EntityType.DATASTREAM, datastreamId) != null);
+    }
+}
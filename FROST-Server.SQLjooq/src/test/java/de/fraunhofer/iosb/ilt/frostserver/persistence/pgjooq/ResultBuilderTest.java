@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq;
+
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityType;
+import de.fraunhofer.iosb.ilt.frostserver.model.Observation;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.EntitySet;
+import de.fraunhofer.iosb.ilt.frostserver.model.ext.TimeInterval;
+import de.fraunhofer.iosb.ilt.frostserver.parser.path.PathParser;
+import de.fraunhofer.iosb.ilt.frostserver.parser.query.QueryParser;
+import de.fraunhofer.iosb.ilt.frostserver.path.ResourcePath;
+import de.fraunhofer.iosb.ilt.frostserver.path.Version;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.imp.PostgresPersistenceManagerLong;
+import de.fraunhofer.iosb.ilt.frostserver.query.Query;
+import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import org.joda.time.DateTimeZone;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record;
+import org.jooq.Record1;
+import org.jooq.Result;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
+import org.jooq.tools.jdbc.MockConnection;
+import org.jooq.tools.jdbc.MockResult;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ *
+ * @author scf
+ */
+public class ResultBuilderTest {
+
+    private static final String SERVICE_ROOT = "http://example.org/FROST-Server";
+
+    private static CoreSettings settings;
+
+    @BeforeClass
+    public static void initClass() {
+        Properties properties = new Properties();
+        properties.put(CoreSettings.TAG_SERVICE_ROOT_URL, SERVICE_ROOT);
+        properties.put(CoreSettings.TAG_TEMP_PATH, "/tmp/");
+        settings = new CoreSettings(properties);
+    }
+
+    @Test
+    public void testNextLinkOfTruncatedParent() {
+        ResourcePath path = PathParser.parsePath(SERVICE_ROOT, Version.V_1_1, "/Things");
+        Query query = QueryParser.parseQuery("$expand=Datastreams($top=2)", settings, path);
+        Query subQuery = query.getExpand().get(0).getSubQuery();
+        ResourcePath parent1 = PathParser.parsePath(SERVICE_ROOT, Version.V_1_1, "/Things(1)/Datastreams");
+        ResourcePath parent2 = PathParser.parsePath(SERVICE_ROOT, Version.V_1_1, "/Things(2)/Datastreams");
+        ResourcePath parent3 = PathParser.parsePath(SERVICE_ROOT, Version.V_1_1, "/Things(3)/Datastreams");
+
+        String full1 = ResultBuilder.generateNextLink(parent1, subQuery, 2);
+        // The second parent hit the size limit after one entity.
+        String truncated = ResultBuilder.generateNextLink(parent2, subQuery, 1);
+        String full3 = ResultBuilder.generateNextLink(parent3, subQuery, 2);
+
+        Assert.assertEquals(2, subQuery.getTopOrDefault());
+        Assert.assertTrue(full1, full1.contains("$top=2"));
+        Assert.assertTrue(full1, full1.contains("$skip=2"));
+        Assert.assertTrue(truncated, truncated.contains("$top=1"));
+        Assert.assertTrue(truncated, truncated.contains("$skip=1"));
+        Assert.assertEquals(full1.replace("Things(1)", "Things(3)"), full3);
+    }
+
+    @Test
+    public void testAggregate() {
+        final List<String> executed = new ArrayList<>();
+        final DSLContext mockContext = DSL.using(new MockConnection(ctx -> {
+            executed.add(ctx.sql());
+            DSLContext create = DSL.using(SQLDialect.POSTGRES);
+            if (ctx.sql().startsWith("select count(distinct")) {
+                Field<Integer> count = DSL.field("count", SQLDataType.INTEGER);
+                Result<Record1<Integer>> result = create.newResult(count);
+                result.add(create.newRecord(count).values(3));
+                return new MockResult[]{new MockResult(1, result)};
+            }
+            return new MockResult[]{new MockResult(3, createAggregateResult(create))};
+        }), SQLDialect.POSTGRES);
+        PostgresPersistenceManagerLong pm = new PostgresPersistenceManagerLong() {
+            @Override
+            public DSLContext getDslContext() {
+                return mockContext;
+            }
+        };
+        pm.init(settings);
+
+        ResourcePath path = PathParser.parsePath(SERVICE_ROOT, Version.V_1_1, "/Datastreams(1)/Observations");
+        Query query = QueryParser.parseQuery("$aggregate=duration'PT1H'&$top=2&$count=true", settings, path).validate();
+        QueryBuilder<Long> queryBuilder = new QueryBuilder<>(pm, settings, pm.getTableCollection())
+                .forPath(path)
+                .usingQuery(query);
+        ResultBuilder<Long> resultBuilder = new ResultBuilder<>(pm, path, query, queryBuilder);
+        path.getLastElement().visit(resultBuilder);
+
+        Assert.assertEquals(2, executed.size());
+        EntitySet<Observation> result = (EntitySet<Observation>) resultBuilder.getEntity();
+        Assert.assertEquals(EntityType.OBSERVATION, result.getEntityType());
+        Assert.assertEquals("$top limits the intervals.", 2, result.size());
+        Assert.assertEquals(3, result.getCount());
+        Assert.assertNotNull("More intervals than $top should give a nextLink.", result.getNextLink());
+        Assert.assertTrue(result.getNextLink(), result.getNextLink().contains("$skip=2"));
+
+        Observation first = result.asList().get(0);
+        long hour = 3_600_000L;
+        Assert.assertEquals(TimeInterval.create(450_000 * hour, 450_001 * hour, DateTimeZone.UTC), first.getPhenomenonTime());
+        Assert.assertEquals(2.5, first.getResult());
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put(QueryBuilder.AGGREGATE_COUNT, 4);
+        stats.put(QueryBuilder.AGGREGATE_MIN, 1.0);
+        stats.put(QueryBuilder.AGGREGATE_MAX, 4.0);
+        stats.put(QueryBuilder.AGGREGATE_AVG, 2.5);
+        stats.put(QueryBuilder.AGGREGATE_FIRST, 2.0);
+        stats.put(QueryBuilder.AGGREGATE_LAST, 3.0);
+        Assert.assertEquals(stats, first.getParameters());
+        Assert.assertEquals(query, first.getQuery());
+
+        Observation second = result.asList().get(1);
+        Assert.assertEquals(TimeInterval.create(450_002 * hour, 450_003 * hour, DateTimeZone.UTC), second.getPhenomenonTime());
+        Assert.assertEquals(7.0, second.getResult());
+    }
+
+    private static Result<Record> createAggregateResult(DSLContext create) {
+        Field<Long> bucket = DSL.field(QueryBuilder.AGGREGATE_BUCKET, SQLDataType.BIGINT);
+        Field<Integer> count = DSL.field(QueryBuilder.AGGREGATE_COUNT, SQLDataType.INTEGER);
+        Field<Double> min = DSL.field(QueryBuilder.AGGREGATE_MIN, SQLDataType.DOUBLE);
+        Field<Double> max = DSL.field(QueryBuilder.AGGREGATE_MAX, SQLDataType.DOUBLE);
+        Field<Double> avg = DSL.field(QueryBuilder.AGGREGATE_AVG, SQLDataType.DOUBLE);
+        Field<Double> first = DSL.field(QueryBuilder.AGGREGATE_FIRST, SQLDataType.DOUBLE);
+        Field<Double> last = DSL.field(QueryBuilder.AGGREGATE_LAST, SQLDataType.DOUBLE);
+        Field<?>[] fields = {bucket, count, min, max, avg, first, last};
+        Result<Record> result = create.newResult(fields);
+        Object[][] rows = {
+            {450_000L, 4, 1.0, 4.0, 2.5, 2.0, 3.0},
+            {450_002L, 1, 7.0, 7.0, 7.0, 7.0, 7.0},
+            {450_003L, 2, 1.0, 3.0, 2.0, 1.0, 3.0}
+        };
+        for (Object[] row : rows) {
+            Record aggRecord = create.newRecord(fields);
+            aggRecord.fromArray(row);
+            result.add(aggRecord);
+        }
+        return result;
+    }
+
+}
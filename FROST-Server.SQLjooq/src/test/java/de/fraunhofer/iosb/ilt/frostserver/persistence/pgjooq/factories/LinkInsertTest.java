@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.factories;
+
+import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.imp.PostgresPersistenceManagerLong;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.tables.AbstractTableMultiDatastreamsObsProperties;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.tables.AbstractTableThingsLocations;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.tables.TableCollection;
+import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.jooq.tools.jdbc.MockConnection;
+import org.jooq.tools.jdbc.MockExecuteContext;
+import org.jooq.tools.jdbc.MockResult;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests that link table rows are inserted with a single statement.
+ *
+ * @author scf
+ */
+public class LinkInsertTest {
+
+    private static TableCollection<Long> tables;
+
+    private final List<MockExecuteContext> executed = new ArrayList<>();
+    private DSLContext dslContext;
+
+    @BeforeClass
+    public static void initClass() {
+        Properties properties = new Properties();
+        properties.put(CoreSettings.TAG_SERVICE_ROOT_URL, "http://example.org/FROST-Server");
+        properties.put(CoreSettings.TAG_TEMP_PATH, "/tmp/");
+        PostgresPersistenceManagerLong pm = new PostgresPersistenceManagerLong();
+        pm.init(new CoreSettings(properties));
+        tables = pm.getTableCollection();
+    }
+
+    @Before
+    public void setUp() {
+        executed.clear();
+        dslContext = DSL.using(new MockConnection(ctx -> {
+            executed.add(ctx);
+            return new MockResult[]{new MockResult(ctx.batchBindings()[0].length / 2, null)};
+        }), SQLDialect.POSTGRES);
+    }
+
+    @Test
+    public void testInsertLinks() {
+        AbstractTableThingsLocations<Long> ttl = tables.getTableThingsLocations();
+        EntityFactories.insertLinks(dslContext, ttl, ttl.getThingId(), 1L, ttl.getLocationId(), Arrays.asList(10L, 11L, 12L));
+
+        Assert.assertEquals("Expected a single statement.", 1, executed.size());
+        MockExecuteContext insert = executed.get(0);
+        Assert.assertEquals(
+                "insert into \"THINGS_LOCATIONS\" (\"THING_ID\", \"LOCATION_ID\") values (?, ?), (?, ?), (?, ?)",
+                insert.sql());
+        Assert.assertArrayEquals(new Object[]{1L, 10L, 1L, 11L, 1L, 12L}, insert.bindings());
+    }
+
+    @Test
+    public void testInsertNoLinks() {
+        AbstractTableThingsLocations<Long> ttl = tables.getTableThingsLocations();
+        int count = EntityFactories.insertLinks(dslContext, ttl, ttl.getThingId(), 1L, ttl.getLocationId(), Collections.emptyList());
+        Assert.assertEquals(0, count);
+        Assert.assertTrue("No statement expected without links.", executed.isEmpty());
+    }
+
+    @Test
+    public void testLinkObservedPropertiesKeepsOrder() {
+        AbstractTableMultiDatastreamsObsProperties<Long> tMdOp = tables.getTableMultiDatastreamsObsProperties();
+        // Not sorted, the order defines which result element belongs to which ObservedProperty.
+        MultiDatastreamFactory.linkObservedProperties(dslContext, tMdOp, 5L, 0, Arrays.asList(30L, 10L, 20L));
+
+        Assert.assertEquals("Expected a single statement.", 1, executed.size());
+        MockExecuteContext insert = executed.get(0);
+        Assert.assertEquals(
+                "insert into \"MULTI_DATASTREAMS_OBS_PROPERTIES\" (\"MULTI_DATASTREAM_ID\", \"OBS_PROPERTY_ID\", \"RANK\") values (?, ?, ?), (?, ?, ?), (?, ?, ?)",
+                insert.sql());
+        Assert.assertArrayEquals(new Object[]{5L, 30L, 0, 5L, 10L, 1, 5L, 20L, 2}, insert.bindings());
+    }
+
+    @Test
+    public void testLinkObservedPropertiesAfterExisting() {
+        AbstractTableMultiDatastreamsObsProperties<Long> tMdOp = tables.getTableMultiDatastreamsObsProperties();
+        // A PATCH adding two ObservedProperties to a MultiDatastream that has three.
+        MultiDatastreamFactory.linkObservedProperties(dslContext, tMdOp, 5L, 3, Arrays.asList(40L, 41L));
+
+        Assert.assertEquals(1, executed.size());
+        Assert.assertArrayEquals(new Object[]{5L, 40L, 3, 5L, 41L, 4}, executed.get(0).bindings());
+
+        executed.clear();
+        MultiDatastreamFactory.linkObservedProperties(dslContext, tMdOp, 5L, 3, Collections.emptyList());
+        Assert.assertTrue(executed.isEmpty());
+    }
+
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.utils;
+
+import de.fraunhofer.iosb.ilt.frostserver.model.Datastream;
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityChangedMessage;
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityType;
+import de.fraunhofer.iosb.ilt.frostserver.model.Sensor;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.Entity;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.IdLong;
+import java.util.Arrays;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author scf
+ */
+public class EntityExistenceCacheTest {
+
+    private static final EntityExistenceCache.Key DATASTREAM_1 = new EntityExistenceCache.Key(EntityType.DATASTREAM, new IdLong(1));
+    private static final EntityExistenceCache.Key DATASTREAM_2 = new EntityExistenceCache.Key(EntityType.DATASTREAM, new IdLong(2));
+    private static final EntityExistenceCache.Key FEATURE_1 = new EntityExistenceCache.Key(EntityType.FEATUREOFINTEREST, new IdLong(1));
+
+    private EntityExistenceCache cache;
+
+    @Before
+    public void setUp() {
+        cache = new EntityExistenceCache(100, 60_000);
+        cache.addAll(Arrays.asList(DATASTREAM_1, DATASTREAM_2, FEATURE_1), cache.getDeleteCount());
+        assertContains(true, true, true);
+    }
+
+    @Test
+    public void testIsCached() {
+        Assert.assertTrue(EntityExistenceCache.isCached(EntityType.DATASTREAM));
+        Assert.assertTrue(EntityExistenceCache.isCached(EntityType.FEATUREOFINTEREST));
+        Assert.assertFalse(EntityExistenceCache.isCached(EntityType.OBSERVATION));
+        Assert.assertFalse(EntityExistenceCache.isCached(EntityType.TASK));
+    }
+
+    @Test
+    public void testDeleteDuringLookupIsNotCached() {
+        EntityExistenceCache.Key key = new EntityExistenceCache.Key(EntityType.DATASTREAM, new IdLong(3));
+        long startCount = cache.getDeleteCount();
+        // Another transaction deletes an entity while this one looks up key.
+        cache.deleted(EntityType.DATASTREAM, new IdLong(3));
+        cache.addAll(Arrays.asList(key), startCount);
+        Assert.assertFalse("An entity found during a delete must not be cached.", cache.contains(key));
+
+        startCount = cache.getDeleteCount();
+        cache.messageReceived(message(new Datastream().setId(new IdLong(3))));
+        cache.addAll(Arrays.asList(key), startCount);
+        Assert.assertFalse("A remote delete must also prevent caching.", cache.contains(key));
+
+        startCount = cache.getDeleteCount();
+        cache.addAll(Arrays.asList(key), startCount);
+        Assert.assertTrue("Without deletes, entities are cached.", cache.contains(key));
+    }
+
+    @Test
+    public void testDeleteSingle() {
+        cache.deleted(EntityType.DATASTREAM, new IdLong(1));
+        assertContains(false, true, true);
+        cache.messageReceived(message(new Datastream().setId(new IdLong(2))));
+        assertContains(false, false, true);
+    }
+
+    @Test
+    public void testDeleteWithoutEntityClearsType() {
+        EntityChangedMessage message = new EntityChangedMessage()
+                .setEventType(EntityChangedMessage.Type.DELETE)
+                .setEntityType(EntityType.DATASTREAM);
+        cache.messageReceived(message);
+        Assert.assertFalse(cache.contains(DATASTREAM_1));
+        Assert.assertFalse(cache.contains(DATASTREAM_2));
+    }
+
+    @Test
+    public void testDeleteWithoutIdClearsType() {
+        cache.deleted(EntityType.DATASTREAM, null);
+        Assert.assertFalse(cache.contains(DATASTREAM_1));
+        Assert.assertFalse(cache.contains(DATASTREAM_2));
+    }
+
+    @Test
+    public void testCascadingDeleteClearsDependentTypes() {
+        cache.deleted(EntityType.THING, new IdLong(7));
+        assertContains(false, false, false);
+
+        cache.addAll(Arrays.asList(DATASTREAM_1, DATASTREAM_2, FEATURE_1), cache.getDeleteCount());
+        cache.messageReceived(message(new Sensor().setId(new IdLong(7))));
+        assertContains(false, false, false);
+    }
+
+    @Test
+    public void testOtherMessagesKeepEntries() {
+        cache.messageReceived(new EntityChangedMessage()
+                .setEventType(EntityChangedMessage.Type.UPDATE)
+                .setEntity(new Datastream().setId(new IdLong(1))));
+        cache.messageReceived(new EntityChangedMessage()
+                .setEventType(EntityChangedMessage.Type.CREATE)
+                .setEntity(new Sensor().setId(new IdLong(1))));
+        assertContains(true, true, true);
+    }
+
+    @Test
+    public void testTtlExpiry() throws InterruptedException {
+        EntityExistenceCache shortCache = new EntityExistenceCache(100, 50);
+        shortCache.addAll(Arrays.asList(DATASTREAM_1), shortCache.getDeleteCount());
+        Assert.assertTrue(shortCache.contains(DATASTREAM_1));
+        Thread.sleep(100);
+        Assert.assertFalse("Entries must expire after the TTL.", shortCache.contains(DATASTREAM_1));
+    }
+
+    private void assertContains(boolean datastream1, boolean datastream2, boolean feature1) {
+        Assert.assertEquals(datastream1, cache.contains(DATASTREAM_1));
+        Assert.assertEquals(datastream2, cache.contains(DATASTREAM_2));
+        Assert.assertEquals(feature1, cache.contains(FEATURE_1));
+    }
+
+    private static EntityChangedMessage message(Entity entity) {
+        return new EntityChangedMessage()
+                .setEventType(EntityChangedMessage.Type.DELETE)
+                .setEntity(entity);
+    }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.utils;
+
+import de.fraunhofer.iosb.ilt.frostserver.messagebus.MessageBus;
+import de.fraunhofer.iosb.ilt.frostserver.messagebus.MessageListener;
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityChangedMessage;
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityType;
+import de.fraunhofer.iosb.ilt.frostserver.property.EntityPropertyMain;
+import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
+import de.fraunhofer.iosb.ilt.frostserver.settings.PersistenceSettings;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Properties;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author scf
+ */
+public class ExtentFlusherTest {
+
+    @Test
+    public void testGetExtentMode() {
+        Assert.assertEquals(ExtentFlusher.MODE_TRIGGER, ExtentFlusher.getExtentMode(createSettings(null)));
+        Assert.assertEquals(ExtentFlusher.MODE_TRIGGER, ExtentFlusher.getExtentMode(createSettings("trigger")));
+        Assert.assertEquals(ExtentFlusher.MODE_TRIGGER, ExtentFlusher.getExtentMode(createSettings("unknown")));
+        Assert.assertEquals(ExtentFlusher.MODE_AGGREGATED, ExtentFlusher.getExtentMode(createSettings("Aggregated")));
+    }
+
+    @Test
+    public void testExtentsChangedMessages() {
+        RecordingMessageBus bus = new RecordingMessageBus();
+        ExtentFlusher.extentsChanged(bus);
+
+        Assert.assertEquals("Expected one message per type.", 2, bus.messages.size());
+        List<EntityType> types = new ArrayList<>();
+        for (EntityChangedMessage message : bus.messages) {
+            types.add(message.getEntityType());
+            Assert.assertEquals(EntityChangedMessage.Type.UPDATE, message.getEventType());
+            Assert.assertNull("The flush does not know which entities changed.", message.getEntity());
+            Assert.assertEquals(
+                    EnumSet.of(EntityPropertyMain.PHENOMENONTIME, EntityPropertyMain.RESULTTIME, EntityPropertyMain.OBSERVEDAREA),
+                    message.getEpFields());
+        }
+        Assert.assertEquals(Arrays.asList(EntityType.DATASTREAM, EntityType.MULTIDATASTREAM), types);
+    }
+
+    private static PersistenceSettings createSettings(String extentMode) {
+        Properties properties = new Properties();
+        properties.put(CoreSettings.TAG_SERVICE_ROOT_URL, "http://example.org/FROST-Server");
+        properties.put(CoreSettings.TAG_TEMP_PATH, "/tmp/");
+        if (extentMode != null) {
+            properties.put(CoreSettings.PREFIX_PERSISTENCE + PersistenceSettings.TAG_EXTENT_MODE, extentMode);
+        }
+        return new CoreSettings(properties).getPersistenceSettings();
+    }
+
+    /**
+     * A message bus that keeps all messages sent on it.
+     */
+    private static class RecordingMessageBus implements MessageBus {
+
+        private final List<EntityChangedMessage> messages = new ArrayList<>();
+
+        @Override
+        public void init(CoreSettings settings) {
+            // Nothing to initialise.
+        }
+
+        @Override
+        public void stop() {
+            // Nothing to stop.
+        }
+
+        @Override
+        public void sendMessage(EntityChangedMessage message) {
+            messages.add(message);
+        }
+
+        @Override
+        public void addMessageListener(MessageListener listener) {
+            // Messages are only recorded.
+        }
+
+        @Override
+        public void removeMessageListener(MessageListener listener) {
+            // Messages are only recorded.
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.utils;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.naming.Context;
+import javax.naming.NameNotFoundException;
+import javax.naming.spi.InitialContextFactory;
+import javax.sql.DataSource;
+
+/**
+ * A stand-in for a database, registered as a JNDI data source. It answers the
+ * replication lag query of the {@link ReplicaLagMonitor} with a configurable
+ * lag, or fails it like a server without pg_is_in_recovery() would.
+ *
+ * @author scf
+ */
+public class FakeDatabase {
+
+    private static final String JNDI_PREFIX = "java:/comp/env/";
+    private static final Map<String, FakeDatabase> DATABASES = new ConcurrentHashMap<>();
+
+    private volatile double lag = 0;
+    private volatile boolean failing = false;
+    private final AtomicInteger lagQueries = new AtomicInteger();
+    private final List<Connection> connections = new CopyOnWriteArrayList<>();
+
+    /**
+     * Create a database and make it available as the JNDI data source with
+     * the given name.
+     *
+     * @param dataSourceName The name of the data source, as used in the
+     * db.jndi.datasource setting.
+     * @return The new database.
+     */
+    public static FakeDatabase register(String dataSourceName) {
+        System.setProperty(Context.INITIAL_CONTEXT_FACTORY, TestContextFactory.class.getName());
+        FakeDatabase database = new FakeDatabase();
+        DATABASES.put(dataSourceName, database);
+        return database;
+    }
+
+    public void setLag(double lag) {
+        this.lag = lag;
+    }
+
+    public void setFailing(boolean failing) {
+        this.failing = failing;
+    }
+
+    /**
+     * @return The number of times the replication lag was queried.
+     */
+    public int getLagQueries() {
+        return lagQueries.get();
+    }
+
+    /**
+     * @param connection The connection to check.
+     * @return true if the given connection was opened on this database.
+     */
+    public boolean owns(Connection connection) {
+        return connections.contains(connection);
+    }
+
+    private DataSource createDataSource() {
+        return proxy(DataSource.class, (p, method, args) -> {
+            if ("getConnection".equals(method.getName())) {
+                Connection connection = createConnection();
+                connections.add(connection);
+                return connection;
+            }
+            return defaultValue(method.getReturnType());
+        });
+    }
+
+    private Connection createConnection() {
+        return proxy(Connection.class, (p, method, args) -> {
+            if ("createStatement".equals(method.getName())) {
+                return createStatement();
+            }
+            return defaultValue(method.getReturnType());
+        });
+    }
+
+    private Statement createStatement() {
+        return proxy(Statement.class, (p, method, args) -> {
+            if ("executeQuery".equals(method.getName())) {
+                if (failing) {
+                    throw new SQLException("function pg_is_in_recovery() does not exist");
+                }
+                lagQueries.incrementAndGet();
+                return createResultSet(lag);
+            }
+            return defaultValue(method.getReturnType());
+        });
+    }
+
+    private static ResultSet createResultSet(double value) {
+        AtomicInteger row = new AtomicInteger();
+        return proxy(ResultSet.class, (p, method, args) -> {
+            switch (method.getName()) {
+                case "next":
+                    return row.incrementAndGet() == 1;
+                case "getDouble":
+                    return value;
+                default:
+                    return defaultValue(method.getReturnType());
+            }
+        });
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(FakeDatabase.class.getClassLoader(), new Class<?>[]{type}, (p, method, args) -> {
+            switch (method.getName()) {
+                case "equals":
+                    return p == args[0];
+                case "hashCode":
+                    return System.identityHashCode(p);
+                case "toString":
+                    return type.getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(p));
+                default:
+                    return handler.invoke(p, method, args);
+            }
+        }));
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == double.class) {
+            return 0.0;
+        }
+        return null;
+    }
+
+    /**
+     * Serves the registered databases as JNDI data sources.
+     */
+    public static class TestContextFactory implements InitialContextFactory {
+
+        @Override
+        public Context getInitialContext(Hashtable<?, ?> environment) {
+            return proxy(Context.class, (p, method, args) -> {
+                if ("lookup".equals(method.getName())) {
+                    String name = args[0].toString();
+                    FakeDatabase database = DATABASES.get(name.startsWith(JNDI_PREFIX) ? name.substring(JNDI_PREFIX.length()) : name);
+                    if (database == null) {
+                        throw new NameNotFoundException(name);
+                    }
+                    return database.createDataSource();
+                }
+                return defaultValue(method.getReturnType());
+            });
+        }
+    }
+}
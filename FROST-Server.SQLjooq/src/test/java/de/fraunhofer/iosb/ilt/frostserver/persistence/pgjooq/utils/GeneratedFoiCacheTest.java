@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.utils;
+
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityChangedMessage;
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityType;
+import de.fraunhofer.iosb.ilt.frostserver.model.Location;
+import de.fraunhofer.iosb.ilt.frostserver.model.Observation;
+import de.fraunhofer.iosb.ilt.frostserver.model.Sensor;
+import de.fraunhofer.iosb.ilt.frostserver.model.Thing;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.Entity;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.IdLong;
+import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
+import java.util.Collections;
+import java.util.Properties;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ *
+ * @author scf
+ */
+public class GeneratedFoiCacheTest {
+
+    private static final EntityExistenceCache.Key DATASTREAM_KEY = new EntityExistenceCache.Key(EntityType.DATASTREAM, new IdLong(1));
+
+    private static GeneratedFoiCache cache;
+
+    @BeforeClass
+    public static void initClass() {
+        Properties properties = new Properties();
+        properties.put(CoreSettings.TAG_SERVICE_ROOT_URL, "http://example.org/FROST-Server");
+        properties.put(CoreSettings.TAG_TEMP_PATH, "/tmp/");
+        CoreSettings settings = new CoreSettings(properties);
+        GeneratedFoiCache.init(settings.getPersistenceSettings());
+        cache = GeneratedFoiCache.getInstance();
+        Assert.assertNotNull("The cache should be enabled by default.", cache);
+    }
+
+    @Before
+    public void setUp() {
+        cache.clear();
+        cache.addAll(Collections.singletonMap(DATASTREAM_KEY, new IdLong(2)));
+        Assert.assertEquals(new IdLong(2), cache.get(DATASTREAM_KEY));
+    }
+
+    @Test
+    public void testIsAffectedBy() {
+        Assert.assertTrue(GeneratedFoiCache.isAffectedBy(EntityChangedMessage.Type.CREATE, EntityType.LOCATION));
+        Assert.assertTrue(GeneratedFoiCache.isAffectedBy(EntityChangedMessage.Type.CREATE, EntityType.HISTORICALLOCATION));
+        Assert.assertFalse(GeneratedFoiCache.isAffectedBy(EntityChangedMessage.Type.CREATE, EntityType.THING));
+        Assert.assertFalse(GeneratedFoiCache.isAffectedBy(EntityChangedMessage.Type.CREATE, EntityType.DATASTREAM));
+        Assert.assertFalse(GeneratedFoiCache.isAffectedBy(EntityChangedMessage.Type.CREATE, EntityType.OBSERVATION));
+        for (EntityChangedMessage.Type eventType : new EntityChangedMessage.Type[]{EntityChangedMessage.Type.UPDATE, EntityChangedMessage.Type.DELETE}) {
+            Assert.assertTrue(GeneratedFoiCache.isAffectedBy(eventType, EntityType.THING));
+            Assert.assertTrue(GeneratedFoiCache.isAffectedBy(eventType, EntityType.LOCATION));
+            Assert.assertTrue(GeneratedFoiCache.isAffectedBy(eventType, EntityType.HISTORICALLOCATION));
+            Assert.assertTrue(GeneratedFoiCache.isAffectedBy(eventType, EntityType.DATASTREAM));
+            Assert.assertTrue(GeneratedFoiCache.isAffectedBy(eventType, EntityType.MULTIDATASTREAM));
+            Assert.assertTrue(GeneratedFoiCache.isAffectedBy(eventType, EntityType.FEATUREOFINTEREST));
+            Assert.assertFalse(GeneratedFoiCache.isAffectedBy(eventType, EntityType.OBSERVATION));
+            Assert.assertFalse(GeneratedFoiCache.isAffectedBy(eventType, EntityType.SENSOR));
+        }
+    }
+
+    @Test
+    public void testUnrelatedMessagesKeepEntries() {
+        cache.messageReceived(message(EntityChangedMessage.Type.CREATE, new Observation().setId(new IdLong(3))));
+        cache.messageReceived(message(EntityChangedMessage.Type.CREATE, new Thing().setId(new IdLong(3))));
+        cache.messageReceived(message(EntityChangedMessage.Type.UPDATE, new Sensor().setId(new IdLong(3))));
+        Assert.assertEquals(new IdLong(2), cache.get(DATASTREAM_KEY));
+    }
+
+    @Test
+    public void testExtentUpdateKeepsEntries() {
+        EntityChangedMessage message = new EntityChangedMessage()
+                .setEventType(EntityChangedMessage.Type.UPDATE)
+                .setEntityType(EntityType.DATASTREAM);
+        cache.messageReceived(message);
+        Assert.assertEquals(new IdLong(2), cache.get(DATASTREAM_KEY));
+    }
+
+    @Test
+    public void testLocationCreateClears() {
+        cache.messageReceived(message(EntityChangedMessage.Type.CREATE, new Location().setId(new IdLong(3))));
+        Assert.assertNull(cache.get(DATASTREAM_KEY));
+    }
+
+    @Test
+    public void testThingUpdateClears() {
+        cache.messageReceived(message(EntityChangedMessage.Type.UPDATE, new Thing().setId(new IdLong(3))));
+        Assert.assertNull(cache.get(DATASTREAM_KEY));
+    }
+
+    @Test
+    public void testCollectionDeleteClears() {
+        EntityChangedMessage message = new EntityChangedMessage()
+                .setEventType(EntityChangedMessage.Type.DELETE)
+                .setEntityType(EntityType.DATASTREAM);
+        cache.messageReceived(message);
+        Assert.assertNull(cache.get(DATASTREAM_KEY));
+    }
+
+    private static EntityChangedMessage message(EntityChangedMessage.Type type, Entity entity) {
+        return new EntityChangedMessage()
+                .setEventType(type)
+                .setEntity(entity);
+    }
+
+}
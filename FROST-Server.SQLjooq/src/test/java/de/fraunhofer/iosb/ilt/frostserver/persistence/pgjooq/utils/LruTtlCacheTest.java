@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author scf
+ */
+public class LruTtlCacheTest {
+
+    private static final long LONG_TTL = 60_000;
+
+    @Test
+    public void testGetPut() {
+        LruTtlCache<String, Integer> cache = new LruTtlCache<>(10, LONG_TTL);
+        Assert.assertNull(cache.get("a"));
+        cache.put("a", 1);
+        Assert.assertEquals(Integer.valueOf(1), cache.get("a"));
+        cache.put("a", 2);
+        Assert.assertEquals(Integer.valueOf(2), cache.get("a"));
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        LruTtlCache<String, Integer> cache = new LruTtlCache<>(3, LONG_TTL);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.put("c", 3);
+        // Using a makes b the least recently used entry.
+        Assert.assertEquals(Integer.valueOf(1), cache.get("a"));
+        cache.put("d", 4);
+        Assert.assertNull(cache.get("b"));
+        Assert.assertEquals(Integer.valueOf(1), cache.get("a"));
+        Assert.assertEquals(Integer.valueOf(3), cache.get("c"));
+        Assert.assertEquals(Integer.valueOf(4), cache.get("d"));
+    }
+
+    @Test
+    public void testPutAllRespectsMaxSize() {
+        LruTtlCache<String, Integer> cache = new LruTtlCache<>(2, LONG_TTL);
+        Map<String, Integer> values = new LinkedHashMap<>();
+        values.put("a", 1);
+        values.put("b", 2);
+        values.put("c", 3);
+        cache.putAll(values);
+        Assert.assertNull(cache.get("a"));
+        Assert.assertEquals(Integer.valueOf(2), cache.get("b"));
+        Assert.assertEquals(Integer.valueOf(3), cache.get("c"));
+    }
+
+    @Test
+    public void testExpiry() throws InterruptedException {
+        LruTtlCache<String, Integer> cache = new LruTtlCache<>(10, 50);
+        cache.put("a", 1);
+        Assert.assertEquals(Integer.valueOf(1), cache.get("a"));
+        Thread.sleep(100);
+        Assert.assertNull("Entry should have expired.", cache.get("a"));
+        // Replacing an entry renews its lifetime.
+        cache.put("a", 2);
+        Assert.assertEquals(Integer.valueOf(2), cache.get("a"));
+    }
+
+    @Test
+    public void testRemoveAndClear() {
+        LruTtlCache<String, Integer> cache = new LruTtlCache<>(10, LONG_TTL);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.remove("a");
+        Assert.assertNull(cache.get("a"));
+        Assert.assertEquals(Integer.valueOf(2), cache.get("b"));
+        cache.clear();
+        Assert.assertNull(cache.get("b"));
+    }
+
+}
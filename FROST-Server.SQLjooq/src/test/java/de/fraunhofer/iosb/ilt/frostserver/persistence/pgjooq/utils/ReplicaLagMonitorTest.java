@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.utils;
+
+import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
+import de.fraunhofer.iosb.ilt.frostserver.settings.Settings;
+import java.util.Properties;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author scf
+ */
+public class ReplicaLagMonitorTest {
+
+    private static final String PREFIX = CoreSettings.PREFIX_PERSISTENCE + ConnectionUtils.PREFIX_READ_ONLY;
+
+    @Test
+    public void testGetReadOnlySettings() {
+        Properties properties = new Properties();
+        Settings mainSettings = new Settings(properties, CoreSettings.PREFIX_PERSISTENCE, false, false);
+        Assert.assertNull("No read-only database is configured.", ConnectionUtils.getReadOnlySettings(mainSettings));
+
+        properties.put(PREFIX + ConnectionUtils.TAG_DATA_SOURCE, "replica");
+        Settings readOnlySettings = ConnectionUtils.getReadOnlySettings(mainSettings);
+        Assert.assertNotNull(readOnlySettings);
+        Assert.assertEquals("replica", readOnlySettings.get(ConnectionUtils.TAG_DATA_SOURCE, ConnectionUtils.class));
+        Assert.assertEquals(10, readOnlySettings.getInt(ConnectionUtils.TAG_READ_ONLY_MAX_LAG, ConnectionUtils.class));
+
+        properties.clear();
+        properties.put(PREFIX + ConnectionUtils.TAG_DB_URL, "jdbc:postgresql://replica/sensorthings");
+        Assert.assertNotNull(ConnectionUtils.getReadOnlySettings(mainSettings));
+    }
+
+    @Test
+    public void testLagBelowMax() {
+        FakeDatabase replica = FakeDatabase.register("replica-ok");
+        replica.setLag(5);
+        Assert.assertTrue(ReplicaLagMonitor.isUsable("replica-ok", settings("replica-ok", 10)));
+        Assert.assertEquals(1, replica.getLagQueries());
+    }
+
+    @Test
+    public void testLagAboveMax() {
+        FakeDatabase replica = FakeDatabase.register("replica-behind");
+        replica.setLag(11);
+        Assert.assertFalse(ReplicaLagMonitor.isUsable("replica-behind", settings("replica-behind", 10)));
+    }
+
+    @Test
+    public void testLagCheckFails() {
+        FakeDatabase replica = FakeDatabase.register("replica-failing");
+        replica.setFailing(true);
+        Assert.assertFalse(ReplicaLagMonitor.isUsable("replica-failing", settings("replica-failing", 10)));
+    }
+
+    @Test
+    public void testLagCheckDisabled() {
+        FakeDatabase replica = FakeDatabase.register("replica-unchecked");
+        replica.setFailing(true);
+        Assert.assertTrue(ReplicaLagMonitor.isUsable("replica-unchecked", settings("replica-unchecked", 0)));
+        Assert.assertEquals(0, replica.getLagQueries());
+    }
+
+    @Test
+    public void testLagCheckedOncePerSecond() throws InterruptedException {
+        FakeDatabase replica = FakeDatabase.register("replica-interval");
+        Settings settings = settings("replica-interval", 10);
+        for (int i = 0; i < 10; i++) {
+            Assert.assertTrue(ReplicaLagMonitor.isUsable("replica-interval", settings));
+        }
+        Assert.assertEquals(1, replica.getLagQueries());
+
+        replica.setLag(60);
+        Assert.assertTrue("The previous result should be used within a second.", ReplicaLagMonitor.isUsable("replica-interval", settings));
+        Assert.assertEquals(1, replica.getLagQueries());
+
+        Thread.sleep(1100);
+        Assert.assertFalse(ReplicaLagMonitor.isUsable("replica-interval", settings));
+        Assert.assertEquals(2, replica.getLagQueries());
+
+        replica.setLag(0);
+        Thread.sleep(1100);
+        Assert.assertTrue("The replica should be used again once it caught up.", ReplicaLagMonitor.isUsable("replica-interval", settings));
+    }
+
+    private static Settings settings(String dataSourceName, int maxLag) {
+        Properties properties = new Properties();
+        properties.put(PREFIX + ConnectionUtils.TAG_DATA_SOURCE, dataSourceName);
+        properties.put(PREFIX + ConnectionUtils.TAG_READ_ONLY_MAX_LAG, Integer.toString(maxLag));
+        return ConnectionUtils.getReadOnlySettings(new Settings(properties, CoreSettings.PREFIX_PERSISTENCE, false, false));
+    }
+}
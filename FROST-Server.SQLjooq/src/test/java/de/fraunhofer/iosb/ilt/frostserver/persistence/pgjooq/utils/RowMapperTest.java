@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.utils;
+
+import de.fraunhofer.iosb.ilt.frostserver.model.Observation;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.IdLong;
+import de.fraunhofer.iosb.ilt.frostserver.model.ext.TimeInstant;
+import de.fraunhofer.iosb.ilt.frostserver.parser.path.PathParser;
+import de.fraunhofer.iosb.ilt.frostserver.parser.query.QueryParser;
+import de.fraunhofer.iosb.ilt.frostserver.path.ResourcePath;
+import de.fraunhofer.iosb.ilt.frostserver.path.Version;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.QueryBuilder;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.imp.PostgresPersistenceManagerLong;
+import de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.tables.longid.TableLongObservations;
+import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ *
+ * @author scf
+ */
+public class RowMapperTest {
+
+    private static final String SERVICE_ROOT = "http://example.org/FROST-Server";
+    private static final OffsetDateTime TIME = OffsetDateTime.of(2021, 1, 1, 12, 0, 0, 0, ZoneOffset.UTC);
+
+    private static CoreSettings settings;
+    private static PostgresPersistenceManagerLong pm;
+
+    @BeforeClass
+    public static void initClass() {
+        Properties properties = new Properties();
+        properties.put(CoreSettings.TAG_SERVICE_ROOT_URL, SERVICE_ROOT);
+        properties.put(CoreSettings.TAG_TEMP_PATH, "/tmp/");
+        settings = new CoreSettings(properties);
+        pm = new PostgresPersistenceManagerLong() {
+            private final DSLContext dslContext = DSL.using(SQLDialect.POSTGRES);
+
+            @Override
+            public DSLContext getDslContext() {
+                // Only used to generate SQL, no connection needed.
+                return dslContext;
+            }
+        };
+        pm.init(settings);
+    }
+
+    private static QueryState createState(String select) {
+        ResourcePath path = PathParser.parsePath(SERVICE_ROOT, Version.V_1_1, "/Observations");
+        QueryBuilder<Long> queryBuilder = new QueryBuilder<>(pm, settings, pm.getTableCollection())
+                .forPath(path)
+                .usingQuery(QueryParser.parseQuery(select, settings, path));
+        queryBuilder.buildSelect();
+        return queryBuilder.getQueryState();
+    }
+
+    private static Record createRecord(List<Field> fields, TableLongObservations table) {
+        Record record = DSL.using(SQLDialect.POSTGRES).newRecord(fields.toArray(new Field<?>[fields.size()]));
+        record.set((Field) table.getId(), 42L);
+        record.set((Field) table.colPhenomenonTimeStart, TIME);
+        record.set((Field) table.colPhenomenonTimeEnd, TIME);
+        return record;
+    }
+
+    @Test
+    public void testPositions() {
+        QueryState state = createState("$select=id,phenomenonTime");
+        TableLongObservations table = (TableLongObservations) state.getMainTable();
+        List<Field> fields = new ArrayList<>(state.getSqlSelectFields());
+        // The positions must come from the record, not from the select order.
+        Collections.reverse(fields);
+        Record record = createRecord(fields, table);
+
+        RowMapper mapper = new RowMapper(table, state.getSelectedProperties(), record);
+        Assert.assertTrue(mapper.isFor(record));
+        Assert.assertFalse(mapper.isFor(createRecord(new ArrayList<>(state.getSqlSelectFields()), table)));
+
+        Observation observation = new Observation();
+        mapper.setOn(record, observation, new DataSize());
+        Assert.assertEquals(new IdLong(42L), observation.getId());
+        Assert.assertEquals(TIME.toInstant().toEpochMilli(), ((TimeInstant) observation.getPhenomenonTime()).getDateTime().getMillis());
+    }
+
+    @Test
+    public void testMissingField() {
+        QueryState state = createState("$select=id,phenomenonTime");
+        TableLongObservations table = (TableLongObservations) state.getMainTable();
+        List<Field> fields = new ArrayList<>(state.getSqlSelectFields());
+        Assert.assertTrue(fields.remove(table.colPhenomenonTimeEnd));
+        Record record = DSL.using(SQLDialect.POSTGRES).newRecord(fields.toArray(new Field<?>[fields.size()]));
+        try {
+            new RowMapper(table, state.getSelectedProperties(), record);
+            Assert.fail("A missing field must not be mapped to null.");
+        } catch (IllegalArgumentException exc) {
+            Assert.assertTrue(exc.getMessage(), exc.getMessage().contains("PHENOMENON_TIME_END"));
+        }
+    }
+
+}
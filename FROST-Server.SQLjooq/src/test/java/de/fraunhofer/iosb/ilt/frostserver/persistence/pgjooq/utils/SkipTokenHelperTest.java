@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.persistence.pgjooq.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import org.jooq.Field;
+import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author scf
+ */
+public class SkipTokenHelperTest {
+
+    private static final Field<Long> FIELD_ID = DSL.field(DSL.name("ID"), SQLDataType.BIGINT);
+    private static final Field<OffsetDateTime> FIELD_TIME = DSL.field(DSL.name("TIME"), SQLDataType.TIMESTAMPWITHTIMEZONE);
+    private static final Field<String> FIELD_NAME = DSL.field(DSL.name("NAME"), SQLDataType.VARCHAR);
+    private static final Field<Boolean> FIELD_FLAG = DSL.field(DSL.name("FLAG"), SQLDataType.BOOLEAN);
+    private static final Field<UUID> FIELD_UUID = DSL.field(DSL.name("UUID"), SQLDataType.UUID);
+    private static final Field<Double> FIELD_VALUE = DSL.field(DSL.name("VALUE"), SQLDataType.DOUBLE);
+
+    private static final List<Field> FIELDS = Arrays.asList(FIELD_ID, FIELD_TIME, FIELD_NAME, FIELD_FLAG, FIELD_UUID, FIELD_VALUE);
+
+    @Test
+    public void testRoundTrip() {
+        List<Object> values = Arrays.asList(
+                Long.MAX_VALUE,
+                OffsetDateTime.of(2021, 3, 4, 5, 6, 7, 8_000_000, ZoneOffset.ofHours(2)),
+                "name with spaces, & and ?",
+                Boolean.TRUE,
+                UUID.randomUUID(),
+                20.5);
+        String token = SkipTokenHelper.createSkipToken(values);
+        Assert.assertTrue("Token must be safe in a URL: " + token, token.matches("[A-Za-z0-9_-]+"));
+        Assert.assertEquals(values, SkipTokenHelper.parseSkipToken(token, FIELDS));
+    }
+
+    @Test
+    public void testRoundTripNulls() {
+        List<Object> values = Arrays.asList(1L, null, null, null, null, null);
+        String token = SkipTokenHelper.createSkipToken(values);
+        Assert.assertEquals(values, SkipTokenHelper.parseSkipToken(token, FIELDS));
+    }
+
+    @Test
+    public void testIsSupported() {
+        Assert.assertTrue(SkipTokenHelper.isSupported(FIELDS));
+        Field<byte[]> binary = DSL.field(DSL.name("DATA"), SQLDataType.BLOB);
+        Assert.assertFalse(SkipTokenHelper.isSupported(Arrays.asList(FIELD_ID, binary)));
+    }
+
+    @Test
+    public void testMalformedTokens() {
+        List<Field> idOnly = Collections.singletonList(FIELD_ID);
+        List<Field> timeOnly = Collections.singletonList(FIELD_TIME);
+        assertInvalid("", idOnly);
+        assertInvalid("WzFd", idOnly);
+        assertInvalid("k!!!", idOnly);
+        assertInvalid(token("{\"a\":1}"), idOnly);
+        assertInvalid(token("[1"), idOnly);
+        assertInvalid(token("[1,2]"), idOnly);
+        assertInvalid(token("[]"), idOnly);
+        assertInvalid(token("[\"abc\"]"), idOnly);
+        assertInvalid(token("[\"yesterday\"]"), timeOnly);
+        // A token for a different $orderby.
+        String validToken = SkipTokenHelper.createSkipToken(Arrays.asList(1L, "a"));
+        assertInvalid(validToken, idOnly);
+    }
+
+    @Test
+    public void testSeekConditionWithoutFields() {
+        Assert.assertEquals(DSL.falseCondition(), SkipTokenHelper.createSeekCondition(Collections.emptyList(), Collections.emptyList(), Collections.emptyList()));
+    }
+
+    private static String token(String json) {
+        return "k" + Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void assertInvalid(String token, List<Field> fields) {
+        try {
+            SkipTokenHelper.parseSkipToken(token, fields);
+            Assert.fail("Token should be rejected: " + token);
+        } catch (IllegalArgumentException exc) {
+            Assert.assertTrue(exc.getMessage(), exc.getMessage().startsWith("Invalid $skiptoken."));
+        }
+    }
+
+}
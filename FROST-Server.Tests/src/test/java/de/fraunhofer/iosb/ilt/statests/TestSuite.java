@@ -42,6 +42,7 @@ import de.fraunhofer.iosb.ilt.statests.c08mqttsubscribe.Capability8Tests;
 import de.fraunhofer.iosb.ilt.statests.f01auth.BasicAuthAnonReadTests;
 import de.fraunhofer.iosb.ilt.statests.f01auth.BasicAuthTests;
 import de.fraunhofer.iosb.ilt.statests.f02customlinks.CustomLinksTests;
+import de.fraunhofer.iosb.ilt.statests.f03extents.AggregatedExtentsTests;
 import de.fraunhofer.iosb.ilt.statests.util.HTTPMethods;
 import de.fraunhofer.iosb.ilt.statests.util.HTTPMethods.HttpResponse;
 import java.io.IOException;
@@ -98,7 +99,8 @@ import org.testcontainers.containers.output.Slf4jLogConsumer;
     Capability8Tests.class,
     BasicAuthTests.class,
     BasicAuthAnonReadTests.class,
-    CustomLinksTests.class
+    CustomLinksTests.class,
+    AggregatedExtentsTests.class
 })
 public class TestSuite {
 
@@ -0,0 +1,282 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.statests.f03extents;
+
+import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
+import de.fraunhofer.iosb.ilt.frostserver.settings.PersistenceSettings;
+import de.fraunhofer.iosb.ilt.sta.ServiceFailureException;
+import de.fraunhofer.iosb.ilt.sta.model.Datastream;
+import de.fraunhofer.iosb.ilt.sta.model.Entity;
+import de.fraunhofer.iosb.ilt.sta.model.FeatureOfInterest;
+import de.fraunhofer.iosb.ilt.sta.model.Observation;
+import de.fraunhofer.iosb.ilt.sta.model.ObservedProperty;
+import de.fraunhofer.iosb.ilt.sta.model.Sensor;
+import de.fraunhofer.iosb.ilt.sta.model.Thing;
+import de.fraunhofer.iosb.ilt.sta.model.TimeObject;
+import de.fraunhofer.iosb.ilt.sta.model.ext.UnitOfMeasurement;
+import de.fraunhofer.iosb.ilt.statests.AbstractTestClass;
+import de.fraunhofer.iosb.ilt.statests.ServerVersion;
+import de.fraunhofer.iosb.ilt.statests.TestSuite;
+import de.fraunhofer.iosb.ilt.statests.util.EntityUtils;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import org.geojson.Point;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.threeten.extra.Interval;
+
+/**
+ * Tests the aggregated maintenance of (Multi)Datastream extents: the
+ * statement level insert trigger that queues extents, and the flush that
+ * applies them.
+ *
+ * @author scf
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class AggregatedExtentsTests extends AbstractTestClass {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AggregatedExtentsTests.class.getName());
+
+    private static final ZonedDateTime T0 = ZonedDateTime.of(2021, 6, 1, 12, 0, 0, 0, ZoneOffset.UTC);
+    private static final List<Thing> THINGS = new ArrayList<>();
+    private static final List<Datastream> DATASTREAMS = new ArrayList<>();
+    private static final List<FeatureOfInterest> FEATURES = new ArrayList<>();
+    private static final Properties SERVER_PROPERTIES = new Properties();
+
+    static {
+        SERVER_PROPERTIES.put(CoreSettings.PREFIX_PERSISTENCE + PersistenceSettings.TAG_EXTENT_MODE, "aggregated");
+        SERVER_PROPERTIES.put(CoreSettings.PREFIX_PERSISTENCE + PersistenceSettings.TAG_EXTENT_FLUSH_INTERVAL, "1");
+    }
+
+    public AggregatedExtentsTests(ServerVersion version) {
+        super(version, SERVER_PROPERTIES);
+    }
+
+    @Override
+    protected void setUpVersion() throws ServiceFailureException, URISyntaxException {
+        LOGGER.info("Setting up for version {}.", version.urlPart);
+        createEntities();
+    }
+
+    @Override
+    protected void tearDownVersion() throws ServiceFailureException {
+        LOGGER.info("Cleaning up after version {}.", version.urlPart);
+        cleanup();
+    }
+
+    @AfterClass
+    public static void tearDown() throws ServiceFailureException, SQLException {
+        LOGGER.info("Tearing down.");
+        cleanup();
+        // The other tests share the database, and expect immediate extents.
+        try (Connection connection = getConnection();
+                Statement statement = connection.createStatement()) {
+            statement.execute("select datastreams_set_extent_mode('trigger')");
+        }
+    }
+
+    private static void cleanup() throws ServiceFailureException {
+        EntityUtils.deleteAll(service);
+        THINGS.clear();
+        DATASTREAMS.clear();
+        FEATURES.clear();
+    }
+
+    private static void createEntities() throws ServiceFailureException, URISyntaxException {
+        Thing thing = new Thing("Thing 1", "The first thing.");
+        service.create(thing);
+        THINGS.add(thing);
+
+        Sensor sensor = new Sensor("Sensor 1", "The first sensor.", "text", "Some metadata.");
+        ObservedProperty obsProp = new ObservedProperty("Temperature", new URI("http://ucom.org/temperature"), "The temperature of the thing.");
+        for (int i = 1; i <= 2; i++) {
+            Datastream datastream = new Datastream("Datastream " + i, "Datastream " + i + " of thing 1.", "someType", new UnitOfMeasurement("degree celcius", "°C", "ucum:T"));
+            datastream.setThing(thing);
+            datastream.setSensor(sensor);
+            datastream.setObservedProperty(obsProp);
+            service.create(datastream);
+            DATASTREAMS.add(datastream);
+        }
+        for (int i = 1; i <= 2; i++) {
+            FeatureOfInterest feature = new FeatureOfInterest("Feature " + i, "Feature " + i + ".", "application/vnd.geo+json", new Point(8 + i, 51));
+            service.create(feature);
+            FEATURES.add(feature);
+        }
+    }
+
+    private static Connection getConnection() throws SQLException {
+        return DriverManager.getConnection(TestSuite.getInstance().getPgConnectUrl(), TestSuite.VAL_PG_USER, TestSuite.VAL_PG_PASS);
+    }
+
+    private static long idOf(Entity<?> entity) {
+        return ((Number) entity.getId().getValue()).longValue();
+    }
+
+    @Test
+    public void test01StatementLevelTrigger() throws SQLException {
+        LOGGER.info("  test01StatementLevelTrigger");
+        try (Connection connection = getConnection();
+                Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery("select tgname, tgtype & 1 from pg_trigger where tgname in ('datastreams_extents_insert', 'datastreams_actualization_insert')")) {
+            Assert.assertTrue("The aggregated extents trigger does not exist.", rs.next());
+            Assert.assertEquals("datastreams_extents_insert", rs.getString(1));
+            Assert.assertEquals("The extents trigger should fire once per statement.", 0, rs.getInt(2));
+            Assert.assertFalse("The per-row extents trigger should not exist.", rs.next());
+        }
+    }
+
+    @Test
+    public void test02QueueAndFlush() throws SQLException {
+        LOGGER.info("  test02QueueAndFlush");
+        long ds1 = idOf(DATASTREAMS.get(0));
+        long ds2 = idOf(DATASTREAMS.get(1));
+        long foi1 = idOf(FEATURES.get(0));
+        long foi2 = idOf(FEATURES.get(1));
+        try (Connection connection = getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                // One statement with three Observations in ds1 and two in ds2.
+                String insert = "insert into \"OBSERVATIONS\" (\"PHENOMENON_TIME_START\", \"PHENOMENON_TIME_END\", \"RESULT_TIME\", \"RESULT_NUMBER\", \"DATASTREAM_ID\", \"FEATURE_ID\") values"
+                        + " (?, ?, ?, 1, ?, ?), (?, ?, ?, 2, ?, ?), (?, ?, ?, 3, ?, ?), (?, ?, ?, 4, ?, ?), (?, ?, ?, 5, ?, ?)";
+                try (PreparedStatement ps = connection.prepareStatement(insert)) {
+                    int idx = 1;
+                    idx = setObservation(ps, idx, 2, null, ds1, foi1);
+                    idx = setObservation(ps, idx, 0, 1, ds1, foi1);
+                    idx = setObservation(ps, idx, 5, null, ds1, foi2);
+                    idx = setObservation(ps, idx, 10, null, ds2, foi1);
+                    setObservation(ps, idx, 11, null, ds2, foi1);
+                    Assert.assertEquals(5, ps.executeUpdate());
+                }
+
+                // The statement queued one merged row per Datastream.
+                try (PreparedStatement ps = connection.prepareStatement("select \"Q\".\"DATASTREAM_ID\", \"Q\".\"PHENOMENON_TIME_START\", \"Q\".\"PHENOMENON_TIME_END\", \"Q\".\"RESULT_TIME_START\", \"Q\".\"RESULT_TIME_END\","
+                        + " (select count(*) from \"FEATURES\" \"F\" where \"F\".\"ID\" in (?, ?) and ST_Covers(\"Q\".\"OBSERVED_AREA\", \"F\".\"GEOM\"))"
+                        + " from \"DATASTREAM_EXTENT_UPDATES\" \"Q\" where \"Q\".\"DATASTREAM_ID\" in (?, ?) order by \"Q\".\"DATASTREAM_ID\"")) {
+                    ps.setLong(1, foi1);
+                    ps.setLong(2, foi2);
+                    ps.setLong(3, ds1);
+                    ps.setLong(4, ds2);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        Assert.assertTrue(rs.next());
+                        Assert.assertEquals(ds1, rs.getLong(1));
+                        Assert.assertEquals(time(0), rs.getTimestamp(2).toInstant());
+                        Assert.assertEquals(time(5), rs.getTimestamp(3).toInstant());
+                        Assert.assertEquals(time(1), rs.getTimestamp(4).toInstant());
+                        Assert.assertEquals(time(5), rs.getTimestamp(5).toInstant());
+                        Assert.assertEquals("The area should cover both features.", 2, rs.getInt(6));
+                        Assert.assertTrue(rs.next());
+                        Assert.assertEquals(ds2, rs.getLong(1));
+                        Assert.assertEquals(time(10), rs.getTimestamp(2).toInstant());
+                        Assert.assertEquals(time(11), rs.getTimestamp(3).toInstant());
+                        Assert.assertEquals(1, rs.getInt(6));
+                        Assert.assertFalse("Expected one queued row per Datastream.", rs.next());
+                    }
+                }
+
+                try (Statement statement = connection.createStatement();
+                        ResultSet rs = statement.executeQuery("select datastreams_flush_extents()")) {
+                    Assert.assertTrue(rs.next());
+                    Assert.assertTrue("The flush should apply at least the two queued rows.", rs.getInt(1) >= 2);
+                }
+
+                try (PreparedStatement ps = connection.prepareStatement("select \"ID\", \"PHENOMENON_TIME_START\", \"PHENOMENON_TIME_END\", \"RESULT_TIME_START\", \"RESULT_TIME_END\""
+                        + " from \"DATASTREAMS\" where \"ID\" in (?, ?) order by \"ID\"")) {
+                    ps.setLong(1, ds1);
+                    ps.setLong(2, ds2);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        Assert.assertTrue(rs.next());
+                        Assert.assertEquals(time(0), rs.getTimestamp(2).toInstant());
+                        Assert.assertEquals(time(5), rs.getTimestamp(3).toInstant());
+                        Assert.assertEquals(time(1), rs.getTimestamp(4).toInstant());
+                        Assert.assertEquals(time(5), rs.getTimestamp(5).toInstant());
+                        Assert.assertTrue(rs.next());
+                        Assert.assertEquals(time(10), rs.getTimestamp(2).toInstant());
+                        Assert.assertEquals(time(11), rs.getTimestamp(3).toInstant());
+                    }
+                }
+
+                try (PreparedStatement ps = connection.prepareStatement("select count(*) from \"DATASTREAM_EXTENT_UPDATES\" where \"DATASTREAM_ID\" in (?, ?)")) {
+                    ps.setLong(1, ds1);
+                    ps.setLong(2, ds2);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        Assert.assertTrue(rs.next());
+                        Assert.assertEquals("The flush should empty the queue.", 0, rs.getInt(1));
+                    }
+                }
+            } finally {
+                connection.rollback();
+            }
+        }
+    }
+
+    @Test
+    public void test03FlushedByServer() throws ServiceFailureException, InterruptedException {
+        LOGGER.info("  test03FlushedByServer");
+        Datastream datastream = DATASTREAMS.get(0);
+        for (int i = 0; i < 3; i++) {
+            Observation observation = new Observation(i, datastream);
+            observation.setPhenomenonTime(new TimeObject(T0.plusMinutes(i)));
+            observation.setFeatureOfInterest(FEATURES.get(0));
+            service.create(observation);
+        }
+        Interval expected = Interval.of(time(0), time(2));
+        Interval actual = null;
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < deadline) {
+            actual = service.datastreams().find(datastream.getId()).getPhenomenonTime();
+            if (expected.equals(actual)) {
+                break;
+            }
+            Thread.sleep(250);
+        }
+        Assert.assertEquals("The flusher did not apply the queued extents.", expected, actual);
+    }
+
+    private static Instant time(int minutes) {
+        return T0.plusMinutes(minutes).toInstant();
+    }
+
+    private static int setObservation(PreparedStatement ps, int startIdx, int startMinutes, Integer endMinutes, long datastreamId, long featureId) throws SQLException {
+        int idx = startIdx;
+        Timestamp start = Timestamp.from(time(startMinutes));
+        ps.setTimestamp(idx++, start);
+        ps.setTimestamp(idx++, endMinutes == null ? start : Timestamp.from(time(endMinutes)));
+        ps.setTimestamp(idx++, endMinutes == null ? start : Timestamp.from(time(endMinutes)));
+        ps.setLong(idx++, datastreamId);
+        ps.setLong(idx++, featureId);
+        return idx;
+    }
+}
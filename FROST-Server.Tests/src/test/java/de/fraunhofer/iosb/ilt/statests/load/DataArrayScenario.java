@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.statests.load;
+
+import java.io.IOException;
+import java.time.Instant;
+import org.json.JSONArray;
+
+/**
+ * Creates Observations in batches, using the dataArray format on the
+ * CreateObservations action.
+ *
+ * @author scf
+ */
+public class DataArrayScenario extends LoadScenario {
+
+    public DataArrayScenario() {
+        super("dataArray");
+    }
+
+    @Override
+    public void execute(LoadContext context, int thread) throws Exception {
+        String response = context.post("CreateObservations", createBody(context, context.getSettings().getDataArraySize()));
+        JSONArray links = new JSONArray(response);
+        for (int i = 0; i < links.length(); i++) {
+            if (links.getString(i).toLowerCase().startsWith("error")) {
+                throw new IOException("CreateObservations failed: " + links.getString(i));
+            }
+        }
+    }
+
+    @Override
+    public int getItemsPerOperation(LoadContext context) {
+        return context.getSettings().getDataArraySize();
+    }
+
+    /**
+     * Create the body of a CreateObservations request.
+     *
+     * @param context The context of the run.
+     * @param count The number of Observations to create.
+     * @return The body of the request.
+     */
+    public static String createBody(LoadContext context, int count) {
+        StringBuilder body = new StringBuilder(count * 48 + 200);
+        body.append("[{\"Datastream\":{\"@iot.id\":")
+                .append(LoadContext.idInJson(context.getDatastreamId()))
+                .append("},\"components\":[\"phenomenonTime\",\"result\"],\"dataArray@iot.count\":")
+                .append(count)
+                .append(",\"dataArray\":[");
+        String now = Instant.now().toString();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                body.append(',');
+            }
+            body.append("[\"").append(now).append("\",").append(context.nextResult()).append(']');
+        }
+        body.append("]}]");
+        return body.toString();
+    }
+
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.statests.load;
+
+import java.util.function.Function;
+
+/**
+ * Repeats the same GET request.
+ *
+ * @author scf
+ */
+public class GetScenario extends LoadScenario {
+
+    private final Function<LoadContext, String> urlBuilder;
+    private String url;
+
+    /**
+     * Create a new GetScenario.
+     *
+     * @param name The name of the scenario.
+     * @param urlBuilder Creates the URL to fetch, relative to the service URL,
+     * once the seed data exists.
+     */
+    public GetScenario(String name, Function<LoadContext, String> urlBuilder) {
+        super(name);
+        this.urlBuilder = urlBuilder;
+    }
+
+    @Override
+    public void setUp(LoadContext context) {
+        url = urlBuilder.apply(context);
+    }
+
+    @Override
+    public void execute(LoadContext context, int thread) throws Exception {
+        context.get(url);
+    }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.statests.load;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records the latencies of a fixed number of operations, from any number of
+ * threads.
+ *
+ * @author scf
+ */
+public class LatencyRecorder {
+
+    private final long[] latencies;
+    private final AtomicInteger count = new AtomicInteger();
+    private final AtomicInteger errors = new AtomicInteger();
+
+    public LatencyRecorder(int operations) {
+        latencies = new long[operations];
+    }
+
+    /**
+     * Record the latency of a successful operation.
+     *
+     * @param nanos The latency, in nanoseconds.
+     */
+    public void record(long nanos) {
+        int index = count.getAndIncrement();
+        if (index < latencies.length) {
+            latencies[index] = nanos;
+        }
+    }
+
+    /**
+     * Record a failed operation. Failed operations are counted, but their
+     * latencies are not recorded.
+     */
+    public void recordError() {
+        errors.incrementAndGet();
+    }
+
+    public int getErrors() {
+        return errors.get();
+    }
+
+    /**
+     * Get the recorded latencies, sorted.
+     *
+     * @return The recorded latencies, in nanoseconds, sorted ascending.
+     */
+    public long[] getSorted() {
+        long[] sorted = Arrays.copyOf(latencies, Math.min(count.get(), latencies.length));
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.statests.load;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.http.Header;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+import org.json.JSONObject;
+
+/**
+ * The state shared by all scenarios of a load test run: the settings, the
+ * URLs of the servers under test, a pooled HTTP client and the entities that
+ * the scenarios write to and read from.
+ *
+ * @author scf
+ */
+public class LoadContext implements Closeable {
+
+    private final LoadSettings settings;
+    private final String serviceUrl;
+    private final String mqttUrl;
+    private final String mqttTopicPrefix;
+    private final CloseableHttpClient httpClient;
+    /**
+     * Source of unique result values, used to recognise the Observations of
+     * an operation in MQTT messages.
+     */
+    private final AtomicLong resultCounter = new AtomicLong();
+
+    private Object datastreamId;
+
+    public LoadContext(LoadSettings settings, String serviceUrl, String mqttUrl, String mqttTopicPrefix) {
+        this.settings = settings;
+        this.serviceUrl = serviceUrl;
+        this.mqttUrl = mqttUrl;
+        this.mqttTopicPrefix = mqttTopicPrefix;
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(settings.getThreads() * 2);
+        connectionManager.setDefaultMaxPerRoute(settings.getThreads() * 2);
+        httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .build();
+    }
+
+    public LoadSettings getSettings() {
+        return settings;
+    }
+
+    public String getServiceUrl() {
+        return serviceUrl;
+    }
+
+    public String getMqttUrl() {
+        return mqttUrl;
+    }
+
+    /**
+     * The MQTT topic for the given path, like
+     * {@code v1.1/Datastreams(1)/Observations}.
+     *
+     * @param path The path, without leading slash.
+     * @return The topic.
+     */
+    public String getMqttTopic(String path) {
+        return mqttTopicPrefix + "/" + path;
+    }
+
+    public Object getDatastreamId() {
+        return datastreamId;
+    }
+
+    public void setDatastreamId(Object datastreamId) {
+        this.datastreamId = datastreamId;
+    }
+
+    /**
+     * The path of the Observations of the seeded Datastream, without leading
+     * slash.
+     *
+     * @return The path of the Observations of the seeded Datastream.
+     */
+    public String getObservationsPath() {
+        return "Datastreams(" + idInUrl(datastreamId) + ")/Observations";
+    }
+
+    public long nextResult() {
+        return resultCounter.incrementAndGet();
+    }
+
+    /**
+     * Create the JSON of an Observation with the current time as
+     * phenomenonTime.
+     *
+     * @param result The result of the Observation.
+     * @return The JSON of the Observation.
+     */
+    public static String observationJson(long result) {
+        return "{\"phenomenonTime\":\"" + Instant.now() + "\",\"result\":" + result + "}";
+    }
+
+    /**
+     * Send a POST request, and return the Location of the created entity.
+     *
+     * @param path The path, relative to the service URL, without leading
+     * slash.
+     * @param body The JSON to post.
+     * @return The Location header of the response, or the body if there is no
+     * Location header.
+     * @throws IOException If the request fails or the response is not a 201.
+     */
+    public String post(String path, String body) throws IOException {
+        HttpPost post = new HttpPost(serviceUrl + "/" + path);
+        post.setEntity(new StringEntity(body, ContentType.APPLICATION_JSON));
+        try (CloseableHttpResponse response = httpClient.execute(post)) {
+            int code = response.getStatusLine().getStatusCode();
+            String content = response.getEntity() == null ? "" : EntityUtils.toString(response.getEntity());
+            if (code != 201) {
+                throw new IOException("POST to " + path + " returned " + code + ": " + content);
+            }
+            Header location = response.getFirstHeader("Location");
+            return location == null ? content : location.getValue();
+        }
+    }
+
+    /**
+     * Send a GET request, and return the body of the response.
+     *
+     * @param url The URL to fetch. When it does not start with http, it is
+     * taken to be relative to the service URL.
+     * @return The body of the response.
+     * @throws IOException If the request fails or the response is not a 200.
+     */
+    public String get(String url) throws IOException {
+        String fullUrl = url.startsWith("http") ? url : serviceUrl + "/" + url;
+        HttpGet get = new HttpGet(fullUrl);
+        try (CloseableHttpResponse response = httpClient.execute(get)) {
+            int code = response.getStatusLine().getStatusCode();
+            String content = response.getEntity() == null ? "" : EntityUtils.toString(response.getEntity());
+            if (code != 200) {
+                throw new IOException("GET of " + fullUrl + " returned " + code + ": " + content);
+            }
+            return content;
+        }
+    }
+
+    /**
+     * Get the id from a selfLink or Location header.
+     *
+     * @param selfLink The link to get the id from.
+     * @return The id, as a Long for numeric ids or a String otherwise.
+     */
+    public static Object idFromSelfLink(String selfLink) {
+        String idString = selfLink.substring(selfLink.lastIndexOf('(') + 1, selfLink.lastIndexOf(')'));
+        if (idString.startsWith("'") && idString.endsWith("'")) {
+            return idString.substring(1, idString.length() - 1).replace("''", "'");
+        }
+        return Long.valueOf(idString);
+    }
+
+    public static String idInUrl(Object id) {
+        if (id instanceof Number) {
+            return id.toString();
+        }
+        return "'" + id.toString().replace("'", "''") + "'";
+    }
+
+    public static String idInJson(Object id) {
+        if (id instanceof Number) {
+            return id.toString();
+        }
+        return JSONObject.quote(id.toString());
+    }
+
+    @Override
+    public void close() throws IOException {
+        httpClient.close();
+    }
+
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.statests.load;
+
+/**
+ * A scenario of a load test. The runner calls {@link #execute(LoadContext, int)}
+ * from several threads in parallel, and measures the time each call takes.
+ *
+ * @author scf
+ */
+public abstract class LoadScenario {
+
+    private final String name;
+
+    protected LoadScenario(String name) {
+        this.name = name;
+    }
+
+    /**
+     * The name of the scenario, used to select it and in the output.
+     *
+     * @return The name of the scenario.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Prepare the scenario, before the warmup operations are run.
+     *
+     * @param context The context of the run.
+     * @throws Exception If the scenario can not be prepared.
+     */
+    public void setUp(LoadContext context) throws Exception {
+        // Nothing to prepare by default.
+    }
+
+    /**
+     * Execute one operation. The call must return only when the operation is
+     * complete, and throw an exception when it failed.
+     *
+     * @param context The context of the run.
+     * @param thread The index of the calling thread, from 0 to the number of
+     * threads - 1.
+     * @throws Exception If the operation failed.
+     */
+    public abstract void execute(LoadContext context, int thread) throws Exception;
+
+    /**
+     * The number of items, like Observations, that are handled by each
+     * operation.
+     *
+     * @param context The context of the run.
+     * @return The number of items handled by each operation.
+     */
+    public int getItemsPerOperation(LoadContext context) {
+        return 1;
+    }
+
+    /**
+     * Clean up after the scenario.
+     *
+     * @param context The context of the run.
+     */
+    public void tearDown(LoadContext context) {
+        // Nothing to clean up by default.
+    }
+
+}
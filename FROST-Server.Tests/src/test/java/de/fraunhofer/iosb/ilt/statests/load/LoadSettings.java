@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.statests.load;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import org.json.JSONObject;
+
+/**
+ * The settings of a load test run, read from system properties. All
+ * properties that start with {@value #PREFIX_SERVER} are passed, without the
+ * prefix, to the FROST-Server instances under test.
+ *
+ * @author scf
+ */
+public class LoadSettings {
+
+    public static final String PREFIX = "load.";
+    public static final String PREFIX_SERVER = PREFIX + "server.";
+
+    public static final String TAG_LABEL = "label";
+    public static final String TAG_SCENARIOS = "scenarios";
+    public static final String TAG_THREADS = "threads";
+    public static final String TAG_OPERATIONS = "operations";
+    public static final String TAG_WARMUP_OPERATIONS = "warmupOperations";
+    public static final String TAG_DATA_ARRAY_SIZE = "dataArraySize";
+    public static final String TAG_SUBSCRIBERS = "subscribers";
+    public static final String TAG_SEED_OBSERVATIONS = "seedObservations";
+    public static final String TAG_PAGE_SIZE = "pageSize";
+    public static final String TAG_MQTT_QOS = "mqttQos";
+    public static final String TAG_TIMEOUT = "timeoutSeconds";
+    public static final String TAG_OUTPUT = "output";
+
+    /**
+     * A free text to identify the run in the output, like the FROST version
+     * or the settings that are being compared.
+     */
+    private final String label;
+    /**
+     * The names of the scenarios to run, empty for all.
+     */
+    private final Set<String> scenarios;
+    private final int threads;
+    private final int operations;
+    private final int warmupOperations;
+    private final int dataArraySize;
+    private final int subscribers;
+    private final int seedObservations;
+    private final int pageSize;
+    private final int mqttQos;
+    private final int timeoutSeconds;
+    private final String output;
+    private final Properties serverProperties = new Properties();
+
+    public LoadSettings(Properties properties) {
+        label = properties.getProperty(PREFIX + TAG_LABEL, "");
+        scenarios = new LinkedHashSet<>();
+        String scenarioList = properties.getProperty(PREFIX + TAG_SCENARIOS, "").trim();
+        if (!scenarioList.isEmpty()) {
+            scenarios.addAll(Arrays.asList(scenarioList.split("\\s*,\\s*")));
+        }
+        threads = getInt(properties, TAG_THREADS, 8);
+        operations = getInt(properties, TAG_OPERATIONS, 2000);
+        warmupOperations = getInt(properties, TAG_WARMUP_OPERATIONS, 200);
+        dataArraySize = getInt(properties, TAG_DATA_ARRAY_SIZE, 100);
+        subscribers = getInt(properties, TAG_SUBSCRIBERS, 50);
+        seedObservations = getInt(properties, TAG_SEED_OBSERVATIONS, 10000);
+        pageSize = getInt(properties, TAG_PAGE_SIZE, 100);
+        mqttQos = getInt(properties, TAG_MQTT_QOS, 1);
+        timeoutSeconds = getInt(properties, TAG_TIMEOUT, 30);
+        output = properties.getProperty(PREFIX + TAG_OUTPUT, "target/load-test-results.json");
+        for (Map.Entry<Object, Object> entry : properties.entrySet()) {
+            String key = entry.getKey().toString();
+            if (key.startsWith(PREFIX_SERVER)) {
+                serverProperties.put(key.substring(PREFIX_SERVER.length()), entry.getValue().toString());
+            }
+        }
+    }
+
+    private static int getInt(Properties properties, String tag, int defaultValue) {
+        String value = properties.getProperty(PREFIX + tag);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        return Integer.parseInt(value.trim());
+    }
+
+    /**
+     * Check if the scenario with the given name should be run.
+     *
+     * @param name The name of the scenario.
+     * @return true if the scenario is selected.
+     */
+    public boolean isSelected(String name) {
+        return scenarios.isEmpty() || scenarios.contains(name);
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getOperations() {
+        return operations;
+    }
+
+    public int getWarmupOperations() {
+        return warmupOperations;
+    }
+
+    public int getDataArraySize() {
+        return dataArraySize;
+    }
+
+    public int getSubscribers() {
+        return subscribers;
+    }
+
+    public int getSeedObservations() {
+        return seedObservations;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public int getMqttQos() {
+        return mqttQos;
+    }
+
+    public int getTimeoutSeconds() {
+        return timeoutSeconds;
+    }
+
+    public String getOutput() {
+        return output;
+    }
+
+    /**
+     * The settings for the servers under test.
+     *
+     * @return The settings for the servers under test, or null if there are
+     * none, so that the default servers are used.
+     */
+    public Properties getServerProperties() {
+        if (serverProperties.isEmpty()) {
+            return null;
+        }
+        return serverProperties;
+    }
+
+    public JSONObject toJson() {
+        JSONObject json = new JSONObject();
+        json.put(TAG_THREADS, threads);
+        json.put(TAG_OPERATIONS, operations);
+        json.put(TAG_WARMUP_OPERATIONS, warmupOperations);
+        json.put(TAG_DATA_ARRAY_SIZE, dataArraySize);
+        json.put(TAG_SUBSCRIBERS, subscribers);
+        json.put(TAG_SEED_OBSERVATIONS, seedObservations);
+        json.put(TAG_PAGE_SIZE, pageSize);
+        json.put(TAG_MQTT_QOS, mqttQos);
+        JSONObject server = new JSONObject();
+        for (Map.Entry<Object, Object> entry : serverProperties.entrySet()) {
+            server.put(entry.getKey().toString(), entry.getValue().toString());
+        }
+        json.put("server", server);
+        return json;
+    }
+
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.statests.load;
+
+import de.fraunhofer.iosb.ilt.statests.ServerSettings;
+import de.fraunhofer.iosb.ilt.statests.ServerVersion;
+import de.fraunhofer.iosb.ilt.statests.TestSuite;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs load scenarios against a FROST-Server with PostGIS and a message bus
+ * in containers, and writes the throughput and latency percentiles of each
+ * scenario to a JSON file. It is not part of the normal test run. Run it
+ * with:
+ * <pre>
+ * mvn test -pl FROST-Server.Tests -P loadtest -Dload.threads=16 -Dload.server.persistence.bulkInsert=false
+ * </pre>
+ *
+ * See {@link LoadSettings} for the available settings.
+ *
+ * @author scf
+ */
+public class LoadTestRunner {
+
+    /**
+     * The logger for this class.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoadTestRunner.class);
+    private static final ServerVersion VERSION = ServerVersion.v_1_1;
+    private static final int SEED_THINGS = 10;
+    private static final int SEED_BATCH_SIZE = 1000;
+
+    private static LoadSettings settings;
+    private static LoadContext context;
+
+    @BeforeClass
+    public static void setUp() throws IOException, InterruptedException {
+        settings = new LoadSettings(System.getProperties());
+        // Registers the instance, so the default servers are not started.
+        new TestSuite();
+        ServerSettings serverSettings = TestSuite.getInstance().getServerSettings(settings.getServerProperties());
+        context = new LoadContext(settings, serverSettings.getServiceUrl(VERSION), serverSettings.getMqttUrl(), VERSION.urlPart);
+        seed();
+    }
+
+    @AfterClass
+    public static void tearDown() throws IOException {
+        if (context != null) {
+            context.close();
+        }
+        TestSuite.getInstance().stopAllServers();
+    }
+
+    private static void seed() throws IOException {
+        LOGGER.info("Seeding {} Things and {} Observations...", SEED_THINGS, settings.getSeedObservations());
+        for (int i = 0; i < SEED_THINGS; i++) {
+            String thingLink = context.post("Things", thingJson(i));
+            if (i == 0) {
+                String thingPath = "Things(" + LoadContext.idInUrl(LoadContext.idFromSelfLink(thingLink)) + ")";
+                JSONObject datastreams = new JSONObject(context.get(thingPath + "/Datastreams?$select=id"));
+                context.setDatastreamId(datastreams.getJSONArray("value").getJSONObject(0).get("@iot.id"));
+            }
+        }
+        for (int done = 0; done < settings.getSeedObservations(); done += SEED_BATCH_SIZE) {
+            int count = Math.min(SEED_BATCH_SIZE, settings.getSeedObservations() - done);
+            context.post("CreateObservations", DataArrayScenario.createBody(context, count));
+        }
+        LOGGER.info("Seeding done.");
+    }
+
+    private static String thingJson(int index) {
+        return "{\"name\":\"Load Thing " + index + "\",\"description\":\"A Thing for load testing\","
+                + "\"properties\":{\"index\":" + index + "},"
+                + "\"Locations\":[{\"name\":\"Load Location " + index + "\",\"description\":\"A Location\","
+                + "\"encodingType\":\"application/geo+json\","
+                + "\"location\":{\"type\":\"Point\",\"coordinates\":[" + (8 + index * 0.01) + ",49]}}],"
+                + "\"Datastreams\":[{\"name\":\"Load Datastream " + index + "\",\"description\":\"A Datastream\","
+                + "\"observationType\":\"http://www.opengis.net/def/observationType/OGC-OM/2.0/OM_Measurement\","
+                + "\"unitOfMeasurement\":{\"name\":\"Degree Celsius\",\"symbol\":\"degC\",\"definition\":\"ucum:Cel\"},"
+                + "\"Sensor\":{\"name\":\"Load Sensor " + index + "\",\"description\":\"A Sensor\","
+                + "\"encodingType\":\"application/pdf\",\"metadata\":\"none\"},"
+                + "\"ObservedProperty\":{\"name\":\"Temperature " + index + "\",\"description\":\"The temperature\","
+                + "\"definition\":\"http://example.org/temperature\"}}]}";
+    }
+
+    /**
+     * The scenarios, in the order they are run. The read scenarios run first,
+     * so they see the same data in each run.
+     *
+     * @return The scenarios.
+     */
+    private static List<LoadScenario> createScenarios() {
+        return Arrays.asList(
+                new GetScenario("getExpand", c -> "Things?$top=10"
+                        + "&$expand=Locations,Datastreams($expand=Sensor,ObservedProperty,Observations($top=10;$orderby=phenomenonTime%20desc))"),
+                new GetScenario("getFilter", c -> "Observations?$top=" + c.getSettings().getPageSize()
+                        + "&$filter=Datastream/id%20eq%20" + LoadContext.idInUrl(c.getDatastreamId())
+                        + "%20and%20result%20gt%20" + c.getSettings().getSeedObservations() / 2
+                        + "%20and%20phenomenonTime%20lt%20now()"),
+                new GetScenario("getOrderBy", c -> c.getObservationsPath() + "?$top=" + c.getSettings().getPageSize()
+                        + "&$orderby=result%20desc,phenomenonTime%20asc&$count=true"),
+                new PagingScenario(),
+                new PostObservationScenario(),
+                new DataArrayScenario(),
+                new MqttCreateScenario(),
+                new SubscriptionFanOutScenario());
+    }
+
+    @Test
+    public void runLoadTests() throws Exception {
+        List<ScenarioResult> results = new ArrayList<>();
+        for (LoadScenario scenario : createScenarios()) {
+            if (settings.isSelected(scenario.getName())) {
+                results.add(run(scenario));
+            }
+        }
+        writeReport(results);
+        for (ScenarioResult result : results) {
+            LOGGER.info("{}", result);
+        }
+        for (ScenarioResult result : results) {
+            Assert.assertTrue("Scenario " + result.getName() + " did not complete any operations.", result.getOperations() > 0);
+        }
+    }
+
+    private ScenarioResult run(LoadScenario scenario) throws Exception {
+        LOGGER.info("Running {} with {} threads...", scenario.getName(), settings.getThreads());
+        scenario.setUp(context);
+        try {
+            runOperations(scenario, settings.getWarmupOperations(), new LatencyRecorder(settings.getWarmupOperations()));
+            LatencyRecorder recorder = new LatencyRecorder(settings.getOperations());
+            long start = System.nanoTime();
+            runOperations(scenario, settings.getOperations(), recorder);
+            long duration = System.nanoTime() - start;
+            return new ScenarioResult(scenario.getName(), settings.getThreads(), scenario.getItemsPerOperation(context), duration, recorder);
+        } finally {
+            scenario.tearDown(context);
+        }
+    }
+
+    private void runOperations(LoadScenario scenario, int operations, LatencyRecorder recorder) throws InterruptedException {
+        final AtomicInteger remaining = new AtomicInteger(operations);
+        final AtomicBoolean errorLogged = new AtomicBoolean();
+        final int threads = settings.getThreads();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < threads; i++) {
+            final int thread = i;
+            executor.submit(() -> {
+                while (remaining.getAndDecrement() > 0) {
+                    long start = System.nanoTime();
+                    try {
+                        scenario.execute(context, thread);
+                        recorder.record(System.nanoTime() - start);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    } catch (Exception ex) {
+                        recorder.recordError();
+                        if (errorLogged.compareAndSet(false, true)) {
+                            LOGGER.warn("Operation of {} failed. Further failures are only counted.", scenario.getName(), ex);
+                        }
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        if (!executor.awaitTermination(1, TimeUnit.HOURS)) {
+            executor.shutdownNow();
+        }
+    }
+
+    private void writeReport(List<ScenarioResult> results) throws IOException {
+        JSONObject report = new JSONObject();
+        report.put("label", settings.getLabel());
+        report.put("timestamp", Instant.now().toString());
+        report.put("settings", settings.toJson());
+        JSONArray resultsJson = new JSONArray();
+        for (ScenarioResult result : results) {
+            resultsJson.put(result.toJson());
+        }
+        report.put("results", resultsJson);
+
+        Path output = Paths.get(settings.getOutput());
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        Files.write(output, report.toString(2).getBytes(StandardCharsets.UTF_8));
+        LOGGER.info("Wrote results to {}", output.toAbsolutePath());
+    }
+
+}
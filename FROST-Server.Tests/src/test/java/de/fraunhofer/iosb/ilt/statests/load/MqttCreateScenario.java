@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.statests.load;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import org.eclipse.paho.client.mqttv3.MqttClient;
+import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates Observations by publishing them over MQTT. Each operation waits
+ * until the notification for the new Observation arrives on a subscription,
+ * so the latency covers the complete path from publish to notification.
+ *
+ * @author scf
+ */
+public class MqttCreateScenario extends LoadScenario {
+
+    /**
+     * The logger for this class.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(MqttCreateScenario.class);
+
+    private final ResultWaiter waiter = new ResultWaiter();
+    private ObservationListener listener;
+    private MqttClient[] publishers;
+    private String topic;
+
+    public MqttCreateScenario() {
+        super("mqttCreate");
+    }
+
+    @Override
+    public void setUp(LoadContext context) throws MqttException {
+        LoadSettings settings = context.getSettings();
+        topic = context.getMqttTopic(context.getObservationsPath());
+        listener = new ObservationListener(context.getMqttUrl(), topic, settings.getMqttQos(), waiter);
+        listener.connect();
+        MqttConnectOptions options = new MqttConnectOptions();
+        options.setCleanSession(true);
+        publishers = new MqttClient[settings.getThreads()];
+        for (int i = 0; i < publishers.length; i++) {
+            publishers[i] = new MqttClient(context.getMqttUrl(), "FROST-Load-" + UUID.randomUUID(), new MemoryPersistence());
+            publishers[i].connect(options);
+        }
+    }
+
+    @Override
+    public void execute(LoadContext context, int thread) throws Exception {
+        long result = context.nextResult();
+        waiter.expect(result, 1);
+        byte[] payload = LoadContext.observationJson(result).getBytes(StandardCharsets.UTF_8);
+        publishers[thread].publish(topic, payload, context.getSettings().getMqttQos(), false);
+        waiter.await(result, context.getSettings().getTimeoutSeconds());
+    }
+
+    @Override
+    public void tearDown(LoadContext context) {
+        for (MqttClient publisher : publishers) {
+            try {
+                publisher.disconnect();
+                publisher.close();
+            } catch (MqttException ex) {
+                LOGGER.warn("Failed to close publisher: {}", ex.getMessage());
+            }
+        }
+        listener.close();
+    }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.statests.load;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
+import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.MqttCallback;
+import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An MQTT client that subscribes to a topic with Observations, and passes the
+ * results of the received Observations to a {@link ResultWaiter}.
+ *
+ * @author scf
+ */
+public class ObservationListener implements MqttCallback {
+
+    /**
+     * The logger for this class.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ObservationListener.class);
+
+    private final String topic;
+    private final int qos;
+    private final ResultWaiter waiter;
+    private final MqttAsyncClient client;
+
+    public ObservationListener(String mqttUrl, String topic, int qos, ResultWaiter waiter) throws MqttException {
+        this.topic = topic;
+        this.qos = qos;
+        this.waiter = waiter;
+        client = new MqttAsyncClient(mqttUrl, "FROST-Load-" + UUID.randomUUID(), new MemoryPersistence());
+    }
+
+    /**
+     * Connect and subscribe, and wait until the subscription is active.
+     *
+     * @throws MqttException If connecting or subscribing fails.
+     */
+    public void connect() throws MqttException {
+        MqttConnectOptions options = new MqttConnectOptions();
+        options.setCleanSession(true);
+        options.setMaxInflight(1000);
+        client.setCallback(this);
+        client.connect(options).waitForCompletion();
+        client.subscribe(topic, qos).waitForCompletion();
+    }
+
+    public void close() {
+        try {
+            client.disconnect().waitForCompletion();
+            client.close();
+        } catch (MqttException ex) {
+            LOGGER.warn("Failed to close listener on {}: {}", topic, ex.getMessage());
+        }
+    }
+
+    @Override
+    public void connectionLost(Throwable cause) {
+        LOGGER.error("Listener on {} lost its connection.", topic, cause);
+    }
+
+    @Override
+    public void messageArrived(String messageTopic, MqttMessage message) {
+        try {
+            JSONObject observation = new JSONObject(new String(message.getPayload(), StandardCharsets.UTF_8));
+            waiter.received(observation.getLong("result"));
+        } catch (JSONException ex) {
+            LOGGER.warn("Received an unexpected message on {}: {}", messageTopic, ex.getMessage());
+        }
+    }
+
+    @Override
+    public void deliveryComplete(IMqttDeliveryToken token) {
+        // Listeners do not publish.
+    }
+
+}
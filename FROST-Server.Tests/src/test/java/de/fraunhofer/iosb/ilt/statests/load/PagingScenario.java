@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.statests.load;
+
+import org.json.JSONObject;
+
+/**
+ * Pages through the Observations of the seeded Datastream by following the
+ * nextLinks. Each thread starts at a different depth of the collection, and
+ * starts over when it reaches the end. One operation fetches one page.
+ *
+ * @author scf
+ */
+public class PagingScenario extends LoadScenario {
+
+    private static final String NEXT_LINK = "@iot.nextLink";
+
+    private String[] startLinks;
+    private String[] nextLinks;
+
+    public PagingScenario() {
+        super("getDeepPaging");
+    }
+
+    @Override
+    public void setUp(LoadContext context) {
+        LoadSettings settings = context.getSettings();
+        int threads = settings.getThreads();
+        startLinks = new String[threads];
+        nextLinks = new String[threads];
+        for (int i = 0; i < threads; i++) {
+            long skip = (long) settings.getSeedObservations() * i / threads;
+            startLinks[i] = context.getObservationsPath() + "?$top=" + settings.getPageSize() + "&$skip=" + skip;
+        }
+    }
+
+    @Override
+    public void execute(LoadContext context, int thread) throws Exception {
+        String link = nextLinks[thread];
+        if (link == null) {
+            link = startLinks[thread];
+        }
+        JSONObject page = new JSONObject(context.get(link));
+        nextLinks[thread] = page.optString(NEXT_LINK, null);
+    }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.statests.load;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Lets operations wait until MQTT notifications for the Observations they
+ * created have arrived. Each operation creates an Observation with a unique
+ * result, and waits for that result.
+ *
+ * @author scf
+ */
+public class ResultWaiter {
+
+    private final Map<Long, CountDownLatch> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Register that the given number of notifications is expected for the
+     * given result. Must be called before the Observation is created.
+     *
+     * @param result The result of the Observation that will be created.
+     * @param count The number of notifications to wait for.
+     */
+    public void expect(long result, int count) {
+        pending.put(result, new CountDownLatch(count));
+    }
+
+    /**
+     * Wait for the notifications for the given result.
+     *
+     * @param result The result of the Observation that was created.
+     * @param timeoutSeconds The maximum time to wait.
+     * @throws InterruptedException If the thread was interrupted.
+     * @throws TimeoutException If not all notifications arrived in time.
+     */
+    public void await(long result, int timeoutSeconds) throws InterruptedException, TimeoutException {
+        CountDownLatch latch = pending.get(result);
+        try {
+            if (!latch.await(timeoutSeconds, TimeUnit.SECONDS)) {
+                throw new TimeoutException("Missing " + latch.getCount() + " notifications for result " + result);
+            }
+        } finally {
+            pending.remove(result);
+        }
+    }
+
+    /**
+     * Called by the listeners when a notification arrived.
+     *
+     * @param result The result of the Observation in the notification.
+     */
+    public void received(long result) {
+        CountDownLatch latch = pending.get(result);
+        if (latch != null) {
+            latch.countDown();
+        }
+    }
+
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.statests.load;
+
+import java.util.concurrent.TimeUnit;
+import org.json.JSONObject;
+
+/**
+ * The throughput and latency distribution of one scenario.
+ *
+ * @author scf
+ */
+public class ScenarioResult {
+
+    private static final double NANOS_PER_MS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final double NANOS_PER_S = TimeUnit.SECONDS.toNanos(1);
+
+    private final String name;
+    private final int threads;
+    private final int operations;
+    private final int errors;
+    private final int itemsPerOperation;
+    private final long durationNanos;
+    private final long[] sortedLatencies;
+
+    /**
+     * Create a result from the latencies recorded while running a scenario.
+     *
+     * @param name The name of the scenario.
+     * @param threads The number of threads that ran the scenario.
+     * @param itemsPerOperation The number of items, like Observations, that
+     * each operation handled.
+     * @param durationNanos The wall-clock time that the run took.
+     * @param recorder The recorder holding the latencies.
+     */
+    public ScenarioResult(String name, int threads, int itemsPerOperation, long durationNanos, LatencyRecorder recorder) {
+        this.name = name;
+        this.threads = threads;
+        this.itemsPerOperation = itemsPerOperation;
+        this.durationNanos = durationNanos;
+        this.sortedLatencies = recorder.getSorted();
+        this.operations = sortedLatencies.length;
+        this.errors = recorder.getErrors();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getOperations() {
+        return operations;
+    }
+
+    public int getErrors() {
+        return errors;
+    }
+
+    public double getOpsPerSecond() {
+        if (durationNanos == 0) {
+            return 0;
+        }
+        return operations * NANOS_PER_S / durationNanos;
+    }
+
+    /**
+     * Get the given percentile of the latencies, using the nearest-rank
+     * method.
+     *
+     * @param percentile The percentile to get, between 0 and 100.
+     * @return The latency at the given percentile, in milliseconds.
+     */
+    public double getPercentileMs(double percentile) {
+        if (sortedLatencies.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100 * sortedLatencies.length);
+        int index = Math.max(0, Math.min(sortedLatencies.length - 1, rank - 1));
+        return sortedLatencies[index] / NANOS_PER_MS;
+    }
+
+    public double getMeanMs() {
+        if (sortedLatencies.length == 0) {
+            return 0;
+        }
+        double total = 0;
+        for (long latency : sortedLatencies) {
+            total += latency;
+        }
+        return total / sortedLatencies.length / NANOS_PER_MS;
+    }
+
+    public JSONObject toJson() {
+        JSONObject json = new JSONObject();
+        json.put("name", name);
+        json.put("threads", threads);
+        json.put("operations", operations);
+        json.put("errors", errors);
+        json.put("durationMs", round(durationNanos / NANOS_PER_MS));
+        json.put("opsPerSecond", round(getOpsPerSecond()));
+        if (itemsPerOperation != 1) {
+            json.put("itemsPerOperation", itemsPerOperation);
+            json.put("itemsPerSecond", round(getOpsPerSecond() * itemsPerOperation));
+        }
+        JSONObject latency = new JSONObject();
+        latency.put("mean", round(getMeanMs()));
+        latency.put("p50", round(getPercentileMs(50)));
+        latency.put("p90", round(getPercentileMs(90)));
+        latency.put("p99", round(getPercentileMs(99)));
+        latency.put("max", round(getPercentileMs(100)));
+        json.put("latencyMs", latency);
+        return json;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-24s %10.1f ops/s  p50 %8.2f ms  p99 %8.2f ms  errors %d",
+                name, getOpsPerSecond(), getPercentileMs(50), getPercentileMs(99), errors);
+    }
+
+}
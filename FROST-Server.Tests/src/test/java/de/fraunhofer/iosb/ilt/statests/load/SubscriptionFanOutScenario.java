@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.statests.load;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.eclipse.paho.client.mqttv3.MqttException;
+
+/**
+ * Measures how long it takes until all subscribers are notified of a new
+ * Observation. Half of the subscribers use a plain topic, the other half a
+ * topic with a $select.
+ *
+ * @author scf
+ */
+public class SubscriptionFanOutScenario extends LoadScenario {
+
+    private final ResultWaiter waiter = new ResultWaiter();
+    private final List<ObservationListener> listeners = new ArrayList<>();
+
+    public SubscriptionFanOutScenario() {
+        super("subscriptionFanOut");
+    }
+
+    @Override
+    public void setUp(LoadContext context) throws MqttException {
+        LoadSettings settings = context.getSettings();
+        String topic = context.getMqttTopic(context.getObservationsPath());
+        for (int i = 0; i < settings.getSubscribers(); i++) {
+            String listenerTopic = i % 2 == 0 ? topic : topic + "?$select=result,phenomenonTime";
+            ObservationListener listener = new ObservationListener(context.getMqttUrl(), listenerTopic, settings.getMqttQos(), waiter);
+            listener.connect();
+            listeners.add(listener);
+        }
+    }
+
+    @Override
+    public void execute(LoadContext context, int thread) throws Exception {
+        long result = context.nextResult();
+        waiter.expect(result, listeners.size());
+        context.post(context.getObservationsPath(), LoadContext.observationJson(result));
+        waiter.await(result, context.getSettings().getTimeoutSeconds());
+    }
+
+    @Override
+    public void tearDown(LoadContext context) {
+        for (ObservationListener listener : listeners) {
+            listener.close();
+        }
+        listeners.clear();
+    }
+
+}
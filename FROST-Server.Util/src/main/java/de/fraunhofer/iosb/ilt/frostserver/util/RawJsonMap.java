@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A Map that holds a JSON object as the text it was loaded as, and only parses
+ * the text when the content of the Map is accessed. As long as the Map is not
+ * parsed, serialising it writes the text as is.
+ *
+ * This avoids the parse-and-serialise round trip for JSON objects that are
+ * loaded from the database and written to the client unchanged.
+ *
+ * @author scf
+ */
+public class RawJsonMap extends AbstractMap<String, Object> implements JsonSerializable {
+
+    private static final TypeReference<LinkedHashMap<String, Object>> TYPE_MAP = new TypeReference<LinkedHashMap<String, Object>>() {
+        // Empty on purpose.
+    };
+
+    private String rawJson;
+    private Map<String, Object> parsed;
+
+    /**
+     * Create a new Map for the given JSON text. Use
+     * {@link #isJsonObject(java.lang.String)} to check if the text can be
+     * used.
+     *
+     * @param rawJson The JSON text of a JSON object.
+     */
+    public RawJsonMap(String rawJson) {
+        this.rawJson = rawJson;
+    }
+
+    /**
+     * Checks if the given text looks like a JSON object, and can thus be used
+     * for a RawJsonMap.
+     *
+     * @param json The text to check.
+     * @return true if the text starts with a '{'.
+     */
+    public static boolean isJsonObject(String json) {
+        return RawJsonValue.firstChar(json) == '{';
+    }
+
+    /**
+     * @return true if the content of the Map has been parsed.
+     */
+    public boolean isParsed() {
+        return parsed != null;
+    }
+
+    /**
+     * Get the JSON text, if the Map has not been parsed yet.
+     *
+     * @return The JSON text, or null if the Map has been parsed, and thus may
+     * have been changed.
+     */
+    public String getRawJson() {
+        return rawJson;
+    }
+
+    private Map<String, Object> getParsed() {
+        if (parsed == null) {
+            try {
+                parsed = SimpleJsonMapper.getSimpleObjectMapper().readValue(rawJson, TYPE_MAP);
+            } catch (IOException ex) {
+                throw new IllegalStateException("Failed to parse stored json.", ex);
+            }
+            rawJson = null;
+        }
+        return parsed;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return getParsed().entrySet();
+    }
+
+    @Override
+    public int size() {
+        return getParsed().size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return getParsed().isEmpty();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return getParsed().containsKey(key);
+    }
+
+    @Override
+    public Object get(Object key) {
+        return getParsed().get(key);
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        return getParsed().put(key, value);
+    }
+
+    @Override
+    public Object remove(Object key) {
+        return getParsed().remove(key);
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ? extends Object> m) {
+        getParsed().putAll(m);
+    }
+
+    @Override
+    public void clear() {
+        getParsed().clear();
+    }
+
+    @Override
+    public void serialize(JsonGenerator gen, SerializerProvider serializers) throws IOException {
+        if (parsed == null) {
+            RawJsonValue.writeRawJson(gen, rawJson);
+        } else {
+            serializers.defaultSerializeValue(parsed, gen);
+        }
+    }
+
+    @Override
+    public void serializeWithType(JsonGenerator gen, SerializerProvider serializers, TypeSerializer typeSer) throws IOException {
+        serialize(gen, serializers);
+    }
+
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.json.JsonGeneratorImpl;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * Holds a JSON value as the text it was loaded as. The text is only parsed
+ * into a JsonNode when the tree is requested. Serialising the value writes
+ * the text as is.
+ *
+ * @author scf
+ */
+public class RawJsonValue implements JsonSerializable {
+
+    private final String rawJson;
+    private JsonNode tree;
+
+    /**
+     * Create a new value for the given JSON text.
+     *
+     * @param rawJson The JSON text.
+     */
+    public RawJsonValue(String rawJson) {
+        this.rawJson = rawJson;
+    }
+
+    /**
+     * Get the first non-whitespace character of the given text.
+     *
+     * @param json The text to check.
+     * @return the first non-whitespace character, or 0 if there is none.
+     */
+    static char firstChar(String json) {
+        if (json == null) {
+            return 0;
+        }
+        for (int i = 0; i < json.length(); i++) {
+            char c = json.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                return c;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Write the given JSON text to the generator. Text JSON generators get the
+     * text as is. Other generators, like the binary Smile generator, do not
+     * support raw values, so for those the text is parsed and copied token by
+     * token.
+     *
+     * @param gen The generator to write to.
+     * @param rawJson The JSON text to write.
+     * @throws IOException If writing fails.
+     */
+    static void writeRawJson(JsonGenerator gen, String rawJson) throws IOException {
+        if (gen instanceof JsonGeneratorImpl) {
+            gen.writeRawValue(rawJson);
+            return;
+        }
+        try (JsonParser parser = SimpleJsonMapper.getSimpleObjectMapper().getFactory().createParser(rawJson)) {
+            parser.nextToken();
+            gen.copyCurrentStructure(parser);
+        }
+    }
+
+    /**
+     * @return The JSON text.
+     */
+    public String getRawJson() {
+        return rawJson;
+    }
+
+    /**
+     * @return The parsed JSON value.
+     */
+    public JsonNode getTree() {
+        if (tree == null) {
+            try {
+                tree = SimpleJsonMapper.getSimpleObjectMapper().readTree(rawJson);
+            } catch (IOException ex) {
+                throw new IllegalStateException("Failed to parse stored json.", ex);
+            }
+        }
+        return tree;
+    }
+
+    @Override
+    public void serialize(JsonGenerator gen, SerializerProvider serializers) throws IOException {
+        writeRawJson(gen, rawJson);
+    }
+
+    @Override
+    public void serializeWithType(JsonGenerator gen, SerializerProvider serializers, TypeSerializer typeSer) throws IOException {
+        serialize(gen, serializers);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(getTree());
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj instanceof RawJsonValue) {
+            return Objects.equals(getTree(), ((RawJsonValue) obj).getTree());
+        }
+        if (obj instanceof JsonNode) {
+            return obj.equals(getTree());
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return rawJson;
+    }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author scf
+ */
+public class RawJsonMapTest {
+
+    private static final String JSON = "{\"a\": 1, \"b\": [\"x\", {\"c\": true}]}";
+
+    @Test
+    public void testSerialiseUnparsed() throws IOException {
+        ObjectMapper mapper = SimpleJsonMapper.getSimpleObjectMapper();
+        RawJsonMap map = new RawJsonMap(JSON);
+        Map<String, Object> container = new LinkedHashMap<>();
+        container.put("properties", map);
+        container.put("result", new RawJsonValue("[1, 2]"));
+
+        String written = mapper.writeValueAsString(container);
+        Assert.assertEquals("{\"properties\":" + JSON + ",\"result\":[1, 2]}", written);
+        Assert.assertFalse(map.isParsed());
+        Assert.assertEquals(JSON, map.getRawJson());
+    }
+
+    @Test
+    public void testSerialiseToNonTextGenerator() throws IOException {
+        ObjectMapper mapper = SimpleJsonMapper.getSimpleObjectMapper();
+        Map<String, Object> container = new LinkedHashMap<>();
+        container.put("properties", new RawJsonMap(JSON));
+        container.put("result", new RawJsonValue("[1, 2]"));
+
+        // valueToTree writes to a TokenBuffer, which is not a text generator.
+        JsonNode tree = mapper.valueToTree(container);
+        Assert.assertEquals(mapper.readTree(JSON), tree.get("properties"));
+        Assert.assertEquals(mapper.readTree("[1,2]"), tree.get("result"));
+    }
+
+    @Test
+    public void testParseOnAccess() throws IOException {
+        ObjectMapper mapper = SimpleJsonMapper.getSimpleObjectMapper();
+        RawJsonMap map = new RawJsonMap(JSON);
+        Assert.assertEquals(1, map.get("a"));
+        Assert.assertTrue(map.isParsed());
+        Assert.assertNull(map.getRawJson());
+
+        map.put("d", "e");
+        Assert.assertEquals(3, map.size());
+        Map<String, Object> expected = mapper.readValue(JSON, Map.class);
+        expected.put("d", "e");
+        Assert.assertEquals(expected, map);
+        Assert.assertEquals(mapper.writeValueAsString(expected), mapper.writeValueAsString(map));
+    }
+
+    @Test
+    public void testIsJsonObject() {
+        Assert.assertTrue(RawJsonMap.isJsonObject(" {}"));
+        Assert.assertFalse(RawJsonMap.isJsonObject("[]"));
+        Assert.assertFalse(RawJsonMap.isJsonObject("null"));
+        Assert.assertFalse(RawJsonMap.isJsonObject(null));
+        Assert.assertEquals(new RawJsonValue("[1,2]"), new RawJsonValue("[1, 2]"));
+    }
+
+}
@@ -17,6 +17,7 @@
  */
 package de.fraunhofer.iosb.ilt.frostserver.plugin.batchprocessing;
 
+import de.fraunhofer.iosb.ilt.frostserver.formatter.FormatWriter;
 import de.fraunhofer.iosb.ilt.frostserver.model.core.Entity;
 import de.fraunhofer.iosb.ilt.frostserver.path.Version;
 import de.fraunhofer.iosb.ilt.frostserver.plugin.batchprocessing.multipart.Content;
@@ -31,6 +32,7 @@ import de.fraunhofer.iosb.ilt.frostserver.service.ServiceRequest;
 import de.fraunhofer.iosb.ilt.frostserver.service.ServiceRequestBuilder;
 import de.fraunhofer.iosb.ilt.frostserver.service.ServiceResponse;
 import de.fraunhofer.iosb.ilt.frostserver.util.StringHelper;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -82,7 +84,7 @@ public class BatchProcessorHelper {
         Map<String, String> headers = httpResponse.getHttpHeaders();
         serviceResponse.getHeaders().entrySet().forEach(x -> headers.put(x.getKey(), x.getValue()));
 
-        String resultFormatted = serviceResponse.getResultFormatted();
+        String resultFormatted = formattedToString(serviceResponse.getResultFormatted());
         if (statusCode >= 200 && statusCode < 300) {
             if (!StringHelper.isNullOrEmpty(resultFormatted)) {
                 headers.put("Content-Type", "application/json; charset=UTF-8");
@@ -98,6 +100,18 @@ public class BatchProcessorHelper {
         return httpResponse;
     }
 
+    private static String formattedToString(FormatWriter formatted) {
+        if (formatted == null) {
+            return null;
+        }
+        try {
+            return formatted.getAsString();
+        } catch (IOException ex) {
+            LOGGER.error("Failed to format response.", ex);
+            return null;
+        }
+    }
+
     public static Content processChangeset(Service service, MixedContent changeset) {
         if (changeset.isParseFailed()) {
             HttpContent content = new HttpContent();
@@ -17,6 +17,7 @@
  */
 package de.fraunhofer.iosb.ilt.frostserver.plugin.batchprocessing;
 
+import de.fraunhofer.iosb.ilt.frostserver.formatter.FormatWriterGeneric;
 import de.fraunhofer.iosb.ilt.frostserver.plugin.batchprocessing.multipart.MixedContent;
 import de.fraunhofer.iosb.ilt.frostserver.service.Service;
 import de.fraunhofer.iosb.ilt.frostserver.service.ServiceRequest;
@@ -59,7 +60,7 @@ public class ServiceBatchProcessing {
         final ServiceResponse response = new ServiceResponse<>();
         response.setCode(200);
         multipartMixedData.getHeaders().entrySet().forEach(x -> response.addHeader(x.getKey(), x.getValue()));
-        response.setResultFormatted(multipartMixedData.getContent(false));
+        response.setResultFormatted(new FormatWriterGeneric(multipartMixedData.getContent(false)));
         return response;
     }
 }
@@ -17,6 +17,7 @@
  */
 package de.fraunhofer.iosb.ilt.frostserver.plugin.format.csv;
 
+import de.fraunhofer.iosb.ilt.frostserver.formatter.FormatWriter;
 import de.fraunhofer.iosb.ilt.frostserver.formatter.ResultFormatter;
 import de.fraunhofer.iosb.ilt.frostserver.model.EntityType;
 import de.fraunhofer.iosb.ilt.frostserver.path.ResourcePath;
@@ -27,7 +28,6 @@ import de.fraunhofer.iosb.ilt.frostserver.query.Expand;
 import de.fraunhofer.iosb.ilt.frostserver.query.Query;
 import de.fraunhofer.iosb.ilt.frostserver.util.exception.IncorrectRequestException;
 import java.io.IOException;
-import java.io.StringWriter;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVPrinter;
 import org.slf4j.LoggerFactory;
@@ -70,20 +70,29 @@ public class ResultFormatterCsv implements ResultFormatter {
 
     @Override
     public String format(ResourcePath path, Query query, Object result, boolean useAbsoluteNavigationLinks) {
+        try {
+            return getFormatWriter(path, query, result, useAbsoluteNavigationLinks).getAsString();
+        } catch (IOException ex) {
+            LOGGER.error("Failed to generate CSV String.", ex);
+        }
+        return "";
+    }
+
+    @Override
+    public FormatWriter getFormatWriter(ResourcePath path, Query query, Object result, boolean useAbsoluteNavigationLinks) {
         EntityType type = path.getMainElementType();
         CsvElementSet elementSet = new CsvElementSet("");
         elementSet.initFrom(type, query);
 
-        StringWriter writer = new StringWriter();
-        try (CSVPrinter printer = new CSVPrinter(writer, CSVFormat.RFC4180)) {
+        return target -> {
+            // The printer is not closed, since that would close the target.
+            CSVPrinter printer = new CSVPrinter(target, CSVFormat.RFC4180);
             CsvRowCollector rowCollector = new CsvRowCollector(printer);
             elementSet.writeHeader(rowCollector);
             rowCollector.flush();
             elementSet.writeData(rowCollector, result);
-        } catch (IOException ex) {
-            LOGGER.error("Failed to generate CSV String.", ex);
-        }
-        return writer.toString();
+            printer.flush();
+        };
     }
 
     @Override
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.plugin.format.csv;
+
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityType;
+import de.fraunhofer.iosb.ilt.frostserver.model.Thing;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.EntitySet;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.EntitySetImpl;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.IdLong;
+import de.fraunhofer.iosb.ilt.frostserver.parser.path.PathParser;
+import de.fraunhofer.iosb.ilt.frostserver.parser.query.QueryParser;
+import de.fraunhofer.iosb.ilt.frostserver.path.ResourcePath;
+import de.fraunhofer.iosb.ilt.frostserver.path.Version;
+import de.fraunhofer.iosb.ilt.frostserver.query.Query;
+import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
+import java.io.IOException;
+import java.io.StringWriter;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author scf
+ */
+public class ResultFormatterCsvTest {
+
+    @Test
+    public void testWriteFormatted() throws IOException {
+        ResourcePath path = PathParser.parsePath("http://example.org", Version.V_1_1, "/Things");
+        Query query = QueryParser.parseQuery("$select=id,name", new CoreSettings(), path).validate();
+        EntitySet<Thing> things = new EntitySetImpl<>(EntityType.THING);
+        things.add(new Thing().setQuery(query).setId(new IdLong(1)).setName("Oven"));
+        things.add(new Thing().setQuery(query).setId(new IdLong(2)).setName("Fridge, large"));
+
+        ResultFormatterCsv formatter = new ResultFormatterCsv();
+        CloseTrackingWriter target = new CloseTrackingWriter();
+        formatter.getFormatWriter(path, query, things, false).writeFormatted(target);
+        Assert.assertFalse("The target must not be closed.", target.closed);
+
+        String expected = "id,name\r\n"
+                + "1,Oven\r\n"
+                + "2,\"Fridge, large\"\r\n";
+        Assert.assertEquals(expected, target.toString());
+        Assert.assertEquals(expected, formatter.format(path, query, things, false));
+    }
+
+    /**
+     * A StringWriter that remembers if it was closed.
+     */
+    private static class CloseTrackingWriter extends StringWriter {
+
+        private boolean closed = false;
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            super.close();
+        }
+
+    }
+}
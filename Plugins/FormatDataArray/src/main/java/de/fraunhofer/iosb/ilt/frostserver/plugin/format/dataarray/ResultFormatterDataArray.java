@@ -17,6 +17,7 @@
  */
 package de.fraunhofer.iosb.ilt.frostserver.plugin.format.dataarray;
 
+import de.fraunhofer.iosb.ilt.frostserver.formatter.FormatWriter;
 import de.fraunhofer.iosb.ilt.frostserver.formatter.ResultFormatter;
 import de.fraunhofer.iosb.ilt.frostserver.json.serialize.JsonWriter;
 import de.fraunhofer.iosb.ilt.frostserver.model.EntityType;
@@ -69,19 +70,23 @@ public class ResultFormatterDataArray implements ResultFormatter {
 
     @Override
     public String format(ResourcePath path, Query query, Object result, boolean useAbsoluteNavigationLinks) {
-        String entityJsonString = "";
         try {
-            if (EntitySet.class.isAssignableFrom(result.getClass())) {
-                EntitySet entitySet = (EntitySet) result;
-                if (entitySet.getEntityType() == EntityType.OBSERVATION) {
-                    return formatDataArray(path, query, entitySet);
-                }
-            }
-            throw new IllegalArgumentException(OBSERVATIONS_ONLY);
+            return getFormatWriter(path, query, result, useAbsoluteNavigationLinks).getAsString();
         } catch (IOException ex) {
             LOGGER.error("Failed to format response.", ex);
         }
-        return entityJsonString;
+        return "";
+    }
+
+    @Override
+    public FormatWriter getFormatWriter(ResourcePath path, Query query, Object result, boolean useAbsoluteNavigationLinks) {
+        if (EntitySet.class.isAssignableFrom(result.getClass())) {
+            EntitySet entitySet = (EntitySet) result;
+            if (entitySet.getEntityType() == EntityType.OBSERVATION) {
+                return dataArrayWriter(path, query, entitySet);
+            }
+        }
+        throw new IllegalArgumentException(OBSERVATIONS_ONLY);
     }
 
     @Override
@@ -177,6 +182,10 @@ public class ResultFormatterDataArray implements ResultFormatter {
     }
 
     public String formatDataArray(ResourcePath path, Query query, EntitySet<Observation> entitySet) throws IOException {
+        return dataArrayWriter(path, query, entitySet).getAsString();
+    }
+
+    private FormatWriter dataArrayWriter(ResourcePath path, Query query, EntitySet<Observation> entitySet) {
         VisibleComponents visComps;
         if (query == null || query.getSelect().isEmpty()) {
             visComps = new VisibleComponents(true);
@@ -204,7 +213,7 @@ public class ResultFormatterDataArray implements ResultFormatter {
         result.setCount(entitySet.getCount());
         result.setNextLink(entitySet.getNextLink());
 
-        return JsonWriter.writeObject(result);
+        return target -> JsonWriter.writeObject(target, result);
     }
 
 }
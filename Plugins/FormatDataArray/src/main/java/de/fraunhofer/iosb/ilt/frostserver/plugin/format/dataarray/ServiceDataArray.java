@@ -32,11 +32,10 @@ import de.fraunhofer.iosb.ilt.frostserver.service.ServiceRequest;
 import de.fraunhofer.iosb.ilt.frostserver.service.ServiceResponse;
 import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
 import de.fraunhofer.iosb.ilt.frostserver.util.ArrayValueHandlers;
-import de.fraunhofer.iosb.ilt.frostserver.util.exception.IncompleteEntityException;
 import de.fraunhofer.iosb.ilt.frostserver.util.exception.IncorrectRequestException;
-import de.fraunhofer.iosb.ilt.frostserver.util.exception.NoSuchEntityException;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -89,7 +88,7 @@ public class ServiceDataArray {
             }
             service.maybeCommitAndClose();
             ResultFormatter formatter = settings.getFormatter(DEFAULT_FORMAT_NAME);
-            response.setResultFormatted(formatter.format(null, null, selfLinks, settings.getQueryDefaults().useAbsoluteNavigationLinks()));
+            response.setResultFormatted(formatter.getFormatWriter(null, null, selfLinks, settings.getQueryDefaults().useAbsoluteNavigationLinks()));
             response.setContentType(formatter.getContentType());
             return Service.successResponse(response, 201, "Created");
         } catch (IllegalArgumentException | IOException e) {
@@ -108,8 +107,13 @@ public class ServiceDataArray {
 
     private void handleDataArrayItems(Version version, List<ArrayValueHandlers.ArrayValueHandler> handlers, DataArrayValue daValue, Datastream datastream, MultiDatastream multiDatastream, PersistenceManager pm, List<String> selfLinks) {
         final String serviceRootUrl = settings.getQueryDefaults().getServiceRootUrl();
+        final List<List<Object>> dataArray = daValue.getDataArray();
+        final String[] results = new String[dataArray.size()];
+        final List<Observation> observations = new ArrayList<>(dataArray.size());
+        final List<Integer> rows = new ArrayList<>(dataArray.size());
         int compCount = handlers.size();
-        for (List<Object> entry : daValue.getDataArray()) {
+        for (int row = 0; row < dataArray.size(); row++) {
+            List<Object> entry = dataArray.get(row);
             try {
                 Observation observation = new Observation();
                 observation.setDatastream(datastream);
@@ -117,14 +121,24 @@ public class ServiceDataArray {
                 for (int i = 0; i < compCount; i++) {
                     handlers.get(i).handle(entry.get(i), observation);
                 }
+                observations.add(observation);
+                rows.add(row);
+            } catch (IllegalArgumentException exc) {
+                LOGGER.debug("Failed to create entity", exc);
+                results[row] = "error " + exc.getMessage();
+            }
+        }
 
-                pm.insert(observation);
-                String selfLink = UrlHelper.generateSelfLink(serviceRootUrl, version, observation);
-                selfLinks.add(selfLink);
-            } catch (NoSuchEntityException | IncompleteEntityException | IllegalArgumentException exc) {
+        List<Exception> errors = pm.insertAll(observations);
+        for (int i = 0; i < errors.size(); i++) {
+            Exception exc = errors.get(i);
+            if (exc == null) {
+                results[rows.get(i)] = UrlHelper.generateSelfLink(serviceRootUrl, version, observations.get(i));
+            } else {
                 LOGGER.debug("Failed to create entity", exc);
-                selfLinks.add("error " + exc.getMessage());
+                results[rows.get(i)] = "error " + exc.getMessage();
             }
         }
+        selfLinks.addAll(Arrays.asList(results));
     }
 }
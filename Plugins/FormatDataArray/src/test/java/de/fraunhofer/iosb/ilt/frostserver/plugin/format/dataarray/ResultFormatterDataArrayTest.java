@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.plugin.format.dataarray;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import de.fraunhofer.iosb.ilt.frostserver.model.Datastream;
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityType;
+import de.fraunhofer.iosb.ilt.frostserver.model.Observation;
+import de.fraunhofer.iosb.ilt.frostserver.model.Thing;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.EntitySet;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.EntitySetImpl;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.IdLong;
+import de.fraunhofer.iosb.ilt.frostserver.model.ext.TimeInstant;
+import de.fraunhofer.iosb.ilt.frostserver.parser.path.PathParser;
+import de.fraunhofer.iosb.ilt.frostserver.parser.query.QueryParser;
+import de.fraunhofer.iosb.ilt.frostserver.path.ResourcePath;
+import de.fraunhofer.iosb.ilt.frostserver.path.Version;
+import de.fraunhofer.iosb.ilt.frostserver.query.Query;
+import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
+import de.fraunhofer.iosb.ilt.frostserver.util.SimpleJsonMapper;
+import java.io.IOException;
+import java.io.StringWriter;
+import org.joda.time.DateTimeZone;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ *
+ * @author scf
+ */
+public class ResultFormatterDataArrayTest {
+
+    private static CoreSettings coreSettings;
+
+    @BeforeClass
+    public static void setUp() {
+        coreSettings = new CoreSettings();
+        PluginResultFormatDataArray.modifyEntityFormatter();
+    }
+
+    @Test
+    public void testWriteFormatted() throws IOException {
+        ResourcePath path = PathParser.parsePath("http://example.org", Version.V_1_1, "/Observations");
+        Query query = QueryParser.parseQuery("$select=id,phenomenonTime,result&$count=true", coreSettings, path).validate();
+        EntitySet<Observation> observations = new EntitySetImpl<>(EntityType.OBSERVATION);
+        long start = 1_600_000_000_000L;
+        for (int i = 0; i < 4; i++) {
+            Datastream datastream = new Datastream().setId(new IdLong(1 + i % 2));
+            observations.add(new Observation()
+                    .setQuery(query)
+                    .setId(new IdLong(100 + i))
+                    .setPhenomenonTime(TimeInstant.create(start + i * 60_000L, DateTimeZone.UTC))
+                    .setResult(i)
+                    .setDatastream(datastream));
+        }
+        observations.setCount(42);
+
+        ResultFormatterDataArray formatter = new ResultFormatterDataArray();
+        StringWriter target = new StringWriter();
+        formatter.getFormatWriter(path, query, observations, false).writeFormatted(target);
+        Assert.assertEquals(formatter.format(path, query, observations, false), target.toString());
+
+        JsonNode json = SimpleJsonMapper.getSimpleObjectMapper().readTree(target.toString());
+        Assert.assertEquals(42, json.get("@iot.count").asInt());
+        JsonNode values = json.get("value");
+        Assert.assertEquals("One value per Datastream.", 2, values.size());
+        JsonNode first = values.get(0);
+        Assert.assertEquals("[\"id\",\"phenomenonTime\",\"result\"]", first.get("components").toString());
+        Assert.assertEquals(2, first.get("dataArray@iot.count").asInt());
+        JsonNode row = first.get("dataArray").get(1);
+        Assert.assertEquals(102, row.get(0).asInt());
+        Assert.assertEquals(2, row.get(2).asInt());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOnlyObservations() {
+        ResourcePath path = PathParser.parsePath("http://example.org", Version.V_1_1, "/Things");
+        new ResultFormatterDataArray().getFormatWriter(path, null, new EntitySetImpl<Thing>(EntityType.THING), false);
+    }
+}
@@ -17,6 +17,7 @@
  */
 package de.fraunhofer.iosb.ilt.frostserver.plugin.format.geojson;
 
+import de.fraunhofer.iosb.ilt.frostserver.formatter.FormatWriter;
 import de.fraunhofer.iosb.ilt.frostserver.formatter.ResultFormatter;
 import de.fraunhofer.iosb.ilt.frostserver.json.serialize.JsonWriter;
 import de.fraunhofer.iosb.ilt.frostserver.model.EntityType;
@@ -46,6 +47,15 @@ public class ResultFormatterGeoJson implements ResultFormatter {
 
     @Override
     public String format(ResourcePath path, Query query, Object result, boolean useAbsoluteNavigationLinks) {
+        try {
+            return getFormatWriter(path, query, result, useAbsoluteNavigationLinks).getAsString();
+        } catch (IOException ex) {
+            throw new IllegalStateException("Failed to generate GeoJSON.", ex);
+        }
+    }
+
+    @Override
+    public FormatWriter getFormatWriter(ResourcePath path, Query query, Object result, boolean useAbsoluteNavigationLinks) {
         EntityType type = path.getMainElementType();
         GjElementSet elementSet = new GjElementSet(path.getServiceRootUrl(), path.getVersion(), "", true);
         elementSet.initFrom(type, query);
@@ -54,11 +64,7 @@ public class ResultFormatterGeoJson implements ResultFormatter {
         GjRowCollector rowCollector = new GjRowCollector(collection);
         elementSet.writeData(rowCollector, result, "");
 
-        try {
-            return JsonWriter.writeObject(collection);
-        } catch (IOException ex) {
-            throw new IllegalStateException("Failed to generate GeoJSON.", ex);
-        }
+        return target -> JsonWriter.writeObject(target, collection);
     }
 
 }
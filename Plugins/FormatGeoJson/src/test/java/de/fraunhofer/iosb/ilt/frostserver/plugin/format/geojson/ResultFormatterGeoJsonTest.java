@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2021 Fraunhofer Institut IOSB, Fraunhoferstr. 1, D 76131
+ * Karlsruhe, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.fraunhofer.iosb.ilt.frostserver.plugin.format.geojson;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import de.fraunhofer.iosb.ilt.frostserver.model.EntityType;
+import de.fraunhofer.iosb.ilt.frostserver.model.Location;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.EntitySet;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.EntitySetImpl;
+import de.fraunhofer.iosb.ilt.frostserver.model.core.IdLong;
+import de.fraunhofer.iosb.ilt.frostserver.parser.path.PathParser;
+import de.fraunhofer.iosb.ilt.frostserver.parser.query.QueryParser;
+import de.fraunhofer.iosb.ilt.frostserver.path.ResourcePath;
+import de.fraunhofer.iosb.ilt.frostserver.path.Version;
+import de.fraunhofer.iosb.ilt.frostserver.query.Query;
+import de.fraunhofer.iosb.ilt.frostserver.settings.CoreSettings;
+import de.fraunhofer.iosb.ilt.frostserver.util.SimpleJsonMapper;
+import java.io.IOException;
+import java.io.StringWriter;
+import org.geojson.Point;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author scf
+ */
+public class ResultFormatterGeoJsonTest {
+
+    @Test
+    public void testWriteFormatted() throws IOException {
+        ResourcePath path = PathParser.parsePath("http://example.org", Version.V_1_1, "/Locations");
+        Query query = QueryParser.parseQuery("$select=id,name,location", new CoreSettings(), path).validate();
+        EntitySet<Location> locations = new EntitySetImpl<>(EntityType.LOCATION);
+        for (int i = 1; i <= 2; i++) {
+            locations.add(new Location()
+                    .setQuery(query)
+                    .setId(new IdLong(i))
+                    .setName("Location " + i)
+                    .setEncodingType("application/geo+json")
+                    .setLocation(new Point(8.0 + i, 49.0)));
+        }
+
+        ResultFormatterGeoJson formatter = new ResultFormatterGeoJson();
+        StringWriter target = new StringWriter();
+        formatter.getFormatWriter(path, query, locations, false).writeFormatted(target);
+        Assert.assertEquals(formatter.format(path, query, locations, false), target.toString());
+
+        JsonNode json = SimpleJsonMapper.getSimpleObjectMapper().readTree(target.toString());
+        Assert.assertEquals("FeatureCollection", json.get("type").asText());
+        JsonNode features = json.get("features");
+        Assert.assertEquals(2, features.size());
+        JsonNode second = features.get(1);
+        Assert.assertEquals("Point", second.get("geometry").get("type").asText());
+        Assert.assertEquals(10.0, second.get("geometry").get("coordinates").get(0).asDouble(), 0.0);
+        Assert.assertEquals("Location 2", second.get("properties").get("name").asText());
+    }
+}
@@ -18,6 +18,7 @@
 package de.fraunhofer.iosb.ilt.frostserver.plugin.openapi;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import de.fraunhofer.iosb.ilt.frostserver.formatter.FormatWriterGeneric;
 import de.fraunhofer.iosb.ilt.frostserver.plugin.openapi.spec.GeneratorContext;
 import de.fraunhofer.iosb.ilt.frostserver.plugin.openapi.spec.OADoc;
 import de.fraunhofer.iosb.ilt.frostserver.plugin.openapi.spec.OpenApiGenerator;
@@ -53,7 +54,7 @@ public class ServiceOpenApi {
         OADoc oaDoc = OpenApiGenerator.generateOpenApiDocument(context);
         final ServiceResponse response = new ServiceResponse<>();
         try {
-            response.setResultFormatted(SimpleJsonMapper.getSimpleObjectMapper().writeValueAsString(oaDoc));
+            response.setResultFormatted(new FormatWriterGeneric(SimpleJsonMapper.getSimpleObjectMapper().writeValueAsString(oaDoc)));
             response.setCode(200);
             response.setContentType("application/json");
             return response;